@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the eviction policies of {@link BoundedConcurrentHashMap} on a key space twice as large as the map, so
+ * that every operation exercises the bookkeeping of the policy and a good share of the writes evict.
+ *
+ * @since 5.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BoundedConcurrentHashMapBenchmark {
+
+   private static final int CAPACITY = 1 << 14;
+   private static final int KEY_SPACE = CAPACITY * 2;
+
+   @Param({"LRU", "LIRS"})
+   public String eviction;
+
+   private BoundedConcurrentHashMap<String, String> map;
+   private String[] keys;
+
+   @Setup
+   public void setUp() {
+      map = new BoundedConcurrentHashMap<String, String>(CAPACITY, 32, Eviction.valueOf(eviction));
+      keys = KeySequence.keys(KEY_SPACE);
+      for (int i = 0; i < CAPACITY; i++) map.put(keys[i], keys[i]);
+   }
+
+   @Benchmark
+   public String get(KeySequence sequence) {
+      return map.get(keys[sequence.next(KEY_SPACE)]);
+   }
+
+   @Benchmark
+   public String put(KeySequence sequence) {
+      String key = keys[sequence.next(KEY_SPACE)];
+      return map.put(key, key);
+   }
+
+   /**
+    * The cache-aside pattern: a miss is followed by a write, so the hit ratio of the policy shows in the score.
+    */
+   @Benchmark
+   public String getOrPut(KeySequence sequence) {
+      String key = keys[sequence.next(KEY_SPACE)];
+      String value = map.get(key);
+      if (value == null) map.put(key, value = key);
+      return value;
+   }
+}
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two sets of JMH results written with <tt>-rf json</tt>, typically a recorded baseline and the results of
+ * the current build, and exits with a non zero status if any benchmark regressed by more than the given tolerance.
+ * <p/>
+ * Usage: <tt>CompareResults baseline.json current.json [tolerance percentage, 10 by default]</tt>
+ *
+ * @since 5.2
+ */
+public class CompareResults {
+
+   public static void main(String[] args) throws IOException {
+      if (args.length < 2) {
+         System.err.println("Usage: CompareResults <baseline.json> <current.json> [tolerance %]");
+         System.exit(2);
+      }
+      double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+      Map<String, Result> baseline = read(new File(args[0]));
+      Map<String, Result> current = read(new File(args[1]));
+
+      int regressions = 0;
+      for (Map.Entry<String, Result> e : current.entrySet()) {
+         Result now = e.getValue();
+         Result before = baseline.get(e.getKey());
+         if (before == null) {
+            System.out.printf("%-90s %12.3f %s (new)%n", e.getKey(), now.score, now.unit);
+            continue;
+         }
+         // throughput is better when higher, all the other modes measure time
+         double change = (now.score - before.score) / before.score * 100;
+         double worsening = now.higherIsBetter ? -change : change;
+         boolean regressed = worsening > tolerance;
+         if (regressed) regressions++;
+         System.out.printf("%-90s %12.3f -> %12.3f %s (%+.1f%%)%s%n", e.getKey(), before.score, now.score, now.unit,
+               change, regressed ? " REGRESSION" : "");
+      }
+      System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, tolerance);
+      if (regressions > 0) System.exit(1);
+   }
+
+   private static Map<String, Result> read(File file) throws IOException {
+      Map<String, Result> results = new LinkedHashMap<String, Result>();
+      for (JsonNode run : new ObjectMapper().readTree(file)) {
+         StringBuilder key = new StringBuilder(run.path("benchmark").getTextValue());
+         JsonNode params = run.path("params");
+         for (Iterator<Map.Entry<String, JsonNode>> it = params.getFields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> param = it.next();
+            key.append(':').append(param.getKey()).append('=').append(param.getValue().asText());
+         }
+         String mode = run.path("mode").getTextValue();
+         key.append(" [").append(mode).append(']');
+         JsonNode metric = run.path("primaryMetric");
+         results.put(key.toString(), new Result(metric.path("score").getDoubleValue(),
+               metric.path("scoreUnit").getTextValue(), "thrpt".equals(mode)));
+      }
+      return results;
+   }
+
+   private static class Result {
+      final double score;
+      final String unit;
+      final boolean higherIsBetter;
+
+      Result(double score, String unit, boolean higherIsBetter) {
+         this.score = score;
+         this.unit = unit;
+         this.higherIsBetter = higherIsBetter;
+      }
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes straight against the {@link DataContainer} of a local cache, unbounded or bounded to half of the
+ * key space, bypassing the interceptor chain.
+ *
+ * @since 5.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DataContainerBenchmark {
+
+   private static final int KEY_SPACE = 1 << 16;
+
+   @Param({"NONE", "LRU", "LIRS"})
+   public String eviction;
+
+   private EmbeddedCacheManager cacheManager;
+   private DataContainer container;
+   private String[] keys;
+
+   @Setup
+   public void setUp() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      EvictionStrategy strategy = EvictionStrategy.valueOf(eviction);
+      if (strategy.isEnabled()) builder.eviction().strategy(strategy).maxEntries(KEY_SPACE / 2);
+      cacheManager = new DefaultCacheManager(builder.build());
+      container = cacheManager.getCache().getAdvancedCache().getDataContainer();
+      keys = KeySequence.keys(KEY_SPACE);
+      for (String key : keys) container.put(key, key, null, -1, -1);
+   }
+
+   @TearDown
+   public void tearDown() {
+      cacheManager.stop();
+   }
+
+   @Benchmark
+   public InternalCacheEntry get(KeySequence sequence) {
+      return container.get(keys[sequence.next(KEY_SPACE)]);
+   }
+
+   @Benchmark
+   public void put(KeySequence sequence) {
+      String key = keys[sequence.next(KEY_SPACE)];
+      container.put(key, key, null, -1, -1);
+   }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.transaction.TransactionMode;
+import org.infinispan.transaction.lookup.DummyTransactionManagerLookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.transaction.TransactionManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of going through the whole interceptor chain of a local cache, with and without transactions.
+ * Transactional operations run in their own transaction, so the score includes the begin and the commit.
+ *
+ * @since 5.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InterceptorChainBenchmark {
+
+   private static final int KEY_SPACE = 1 << 14;
+
+   @Param({"false", "true"})
+   public boolean transactional;
+
+   private EmbeddedCacheManager cacheManager;
+   private Cache<String, String> cache;
+   private TransactionManager tm;
+   private String[] keys;
+
+   @Setup
+   public void setUp() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      if (transactional) {
+         builder.transaction().transactionMode(TransactionMode.TRANSACTIONAL)
+               .transactionManagerLookup(new DummyTransactionManagerLookup());
+      }
+      cacheManager = new DefaultCacheManager(builder.build());
+      cache = cacheManager.getCache();
+      tm = cache.getAdvancedCache().getTransactionManager();
+      keys = KeySequence.keys(KEY_SPACE);
+      for (String key : keys) cache.put(key, key);
+   }
+
+   @TearDown
+   public void tearDown() {
+      cacheManager.stop();
+   }
+
+   @Benchmark
+   public String get(KeySequence sequence) throws Exception {
+      String key = keys[sequence.next(KEY_SPACE)];
+      if (tm == null) return cache.get(key);
+      tm.begin();
+      try {
+         return cache.get(key);
+      } finally {
+         tm.commit();
+      }
+   }
+
+   @Benchmark
+   public String put(KeySequence sequence) throws Exception {
+      String key = keys[sequence.next(KEY_SPACE)];
+      if (tm == null) return cache.put(key, key);
+      tm.begin();
+      try {
+         return cache.put(key, key);
+      } finally {
+         tm.commit();
+      }
+   }
+}
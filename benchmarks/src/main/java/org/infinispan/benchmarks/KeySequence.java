@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Per thread source of key indexes, so that threads spread their accesses over the key space without sharing a
+ * random number generator.
+ *
+ * @since 5.2
+ */
+@State(Scope.Thread)
+public class KeySequence {
+
+   private int seed = new Random().nextInt();
+
+   /**
+    * @return an index between <tt>0</tt> (inclusive) and <tt>bound</tt> (exclusive)
+    */
+   public int next(int bound) {
+      // xorshift, cheap enough not to dominate the measured operation
+      seed ^= seed << 13;
+      seed ^= seed >>> 17;
+      seed ^= seed << 5;
+      return (seed & Integer.MAX_VALUE) % bound;
+   }
+
+   static String[] keys(int count) {
+      String[] keys = new String[count];
+      for (int i = 0; i < count; i++) keys[i] = "key-" + i;
+      return keys;
+   }
+}
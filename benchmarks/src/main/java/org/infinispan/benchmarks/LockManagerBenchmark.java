@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.util.concurrent.locks.LockManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquires and releases key locks through the {@link LockManager} of a local cache from several threads.  The fewer
+ * keys, the more the threads contend for the same locks.
+ *
+ * @since 5.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@Threads(4)
+public class LockManagerBenchmark {
+
+   private static final long LOCK_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+   @Param({"1", "16", "1024"})
+   public int keyCount;
+
+   @Param({"false", "true"})
+   public boolean lockStriping;
+
+   private EmbeddedCacheManager cacheManager;
+   private LockManager lockManager;
+   private InvocationContextContainer icc;
+   private String[] keys;
+
+   @Setup
+   public void setUp() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.locking().useLockStriping(lockStriping).concurrencyLevel(32).lockAcquisitionTimeout(LOCK_TIMEOUT);
+      cacheManager = new DefaultCacheManager(builder.build());
+      ComponentRegistry registry = cacheManager.getCache().getAdvancedCache().getComponentRegistry();
+      lockManager = registry.getComponent(LockManager.class);
+      icc = registry.getComponent(InvocationContextContainer.class);
+      keys = KeySequence.keys(keyCount);
+   }
+
+   @TearDown
+   public void tearDown() {
+      cacheManager.stop();
+   }
+
+   @Benchmark
+   public boolean lockAndUnlock(KeySequence sequence) throws InterruptedException {
+      InvocationContext ctx = icc.createNonTxInvocationContext();
+      Object key = keys[sequence.next(keyCount)];
+      boolean locked = lockManager.lockAndRecord(key, ctx, LOCK_TIMEOUT);
+      if (locked) lockManager.unlock(Collections.singletonList(key), ctx.getLockOwner());
+      return locked;
+   }
+}
@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.Cache;
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.context.Flag;
+import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.factories.KnownComponentNames;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marshalls and unmarshalls the commands most commonly sent over the wire with the marshaller a cache uses for its
+ * RPCs.
+ *
+ * @since 5.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MarshallerBenchmark {
+
+   @Param({"put", "remove", "singleRpcPut", "clusteredGet"})
+   public String command;
+
+   @Param({"100"})
+   public int valueSize;
+
+   private EmbeddedCacheManager cacheManager;
+   private StreamingMarshaller marshaller;
+   private ReplicableCommand cmd;
+   private byte[] bytes;
+
+   @Setup
+   public void setUp() throws Exception {
+      cacheManager = new DefaultCacheManager(new ConfigurationBuilder().build());
+      Cache<Object, Object> cache = cacheManager.getCache();
+      ComponentRegistry registry = cache.getAdvancedCache().getComponentRegistry();
+      marshaller = registry.getComponent(StreamingMarshaller.class, KnownComponentNames.CACHE_MARSHALLER);
+      CommandsFactory commandsFactory = registry.getComponent(CommandsFactory.class);
+
+      String key = "key-42";
+      byte[] value = new byte[valueSize];
+      Set<Flag> flags = Collections.emptySet();
+      if (command.equals("put"))
+         cmd = commandsFactory.buildPutKeyValueCommand(key, value, -1, -1, flags);
+      else if (command.equals("remove"))
+         cmd = commandsFactory.buildRemoveCommand(key, null, flags);
+      else if (command.equals("singleRpcPut"))
+         cmd = commandsFactory.buildSingleRpcCommand(commandsFactory.buildPutKeyValueCommand(key, value, -1, -1, flags));
+      else if (command.equals("clusteredGet"))
+         cmd = commandsFactory.buildClusteredGetCommand(key, flags, false, null);
+      else
+         throw new IllegalArgumentException("Unknown command " + command);
+      bytes = marshaller.objectToByteBuffer(cmd);
+   }
+
+   @TearDown
+   public void tearDown() {
+      cacheManager.stop();
+   }
+
+   @Benchmark
+   public byte[] marshall() throws Exception {
+      return marshaller.objectToByteBuffer(cmd);
+   }
+
+   @Benchmark
+   public Object unmarshall() throws Exception {
+      return marshaller.objectFromByteBuffer(bytes);
+   }
+
+   @Benchmark
+   public Object roundTrip() throws Exception {
+      return marshaller.objectFromByteBuffer(marshaller.objectToByteBuffer(cmd));
+   }
+}
@@ -145,8 +145,9 @@ public final void toStreamSupport(ObjectOutput objectOutput, byte streamDelimite
          if (filterExpired) {
             ps.setLong(1, System.currentTimeMillis());
          }
+         // set before executing the query, as some drivers only take the fetch size of the statement into account
+         ps.setFetchSize(tableManipulation.getFetchSize());
          rs = ps.executeQuery();
-         rs.setFetchSize(tableManipulation.getFetchSize());
          while (rs.next()) {
             InputStream is = rs.getBinaryStream(1);
             toStreamProcess(rs, is, objectOutput);
@@ -180,8 +181,8 @@ public final Set<InternalCacheEntry> loadAllSupport(boolean filterExpired) throw
          if (filterExpired) {
             ps.setLong(1, System.currentTimeMillis());
          }
+         ps.setFetchSize(tableManipulation.getFetchSize());
          rs = ps.executeQuery();
-         rs.setFetchSize(tableManipulation.getFetchSize());
          Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>(tableManipulation.getFetchSize());
          while (rs.next()) {
             loadAllProcess(rs, result);
@@ -209,8 +210,8 @@ public Set<Object> loadAllKeysSupport(Set<Object> keysToExclude) throws CacheLoa
          }
          conn = connectionFactory.getConnection();
          ps = conn.prepareStatement(sql);
+         ps.setFetchSize(tableManipulation.getFetchSize());
          rs = ps.executeQuery();
-         rs.setFetchSize(tableManipulation.getFetchSize());
          Set<Object> result = new HashSet<Object>(tableManipulation.getFetchSize());
          while (rs.next()) {
             loadAllKeysProcess(rs, result, keysToExclude);
@@ -242,8 +243,8 @@ public final Set<InternalCacheEntry> loadSome(int maxEntries) throws CacheLoader
          } else {
             ps = conn.prepareStatement(sql.replace("?", String.valueOf(maxEntries)));
          }
+         ps.setFetchSize(tableManipulation.getFetchSize());
          rs = ps.executeQuery();
-         rs.setFetchSize(tableManipulation.getFetchSize());
          Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>(maxEntries);
          while (rs.next()) {
             loadAllProcess(rs, result, maxEntries);
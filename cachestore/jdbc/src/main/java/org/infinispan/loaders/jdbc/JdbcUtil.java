@@ -31,6 +31,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -74,6 +75,42 @@ public static void safeClose(ResultSet rs) {
       }
    }
 
+   /**
+    * Adds the current set of parameters to the batch of the given statement, executing the batch once it holds
+    * <tt>batchSize</tt> statements.
+    *
+    * @param batched the number of statements already in the batch
+    * @return the number of statements in the batch after this call
+    */
+   public static int addBatch(PreparedStatement ps, int batched, int batchSize) throws SQLException {
+      ps.addBatch();
+      if (++batched >= batchSize) {
+         ps.executeBatch();
+         return 0;
+      }
+      return batched;
+   }
+
+   public static void safeRollback(Connection connection) {
+      if (connection != null) {
+         try {
+            connection.rollback();
+         } catch (SQLException e) {
+            log.sqlFailureUnexpected(e);
+         }
+      }
+   }
+
+   public static void safeSetAutoCommit(Connection connection, boolean autoCommit) {
+      if (connection != null) {
+         try {
+            connection.setAutoCommit(autoCommit);
+         } catch (SQLException e) {
+            log.sqlFailureUnexpected(e);
+         }
+      }
+   }
+
    public static ByteBuffer marshall(StreamingMarshaller marshaller, Object bucket) throws CacheLoaderException, InterruptedException {
       try {
          return marshaller.objectToBuffer(bucket);
@@ -309,6 +309,43 @@ public String getSelectIdRowSql() {
       return selectIdRowSql;
    }
 
+   /**
+    * @return the SQL selecting the id and data columns of up to <tt>count</tt> rows at once, identified by as many id
+    *         parameters
+    */
+   public String getSelectMultipleRowsSql(int count) {
+      return "SELECT " + idColumnName + ", " + dataColumnName + " FROM " + getTableName() + " WHERE " + idColumnName + " IN (" + getIdParameters(count) + ")";
+   }
+
+   /**
+    * @return the SQL selecting the id column of up to <tt>count</tt> rows at once, identified by as many id
+    *         parameters
+    */
+   public String getSelectMultipleIdsSql(int count) {
+      return "SELECT " + idColumnName + " FROM " + getTableName() + " WHERE " + idColumnName + " IN (" + getIdParameters(count) + ")";
+   }
+
+   private String getIdParameters(int count) {
+      String parameter;
+      switch(getDatabaseType()) {
+         case SYBASE:
+            parameter = "convert(" + idColumnType + ",?)";
+            break;
+         case POSTGRES:
+            parameter = "cast(? as " + idColumnType + ")";
+            break;
+         default:
+            parameter = "?";
+            break;
+      }
+      StringBuilder parameters = new StringBuilder(count * (parameter.length() + 1));
+      for (int i = 0; i < count; i++) {
+         if (i > 0) parameters.append(',');
+         parameters.append(parameter);
+      }
+      return parameters.toString();
+   }
+
    public String getDeleteRowSql() {
       if (deleteRowSql == null) {
          switch(getDatabaseType()) {
@@ -446,7 +483,8 @@ public void setFetchSize(int fetchSize) {
    /**
     * When doing repetitive DB inserts (e.g. on {@link org.infinispan.loaders.CacheStore#fromStream(java.io.ObjectInput)}
     * this will be batched according to this parameter. This is an optional parameter, and if it is not specified it
-    * will be defaulted to {@link #DEFAULT_BATCH_SIZE}.
+    * will be defaulted to {@link #DEFAULT_BATCH_SIZE}. It also bounds the number of statements of the JDBC batches used
+    * when applying a list of modifications, and the number of rows selected at once by id.
     */
    public int getBatchSize() {
       return batchSize;
@@ -35,6 +35,9 @@
 import org.infinispan.loaders.jdbc.TableManipulation;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.jdbc.logging.Log;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.util.logging.LogFactory;
 
@@ -46,9 +49,15 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -297,6 +306,150 @@ protected Bucket loadBucket(Integer keyHashCode) throws CacheLoaderException {
       }
    }
 
+   /**
+    * Applies the modifications bucket by bucket rather than entry by entry: the buckets affected by the modifications
+    * are locked together and loaded with one query per batch, and each modified bucket is then written once, through
+    * JDBC batches, within a single database transaction.
+    */
+   @Override
+   protected void applyModifications(List<? extends Modification> mods) throws CacheLoaderException {
+      Map<Integer, List<Modification>> modsByBucket = new LinkedHashMap<Integer, List<Modification>>();
+      for (Modification mod : mods) {
+         Object key;
+         switch (mod.getType()) {
+            case STORE:
+               InternalCacheEntry entry = ((Store) mod).getStoredEntry();
+               if (entry == null) continue;
+               key = entry.getKey();
+               break;
+            case REMOVE:
+               key = ((Remove) mod).getKey();
+               break;
+            case CLEAR:
+               // the modifications preceding the clear are superseded by it
+               modsByBucket.clear();
+               clear();
+               continue;
+            default:
+               throw new IllegalArgumentException("Unknown modification type " + mod.getType());
+         }
+         Integer bucketId = getLockFromKey(key);
+         List<Modification> bucketMods = modsByBucket.get(bucketId);
+         if (bucketMods == null) {
+            bucketMods = new ArrayList<Modification>();
+            modsByBucket.put(bucketId, bucketMods);
+         }
+         bucketMods.add(mod);
+      }
+      if (modsByBucket.isEmpty()) return;
+
+      List<Object> locked = lockAllForWriting(modsByBucket.keySet());
+      try {
+         applyModificationsLockSafe(modsByBucket);
+      } finally {
+         unlockAll(locked);
+      }
+   }
+
+   private void applyModificationsLockSafe(Map<Integer, List<Modification>> modsByBucket) throws CacheLoaderException {
+      Connection conn = null;
+      PreparedStatement insert = null;
+      PreparedStatement update = null;
+      boolean autoCommit = true;
+      try {
+         conn = connectionFactory.getConnection();
+         autoCommit = conn.getAutoCommit();
+         conn.setAutoCommit(false);
+         Map<Integer, Bucket> existing = loadBuckets(conn, modsByBucket.keySet());
+         insert = conn.prepareStatement(tableManipulation.getInsertRowSql());
+         update = conn.prepareStatement(tableManipulation.getUpdateRowSql());
+         int batchSize = tableManipulation.getBatchSize();
+         int inserts = 0, updates = 0;
+         long now = System.currentTimeMillis();
+         for (Map.Entry<Integer, List<Modification>> e : modsByBucket.entrySet()) {
+            Bucket bucket = existing.get(e.getKey());
+            boolean exists = bucket != null;
+            if (!exists) {
+               bucket = new Bucket();
+               bucket.setBucketId(e.getKey());
+            }
+            boolean changed = false;
+            for (Modification mod : e.getValue()) {
+               if (mod.getType() == Modification.Type.STORE) {
+                  InternalCacheEntry entry = ((Store) mod).getStoredEntry();
+                  if (entry.canExpire() && entry.isExpired(now)) {
+                     changed |= bucket.removeEntry(entry.getKey());
+                  } else {
+                     bucket.addEntry(entry);
+                     changed = true;
+                  }
+               } else {
+                  changed |= bucket.removeEntry(((Remove) mod).getKey());
+               }
+            }
+            if (!changed || (!exists && bucket.isEmpty())) continue;
+
+            ByteBuffer buffer = JdbcUtil.marshall(getMarshaller(), bucket);
+            PreparedStatement ps = exists ? update : insert;
+            ps.setBinaryStream(1, buffer.getStream(), buffer.getLength());
+            ps.setLong(2, bucket.timestampOfFirstEntryToExpire());
+            ps.setString(3, bucket.getBucketIdAsString());
+            if (exists) {
+               updates = JdbcUtil.addBatch(update, updates, batchSize);
+            } else {
+               inserts = JdbcUtil.addBatch(insert, inserts, batchSize);
+            }
+         }
+         if (inserts > 0) insert.executeBatch();
+         if (updates > 0) update.executeBatch();
+         conn.commit();
+      } catch (SQLException ex) {
+         JdbcUtil.safeRollback(conn);
+         log.sqlFailureApplyingModifications(modsByBucket.size(), ex);
+         throw new CacheLoaderException(String.format(
+               "Sql failure while applying modifications to %d buckets", modsByBucket.size()), ex);
+      } catch (InterruptedException ie) {
+         JdbcUtil.safeRollback(conn);
+         if (log.isTraceEnabled()) {
+            log.trace("Interrupted while marshalling buckets");
+         }
+         Thread.currentThread().interrupt();
+      } finally {
+         JdbcUtil.safeClose(insert);
+         JdbcUtil.safeClose(update);
+         JdbcUtil.safeSetAutoCommit(conn, autoCommit);
+         connectionFactory.releaseConnection(conn);
+      }
+   }
+
+   private Map<Integer, Bucket> loadBuckets(Connection conn, Collection<Integer> bucketIds) throws SQLException, CacheLoaderException {
+      Map<Integer, Bucket> buckets = new HashMap<Integer, Bucket>(bucketIds.size());
+      List<Integer> ids = new ArrayList<Integer>(bucketIds);
+      int batchSize = tableManipulation.getBatchSize();
+      for (int from = 0; from < ids.size(); from += batchSize) {
+         List<Integer> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+         PreparedStatement ps = null;
+         ResultSet rs = null;
+         try {
+            ps = conn.prepareStatement(tableManipulation.getSelectMultipleRowsSql(chunk.size()));
+            for (int i = 0; i < chunk.size(); i++) {
+               ps.setInt(i + 1, chunk.get(i));
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+               String bucketName = rs.getString(1);
+               Bucket bucket = (Bucket) JdbcUtil.unmarshall(getMarshaller(), rs.getBinaryStream(2));
+               bucket.setBucketId(bucketName);//bucket name is volatile, so not persisted.
+               buckets.put(bucket.getBucketId(), bucket);
+            }
+         } finally {
+            JdbcUtil.safeClose(rs);
+            JdbcUtil.safeClose(ps);
+         }
+      }
+      return buckets;
+   }
+
    @Override
    public Set<InternalCacheEntry> loadAllLockSafe() throws CacheLoaderException {
       return dmHelper.loadAllSupport(false);
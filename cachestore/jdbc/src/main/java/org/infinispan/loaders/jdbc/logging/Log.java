@@ -158,4 +158,12 @@ public interface Log extends org.infinispan.util.logging.Log {
    @Message(value = "SQL error while fetching stored entry with key: %s, lockingKey: %s", id = 8027)
    void sqlFailureReadingKey(Object key, String lockingKey, @Cause SQLException e);
 
+   @LogMessage(level = ERROR)
+   @Message(value = "Sql failure while applying a batch of %d modifications to the database", id = 8028)
+   void sqlFailureApplyingModifications(int count, @Cause SQLException e);
+
+   @LogMessage(level = ERROR)
+   @Message(value = "Sql failure while loading %d keys from the database", id = 8029)
+   void sqlFailureLoadingKeys(int count, @Cause SQLException e);
+
 }
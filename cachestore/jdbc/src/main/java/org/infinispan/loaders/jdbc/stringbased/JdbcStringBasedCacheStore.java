@@ -26,6 +26,7 @@
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.io.ByteBuffer;
+import org.infinispan.loaders.BulkCacheLoader;
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
@@ -38,6 +39,9 @@
 import org.infinispan.loaders.keymappers.Key2StringMapper;
 import org.infinispan.loaders.keymappers.TwoWayKey2StringMapper;
 import org.infinispan.loaders.keymappers.UnsupportedKeyTypeException;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.util.logging.LogFactory;
 
@@ -49,6 +53,13 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -85,7 +96,7 @@
  * @see org.infinispan.loaders.keymappers.DefaultTwoWayKey2StringMapper
  */
 @CacheLoaderMetadata(configurationClass = JdbcStringBasedCacheStoreConfig.class)
-public class JdbcStringBasedCacheStore extends LockSupportCacheStore<String> {
+public class JdbcStringBasedCacheStore extends LockSupportCacheStore<String> implements BulkCacheLoader {
 
    private static final Log log = LogFactory.getLog(JdbcStringBasedCacheStore.class, Log.class);
 
@@ -286,6 +297,185 @@ public boolean removeLockSafe(Object key, String keyStr) throws CacheLoaderExcep
       }
    }
 
+   /**
+    * Applies the modifications through JDBC batches, within a single database transaction. The modifications are
+    * coalesced per key and the rows they affect are locked together; the rows that already exist are then found with
+    * one query per batch, rather than one per key.
+    */
+   @Override
+   protected void applyModifications(List<? extends Modification> mods) throws CacheLoaderException {
+      Map<String, Modification> pending = new LinkedHashMap<String, Modification>();
+      for (Modification mod : mods) {
+         switch (mod.getType()) {
+            case STORE:
+               InternalCacheEntry entry = ((Store) mod).getStoredEntry();
+               if (entry != null) pending.put(getLockFromKey(entry.getKey()), mod);
+               break;
+            case REMOVE:
+               pending.put(getLockFromKey(((Remove) mod).getKey()), mod);
+               break;
+            case CLEAR:
+               // the modifications preceding the clear are superseded by it
+               pending.clear();
+               clear();
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown modification type " + mod.getType());
+         }
+      }
+      if (pending.isEmpty()) return;
+
+      List<Object> locked = lockAllForWriting(pending.keySet());
+      try {
+         applyModificationsLockSafe(pending);
+      } finally {
+         unlockAll(locked);
+      }
+   }
+
+   private void applyModificationsLockSafe(Map<String, Modification> pending) throws CacheLoaderException {
+      Connection connection = null;
+      PreparedStatement insert = null;
+      PreparedStatement update = null;
+      PreparedStatement delete = null;
+      boolean autoCommit = true;
+      try {
+         connection = connectionFactory.getConnection();
+         autoCommit = connection.getAutoCommit();
+         connection.setAutoCommit(false);
+         Set<String> existing = selectExistingIds(connection, pending.keySet());
+         insert = connection.prepareStatement(tableManipulation.getInsertRowSql());
+         update = connection.prepareStatement(tableManipulation.getUpdateRowSql());
+         delete = connection.prepareStatement(tableManipulation.getDeleteRowSql());
+         int batchSize = tableManipulation.getBatchSize();
+         int inserts = 0, updates = 0, deletes = 0;
+         long now = System.currentTimeMillis();
+         for (Map.Entry<String, Modification> e : pending.entrySet()) {
+            String keyStr = e.getKey();
+            Modification mod = e.getValue();
+            InternalCacheEntry entry = mod.getType() == Modification.Type.STORE ? ((Store) mod).getStoredEntry() : null;
+            if (entry == null || (entry.canExpire() && entry.isExpired(now))) {
+               if (existing.contains(keyStr)) {
+                  delete.setString(1, keyStr);
+                  deletes = JdbcUtil.addBatch(delete, deletes, batchSize);
+               }
+            } else {
+               ByteBuffer byteBuffer = JdbcUtil.marshall(getMarshaller(), entry.toInternalCacheValue());
+               PreparedStatement ps = existing.contains(keyStr) ? update : insert;
+               ps.setBinaryStream(1, byteBuffer.getStream(), byteBuffer.getLength());
+               ps.setLong(2, entry.getExpiryTime());
+               ps.setString(3, keyStr);
+               if (ps == update) {
+                  updates = JdbcUtil.addBatch(update, updates, batchSize);
+               } else {
+                  inserts = JdbcUtil.addBatch(insert, inserts, batchSize);
+               }
+            }
+         }
+         if (inserts > 0) insert.executeBatch();
+         if (updates > 0) update.executeBatch();
+         if (deletes > 0) delete.executeBatch();
+         connection.commit();
+         if (log.isTraceEnabled()) {
+            log.tracef("Applied %d modifications to the database", pending.size());
+         }
+      } catch (SQLException ex) {
+         JdbcUtil.safeRollback(connection);
+         log.sqlFailureApplyingModifications(pending.size(), ex);
+         throw new CacheLoaderException(String.format(
+               "Sql failure while applying a batch of %d modifications to the database", pending.size()), ex);
+      } catch (InterruptedException e) {
+         JdbcUtil.safeRollback(connection);
+         if (log.isTraceEnabled()) {
+            log.trace("Interrupted while marshalling to store");
+         }
+         Thread.currentThread().interrupt();
+      } finally {
+         JdbcUtil.safeClose(insert);
+         JdbcUtil.safeClose(update);
+         JdbcUtil.safeClose(delete);
+         JdbcUtil.safeSetAutoCommit(connection, autoCommit);
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
+   private Set<String> selectExistingIds(Connection connection, Collection<String> keyStrings) throws SQLException {
+      Set<String> existing = new HashSet<String>(keyStrings.size());
+      List<String> ids = new ArrayList<String>(keyStrings);
+      int batchSize = tableManipulation.getBatchSize();
+      for (int from = 0; from < ids.size(); from += batchSize) {
+         List<String> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+         PreparedStatement ps = null;
+         ResultSet rs = null;
+         try {
+            ps = connection.prepareStatement(tableManipulation.getSelectMultipleIdsSql(chunk.size()));
+            for (int i = 0; i < chunk.size(); i++) {
+               ps.setString(i + 1, chunk.get(i));
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+               existing.add(rs.getString(1));
+            }
+         } finally {
+            JdbcUtil.safeClose(rs);
+            JdbcUtil.safeClose(ps);
+         }
+      }
+      return existing;
+   }
+
+   /**
+    * Loads several entries at once, selecting up to {@link TableManipulation#getBatchSize()} rows per query.
+    *
+    * @return the entries found for the given keys, expired entries excluded
+    */
+   @Override
+   public Set<InternalCacheEntry> loadAll(Collection<?> keys) throws CacheLoaderException {
+      Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>(keys.size());
+      if (keys.isEmpty()) return result;
+      Map<String, Object> keysByString = new HashMap<String, Object>(keys.size());
+      for (Object key : keys) {
+         keysByString.put(getLockFromKey(key), key);
+      }
+      List<String> ids = new ArrayList<String>(keysByString.keySet());
+      int batchSize = tableManipulation.getBatchSize();
+      long now = System.currentTimeMillis();
+      Connection conn = null;
+      PreparedStatement ps = null;
+      ResultSet rs = null;
+      acquireGlobalLock(false);
+      try {
+         conn = connectionFactory.getConnection();
+         for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            ps = conn.prepareStatement(tableManipulation.getSelectMultipleRowsSql(chunk.size()));
+            for (int i = 0; i < chunk.size(); i++) {
+               ps.setString(i + 1, chunk.get(i));
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+               Object key = keysByString.get(rs.getString(1));
+               InternalCacheValue icv = (InternalCacheValue) JdbcUtil.unmarshall(getMarshaller(), rs.getBinaryStream(2));
+               InternalCacheEntry entry = icv.toInternalCacheEntry(key);
+               if (!entry.isExpired(now)) result.add(entry);
+            }
+            JdbcUtil.safeClose(rs);
+            JdbcUtil.safeClose(ps);
+            rs = null;
+            ps = null;
+         }
+         return result;
+      } catch (SQLException e) {
+         log.sqlFailureLoadingKeys(ids.size(), e);
+         throw new CacheLoaderException(String.format("Sql failure while loading %d keys from the database", ids.size()), e);
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(ps);
+         connectionFactory.releaseConnection(conn);
+         releaseGlobalLock(false);
+      }
+   }
+
    @Override
    public void fromStreamLockSafe(ObjectInput objectInput) throws CacheLoaderException {
       dmHelper.fromStreamSupport(objectInput);
@@ -24,8 +24,15 @@
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.infinispan.CacheImpl;
+import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.loaders.BaseCacheStoreTest;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
@@ -33,6 +40,10 @@
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactoryConfig;
 import org.infinispan.loaders.keymappers.UnsupportedKeyTypeException;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
+import org.infinispan.test.fwk.TestInternalCacheEntryFactory;
 import org.infinispan.test.fwk.UnitTestDatabaseManager;
 import org.testng.annotations.Test;
 
@@ -82,6 +93,33 @@ public void testNotCreateConnectionFactory() throws Exception {
       stringBasedCacheStore.stop();
    }
 
+   public void testBatchedModificationsAndMultiKeyLoad() throws CacheLoaderException {
+      // more modifications than the JDBC batch size, so that several batches and id queries are needed
+      int count = TableManipulation.DEFAULT_BATCH_SIZE * 2 + 10;
+      List<Modification> mods = new ArrayList<Modification>();
+      Set<Object> keys = new HashSet<Object>();
+      for (int i = 0; i < count; i++) {
+         mods.add(new Store(TestInternalCacheEntryFactory.create("k" + i, "v" + i)));
+         keys.add("k" + i);
+      }
+      cs.prepare(mods, gtf.newGlobalTransaction(null, false), true);
+      assertEquals(count, cs.loadAllKeys(null).size());
+
+      mods.clear();
+      mods.add(new Remove("k0"));
+      mods.add(new Store(TestInternalCacheEntryFactory.create("k1", "updated")));
+      mods.add(new Store(TestInternalCacheEntryFactory.create("k1", "updated twice")));
+      cs.prepare(mods, gtf.newGlobalTransaction(null, false), true);
+
+      keys.add("missing");
+      Set<InternalCacheEntry> loaded = ((JdbcStringBasedCacheStore) cs).loadAll(keys);
+      assertEquals(count - 1, loaded.size());
+      for (InternalCacheEntry entry : loaded) {
+         assert !entry.getKey().equals("k0");
+         if (entry.getKey().equals("k1")) assertEquals("updated twice", entry.getValue());
+      }
+   }
+
    @Override
    @Test(expectedExceptions = UnsupportedKeyTypeException.class)
    public void testLoadAndStoreMarshalledValues() throws CacheLoaderException {
@@ -0,0 +1,54 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+/**
+ * Statistics of the near cache kept by the client for a {@link RemoteCache}, obtained through
+ * {@link RemoteCache#nearCacheStats()}. All counters are local to this client and accumulated since the cache was
+ * started.
+ *
+ * @since 5.2
+ */
+public interface NearCacheStatistics {
+
+   /**
+    * @return the number of reads served from the near cache without contacting a server
+    */
+   long getHits();
+
+   /**
+    * @return the number of reads that had to fetch the value from a server
+    */
+   long getMisses();
+
+   /**
+    * @return the number of entries dropped because they were modified, either by this client or, as reported by the
+    *         servers, by any other
+    */
+   long getInvalidations();
+
+   /**
+    * @return the number of entries currently held in the near cache
+    */
+   int getSize();
+}
@@ -46,9 +46,9 @@
  * supplied key. In case of RemoteCache, this returns null.
  * <p/>
  * <b>Synthetic operations</b>: aggregate operations are being implemented based on other Hot Rod operations. E.g. all
- * the {@link java.util.Map#putAll(java.util.Map)} is implemented through multiple individual puts. This means that the
- * these operations are not atomic and that they are costly, e.g. as the number of network round-trips is not one, but
- * the size of the added map. All these synthetic operations are documented as such.
+ * the {@link java.util.Map#putAll(java.util.Map)} is implemented through one request per server owning some of the
+ * keys. This means that the these operations are not atomic across servers. All these synthetic operations are
+ * documented as such.
  * <p/>
  * <b>changing default behavior through {@link org.infinispan.client.hotrod.Flag}s</b>: it is possible to change the
  * default cache behaviour by using flags on an per invocation basis. E.g.
@@ -268,9 +268,9 @@
    NotifyingFuture<Boolean> replaceAsync(K key, V oldValue, V newValue, long lifespan, TimeUnit lifespanUnit, long maxIdle, TimeUnit maxIdleUnit);
 
    /**
-    * Synthetic operation. The client iterates over the set of keys and calls put for each one of them. This results in
-    * operation not being atomic (if a failure happens after few puts it is not rolled back) and costly (for each key in
-    * the parameter map a remote call is performed).
+    * Synthetic operation. The client groups the entries by the server owning their keys and sends a single request to
+    * each of these servers, in parallel. The operation is not atomic: if one of the requests fails, the entries sent
+    * to the other servers are not rolled back.
     */
    @Override
    void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit unit);
@@ -317,6 +317,12 @@
 
    ServerStatistics stats();
 
+   /**
+    * @return the statistics of the client side near cache, or null if it is disabled, see
+    *         {@link org.infinispan.client.hotrod.impl.ConfigurationProperties#NEAR_CACHE_MAX_ENTRIES}
+    */
+   NearCacheStatistics nearCacheStats();
+
    /**
     * Applies one or more {@link Flag}s to the scope of a single invocation.  See the {@link Flag} enumeration to for
     * information on available flags.
@@ -349,4 +355,35 @@
     * guarantee that "size" elements are returned( e.g. if the number of elements in the back-end server is smaller that "size")
     */
    Map<K, V> getBulk(int size);
+
+   /**
+    * Retrieves the values of several keys at once. Similarly to {@link #putAll(java.util.Map)}, the keys are grouped by
+    * the server owning them and a single request is sent to each of these servers, in parallel.
+    *
+    * @return the entries found, keys that are not mapped to any value are missing from the returned map. The returned
+    *         Map is unmodifiable.
+    */
+   Map<K, V> getAll(Set<? extends K> keys);
+
+   /**
+    * Same as {@link #retrieveEntries(java.util.Set, int)}, iterating over all the segments.
+    */
+   CloseableIterator<Map.Entry<K, V>> retrieveEntries(int batchSize);
+
+   /**
+    * Iterates over the entries of the remote cache, lazily retrieving them from the servers in pages of up to
+    * <tt>batchSize</tt> entries. Unlike {@link #getBulk()}, neither the client nor the servers need to hold the whole
+    * content of the cache in memory, so this is the way to scan large caches. When the cache is distributed, every
+    * server is visited in turn and only returns the entries it primarily owns.
+    * <p/>
+    * The iteration is weakly consistent: entries modified while iterating might or might not be returned, and
+    * entries moving between servers because of a topology change might be missed or returned twice. The returned
+    * iterator is not thread safe, and should be closed if it is not iterated until its end, so that the servers can
+    * release the iteration straight away instead of waiting for it to expire.
+    *
+    * @param segments  only return the entries mapped to these segments, if not empty. Segments only apply to
+    *                  distributed caches and are ignored otherwise
+    * @param batchSize maximum number of entries retrieved per request
+    */
+   CloseableIterator<Map.Entry<K, V>> retrieveEntries(Set<Integer> segments, int batchSize);
 }
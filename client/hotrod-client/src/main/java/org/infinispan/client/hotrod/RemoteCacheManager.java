@@ -38,6 +38,8 @@
 import org.infinispan.api.BasicCacheContainer;
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.NearCache;
+import org.infinispan.client.hotrod.impl.NearCacheInvalidator;
 import org.infinispan.client.hotrod.impl.RemoteCacheImpl;
 import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
 import org.infinispan.client.hotrod.impl.operations.PingOperation.PingResult;
@@ -52,6 +54,7 @@
 import org.infinispan.util.FileLookupFactory;
 import org.infinispan.util.SysPropertyActions;
 import org.infinispan.util.Util;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
 
 /**
  * Factory for {@link org.infinispan.client.hotrod.RemoteCache}s. <p/> <p> <b>Lifecycle:</b> </p> In order to be able to
@@ -82,7 +85,7 @@
  * <li><tt>infinispan.client.hotrod.force_return_values</tt>, default = false.  Whether or not to implicitly {@link org.infinispan.client.hotrod.Flag#FORCE_RETURN_VALUE} for all calls.</li>
  * <li><tt>infinispan.client.hotrod.tcp_no_delay</tt>, default = true.  Affects TCP NODELAY on the TCP stack.</li>
  * <li><tt>infinispan.client.hotrod.ping_on_startup</tt>, default = true.  If true, a ping request is sent to a back end server in order to fetch cluster's topology.</li>
- * <li><tt>infinispan.client.hotrod.transport_factory</tt>, default = org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory - controls which transport to use.  Currently only the TcpTransport is supported.</li>
+ * <li><tt>infinispan.client.hotrod.transport_factory</tt>, default = org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory - controls which transport to use.  The TcpTransportFactory uses a pool of blocking connections, each carrying one request at a time.  The alternative org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory multiplexes many concurrent requests over a few non-blocking connections per server and completes the *Async operations without blocking a thread per call.</li>
  * <li><tt>infinispan.client.hotrod.marshaller</tt>, default = org.infinispan.marshall.jboss.GenericJBossMarshaller.  Allows you to specify a custom {@link org.infinispan.marshall.Marshaller} implementation to serialize and deserialize user objects. For portable serialization payloads, you should configure the marshaller to be {@link org.infinispan.client.hotrod.marshall.ApacheAvroMarshaller}</li>
  * <li><tt>infinispan.client.hotrod.async_executor_factory</tt>, default = org.infinispan.client.hotrod.impl.async.DefaultAsyncExecutorFactory.  Allows you to specify a custom asynchroous executor for async calls.</li>
  * <li><tt>infinispan.client.hotrod.default_executor_factory.pool_size</tt>, default = 10.  If the default executor is used, this configures the number of threads to initialize the executor with.</li>
@@ -91,8 +94,12 @@
  * <li><tt>infinispan.client.hotrod.key_size_estimate</tt>, default = 64.  This hint allows sizing of byte buffers when serializing and deserializing keys, to minimize array resizing.</li>
  * <li><tt>infinispan.client.hotrod.value_size_estimate</tt>, default = 512.  This hint allows sizing of byte buffers when serializing and deserializing values, to minimize array resizing.</li>
  * <li><tt>infinispan.client.hotrod.socket_timeout</tt>, default = 60000 (60 seconds).  This property defines the maximum socket read timeout before giving up waiting for bytes from the server.</li>
- * <li><tt>infinispan.client.hotrod.protocol_version</tt>, default = 1.1 .This property defines the protocol version that this client should use. Other valid values include 1.0.</li>
+ * <li><tt>infinispan.client.hotrod.protocol_version</tt>, default = 1.1 .This property defines the protocol version that this client should use. Other valid values include 1.0 and 1.2, the latter sending the owners of each segment of distributed caches and only sending the changes on topology updates.</li>
  * <li><tt>infinispan.client.hotrod.connect_timeout</tt>, default = 60000 (60 seconds).  This property defines the maximum socket connect timeout before giving up connecting to the server.</li>
+ * <li><tt>infinispan.client.hotrod.nio.connections_per_server</tt>, default = 2.  Only used by the NioTransportFactory: the number of multiplexed connections opened to each server.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.max_entries</tt>, default = 0 (disabled).  If positive, each remote cache keeps up to this many recently read entries in the client and serves reads from them.  The entries are invalidated when written through this client or when any server reports them as modified.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.eviction</tt>, default = LRU.  The algorithm used to pick the near cache entries to evict, LRU or LIRS.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.validation_interval</tt>, default = 5000 (5 seconds).  A near cache entry is only used for this long after being read from the server, which bounds how long entries expired on the server, or modified while invalidation events cannot be received from all the servers, are still returned.  It should be lower than the max idle time of the entries.  This is also how often listening to servers that do not send invalidation events is retried.</li>
  * </ul>
  * <br/>
  * <i>The following properties are related to connection pooling</i>:
@@ -488,6 +495,11 @@ public void start() {
    @Override
    public void stop() {
       if (isStarted()) {
+         synchronized (cacheName2RemoteCache) {
+            for (RemoteCacheHolder rcc : cacheName2RemoteCache.values()) {
+               rcc.remoteCache.stop();
+            }
+         }
          transportFactory.destroy();
          asyncExecutorService.shutdownNow();
       }
@@ -546,6 +558,13 @@ private void startRemoteCache(RemoteCacheHolder remoteCacheHolder) {
       OperationsFactory operationsFactory = new OperationsFactory(
             transportFactory, remoteCache.getName(), topologyId, remoteCacheHolder.forceReturnValue, codec);
       remoteCache.init(marshaller, asyncExecutorService, operationsFactory, config.getKeySizeEstimate(), config.getValueSizeEstimate());
+      if (config.getNearCacheMaxEntries() > 0) {
+         NearCache nearCache = new NearCache(config.getNearCacheMaxEntries(),
+               BoundedConcurrentHashMap.Eviction.valueOf(config.getNearCacheEviction().toUpperCase()),
+               config.getNearCacheValidationInterval());
+         remoteCache.initNearCache(nearCache, new NearCacheInvalidator(nearCache, transportFactory, operationsFactory,
+               remoteCache.getName(), config.getNearCacheValidationInterval()));
+      }
    }
 
    private void setMarshaller(Marshaller marshaller) {
@@ -57,6 +57,10 @@ public class ConfigurationProperties {
    public static final String SO_TIMEOUT = "infinispan.client.hotrod.socket_timeout";
    public static final String CONNECT_TIMEOUT = "infinispan.client.hotrod.connect_timeout";
    public static final String PROTOCOL_VERSION = "infinispan.client.hotrod.protocol_version";
+   public static final String CONNECTIONS_PER_SERVER = "infinispan.client.hotrod.nio.connections_per_server";
+   public static final String NEAR_CACHE_MAX_ENTRIES = "infinispan.client.hotrod.near_cache.max_entries";
+   public static final String NEAR_CACHE_EVICTION = "infinispan.client.hotrod.near_cache.eviction";
+   public static final String NEAR_CACHE_VALIDATION_INTERVAL = "infinispan.client.hotrod.near_cache.validation_interval";
 
    // defaults
 
@@ -65,9 +69,14 @@ public class ConfigurationProperties {
    public static final int DEFAULT_HOTROD_PORT = 11222;
    public static final int DEFAULT_SO_TIMEOUT = 60000;
    public static final int DEFAULT_CONNECT_TIMEOUT = 60000;
+   public static final String PROTOCOL_VERSION_12 = "1.2";
    public static final String PROTOCOL_VERSION_11 = "1.1";
    public static final String PROTOCOL_VERSION_10 = "1.0";
    public static final String DEFAULT_PROTOCOL_VERSION = PROTOCOL_VERSION_11;
+   public static final int DEFAULT_CONNECTIONS_PER_SERVER = 2;
+   public static final int DEFAULT_NEAR_CACHE_MAX_ENTRIES = 0;
+   public static final String DEFAULT_NEAR_CACHE_EVICTION = "LRU";
+   public static final long DEFAULT_NEAR_CACHE_VALIDATION_INTERVAL = 5000;
 
    private final TypedProperties props;
 
@@ -161,4 +170,20 @@ public int getConnectTimeout() {
       return props.getIntProperty(CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
    }
 
+   public int getConnectionsPerServer() {
+      return props.getIntProperty(CONNECTIONS_PER_SERVER, DEFAULT_CONNECTIONS_PER_SERVER);
+   }
+
+   public int getNearCacheMaxEntries() {
+      return props.getIntProperty(NEAR_CACHE_MAX_ENTRIES, DEFAULT_NEAR_CACHE_MAX_ENTRIES);
+   }
+
+   public String getNearCacheEviction() {
+      return props.getProperty(NEAR_CACHE_EVICTION, DEFAULT_NEAR_CACHE_EVICTION);
+   }
+
+   public long getNearCacheValidationInterval() {
+      return props.getLongProperty(NEAR_CACHE_VALIDATION_INTERVAL, DEFAULT_NEAR_CACHE_VALIDATION_INTERVAL);
+   }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.infinispan.client.hotrod.NearCacheStatistics;
+import org.infinispan.util.ByteArrayKey;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+
+/**
+ * Bounded client side cache of the marshalled values read from the servers, keyed by the marshalled keys.
+ * <p/>
+ * Entries are dropped whenever this client writes them or a server reports them as modified. Servers do not report
+ * the entries they expire or, when not all of them could be registered with, any modification at all, so an entry is
+ * also only trusted for the validation interval after it was last read from a server. Reading it again then also
+ * keeps entries with a max idle time alive on the server.
+ * <p/>
+ * An invalidation racing with a read could otherwise leave the value read before the modification in the near cache,
+ * so every invalidation bumps a counter and a value is only kept if no invalidation happened since its read started.
+ *
+ * @since 5.2
+ */
+public class NearCache implements NearCacheStatistics {
+
+   private final BoundedConcurrentHashMap<ByteArrayKey, Entry> entries;
+   private final long validationInterval;
+   private final AtomicLong invalidations = new AtomicLong();
+   private final AtomicLong hits = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+   private volatile boolean listening;
+
+   public NearCache(int maxEntries, BoundedConcurrentHashMap.Eviction eviction, long validationInterval) {
+      this.entries = new BoundedConcurrentHashMap<ByteArrayKey, Entry>(maxEntries, 16, eviction);
+      this.validationInterval = validationInterval;
+   }
+
+   /**
+    * @return the entry for the key if it can be used without checking with the server, null otherwise
+    */
+   public Entry get(byte[] key) {
+      Entry entry = entries.get(new ByteArrayKey(key));
+      if (entry != null && System.currentTimeMillis() - entry.validated < validationInterval) {
+         hits.incrementAndGet();
+         return entry;
+      }
+      misses.incrementAndGet();
+      return null;
+   }
+
+   /**
+    * Marks the start of a read from the server, to be passed to {@link #put(byte[], byte[], long)} once done.
+    */
+   public long startRead() {
+      return invalidations.get();
+   }
+
+   /**
+    * Stores a value read from the server, unless an invalidation happened since {@link #startRead()} was called.
+    */
+   public void put(byte[] key, byte[] value, long readStart) {
+      ByteArrayKey k = new ByteArrayKey(key);
+      Entry entry = new Entry(value, System.currentTimeMillis());
+      entries.put(k, entry);
+      if (invalidations.get() != readStart) {
+         entries.remove(k, entry);
+      }
+   }
+
+   /**
+    * Drops an entry found missing on the server, without interfering with concurrent reads.
+    */
+   public void remove(byte[] key) {
+      entries.remove(new ByteArrayKey(key));
+   }
+
+   public void invalidate(byte[] key) {
+      invalidations.incrementAndGet();
+      entries.remove(new ByteArrayKey(key));
+   }
+
+   public void clear() {
+      invalidations.incrementAndGet();
+      entries.clear();
+   }
+
+   /**
+    * Entries read while invalidation events were not received from all the servers might have missed some of them,
+    * so they are dropped when all the servers can be listened to again.
+    */
+   void setListening(boolean listening) {
+      if (listening && !this.listening) clear();
+      this.listening = listening;
+   }
+
+   public boolean isListening() {
+      return listening;
+   }
+
+   @Override
+   public long getHits() {
+      return hits.get();
+   }
+
+   @Override
+   public long getMisses() {
+      return misses.get();
+   }
+
+   @Override
+   public long getInvalidations() {
+      return invalidations.get();
+   }
+
+   @Override
+   public int getSize() {
+      return entries.size();
+   }
+
+   public static class Entry {
+      private final byte[] value;
+      private final long validated;
+
+      Entry(byte[] value, long validated) {
+         this.value = value;
+         this.validated = validated;
+      }
+
+      public byte[] getValue() {
+         return value;
+      }
+   }
+}
@@ -0,0 +1,183 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.infinispan.client.hotrod.impl.operations.AddInvalidationListenerOperation;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransport;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * Keeps a {@link NearCache} up to date with the invalidation events pushed by the servers.
+ * <p/>
+ * A server only reports the modifications applied to the entries it holds, so an invalidation listener is
+ * registered with every server of the cluster, each over its own connection read by a dedicated daemon thread. The
+ * set of servers is reconciled with the current topology whenever the near cache misses, which also retries, at most
+ * once per validation interval, the servers that could not be listened to. Entries read while not all of them are
+ * listened to are dropped once they are, as they might have missed some events.
+ *
+ * @since 5.2
+ */
+public class NearCacheInvalidator {
+
+   private static final Log log = LogFactory.getLog(NearCacheInvalidator.class, Log.class);
+
+   private final NearCache nearCache;
+   private final TransportFactory transportFactory;
+   private final OperationsFactory operationsFactory;
+   private final String cacheName;
+   private final long retryInterval;
+   private final Map<SocketAddress, Receiver> receivers = new HashMap<SocketAddress, Receiver>();
+   private final Set<SocketAddress> failedServers = new HashSet<SocketAddress>();
+   private long lastRetry;
+   private boolean stopped;
+
+   public NearCacheInvalidator(NearCache nearCache, TransportFactory transportFactory,
+                               OperationsFactory operationsFactory, String cacheName, long retryInterval) {
+      this.nearCache = nearCache;
+      this.transportFactory = transportFactory;
+      this.operationsFactory = operationsFactory;
+      this.cacheName = cacheName;
+      this.retryInterval = retryInterval;
+   }
+
+   /**
+    * Starts listening to the servers that joined or could not be listened to so far, and stops listening to the ones
+    * that left the cluster.
+    */
+   public synchronized void ensureListening() {
+      if (stopped) return;
+      Collection<SocketAddress> servers = transportFactory.getServers();
+      for (Iterator<Map.Entry<SocketAddress, Receiver>> it = receivers.entrySet().iterator(); it.hasNext(); ) {
+         Map.Entry<SocketAddress, Receiver> e = it.next();
+         if (!servers.contains(e.getKey())) {
+            e.getValue().stop();
+            it.remove();
+         }
+      }
+      long now = System.currentTimeMillis();
+      boolean retry = now - lastRetry >= retryInterval;
+      for (SocketAddress server : servers) {
+         Receiver receiver = receivers.get(server);
+         if (receiver == null || (receiver.done && retry)) {
+            if (receiver != null) lastRetry = now;
+            receiver = new Receiver(server);
+            receivers.put(server, receiver);
+            Thread thread = new Thread(receiver, "HotRod-client-invalidations-" + cacheName + "-" + server);
+            thread.setDaemon(true);
+            thread.start();
+         }
+      }
+      updateListening();
+   }
+
+   public synchronized void stop() {
+      stopped = true;
+      for (Receiver receiver : receivers.values()) {
+         receiver.stop();
+      }
+      receivers.clear();
+      nearCache.setListening(false);
+   }
+
+   private synchronized void updateListening() {
+      boolean all = !stopped && !receivers.isEmpty();
+      for (Receiver receiver : receivers.values()) {
+         all &= receiver.registered;
+      }
+      nearCache.setListening(all);
+   }
+
+   private synchronized void failed(Receiver receiver, Exception e) {
+      if (receivers.get(receiver.server) != receiver) return;
+      if (failedServers.add(receiver.server)) {
+         log.unableToReceiveInvalidations(cacheName, receiver.server, e);
+      } else if (log.isTraceEnabled()) {
+         log.tracef(e, "Unable to receive invalidation events from %s", receiver.server);
+      }
+      updateListening();
+   }
+
+   private synchronized void registered(Receiver receiver) {
+      if (receivers.get(receiver.server) != receiver) return;
+      failedServers.remove(receiver.server);
+      updateListening();
+   }
+
+   private class Receiver implements Runnable {
+      final SocketAddress server;
+      volatile boolean registered;
+      volatile boolean done;
+      private volatile boolean stopping;
+      private volatile TcpTransport transport;
+
+      Receiver(SocketAddress server) {
+         this.server = server;
+      }
+
+      @Override
+      public void run() {
+         try {
+            transport = new TcpTransport((InetSocketAddress) server, transportFactory);
+            if (stopping) return;
+            AddInvalidationListenerOperation op = operationsFactory.newAddInvalidationListenerOperation(transport);
+            short status = op.execute();
+            if (status != HotRodConstants.NO_ERROR_STATUS) {
+               throw new IllegalStateException("Unexpected status " + status + " registering the invalidation listener");
+            }
+            // events may take any time to come
+            transport.setSoTimeout(0);
+            registered = true;
+            registered(this);
+            while (!stopping) {
+               nearCache.invalidate(op.readInvalidatedKey());
+            }
+         } catch (Exception e) {
+            registered = false;
+            if (!stopping) failed(this, e);
+         } finally {
+            registered = false;
+            done = true;
+            if (transport != null) transport.destroy();
+         }
+      }
+
+      void stop() {
+         stopping = true;
+         TcpTransport t = transport;
+         if (t != null) t.destroy();
+      }
+   }
+}
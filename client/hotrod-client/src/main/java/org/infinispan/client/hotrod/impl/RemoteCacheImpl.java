@@ -25,23 +25,33 @@
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.infinispan.client.hotrod.CloseableIterator;
 import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.NearCacheStatistics;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.infinispan.client.hotrod.ServerStatistics;
 import org.infinispan.client.hotrod.Version;
 import org.infinispan.client.hotrod.VersionedValue;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.exceptions.RemoteCacheManagerNotStartedException;
 import org.infinispan.client.hotrod.exceptions.TransportException;
 import org.infinispan.client.hotrod.impl.async.NotifyingFutureImpl;
+import org.infinispan.client.hotrod.impl.async.OperationFuture;
 import org.infinispan.client.hotrod.impl.operations.BulkGetOperation;
 import org.infinispan.client.hotrod.impl.operations.ClearOperation;
 import org.infinispan.client.hotrod.impl.operations.ContainsKeyOperation;
@@ -49,16 +59,19 @@
 import org.infinispan.client.hotrod.impl.operations.GetWithVersionOperation;
 import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
 import org.infinispan.client.hotrod.impl.operations.PingOperation;
+import org.infinispan.client.hotrod.impl.operations.PutAllOperation;
 import org.infinispan.client.hotrod.impl.operations.PutIfAbsentOperation;
 import org.infinispan.client.hotrod.impl.operations.PutOperation;
 import org.infinispan.client.hotrod.impl.operations.RemoveIfUnmodifiedOperation;
 import org.infinispan.client.hotrod.impl.operations.RemoveOperation;
 import org.infinispan.client.hotrod.impl.operations.ReplaceIfUnmodifiedOperation;
 import org.infinispan.client.hotrod.impl.operations.ReplaceOperation;
+import org.infinispan.client.hotrod.impl.operations.RetryOnFailureOperation;
 import org.infinispan.client.hotrod.impl.operations.StatsOperation;
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
 import org.infinispan.marshall.Marshaller;
+import org.infinispan.util.concurrent.FutureListener;
 import org.infinispan.util.concurrent.NotifyingFuture;
 
 /**
@@ -68,6 +81,10 @@
 public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
 
    private static final Log log = LogFactory.getLog(RemoteCacheImpl.class, Log.class);
+   /**
+    * Marks asynchronous operations that modify all the keys, see {@link #executeAsync}.
+    */
+   private static final byte[] CLEAR_ALL = new byte[0];
 
    private Marshaller marshaller;
    private final String name;
@@ -76,6 +93,8 @@
    private OperationsFactory operationsFactory;
    private int estimateKeySize;
    private int estimateValueSize;
+   private volatile NearCache nearCache;
+   private volatile NearCacheInvalidator nearCacheInvalidator;
 
 
    public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
@@ -94,6 +113,14 @@ public void init(Marshaller marshaller, ExecutorService executorService, Operati
       this.estimateValueSize = estimateValueSize;
    }
 
+   /**
+    * Enables the near cache, see {@link ConfigurationProperties#NEAR_CACHE_MAX_ENTRIES}.
+    */
+   public void initNearCache(NearCache nearCache, NearCacheInvalidator nearCacheInvalidator) {
+      this.nearCacheInvalidator = nearCacheInvalidator;
+      this.nearCache = nearCache;
+   }
+
    @Override
    public RemoteCacheManager getRemoteCacheManager() {
       return remoteCacheManager;
@@ -102,14 +129,20 @@ public RemoteCacheManager getRemoteCacheManager() {
    @Override
    public boolean removeWithVersion(K key, long version) {
       assertRemoteCacheManagerIsStarted();
-      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version);
+      byte[] keyBytes = obj2bytes(key, true);
+      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(keyBytes, version);
       VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
+      invalidate(keyBytes);
       return response.getCode().isUpdated();
    }
 
    @Override
    public NotifyingFuture<Boolean> removeWithVersionAsync(final K key, final long version) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return isUpdatedAsync(operationsFactory.newRemoveIfUnmodifiedOperation(keyBytes, version), keyBytes);
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
          @Override
@@ -126,14 +159,20 @@ public Boolean call() throws Exception {
    @Override
    public boolean replaceWithVersion(K key, V newValue, long version, int lifespanSeconds, int maxIdleTimeSeconds) {
       assertRemoteCacheManagerIsStarted();
-      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
+      byte[] keyBytes = obj2bytes(key, true);
+      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(keyBytes, obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
       VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
+      invalidate(keyBytes);
       return response.getCode().isUpdated();
    }
 
    @Override
    public NotifyingFuture<Boolean> replaceWithVersionAsync(final K key, final V newValue, final long version, final int lifespanSeconds, final int maxIdleSeconds) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return isUpdatedAsync(operationsFactory.newReplaceIfUnmodifiedOperation(keyBytes, obj2bytes(newValue, false), lifespanSeconds, maxIdleSeconds, version), keyBytes);
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
          @Override
@@ -158,14 +197,21 @@ public VersionedValue<V> getVersioned(K key) {
    @Override
    public void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
-      for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
-         put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+      Map<byte[], byte[]> entries = marshallEntries(map);
+      try {
+         executeAll(operationsFactory.newPutAllOperations(entries, toSeconds(lifespan, lifespanUnit),
+               toSeconds(maxIdleTime, maxIdleTimeUnit)));
+      } finally {
+         invalidateAll(entries.keySet());
       }
    }
 
    @Override
    public NotifyingFuture<Void> putAllAsync(final Map<? extends K, ? extends V> data, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         return putAllMultiplexed(data, toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit));
+      }
       final NotifyingFutureImpl<Void> result = new NotifyingFutureImpl<Void>();
       Future<Void> future = executorService.submit(new Callable<Void>() {
          @Override
@@ -215,8 +261,10 @@ public V put(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleT
       if (log.isTraceEnabled()) {
          log.tracef("About to add (K,V): (%s, %s) lifespanSecs:%d, maxIdleSecs:%d", key, value, lifespanSecs, maxIdleSecs);
       }
-      PutOperation op = operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = obj2bytes(key, true);
+      PutOperation op = operationsFactory.newPutKeyValueOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] result = (byte[]) op.execute();
+      invalidate(keyBytes);
       return (V) bytes2obj(result);
    }
 
@@ -227,8 +275,10 @@ public V putIfAbsent(K key, V value, long lifespan, TimeUnit lifespanUnit, long
       assertRemoteCacheManagerIsStarted();
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
-      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = obj2bytes(key, true);
+      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] bytes = (byte[]) op.execute();
+      invalidate(keyBytes);
       return (V) bytes2obj(bytes);
    }
 
@@ -238,14 +288,21 @@ public V replace(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxI
       assertRemoteCacheManagerIsStarted();
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
-      ReplaceOperation op = operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = obj2bytes(key, true);
+      ReplaceOperation op = operationsFactory.newReplaceOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] bytes = (byte[]) op.execute();
+      invalidate(keyBytes);
       return (V) bytes2obj(bytes);
    }
 
    @Override
    public NotifyingFuture<V> putAsync(final K key, final V value, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return unmarshallAsync(operationsFactory.newPutKeyValueOperation(keyBytes, obj2bytes(value, false),
+               toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), keyBytes);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -262,6 +319,15 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<Void> clearAsync() {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         if (nearCache == null) return operationsFactory.newClearOperation().executeAsync();
+         return executeAsync(operationsFactory.newClearOperation(), new ResponseConverter<Void, Void>() {
+            @Override
+            public Void convert(Void response) {
+               return null;
+            }
+         }, CLEAR_ALL);
+      }
       final NotifyingFutureImpl<Void> result = new NotifyingFutureImpl<Void>();
       Future<Void> future = executorService.submit(new Callable<Void>() {
          @Override
@@ -278,6 +344,11 @@ public Void call() throws Exception {
    @Override
    public NotifyingFuture<V> putIfAbsentAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return unmarshallAsync(operationsFactory.newPutIfAbsentOperation(keyBytes, obj2bytes(value, false),
+               toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), keyBytes);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -294,6 +365,10 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<V> removeAsync(final Object key) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return unmarshallAsync(operationsFactory.newRemoveOperation(keyBytes), keyBytes);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -310,6 +385,11 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<V> replaceAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return unmarshallAsync(operationsFactory.newReplaceOperation(keyBytes, obj2bytes(value, false),
+               toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), keyBytes);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -335,8 +415,13 @@ public boolean containsKey(Object key) {
    public V get(Object key) {
       assertRemoteCacheManagerIsStarted();
       byte[] keyBytes = obj2bytes(key, true);
-      GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
-      byte[] bytes = (byte[]) gco.execute();
+      byte[] bytes;
+      if (nearCache == null) {
+         GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
+         bytes = (byte[]) gco.execute();
+      } else {
+         bytes = getThroughNearCache(keyBytes);
+      }
       V result = (V) bytes2obj(bytes);
       if (log.isTraceEnabled()) {
          log.tracef("For key(%s) returning %s", key, result);
@@ -364,12 +449,37 @@ public Map<K, V> getBulk(int size) {
       return Collections.unmodifiableMap(toReturn);
    }
 
+   @Override
+   public CloseableIterator<Map.Entry<K, V>> retrieveEntries(Set<Integer> segments, int batchSize) {
+      assertRemoteCacheManagerIsStarted();
+      return new RemoteEntryIterator<K, V>(this, operationsFactory, segments, batchSize);
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      List<byte[]> keyBytes = new ArrayList<byte[]>(keys.size());
+      for (K key : keys) {
+         keyBytes.add(obj2bytes(key, true));
+      }
+      Map<K, V> toReturn = new HashMap<K, V>();
+      for (Map<byte[], byte[]> result : executeAll(operationsFactory.newGetAllOperations(keyBytes))) {
+         for (Map.Entry<byte[], byte[]> entry : result.entrySet()) {
+            toReturn.put((K) bytes2obj(entry.getKey()), (V) bytes2obj(entry.getValue()));
+         }
+      }
+      return Collections.unmodifiableMap(toReturn);
+   }
+
    @Override
    @SuppressWarnings("unchecked")
    public V remove(Object key) {
       assertRemoteCacheManagerIsStarted();
-      RemoveOperation removeOperation = operationsFactory.newRemoveOperation(obj2bytes(key, true));
+      byte[] keyBytes = obj2bytes(key, true);
+      RemoveOperation removeOperation = operationsFactory.newRemoveOperation(keyBytes);
       byte[] existingValue = (byte[]) removeOperation.execute();
+      invalidate(keyBytes);
       // TODO: It sucks that you need the prev value to see if it works...
       // We need to find a better API for RemoteCache...
       return (V) bytes2obj(existingValue);
@@ -379,7 +489,17 @@ public V remove(Object key) {
    public void clear() {
       assertRemoteCacheManagerIsStarted();
       ClearOperation op = operationsFactory.newClearOperation() ;
-      op.execute();
+      try {
+         op.execute();
+      } finally {
+         NearCache nc = nearCache;
+         if (nc != null) nc.clear();
+      }
+   }
+
+   @Override
+   public NearCacheStatistics nearCacheStats() {
+      return nearCache;
    }
 
    @Override
@@ -391,7 +511,10 @@ public void start() {
 
    @Override
    public void stop() {
-      if (log.isDebugEnabled()) {
+      NearCacheInvalidator invalidator = nearCacheInvalidator;
+      if (invalidator != null) {
+         invalidator.stop();
+      } else if (log.isDebugEnabled()) {
          log.debugf("Stop called, nothing to do here(%s)", getName());
       }
    }
@@ -415,6 +538,9 @@ public RemoteCache<K, V> withFlags(Flag... flags) {
    @Override
    public NotifyingFuture<V> getAsync(final K key) {
       assertRemoteCacheManagerIsStarted();
+      if (operationsFactory.isMultiplexed()) {
+         return unmarshallAsync(operationsFactory.newGetKeyOperation(obj2bytes(key, true)), null);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -428,6 +554,173 @@ public V call() throws Exception {
       return result;
    }
 
+   /**
+    * Sends the operation over a multiplexed connection and converts its response once received, on a worker thread
+    * of the transport.
+    *
+    * @param modifiedKey the key written by the operation, to be dropped from the near cache once it completes, or
+    *                    null for reads
+    */
+   private <R, T> NotifyingFuture<T> executeAsync(RetryOnFailureOperation<R> op, final ResponseConverter<R, T> converter,
+                                                  final byte[] modifiedKey) {
+      final OperationFuture<T> result = new OperationFuture<T>();
+      op.executeAsync().attachListener(new FutureListener<R>() {
+         @Override
+         public void futureDone(Future<R> future) {
+            if (modifiedKey == CLEAR_ALL) {
+               NearCache nc = nearCache;
+               if (nc != null) nc.clear();
+            } else if (modifiedKey != null) {
+               invalidate(modifiedKey);
+            }
+            try {
+               result.complete(converter.convert(future.get()));
+            } catch (ExecutionException e) {
+               result.fail(e.getCause());
+            } catch (Throwable t) {
+               result.fail(t);
+            }
+         }
+      });
+      return result;
+   }
+
+   private NotifyingFuture<V> unmarshallAsync(RetryOnFailureOperation<byte[]> op, byte[] modifiedKey) {
+      return executeAsync(op, new ResponseConverter<byte[], V>() {
+         @Override
+         @SuppressWarnings("unchecked")
+         public V convert(byte[] response) {
+            return (V) bytes2obj(response);
+         }
+      }, modifiedKey);
+   }
+
+   private NotifyingFuture<Boolean> isUpdatedAsync(RetryOnFailureOperation<VersionedOperationResponse> op, byte[] modifiedKey) {
+      return executeAsync(op, new ResponseConverter<VersionedOperationResponse, Boolean>() {
+         @Override
+         public Boolean convert(VersionedOperationResponse response) {
+            return response.getCode().isUpdated();
+         }
+      }, modifiedKey);
+   }
+
+   private NotifyingFuture<Void> putAllMultiplexed(Map<? extends K, ? extends V> data, int lifespanSecs, int maxIdleSecs) {
+      final OperationFuture<Void> result = new OperationFuture<Void>();
+      if (data.isEmpty()) {
+         result.complete(null);
+         return result;
+      }
+      // one request per server is sent right away, the future completes when the last response arrives or the first
+      // request fails
+      final Map<byte[], byte[]> entries = marshallEntries(data);
+      List<PutAllOperation> ops = operationsFactory.newPutAllOperations(entries, lifespanSecs, maxIdleSecs);
+      final AtomicInteger remaining = new AtomicInteger(ops.size());
+      FutureListener<Void> listener = new FutureListener<Void>() {
+         @Override
+         public void futureDone(Future<Void> future) {
+            invalidateAll(entries.keySet());
+            try {
+               future.get();
+               if (remaining.decrementAndGet() == 0) result.complete(null);
+            } catch (ExecutionException e) {
+               result.fail(e.getCause());
+            } catch (Throwable t) {
+               result.fail(t);
+            }
+         }
+      };
+      for (PutAllOperation op : ops) {
+         op.executeAsync().attachListener(listener);
+      }
+      return result;
+   }
+
+   private Map<byte[], byte[]> marshallEntries(Map<? extends K, ? extends V> data) {
+      Map<byte[], byte[]> entries = new LinkedHashMap<byte[], byte[]>();
+      for (Entry<? extends K, ? extends V> entry : data.entrySet()) {
+         entries.put(obj2bytes(entry.getKey(), true), obj2bytes(entry.getValue(), false));
+      }
+      return entries;
+   }
+
+   /**
+    * Executes operations targeting different servers in parallel and waits for all of them to complete. Without
+    * multiplexing, the first operation runs in the calling thread and the others in the async executor.
+    */
+   private <T> List<T> executeAll(List<? extends RetryOnFailureOperation<T>> ops) {
+      List<T> results = new ArrayList<T>(ops.size());
+      if (ops.isEmpty()) {
+         return results;
+      }
+      if (ops.size() == 1) {
+         results.add(ops.get(0).execute());
+         return results;
+      }
+      List<Future<T>> futures = new ArrayList<Future<T>>(ops.size());
+      if (operationsFactory.isMultiplexed()) {
+         for (RetryOnFailureOperation<T> op : ops) {
+            futures.add(op.executeAsync());
+         }
+      } else {
+         for (final RetryOnFailureOperation<T> op : ops.subList(1, ops.size())) {
+            futures.add(executorService.submit(new Callable<T>() {
+               @Override
+               public T call() throws Exception {
+                  return op.execute();
+               }
+            }));
+         }
+         results.add(ops.get(0).execute());
+      }
+      for (Future<T> future : futures) {
+         results.add(await(future));
+      }
+      return results;
+   }
+
+   private <T> T await(Future<T> future) {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new HotRodClientException(e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof HotRodClientException) throw (HotRodClientException) e.getCause();
+         throw new HotRodClientException(e.getCause());
+      }
+   }
+
+   private byte[] getThroughNearCache(byte[] keyBytes) {
+      NearCache nc = nearCache;
+      NearCache.Entry entry = nc.get(keyBytes);
+      if (entry != null) return entry.getValue();
+      nearCacheInvalidator.ensureListening();
+      long readStart = nc.startRead();
+      byte[] bytes = (byte[]) operationsFactory.newGetKeyOperation(keyBytes).execute();
+      if (bytes == null) {
+         nc.remove(keyBytes);
+      } else {
+         nc.put(keyBytes, bytes, readStart);
+      }
+      return bytes;
+   }
+
+   private void invalidate(byte[] keyBytes) {
+      NearCache nc = nearCache;
+      if (nc != null) nc.invalidate(keyBytes);
+   }
+
+   private void invalidateAll(Set<byte[]> keys) {
+      NearCache nc = nearCache;
+      if (nc != null) {
+         for (byte[] key : keys) nc.invalidate(key);
+      }
+   }
+
+   private interface ResponseConverter<R, T> {
+      T convert(R response);
+   }
+
    public PingOperation.PingResult ping() {
       return operationsFactory.newFaultTolerantPingOperation().execute();
    }
@@ -443,7 +736,7 @@ private byte[] obj2bytes(Object o, boolean isKey) {
       }
    }
 
-   private Object bytes2obj(byte[] bytes) {
+   Object bytes2obj(byte[] bytes) {
       if (bytes == null) return null;
       try {
          return marshaller.objectFromByteBuffer(bytes);
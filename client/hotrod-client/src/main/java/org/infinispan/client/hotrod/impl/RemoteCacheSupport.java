@@ -23,10 +23,13 @@
 package org.infinispan.client.hotrod.impl;
 
 import org.infinispan.CacheSupport;
+import org.infinispan.client.hotrod.CloseableIterator;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.util.concurrent.NotifyingFuture;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -58,6 +61,11 @@ public boolean replaceWithVersion(K key, V newValue, long version, int lifespanS
       return replaceWithVersion(key, newValue, version, lifespanSeconds, 0);
    }
 
+   @Override
+   public CloseableIterator<Map.Entry<K, V>> retrieveEntries(int batchSize) {
+      return retrieveEntries(Collections.<Integer>emptySet(), batchSize);
+   }
+
    @Override
    public boolean containsValue(Object value) {
       throw new UnsupportedOperationException();
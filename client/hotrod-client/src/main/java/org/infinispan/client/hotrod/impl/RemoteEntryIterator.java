@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl;
+
+import org.infinispan.client.hotrod.CloseableIterator;
+import org.infinispan.client.hotrod.impl.operations.IterationOperation;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+
+import java.net.SocketAddress;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Iterates over the entries of a remote cache, retrieving them page by page as the iteration goes. The first page is
+ * requested from any server; if that server reports the cache as distributed, the other servers are then iterated
+ * one after the other, each of them returning the entries it is the primary owner of.
+ * <p/>
+ * Not thread safe.
+ *
+ * @since 5.2
+ */
+public class RemoteEntryIterator<K, V> implements CloseableIterator<Map.Entry<K, V>> {
+
+   private final RemoteCacheImpl<K, V> cache;
+   private final OperationsFactory operationsFactory;
+   private final Set<Integer> segments;
+   private final int batchSize;
+
+   /**
+    * The servers still to be iterated, null until the first page is received.
+    */
+   private Queue<SocketAddress> pendingServers;
+   private SocketAddress server;
+   /**
+    * The iteration currently open on {@link #server}, if any.
+    */
+   private String iterationId;
+   private Iterator<Map.Entry<byte[], byte[]>> page = Collections.<Map.Entry<byte[], byte[]>>emptyList().iterator();
+   private boolean closed;
+
+   public RemoteEntryIterator(RemoteCacheImpl<K, V> cache, OperationsFactory operationsFactory, Set<Integer> segments,
+                              int batchSize) {
+      if (batchSize <= 0) {
+         throw new IllegalArgumentException("Batch size must be positive, but was " + batchSize);
+      }
+      this.cache = cache;
+      this.operationsFactory = operationsFactory;
+      this.segments = segments;
+      this.batchSize = batchSize;
+   }
+
+   @Override
+   public boolean hasNext() {
+      while (!page.hasNext()) {
+         if (!fetchPage()) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public Map.Entry<K, V> next() {
+      if (!hasNext()) {
+         throw new NoSuchElementException();
+      }
+      Map.Entry<byte[], byte[]> entry = page.next();
+      return new AbstractMap.SimpleImmutableEntry<K, V>((K) cache.bytes2obj(entry.getKey()),
+                                                        (V) cache.bytes2obj(entry.getValue()));
+   }
+
+   @Override
+   public void remove() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void close() {
+      if (closed) {
+         return;
+      }
+      closed = true;
+      page = Collections.<Map.Entry<byte[], byte[]>>emptyList().iterator();
+      if (iterationId != null) {
+         String id = iterationId;
+         iterationId = null;
+         operationsFactory.newIterationOperation(server, id, segments, 0).execute();
+      }
+   }
+
+   private boolean fetchPage() {
+      if (closed) {
+         return false;
+      }
+      IterationOperation op;
+      if (iterationId != null) {
+         op = operationsFactory.newIterationOperation(server, iterationId, segments, batchSize);
+      } else if (pendingServers == null) {
+         op = operationsFactory.newIterationOperation(null, null, segments, batchSize);
+      } else if (!pendingServers.isEmpty()) {
+         op = operationsFactory.newIterationOperation(pendingServers.poll(), null, segments, batchSize);
+      } else {
+         closed = true;
+         return false;
+      }
+
+      IterationOperation.Page result = op.execute();
+      server = result.getServer();
+      iterationId = result.isFinished() ? null : result.getIterationId();
+      if (pendingServers == null) {
+         pendingServers = new LinkedList<SocketAddress>();
+         if (result.isDistributed()) {
+            for (SocketAddress other : operationsFactory.getServers()) {
+               if (!other.equals(server)) pendingServers.add(other);
+            }
+         }
+      }
+      page = result.getEntries().iterator();
+      return true;
+   }
+}
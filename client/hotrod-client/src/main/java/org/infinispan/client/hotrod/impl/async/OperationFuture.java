@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.async;
+
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NotifyingFuture;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Notifying future completed explicitly by the transport once the response of an operation has been received, rather
+ * than by a thread executing the operation.
+ * <p/>
+ * Cancelling the future only detaches the caller: the request may already be on the wire and its response is
+ * discarded when it arrives.
+ *
+ * @since 5.2
+ */
+public class OperationFuture<T> implements NotifyingFuture<T> {
+
+   private final CountDownLatch done = new CountDownLatch(1);
+   private final CopyOnWriteArrayList<FutureListener<T>> listeners = new CopyOnWriteArrayList<FutureListener<T>>();
+   private volatile T result;
+   private volatile Throwable failure;
+   private volatile boolean cancelled;
+   private boolean completed;
+
+   /**
+    * @return true if this call completed the future, false if it was already completed
+    */
+   public boolean complete(T result) {
+      synchronized (this) {
+         if (completed) return false;
+         completed = true;
+         this.result = result;
+      }
+      finish();
+      return true;
+   }
+
+   /**
+    * @return true if this call completed the future, false if it was already completed
+    */
+   public boolean fail(Throwable failure) {
+      synchronized (this) {
+         if (completed) return false;
+         completed = true;
+         this.failure = failure;
+      }
+      finish();
+      return true;
+   }
+
+   @Override
+   public boolean cancel(boolean mayInterruptIfRunning) {
+      synchronized (this) {
+         if (completed) return false;
+         completed = true;
+         cancelled = true;
+      }
+      finish();
+      return true;
+   }
+
+   private void finish() {
+      done.countDown();
+      for (FutureListener<T> listener : listeners) {
+         // whoever removes the listener notifies it, so it is notified exactly once
+         if (listeners.remove(listener)) listener.futureDone(this);
+      }
+   }
+
+   @Override
+   public NotifyingFuture<T> attachListener(FutureListener<T> listener) {
+      listeners.add(listener);
+      // if the future completed meanwhile finish() might not have seen the listener
+      if (isDone() && listeners.remove(listener)) {
+         listener.futureDone(this);
+      }
+      return this;
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return cancelled;
+   }
+
+   @Override
+   public boolean isDone() {
+      return done.getCount() == 0;
+   }
+
+   @Override
+   public T get() throws InterruptedException, ExecutionException {
+      done.await();
+      return report();
+   }
+
+   @Override
+   public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      if (!done.await(timeout, unit)) {
+         throw new TimeoutException();
+      }
+      return report();
+   }
+
+   private T report() throws ExecutionException {
+      if (cancelled) throw new CancellationException();
+      if (failure != null) throw new ExecutionException(failure);
+      return result;
+   }
+}
@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.consistenthash;
+
+import org.infinispan.commons.hash.Hash;
+import org.infinispan.commons.hash.MurmurHash2;
+import org.infinispan.commons.hash.MurmurHash3;
+import org.infinispan.util.Util;
+
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consistent hash sent by servers speaking version 1.2 of the protocol. The hash space is split in segments the same
+ * way the servers split it, and each key is routed to the primary owner of its segment. Caches that are not
+ * distributed have no segments, and their keys are simply spread over all the servers.
+ * <p/>
+ * Topology ids are only meaningful within a cache, so the hash also records the cache it was sent for.
+ * <p/>
+ * Instances are immutable, topology updates build a new instance out of the previous one.
+ *
+ * @since 5.2
+ */
+public class SegmentConsistentHash implements ConsistentHash {
+
+   private final String cacheName;
+   private final int topologyId;
+   private final Hash hash;
+   private final SocketAddress[] servers;
+   private final SocketAddress[][] segmentOwners;
+   private final int segmentSize;
+
+   /**
+    * @param cacheName     the name of the cache the topology belongs to
+    * @param servers       the servers, in the order the server sent them
+    * @param segmentOwners the owners of each segment, primary owner first
+    */
+   public SegmentConsistentHash(String cacheName, int topologyId, Hash hash, SocketAddress[] servers,
+                                SocketAddress[][] segmentOwners) {
+      this.cacheName = cacheName;
+      this.topologyId = topologyId;
+      this.hash = hash;
+      this.servers = servers;
+      this.segmentOwners = segmentOwners;
+      this.segmentSize = segmentOwners.length == 0 ? 0 : (int) Math.ceil((double) Integer.MAX_VALUE / segmentOwners.length);
+   }
+
+   /**
+    * @return the hash function identified by the given version in the Hot Rod protocol
+    */
+   public static Hash hashFunction(int version) {
+      return version == 1 ? new MurmurHash2() : new MurmurHash3();
+   }
+
+   @Override
+   public void init(Map<SocketAddress, Set<Integer>> servers2Hash, int numKeyOwners, int hashSpace) {
+      throw new UnsupportedOperationException("Segment based consistent hashes are not built out of hash ids");
+   }
+
+   @Override
+   public SocketAddress getServer(byte[] key) {
+      if (servers.length == 0) {
+         return null;
+      }
+      int normalizedHash = getNormalizedHash(key);
+      if (segmentOwners.length == 0) {
+         return servers[normalizedHash % servers.length];
+      }
+      int segment = Math.min(normalizedHash / segmentSize, segmentOwners.length - 1);
+      SocketAddress[] owners = segmentOwners[segment];
+      // A segment might only be owned by cluster members not running a Hot Rod server
+      return owners.length > 0 ? owners[0] : servers[segment % servers.length];
+   }
+
+   @Override
+   public int getNormalizedHash(Object key) {
+      return Util.getNormalizedHash(key, hash);
+   }
+
+   public String getCacheName() {
+      return cacheName;
+   }
+
+   public int getTopologyId() {
+      return topologyId;
+   }
+
+   public Hash getHash() {
+      return hash;
+   }
+
+   public List<SocketAddress> getServers() {
+      return Collections.unmodifiableList(Arrays.asList(servers));
+   }
+
+   public int getNumSegments() {
+      return segmentOwners.length;
+   }
+
+   /**
+    * @return a copy of the owners of all the segments, which can be modified to build an updated hash
+    */
+   public SocketAddress[][] copySegmentOwners() {
+      // The owners of a single segment are never modified, so they can be shared
+      return segmentOwners.clone();
+   }
+
+   @Override
+   public String toString() {
+      return "SegmentConsistentHash{cacheName=" + cacheName + ", topologyId=" + topologyId
+            + ", servers=" + Arrays.toString(servers) + ", numSegments=" + segmentOwners.length + "}";
+   }
+}
@@ -64,14 +64,11 @@ protected Transport getTransport(int retryCount) {
       }
    }
 
-   protected short sendKeyOperation(byte[] key, Transport transport, byte opCode, byte opRespCode) {
-      // 1) write [header][key length][key]
+   protected HeaderParams writeKeyRequest(Transport transport, short opCode) {
+      // [header][key length][key]
       HeaderParams params = writeHeader(transport, opCode);
       transport.writeArray(key);
-      transport.flush();
-
-      // 2) now read the header
-      return readHeaderAndValidate(transport, params);
+      return params;
    }
 
    protected byte[] returnPossiblePrevValue(Transport transport) {
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registers an invalidation listener for a cache on the server the transport is connected to. From then on, the
+ * server pushes the keys of the entries modified or removed on it over that transport, which is therefore dedicated
+ * to reading them with {@link #readInvalidatedKey()} and never returned to the pool.
+ *
+ * @since 5.2
+ */
+@Immutable
+public class AddInvalidationListenerOperation extends HotRodOperation {
+
+   private final Transport transport;
+
+   public AddInvalidationListenerOperation(Codec codec, AtomicInteger topologyId, Transport transport,
+                                           byte[] cacheName) {
+      super(codec, null, cacheName, topologyId);
+      this.transport = transport;
+   }
+
+   @Override
+   public Short execute() {
+      HeaderParams params = writeHeader(transport, ADD_INVALIDATION_LISTENER_REQUEST);
+      transport.flush();
+      return readHeaderAndValidate(transport, params);
+   }
+
+   /**
+    * Blocks until the server pushes the next invalidation event.
+    *
+    * @return the key of the invalidated entry
+    */
+   public byte[] readInvalidatedKey() {
+      // [magic][message id][op code][status][topology change marker][key]
+      short magic = transport.readByte();
+      if (magic != RESPONSE_MAGIC) {
+         throw new InvalidResponseException(String.format(
+               "Invalid magic number. Expected %#x and received %#x", RESPONSE_MAGIC, magic));
+      }
+      transport.readVLong();
+      short opCode = transport.readByte();
+      transport.readByte();
+      // Events are sent as if to a basic client, so they never carry a topology
+      transport.readByte();
+      if (opCode != INVALIDATION_EVENT) {
+         throw new InvalidResponseException(String.format(
+               "Invalid event operation. Expected %#x and received %#x", INVALIDATION_EVENT, opCode));
+      }
+      return transport.readArray();
+   }
+}
@@ -20,7 +20,10 @@
 package org.infinispan.client.hotrod.impl.operations;
 
 import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 
@@ -45,8 +48,22 @@ protected Transport getTransport(int retryCount) {
    }
 
    @Override
-   protected PingOperation.PingResult executeOperation(Transport transport) {
-      return new PingOperation(codec, topologyId, transport, cacheName).execute();
+   protected HeaderParams writeRequest(Transport transport) {
+      return writeHeader(transport, HotRodConstants.PING_REQUEST);
+   }
+
+   @Override
+   protected PingOperation.PingResult readResponse(Transport transport, HeaderParams params) {
+      try {
+         short respStatus = readHeaderAndValidate(transport, params);
+         return respStatus == HotRodConstants.NO_ERROR_STATUS
+               ? PingOperation.PingResult.SUCCESS : PingOperation.PingResult.FAIL;
+      } catch (HotRodClientException e) {
+         if (e.getMessage().contains("CacheNotFoundException"))
+            return PingOperation.PingResult.CACHE_DOES_NOT_EXIST;
+         else
+            return PingOperation.PingResult.FAIL;
+      }
    }
 
 }
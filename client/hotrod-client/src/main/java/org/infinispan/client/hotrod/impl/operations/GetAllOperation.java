@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads several keys with a single request. The keys are expected to be owned by the same server, the request is
+ * routed to the owner of the first key. Keys that do not exist are missing from the returned map.
+ *
+ * @since 5.2
+ */
+@Immutable
+public class GetAllOperation extends RetryOnFailureOperation<Map<byte[], byte[]>> {
+
+   private final Collection<byte[]> keys;
+   private final byte[] routingKey;
+
+   public GetAllOperation(Codec codec, TransportFactory transportFactory, Collection<byte[]> keys,
+                          byte[] cacheName, AtomicInteger topologyId, Flag[] flags) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+      this.keys = keys;
+      this.routingKey = keys.isEmpty() ? null : keys.iterator().next();
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount) {
+      if (retryCount == 0 && routingKey != null) {
+         return transportFactory.getTransport(routingKey);
+      } else {
+         return transportFactory.getTransport();
+      }
+   }
+
+   @Override
+   protected HeaderParams writeRequest(Transport transport) {
+      // [header][key count][key length][key]...
+      HeaderParams params = writeHeader(transport, GET_ALL_REQUEST);
+      transport.writeVInt(keys.size());
+      for (byte[] key : keys) {
+         transport.writeArray(key);
+      }
+      return params;
+   }
+
+   @Override
+   protected Map<byte[], byte[]> readResponse(Transport transport, HeaderParams params) {
+      readHeaderAndValidate(transport, params);
+      int count = transport.readVInt();
+      Map<byte[], byte[]> result = new HashMap<byte[], byte[]>(count * 4 / 3 + 1);
+      for (int i = 0; i < count; i++) {
+         result.put(transport.readArray(), transport.readArray());
+      }
+      return result;
+   }
+}
@@ -29,6 +29,7 @@
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.impl.BinaryVersionedValue;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 import org.infinispan.client.hotrod.logging.Log;
@@ -52,8 +53,13 @@ public GetWithVersionOperation(Codec codec, TransportFactory transportFactory,
    }
 
    @Override
-   protected BinaryVersionedValue executeOperation(Transport transport) {
-      short status = sendKeyOperation(key, transport, GET_WITH_VERSION, GET_WITH_VERSION_RESPONSE);
+   protected HeaderParams writeRequest(Transport transport) {
+      return writeKeyRequest(transport, GET_WITH_VERSION);
+   }
+
+   @Override
+   protected BinaryVersionedValue readResponse(Transport transport, HeaderParams params) {
+      short status = readHeaderAndValidate(transport, params);
       BinaryVersionedValue result = null;
       if (status == KEY_DOES_NOT_EXIST_STATUS) {
          result = null;
@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.net.SocketAddress;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retrieves a page of entries of an iteration held by a server. An empty iteration id starts a new iteration on the
+ * given server, or on any server if none is given; a batch size of 0 closes the iteration.
+ * <p/>
+ * Once started, an iteration only exists on the server that started it, so continuing it is never retried on another
+ * server.
+ *
+ * @since 5.2
+ */
+@Immutable
+public class IterationOperation extends RetryOnFailureOperation<IterationOperation.Page> {
+
+   private final SocketAddress server;
+   private final String iterationId;
+   private final Set<Integer> segments;
+   private final int batchSize;
+
+   public IterationOperation(Codec codec, TransportFactory transportFactory, byte[] cacheName,
+                             AtomicInteger topologyId, Flag[] flags, SocketAddress server, String iterationId,
+                             Set<Integer> segments, int batchSize) {
+      super(codec, transportFactory, cacheName, topologyId, flags);
+      this.server = server;
+      this.iterationId = iterationId == null ? "" : iterationId;
+      this.segments = segments;
+      this.batchSize = batchSize;
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount) {
+      if (server != null) {
+         return transportFactory.getTransport(server);
+      } else {
+         return transportFactory.getTransport();
+      }
+   }
+
+   @Override
+   protected HeaderParams writeRequest(Transport transport) {
+      // [header][iteration id][batch size][segment count][segment]...
+      HeaderParams params = writeHeader(transport, ITERATION_REQUEST);
+      transport.writeString(iterationId);
+      transport.writeVInt(batchSize);
+      transport.writeVInt(segments.size());
+      for (int segment : segments) {
+         transport.writeVInt(segment);
+      }
+      return params;
+   }
+
+   @Override
+   protected Page readResponse(Transport transport, HeaderParams params) {
+      readHeaderAndValidate(transport, params);
+      String id = transport.readString();
+      boolean distributed = transport.readByte() == 1;
+      int count = transport.readVInt();
+      List<Map.Entry<byte[], byte[]>> entries = new ArrayList<Map.Entry<byte[], byte[]>>(count);
+      for (int i = 0; i < count; i++) {
+         byte[] key = transport.readArray();
+         entries.add(new AbstractMap.SimpleImmutableEntry<byte[], byte[]>(key, transport.readArray()));
+      }
+      boolean finished = transport.readByte() == 1;
+      SocketAddress holder = server != null ? server : transport.getRemoteSocketAddress();
+      return new Page(holder, id, distributed, entries, finished);
+   }
+
+   @Override
+   protected void logErrorAndThrowExceptionIfNeeded(int i, HotRodClientException e) {
+      if (iterationId.length() > 0) {
+         throw e;
+      }
+      super.logErrorAndThrowExceptionIfNeeded(i, e);
+   }
+
+   /**
+    * A page of entries, along with what is needed to retrieve the next one.
+    */
+   public static class Page {
+
+      private final SocketAddress server;
+      private final String iterationId;
+      private final boolean distributed;
+      private final List<Map.Entry<byte[], byte[]>> entries;
+      private final boolean finished;
+
+      Page(SocketAddress server, String iterationId, boolean distributed, List<Map.Entry<byte[], byte[]>> entries,
+           boolean finished) {
+         this.server = server;
+         this.iterationId = iterationId;
+         this.distributed = distributed;
+         this.entries = entries;
+         this.finished = finished;
+      }
+
+      /**
+       * @return the server holding the iteration
+       */
+      public SocketAddress getServer() {
+         return server;
+      }
+
+      public String getIterationId() {
+         return iterationId;
+      }
+
+      /**
+       * @return whether the server only iterates over the entries it owns, so that the other servers need to be
+       *         iterated as well
+       */
+      public boolean isDistributed() {
+         return distributed;
+      }
+
+      public List<Map.Entry<byte[], byte[]>> getEntries() {
+         return entries;
+      }
+
+      /**
+       * @return whether the iteration is over on the server, which has already released it
+       */
+      public boolean isFinished() {
+         return finished;
+      }
+   }
+}
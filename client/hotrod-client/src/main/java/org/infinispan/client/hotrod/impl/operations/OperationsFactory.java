@@ -26,11 +26,22 @@
 
 import org.infinispan.api.BasicCacheContainer;
 import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
 import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory;
 
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -134,6 +145,75 @@ public BulkGetOperation newBulkGetOperation(int size) {
             codec, transportFactory, cacheNameBytes, topologyId, flags(), size);
    }
 
+   /**
+    * Creates one put all operation per server owning some of the given keys, so that each server receives a single
+    * request. The operations can be executed in parallel.
+    */
+   public List<PutAllOperation> newPutAllOperations(Map<byte[], byte[]> entries, int lifespan, int maxIdle) {
+      Flag[] flags = flags();
+      List<PutAllOperation> ops = new ArrayList<PutAllOperation>();
+      for (List<byte[]> keys : groupByServer(entries.keySet())) {
+         Map<byte[], byte[]> group = new LinkedHashMap<byte[], byte[]>(keys.size() * 4 / 3 + 1);
+         for (byte[] key : keys) {
+            group.put(key, entries.get(key));
+         }
+         ops.add(new PutAllOperation(codec, transportFactory, group, cacheNameBytes, topologyId, flags, lifespan, maxIdle));
+      }
+      return ops;
+   }
+
+   /**
+    * Creates one get all operation per server owning some of the given keys, so that each server receives a single
+    * request. The operations can be executed in parallel.
+    */
+   public List<GetAllOperation> newGetAllOperations(Collection<byte[]> keys) {
+      Flag[] flags = flags();
+      List<GetAllOperation> ops = new ArrayList<GetAllOperation>();
+      for (List<byte[]> group : groupByServer(keys)) {
+         ops.add(new GetAllOperation(codec, transportFactory, group, cacheNameBytes, topologyId, flags));
+      }
+      return ops;
+   }
+
+   /**
+    * @param server      the server to send the request to, or null to let the client pick one; has to be the server
+    *                    holding the iteration when continuing or closing one
+    * @param iterationId the iteration to continue or close, or null to start a new one
+    */
+   public IterationOperation newIterationOperation(SocketAddress server, String iterationId, Set<Integer> segments,
+                                                   int batchSize) {
+      return new IterationOperation(codec, transportFactory, cacheNameBytes, topologyId, flags(), server,
+                                    iterationId, segments, batchSize);
+   }
+
+   /**
+    * @return the servers currently known to the client
+    */
+   public Collection<SocketAddress> getServers() {
+      return transportFactory.getServers();
+   }
+
+   private Collection<List<byte[]>> groupByServer(Collection<byte[]> keys) {
+      if (keys.isEmpty()) {
+         return Collections.emptyList();
+      }
+      ConsistentHash consistentHash = transportFactory.getConsistentHash();
+      if (consistentHash == null) {
+         return Collections.<List<byte[]>>singletonList(new ArrayList<byte[]>(keys));
+      }
+      Map<SocketAddress, List<byte[]>> groups = new HashMap<SocketAddress, List<byte[]>>();
+      for (byte[] key : keys) {
+         SocketAddress server = consistentHash.getServer(key);
+         List<byte[]> group = groups.get(server);
+         if (group == null) {
+            group = new ArrayList<byte[]>();
+            groups.put(server, group);
+         }
+         group.add(key);
+      }
+      return groups.values();
+   }
+
    /**
     * Construct a ping request directed to a particular node.
     *
@@ -144,6 +224,16 @@ public PingOperation newPingOperation(Transport transport) {
       return new PingOperation(codec, topologyId, transport, cacheNameBytes);
    }
 
+   /**
+    * Construct a request registering for the invalidation events of the node the transport is connected to.
+    *
+    * @param transport a transport dedicated to receiving the events, which must not be returned to the pool
+    * @return an operation to register the listener and read the invalidated keys with
+    */
+   public AddInvalidationListenerOperation newAddInvalidationListenerOperation(Transport transport) {
+      return new AddInvalidationListenerOperation(codec, topologyId, transport, cacheNameBytes);
+   }
+
    /**
     * Construct a fault tolerant ping request. This operation should be capable
     * to deal with nodes being down, so it will find the first node successful
@@ -156,6 +246,14 @@ public FaultTolerantPingOperation newFaultTolerantPingOperation() {
             codec, transportFactory, cacheNameBytes, topologyId, flags());
    }
 
+   /**
+    * Whether the operations are sent over multiplexed connections, so that they can be executed asynchronously
+    * through {@link RetryOnFailureOperation#executeAsync()} without using a thread per operation.
+    */
+   public boolean isMultiplexed() {
+      return transportFactory instanceof NioTransportFactory;
+   }
+
    private Flag[] flags() {
       Flag[] flags = this.flagsMap.get();
       this.flagsMap.remove();
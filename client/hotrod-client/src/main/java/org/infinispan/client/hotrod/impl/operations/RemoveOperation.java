@@ -25,6 +25,7 @@
 import net.jcip.annotations.Immutable;
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 
@@ -46,8 +47,13 @@ public RemoveOperation(Codec codec, TransportFactory transportFactory,
    }
 
    @Override
-   public byte[] executeOperation(Transport transport) {
-      short status = sendKeyOperation(key, transport, REMOVE_REQUEST, REMOVE_RESPONSE);
+   protected HeaderParams writeRequest(Transport transport) {
+      return writeKeyRequest(transport, REMOVE_REQUEST);
+   }
+
+   @Override
+   protected byte[] readResponse(Transport transport, HeaderParams params) {
+      short status = readHeaderAndValidate(transport, params);
       byte[] result = returnPossiblePrevValue(transport);
       if (status == KEY_DOES_NOT_EXIST_STATUS)
          return null;
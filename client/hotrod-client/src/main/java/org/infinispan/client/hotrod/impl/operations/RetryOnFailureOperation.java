@@ -27,18 +27,29 @@
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.exceptions.RemoteNodeSuspecException;
 import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.async.OperationFuture;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.MultiplexedTransport;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.concurrent.NotifyingFuture;
 
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base class for all the operations that need retry logic: if the operation fails due to connection problems, try with 
  * another available connection.
+ * <p/>
+ * Operations are written in two phases, {@link #writeRequest(Transport)} and {@link #readResponse(Transport, HeaderParams)},
+ * so that they can also be sent over a {@link MultiplexedTransport} and completed asynchronously through
+ * {@link #executeAsync()}.
  *
  * @author Mircea.Markus@jboss.com
  * @since 4.1
@@ -98,7 +109,130 @@ protected void releaseTransport(Transport transport) {
          transportFactory.releaseTransport(transport);
    }
 
+   /**
+    * Sends the operation without blocking the caller. The returned future is completed once the response has been
+    * received, retrying on another connection on transport failures just like {@link #execute()}. Requires a transport
+    * factory handing out {@link MultiplexedTransport}s.
+    */
+   public NotifyingFuture<T> executeAsync() {
+      OperationFuture<T> future = new OperationFuture<T>();
+      sendAsync(future, 0);
+      return future;
+   }
+
+   private void sendAsync(final OperationFuture<T> future, final int retryCount) {
+      Transport transport = null;
+      try {
+         transport = getTransport(retryCount);
+         if (!(transport instanceof MultiplexedTransport)) {
+            throw new IllegalStateException("Asynchronous operations require a multiplexed transport, but got " + transport);
+         }
+         final HeaderParams params = writeRequest(transport);
+         ((MultiplexedTransport) transport).send(new ResponseHandler<T>() {
+            @Override
+            public T readResponse(Transport transport) {
+               return RetryOnFailureOperation.this.readResponse(transport, params);
+            }
+
+            @Override
+            public void responseReceived(T response) {
+               future.complete(response);
+            }
+
+            @Override
+            public void failed(Throwable cause) {
+               retryOrFail(future, retryCount, cause);
+            }
+         });
+      } catch (Throwable t) {
+         retryOrFail(future, retryCount, t);
+      } finally {
+         releaseTransport(transport);
+      }
+   }
+
+   private void retryOrFail(OperationFuture<T> future, int retryCount, Throwable cause) {
+      if (future.isDone()) return;
+      if (cause instanceof TransportException || cause instanceof RemoteNodeSuspecException) {
+         try {
+            logErrorAndThrowExceptionIfNeeded(retryCount, (HotRodClientException) cause);
+         } catch (HotRodClientException e) {
+            future.fail(e);
+            return;
+         }
+         if (shouldRetry(retryCount + 1)) {
+            sendAsync(future, retryCount + 1);
+            return;
+         }
+      }
+      future.fail(cause);
+   }
+
    protected abstract Transport getTransport(int retryCount);
 
-   protected abstract T executeOperation(Transport transport);
+   /**
+    * Writes the header and the body of the request, without flushing it.
+    *
+    * @return the parameters of the header, needed to validate the response
+    */
+   protected abstract HeaderParams writeRequest(Transport transport);
+
+   /**
+    * Reads the response to the request written by {@link #writeRequest(Transport)}.
+    */
+   protected abstract T readResponse(Transport transport, HeaderParams params);
+
+   protected T executeOperation(Transport transport) {
+      HeaderParams params = writeRequest(transport);
+      if (transport instanceof MultiplexedTransport) {
+         return sendAndWait((MultiplexedTransport) transport, params);
+      }
+      transport.flush();
+      return readResponse(transport, params);
+   }
+
+   private T sendAndWait(MultiplexedTransport transport, final HeaderParams params) {
+      final CountDownLatch received = new CountDownLatch(1);
+      final Object[] outcome = new Object[2];
+      transport.send(new ResponseHandler<T>() {
+         @Override
+         public T readResponse(Transport transport) {
+            return RetryOnFailureOperation.this.readResponse(transport, params);
+         }
+
+         @Override
+         public void responseReceived(T response) {
+            outcome[0] = response;
+            received.countDown();
+         }
+
+         @Override
+         public void failed(Throwable cause) {
+            outcome[1] = cause;
+            received.countDown();
+         }
+      });
+      int soTimeout = transportFactory.getSoTimeout();
+      try {
+         // a socket timeout of 0 means no timeout, as for blocking sockets
+         if (soTimeout <= 0) {
+            received.await();
+         } else if (!received.await(soTimeout, TimeUnit.MILLISECONDS)) {
+            throw new TransportException(String.format(
+                  "No response received from %s within %d ms", transport.getRemoteSocketAddress(), soTimeout));
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new TransportException("Interrupted while waiting for the response", e);
+      }
+      Throwable failure = (Throwable) outcome[1];
+      if (failure instanceof HotRodClientException) {
+         throw (HotRodClientException) failure;
+      } else if (failure != null) {
+         throw new TransportException(failure);
+      }
+      @SuppressWarnings("unchecked")
+      T response = (T) outcome[0];
+      return response;
+   }
 }
@@ -161,7 +161,7 @@ private void checkForErrorsInResponseStatus(Transport transport, HeaderParams pa
       }
    }
 
-   private void readNewTopologyIfPresent(Transport transport, HeaderParams params) {
+   protected void readNewTopologyIfPresent(Transport transport, HeaderParams params) {
       short topologyChangeByte = transport.readByte();
       if (topologyChangeByte == 1)
          readNewTopologyAndHash(transport, params.topologyId);
@@ -0,0 +1,202 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.protocol;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
+import org.infinispan.client.hotrod.impl.consistenthash.SegmentConsistentHash;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * A Hot Rod encoder/decoder for version 1.2 of the protocol. The topology is described with the owners of each segment
+ * rather than with hash ids, and once the client knows a topology the server only sends the servers and segments that
+ * changed since, which the client applies to its current {@link SegmentConsistentHash} as long as it is the topology
+ * of the same cache. The client only keeps one topology, so switching to another cache requests the whole topology
+ * of that cache.
+ *
+ * @since 5.2
+ */
+public class Codec12 extends Codec11 {
+
+   private static final Log log = LogFactory.getLog(Codec12.class, Log.class);
+
+   private static final short FULL_TOPOLOGY = 1;
+   private static final short TOPOLOGY_DELTA = 2;
+
+   /**
+    * Topology id sent by clients that do not know any topology yet.
+    */
+   private static final int UNKNOWN_TOPOLOGY_ID = -1;
+
+   @Override
+   public HeaderParams writeHeader(Transport transport, HeaderParams params) {
+      // The client keeps the topology of a single cache, whose id means nothing to the other caches
+      ConsistentHash current = transport.getTransportFactory().getConsistentHash();
+      if (current instanceof SegmentConsistentHash
+            && !((SegmentConsistentHash) current).getCacheName().equals(cacheName(params))) {
+         params.topologyId.set(UNKNOWN_TOPOLOGY_ID);
+      }
+      return writeHeader(transport, params, HotRodConstants.VERSION_12);
+   }
+
+   @Override
+   public Log getLog() {
+      return log;
+   }
+
+   @Override
+   protected void readNewTopologyIfPresent(Transport transport, HeaderParams params) {
+      short topologyChangeByte = transport.readByte();
+      if (topologyChangeByte == FULL_TOPOLOGY)
+         readFullTopology(transport, cacheName(params), params.topologyId);
+      else if (topologyChangeByte == TOPOLOGY_DELTA)
+         readTopologyDelta(transport, params.topologyId);
+   }
+
+   private String cacheName(HeaderParams params) {
+      return params.cacheName == null ? "" : new String(params.cacheName, HotRodConstants.HOTROD_STRING_CHARSET);
+   }
+
+   private void readFullTopology(Transport transport, String cacheName, AtomicInteger topologyId) {
+      // [topology id][server count][host][port]...[hash function][segment count][owner count][owner index]...
+      int newTopologyId = transport.readVInt();
+      int numServers = transport.readVInt();
+      SocketAddress[] servers = new SocketAddress[numServers];
+      for (int i = 0; i < numServers; i++) {
+         servers[i] = readServer(transport);
+      }
+      short hashFunctionVersion = transport.readByte();
+      int numSegments = transport.readVInt();
+      SocketAddress[][] segmentOwners = new SocketAddress[numSegments][];
+      for (int i = 0; i < numSegments; i++) {
+         segmentOwners[i] = readOwners(transport, servers);
+      }
+      if (log.isTraceEnabled()) {
+         log.tracef("Full topology received: topologyId=%d, servers=%d, hashFunctionVersion=%d, segments=%d",
+               newTopologyId, numServers, hashFunctionVersion, numSegments);
+      }
+      installTopology(transport, topologyId, new SegmentConsistentHash(cacheName, newTopologyId,
+            SegmentConsistentHash.hashFunction(hashFunctionVersion), servers, segmentOwners));
+   }
+
+   private void readTopologyDelta(Transport transport, AtomicInteger topologyId) {
+      // [topology id][base topology id][cache name][removed count][removed index]...[added count][index][host][port]...
+      // [changed segment count][segment][owner count][owner index]...
+      int newTopologyId = transport.readVInt();
+      int baseTopologyId = transport.readVInt();
+      String cacheName = transport.readString();
+      int[] removed = new int[transport.readVInt()];
+      for (int i = 0; i < removed.length; i++) {
+         removed[i] = transport.readVInt();
+      }
+      int numAdded = transport.readVInt();
+      int[] addedIndexes = new int[numAdded];
+      SocketAddress[] added = new SocketAddress[numAdded];
+      for (int i = 0; i < numAdded; i++) {
+         addedIndexes[i] = transport.readVInt();
+         added[i] = readServer(transport);
+      }
+      // Owner indexes refer to the updated server list, so they can only be resolved once it has been rebuilt
+      int[] changedSegments = new int[transport.readVInt()];
+      int[][] changedOwners = new int[changedSegments.length][];
+      for (int i = 0; i < changedSegments.length; i++) {
+         changedSegments[i] = transport.readVInt();
+         changedOwners[i] = new int[transport.readByte()];
+         for (int j = 0; j < changedOwners[i].length; j++) {
+            changedOwners[i][j] = transport.readVInt();
+         }
+      }
+
+      ConsistentHash current = transport.getTransportFactory().getConsistentHash();
+      if (!(current instanceof SegmentConsistentHash)
+            || ((SegmentConsistentHash) current).getTopologyId() != baseTopologyId
+            || !((SegmentConsistentHash) current).getCacheName().equals(cacheName)) {
+         // Forget about the topology, so that the next response brings the whole of it
+         log.tracef("Unable to apply topology delta from %d to %d of cache '%s' on %s, requesting the full topology",
+               baseTopologyId, newTopologyId, cacheName, current);
+         topologyId.set(UNKNOWN_TOPOLOGY_ID);
+         return;
+      }
+
+      SegmentConsistentHash base = (SegmentConsistentHash) current;
+      List<SocketAddress> serverList = new ArrayList<SocketAddress>(base.getServers());
+      // Removed indexes are sorted, going backwards keeps the ones still to remove valid
+      for (int i = removed.length - 1; i >= 0; i--) {
+         serverList.remove(removed[i]);
+      }
+      for (int i = 0; i < numAdded; i++) {
+         serverList.add(addedIndexes[i], added[i]);
+      }
+      SocketAddress[] servers = serverList.toArray(new SocketAddress[serverList.size()]);
+      SocketAddress[][] segmentOwners = base.copySegmentOwners();
+      for (int i = 0; i < changedSegments.length; i++) {
+         SocketAddress[] owners = new SocketAddress[changedOwners[i].length];
+         for (int j = 0; j < owners.length; j++) {
+            owners[j] = servers[changedOwners[i][j]];
+         }
+         segmentOwners[changedSegments[i]] = owners;
+      }
+      if (log.isTraceEnabled()) {
+         log.tracef("Topology delta received: topologyId=%d, baseTopologyId=%d, removed servers=%d, " +
+               "added servers=%d, changed segments=%d", newTopologyId, baseTopologyId, removed.length, numAdded,
+               changedSegments.length);
+      }
+      installTopology(transport, topologyId,
+            new SegmentConsistentHash(cacheName, newTopologyId, base.getHash(), servers, segmentOwners));
+   }
+
+   private void installTopology(Transport transport, AtomicInteger topologyId, SegmentConsistentHash ch) {
+      topologyId.set(ch.getTopologyId());
+      List<SocketAddress> servers = ch.getServers();
+      if (log.isInfoEnabled()) {
+         log.newTopology(transport.getRemoteSocketAddress(), ch.getTopologyId(), servers.size(),
+               new LinkedHashSet<SocketAddress>(servers));
+      }
+      TransportFactory transportFactory = transport.getTransportFactory();
+      transportFactory.updateServers(servers);
+      transportFactory.updateHashFunction(ch);
+   }
+
+   private SocketAddress readServer(Transport transport) {
+      String host = transport.readString();
+      int port = transport.readUnsignedShort();
+      return new InetSocketAddress(host, port);
+   }
+
+   private SocketAddress[] readOwners(Transport transport, SocketAddress[] servers) {
+      SocketAddress[] owners = new SocketAddress[transport.readByte()];
+      for (int i = 0; i < owners.length; i++) {
+         owners[i] = servers[transport.readVInt()];
+      }
+      return owners;
+   }
+}
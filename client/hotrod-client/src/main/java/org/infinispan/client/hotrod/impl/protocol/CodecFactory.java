@@ -31,12 +31,15 @@ public class CodecFactory {
 
    private static final Codec CODEC_10 = new Codec10();
    private static final Codec CODEC_11 = new Codec11();
+   private static final Codec CODEC_12 = new Codec12();
 
    public static Codec getCodec(String version) {
       if (version.equals(ConfigurationProperties.PROTOCOL_VERSION_10))
          return CODEC_10;
       else if (version.equals(ConfigurationProperties.PROTOCOL_VERSION_11))
          return CODEC_11;
+      else if (version.equals(ConfigurationProperties.PROTOCOL_VERSION_12))
+         return CODEC_12;
       else
          throw new IllegalArgumentException("Invalid Hot Rod protocol version");
    }
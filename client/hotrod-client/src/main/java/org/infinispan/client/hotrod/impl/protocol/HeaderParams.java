@@ -104,6 +104,14 @@ private short toOpRespCode(short opCode) {
             return HotRodConstants.PING_RESPONSE;
          case HotRodConstants.BULK_GET_REQUEST:
             return HotRodConstants.BULK_GET_RESPONSE;
+         case HotRodConstants.PUT_ALL_REQUEST:
+            return HotRodConstants.PUT_ALL_RESPONSE;
+         case HotRodConstants.GET_ALL_REQUEST:
+            return HotRodConstants.GET_ALL_RESPONSE;
+         case HotRodConstants.ITERATION_REQUEST:
+            return HotRodConstants.ITERATION_RESPONSE;
+         case HotRodConstants.ADD_INVALIDATION_LISTENER_REQUEST:
+            return HotRodConstants.ADD_INVALIDATION_LISTENER_RESPONSE;
          default:
             throw new IllegalStateException("Unknown operation code: " + opCode);
       }
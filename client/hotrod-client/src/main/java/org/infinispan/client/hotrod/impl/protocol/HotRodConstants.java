@@ -37,6 +37,7 @@ public interface HotRodConstants {
 
    static final byte VERSION_10 = 10;
    static final byte VERSION_11 = 11;
+   static final byte VERSION_12 = 12;
 
    //requests
    static final byte PUT_REQUEST = 0x01;
@@ -52,6 +53,10 @@ public interface HotRodConstants {
    static final byte STATS_REQUEST = 0x15;
    static final byte PING_REQUEST = 0x17;
    static final byte BULK_GET_REQUEST = 0x19;
+   static final byte PUT_ALL_REQUEST = 0x2D;
+   static final byte GET_ALL_REQUEST = 0x2F;
+   static final byte ITERATION_REQUEST = 0x31;
+   static final byte ADD_INVALIDATION_LISTENER_REQUEST = 0x33;
 
 
    //responses
@@ -68,6 +73,11 @@ public interface HotRodConstants {
    static final byte STATS_RESPONSE = 0x16;
    static final byte PING_RESPONSE = 0x18;
    static final byte BULK_GET_RESPONSE = 0x1A;
+   static final byte PUT_ALL_RESPONSE = 0x2E;
+   static final byte GET_ALL_RESPONSE = 0x30;
+   static final byte ITERATION_RESPONSE = 0x32;
+   static final byte ADD_INVALIDATION_LISTENER_RESPONSE = 0x34;
+   static final byte INVALIDATION_EVENT = 0x35;
    static final byte ERROR_RESPONSE = 0x50;
 
    //response status
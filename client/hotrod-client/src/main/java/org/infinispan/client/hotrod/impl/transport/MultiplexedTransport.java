@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport;
+
+/**
+ * A transport which shares its connection with other concurrent requests. Instead of flushing the request and
+ * reading the response from the socket, the caller hands over a {@link ResponseHandler} which is notified once the
+ * response matching the request's message id has been received, so no thread is blocked while the request is in
+ * flight.
+ *
+ * @since 5.2
+ */
+public interface MultiplexedTransport extends Transport {
+
+   /**
+    * Sends everything written to this transport so far as a single request. Must be invoked at most once.
+    */
+   void send(ResponseHandler<?> handler);
+
+}
@@ -23,6 +23,7 @@
 package org.infinispan.client.hotrod.impl.transport;
 
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
 import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHashFactory;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
 
@@ -52,10 +53,27 @@ public interface TransportFactory {
 
    void updateHashFunction(Map<SocketAddress, Set<Integer>> servers2Hash, int numKeyOwners, short hashFunctionVersion, int hashSpace);
 
+   /**
+    * Replaces the consistent hash with one built by the caller, e.g. incrementally from the current one.
+    */
+   void updateHashFunction(ConsistentHash consistentHash);
+
    ConsistentHashFactory getConsistentHashFactory();
 
+   /**
+    * @return the consistent hash used for routing keys to servers, or null if the cluster topology does not provide one
+    */
+   ConsistentHash getConsistentHash();
+
    Transport getTransport(byte[] key);
 
+   /**
+    * @return a transport connected to the given server, which has to be one of the {@link #getServers()}
+    */
+   Transport getTransport(SocketAddress server);
+
+   Collection<SocketAddress> getServers();
+
    boolean isTcpNoDelay();
 
    int getTransportCount();
@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * Single selector thread driving all the {@link MultiplexedConnection}s of a {@link NioTransportFactory}: it connects,
+ * writes the queued requests, reads the responses and expires requests that were not answered in time. The responses
+ * are decoded on worker threads, so the loop never blocks on a partially received response. Other
+ * threads interact with it only by submitting tasks through {@link #execute(Runnable)}.
+ *
+ * @since 5.2
+ */
+class IoLoop implements Runnable {
+
+   private static final Log log = LogFactory.getLog(IoLoop.class, Log.class);
+   private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+   /**
+    * Upper bound of the time between two timeout checks.
+    */
+   private static final long SELECT_TIMEOUT = 100;
+
+   private final Selector selector;
+   private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+   private final Thread thread;
+   private volatile boolean running = true;
+
+   IoLoop() {
+      try {
+         selector = Selector.open();
+      } catch (IOException e) {
+         throw new TransportException("Could not open a selector", e);
+      }
+      thread = new Thread(this, "HotRod-client-io-" + THREAD_COUNTER.incrementAndGet());
+      thread.setDaemon(true);
+   }
+
+   void start() {
+      thread.start();
+   }
+
+   boolean inLoop() {
+      return Thread.currentThread() == thread;
+   }
+
+   void execute(Runnable task) {
+      tasks.add(task);
+      if (!inLoop()) selector.wakeup();
+   }
+
+   SelectionKey register(SelectableChannel channel, int ops, MultiplexedConnection connection) throws ClosedChannelException {
+      return channel.register(selector, ops, connection);
+   }
+
+   @Override
+   public void run() {
+      while (running) {
+         try {
+            selector.select(SELECT_TIMEOUT);
+            Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+            while (selected.hasNext()) {
+               SelectionKey key = selected.next();
+               selected.remove();
+               ((MultiplexedConnection) key.attachment()).handle(key);
+            }
+            runTasks();
+            long now = System.currentTimeMillis();
+            for (MultiplexedConnection connection : registeredConnections()) {
+               connection.checkTimeouts(now);
+            }
+         } catch (Throwable t) {
+            log.warn("Unexpected failure in the Hot Rod client I/O loop", t);
+         }
+      }
+      runTasks();
+      for (MultiplexedConnection connection : registeredConnections()) {
+         connection.close(new TransportException("The transport factory was stopped"));
+      }
+      try {
+         selector.close();
+      } catch (IOException e) {
+         log.tracef(e, "Error closing the selector");
+      }
+   }
+
+   private void runTasks() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+         try {
+            task.run();
+         } catch (Throwable t) {
+            log.warn("Unexpected failure in the Hot Rod client I/O loop", t);
+         }
+      }
+   }
+
+   private List<MultiplexedConnection> registeredConnections() {
+      List<MultiplexedConnection> connections = new ArrayList<MultiplexedConnection>();
+      for (SelectionKey key : selector.keys()) {
+         connections.add((MultiplexedConnection) key.attachment());
+      }
+      return connections;
+   }
+
+   void stop() {
+      running = false;
+      selector.wakeup();
+      if (!inLoop()) {
+         try {
+            thread.join();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+}
@@ -0,0 +1,459 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.Util;
+
+/**
+ * A non-blocking connection to a Hot Rod server carrying many concurrent requests. Requests are queued by any thread
+ * and written by the {@link IoLoop}, which also reads the responses. They are decoded on a worker thread of the
+ * transport factory and matched to the waiting {@link ResponseHandler}s by message id, and the handlers are notified
+ * on yet another worker thread, so that neither a slow handler nor one waiting for another response can hold up the
+ * connection.
+ * <p/>
+ * As Hot Rod responses are not length-prefixed, the decoding thread blocks whenever it runs out of received bytes and
+ * resumes where it stopped once more arrived. If a response cannot be decoded, or a request is not answered within
+ * the socket timeout, the stream can no longer be trusted: the connection is closed and all its outstanding requests
+ * fail with a {@link TransportException}, so that they are retried on another connection.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+class MultiplexedConnection {
+
+   private static final Log log = LogFactory.getLog(MultiplexedConnection.class, Log.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private static final AtomicLong ID_COUNTER = new AtomicLong();
+   private static final int READ_BUFFER_SIZE = 8 * 1024;
+   private static final int MAX_GATHERED_WRITES = 64;
+
+   private final long id = ID_COUNTER.incrementAndGet();
+   private final IoLoop loop;
+   private final Executor executor;
+   private final TransportFactory transportFactory;
+   private final InetSocketAddress serverAddress;
+
+   private final Object lock = new Object();
+   // guarded by lock, iteration order is the order in which the requests were sent
+   private final Map<Long, PendingRequest> pending = new LinkedHashMap<Long, PendingRequest>();
+   private volatile boolean closed;
+
+   private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+   private final AtomicBoolean flushScheduled = new AtomicBoolean();
+   private final Runnable flushTask = new Runnable() {
+      @Override
+      public void run() {
+         flushScheduled.set(false);
+         flush();
+      }
+   };
+
+   private final ResponseBuffer response;
+   private final AtomicBoolean decoding = new AtomicBoolean();
+   private final Runnable decodeTask = new Runnable() {
+      @Override
+      public void run() {
+         decode();
+      }
+   };
+
+   // only accessed by the I/O thread
+   private volatile SocketChannel channel;
+   private SelectionKey key;
+   private boolean connected;
+   private long connectDeadline;
+   private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+   MultiplexedConnection(IoLoop loop, Executor executor, TransportFactory transportFactory,
+                         InetSocketAddress serverAddress) {
+      this.loop = loop;
+      this.executor = executor;
+      this.transportFactory = transportFactory;
+      this.serverAddress = serverAddress;
+      this.response = new ResponseBuffer(transportFactory, serverAddress);
+   }
+
+   InetSocketAddress getServerAddress() {
+      return serverAddress;
+   }
+
+   boolean isOpen() {
+      return !closed;
+   }
+
+   int getPendingCount() {
+      synchronized (lock) {
+         return pending.size();
+      }
+   }
+
+   /**
+    * Starts connecting to the server. Requests can be sent right away, they are written once the connection is
+    * established.
+    */
+   void connect() {
+      loop.execute(new Runnable() {
+         @Override
+         public void run() {
+            doConnect();
+         }
+      });
+   }
+
+   private void doConnect() {
+      if (closed) return;
+      try {
+         SocketChannel ch = SocketChannel.open();
+         channel = ch;
+         ch.configureBlocking(false);
+         ch.socket().setTcpNoDelay(transportFactory.isTcpNoDelay());
+         connectDeadline = System.currentTimeMillis() + transportFactory.getConnectTimeout();
+         if (ch.connect(serverAddress)) {
+            key = loop.register(ch, SelectionKey.OP_READ, this);
+            connected();
+         } else {
+            key = loop.register(ch, SelectionKey.OP_CONNECT, this);
+         }
+      } catch (IOException e) {
+         close(new TransportException(String.format("Could not connect to server: %s", serverAddress), e));
+      }
+   }
+
+   private void connected() {
+      connected = true;
+      if (trace) log.tracef("Connected %s", this);
+      flush();
+   }
+
+   /**
+    * Queues a request. The handler is notified on a worker thread, or on the calling thread if the connection is
+    * already closed.
+    */
+   void send(long messageId, byte[] request, ResponseHandler<?> handler) {
+      boolean registered = false;
+      int soTimeout = transportFactory.getSoTimeout();
+      // a socket timeout of 0 means no timeout, as for blocking sockets
+      long deadline = soTimeout > 0 ? System.currentTimeMillis() + soTimeout : Long.MAX_VALUE;
+      synchronized (lock) {
+         if (!closed) {
+            pending.put(messageId, new PendingRequest(messageId, handler, deadline));
+            registered = true;
+         }
+      }
+      if (!registered) {
+         handler.failed(new TransportException(String.format("Connection to %s is closed", serverAddress)));
+         return;
+      }
+      writeQueue.add(ByteBuffer.wrap(request));
+      if (flushScheduled.compareAndSet(false, true)) {
+         loop.execute(flushTask);
+      }
+   }
+
+   void handle(SelectionKey key) {
+      try {
+         if (key.isConnectable()) {
+            channel.finishConnect();
+            key.interestOps(SelectionKey.OP_READ);
+            connected();
+         }
+         if (key.isValid() && key.isWritable()) {
+            flush();
+         }
+         if (key.isValid() && key.isReadable()) {
+            read();
+         }
+      } catch (CancelledKeyException e) {
+         // closed concurrently
+      } catch (IOException e) {
+         close(new TransportException(String.format("Problems communicating with server: %s", serverAddress), e));
+      }
+   }
+
+   private void flush() {
+      if (!connected || closed) return;
+      try {
+         ByteBuffer[] batch = new ByteBuffer[MAX_GATHERED_WRITES];
+         while (true) {
+            // gather the queued requests so that pipelined requests go out in as few writes as possible
+            int count = 0;
+            for (Iterator<ByteBuffer> it = writeQueue.iterator(); it.hasNext() && count < batch.length; ) {
+               batch[count++] = it.next();
+            }
+            if (count == 0) break;
+            channel.write(batch, 0, count);
+            int written = 0;
+            while (written < count && !batch[written].hasRemaining()) {
+               writeQueue.poll();
+               written++;
+            }
+            if (written < count) break;
+         }
+         int ops = writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+         if (key.interestOps() != ops) key.interestOps(ops);
+      } catch (IOException e) {
+         close(new TransportException(String.format("Problems writing data to server: %s", serverAddress), e));
+      }
+   }
+
+   private void read() throws IOException {
+      while (!closed) {
+         readBuffer.clear();
+         int read = channel.read(readBuffer);
+         if (read < 0) {
+            close(new TransportException(String.format("Connection closed by server: %s", serverAddress)));
+            return;
+         }
+         if (read == 0) return;
+         response.received(Arrays.copyOf(readBuffer.array(), read));
+         scheduleDecoding();
+      }
+   }
+
+   private void scheduleDecoding() {
+      if (decoding.compareAndSet(false, true)) {
+         try {
+            executor.execute(decodeTask);
+         } catch (RejectedExecutionException e) {
+            decoding.set(false);
+            close(new TransportException("The transport factory was stopped"));
+         }
+      }
+   }
+
+   /**
+    * Decodes the responses received so far, blocking for the rest of a response that was only partially received.
+    * Runs on a worker thread, never on more than one at a time.
+    */
+   private void decode() {
+      try {
+         while (!closed && response.hasRemaining()) {
+            decodeResponse();
+         }
+      } catch (TransportException e) {
+         close(e);
+      } finally {
+         decoding.set(false);
+      }
+      // bytes received after the last check have not scheduled another decoding
+      if (!closed && response.hasRemaining()) {
+         scheduleDecoding();
+      }
+   }
+
+   private void decodeResponse() {
+      short magic = response.readByte();
+      long messageId = response.readVLong();
+      PendingRequest request = pendingRequest(magic, messageId);
+      if (request == null) return;
+      // the handler decodes the response from its start
+      response.pushBack(header(magic, messageId));
+      Object result;
+      try {
+         result = request.handler.readResponse(response);
+      } catch (Throwable t) {
+         if (remove(request)) notifyFailure(request, t);
+         if (!isFullyRead(t)) {
+            close(new TransportException(String.format("Unable to decode response from server: %s", serverAddress), t));
+         }
+         return;
+      }
+      if (remove(request)) notifyResponse(request.handler, result);
+   }
+
+   /**
+    * Error responses sent by the server are consumed entirely before the exception is thrown, any other failure
+    * leaves the stream at an unknown position.
+    */
+   private static boolean isFullyRead(Throwable t) {
+      return t instanceof HotRodClientException
+            && !(t instanceof InvalidResponseException) && !(t instanceof TransportException);
+   }
+
+   private static byte[] header(short magic, long messageId) {
+      byte[] header = new byte[11];
+      int length = 0;
+      header[length++] = (byte) magic;
+      while ((messageId & ~0x7FL) != 0) {
+         header[length++] = (byte) ((messageId & 0x7F) | 0x80);
+         messageId >>>= 7;
+      }
+      header[length++] = (byte) messageId;
+      return Arrays.copyOf(header, length);
+   }
+
+   /**
+    * Finds the request a response answers from its message id.
+    */
+   private PendingRequest pendingRequest(short magic, long messageId) {
+      PendingRequest request;
+      synchronized (lock) {
+         request = pending.get(messageId);
+         if (request == null && messageId == 0 && !pending.isEmpty()) {
+            // the server could not read the message id of the request, assume it is the oldest one
+            request = pending.values().iterator().next();
+         }
+      }
+      if (request == null) {
+         close(new TransportException(new InvalidResponseException(String.format(
+               "Received a response for unknown message id %d from %s (magic %#x)",
+               messageId, serverAddress, magic))));
+      } else if (trace && magic == HotRodConstants.RESPONSE_MAGIC) {
+         log.tracef("Decoding response for message id %d on %s", messageId, this);
+      }
+      return request;
+   }
+
+   private boolean remove(PendingRequest request) {
+      synchronized (lock) {
+         return pending.remove(request.messageId) != null;
+      }
+   }
+
+   private <T> void notifyResponse(final ResponseHandler<T> handler, final Object response) {
+      dispatch(new Runnable() {
+         @Override
+         @SuppressWarnings("unchecked")
+         public void run() {
+            try {
+               handler.responseReceived((T) response);
+            } catch (Throwable t) {
+               log.warn("Unexpected failure notifying a response", t);
+            }
+         }
+      });
+   }
+
+   private void notifyFailure(final PendingRequest request, final Throwable cause) {
+      dispatch(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               request.handler.failed(cause);
+            } catch (Throwable t) {
+               log.warn("Unexpected failure notifying a failed request", t);
+            }
+         }
+      });
+   }
+
+   private void dispatch(Runnable notification) {
+      try {
+         executor.execute(notification);
+      } catch (RejectedExecutionException e) {
+         // the transport factory is being stopped
+         notification.run();
+      }
+   }
+
+   void checkTimeouts(long now) {
+      if (closed) return;
+      if (!connected) {
+         if (now > connectDeadline) {
+            close(new TransportException(String.format("Could not connect to server %s within %d ms",
+                  serverAddress, transportFactory.getConnectTimeout())));
+         }
+         return;
+      }
+      PendingRequest oldest = null;
+      synchronized (lock) {
+         if (!pending.isEmpty()) oldest = pending.values().iterator().next();
+      }
+      if (oldest != null && now > oldest.deadline) {
+         close(new TransportException(String.format("No response received for message id %d from %s within %d ms",
+               oldest.messageId, serverAddress, transportFactory.getSoTimeout())));
+      }
+   }
+
+   /**
+    * Closes the connection and fails all the outstanding requests with the given cause.
+    */
+   void close(TransportException cause) {
+      List<PendingRequest> failed;
+      synchronized (lock) {
+         if (closed) return;
+         closed = true;
+         failed = new ArrayList<PendingRequest>(pending.values());
+         pending.clear();
+      }
+      writeQueue.clear();
+      response.close();
+      SocketChannel ch = channel;
+      if (ch != null) Util.close(ch);
+      if (trace) log.tracef(cause, "Closed %s, failing %d outstanding requests", this, failed.size());
+      for (PendingRequest request : failed) {
+         notifyFailure(request, cause);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexedConnection{" +
+            "serverAddress=" + serverAddress +
+            ", id=" + id +
+            ", closed=" + closed +
+            "}";
+   }
+
+   private static final class PendingRequest {
+      final long messageId;
+      final ResponseHandler<?> handler;
+      final long deadline;
+
+      PendingRequest(long messageId, ResponseHandler<?> handler, long deadline) {
+         this.messageId = messageId;
+         this.handler = handler;
+         this.deadline = deadline;
+      }
+   }
+}
@@ -0,0 +1,251 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.net.SocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.MultiplexedTransport;
+import org.infinispan.client.hotrod.impl.transport.ResponseHandler;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.io.UnsignedNumeric;
+
+/**
+ * Transport handed out by the {@link NioTransportFactory}. The request is buffered in memory while the operation
+ * writes it and is handed over to the shared {@link MultiplexedConnection} by {@link #send(ResponseHandler)}, which
+ * has the response decoded by the handler on a worker thread.
+ * <p/>
+ * Operations written against blocking transports can also use {@link #flush()} and then read the response from the
+ * calling thread: the worker thread hands the response over and waits until the transport is released, or the next
+ * request is flushed, before decoding the following responses of the connection. Instances are cheap, not
+ * thread-safe and meant to be used for a single request at a time.
+ *
+ * @since 5.2
+ */
+public class NioTransport extends AbstractTransport implements MultiplexedTransport {
+
+   private final MultiplexedConnection connection;
+   private final ByteArrayOutputStream request;
+   // the response to the request sent by flush()
+   private ResponseHandOff handOff;
+
+   NioTransport(TransportFactory transportFactory, MultiplexedConnection connection, int sizeEstimate) {
+      super(transportFactory);
+      this.connection = connection;
+      this.request = new ByteArrayOutputStream(sizeEstimate);
+   }
+
+   @Override
+   public void send(ResponseHandler<?> handler) {
+      byte[] bytes = request.toByteArray();
+      request.reset();
+      // the message id follows the magic byte
+      long messageId = UnsignedNumeric.readUnsignedLong(bytes, 1);
+      connection.send(messageId, bytes, handler);
+   }
+
+   @Override
+   public void writeByte(short toWrite) {
+      request.write(toWrite);
+   }
+
+   @Override
+   public void writeVInt(int vInt) {
+      while ((vInt & ~0x7F) != 0) {
+         request.write((vInt & 0x7F) | 0x80);
+         vInt >>>= 7;
+      }
+      request.write(vInt);
+   }
+
+   @Override
+   public void writeVLong(long l) {
+      while ((l & ~0x7FL) != 0) {
+         request.write((int) ((l & 0x7F) | 0x80));
+         l >>>= 7;
+      }
+      request.write((int) l);
+   }
+
+   @Override
+   protected void writeBytes(byte[] toAppend) {
+      request.write(toAppend, 0, toAppend.length);
+   }
+
+   @Override
+   public void flush() {
+      finishRead();
+      ResponseHandOff h = new ResponseHandOff(getTransportFactory().getSoTimeout());
+      send(h);
+      handOff = h;
+   }
+
+   @Override
+   public short readByte() {
+      return response().readByte();
+   }
+
+   @Override
+   public long readVLong() {
+      return response().readVLong();
+   }
+
+   @Override
+   public int readVInt() {
+      return response().readVInt();
+   }
+
+   @Override
+   public byte[] readByteArray(int size) {
+      return response().readByteArray(size);
+   }
+
+   @Override
+   public byte[] dumpStream() {
+      ResponseHandOff h = handOff;
+      return h == null || h.response == null ? new byte[0] : h.response.dumpStream();
+   }
+
+   /**
+    * Lets the connection go on with the responses following the one read from this transport, if any.
+    */
+   @Override
+   public void release() {
+      finishRead();
+   }
+
+   @Override
+   public SocketAddress getRemoteSocketAddress() {
+      return connection.getServerAddress();
+   }
+
+   MultiplexedConnection getConnection() {
+      return connection;
+   }
+
+   private Transport response() {
+      if (handOff == null) {
+         throw new IllegalStateException("No request was flushed");
+      }
+      return handOff.await(getRemoteSocketAddress());
+   }
+
+   private void finishRead() {
+      if (handOff != null) {
+         handOff.finish();
+         handOff = null;
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "NioTransport{connection=" + connection + "}";
+   }
+
+   /**
+    * Hands the response over from the worker thread decoding it to the thread that flushed the request.
+    */
+   private static final class ResponseHandOff implements ResponseHandler<Void> {
+      private final int soTimeout;
+      private final CountDownLatch available = new CountDownLatch(1);
+      private final CountDownLatch finished = new CountDownLatch(1);
+      private volatile Transport response;
+      private volatile Throwable failure;
+      private volatile boolean read;
+
+      ResponseHandOff(int soTimeout) {
+         this.soTimeout = soTimeout;
+      }
+
+      @Override
+      public Void readResponse(Transport transport) {
+         response = transport;
+         available.countDown();
+         try {
+            if (!await(finished)) {
+               throw new TransportException(String.format("The response from %s was not read within %d ms",
+                     transport.getRemoteSocketAddress(), soTimeout));
+            }
+            if (!read) {
+               // the flushing thread gave up waiting, so the response is still in the stream
+               throw new TransportException(String.format("The response from %s was abandoned",
+                     transport.getRemoteSocketAddress()));
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransportException("Interrupted while the response was read", e);
+         }
+         return null;
+      }
+
+      @Override
+      public void responseReceived(Void response) {
+         // read by the thread that flushed the request
+      }
+
+      @Override
+      public void failed(Throwable cause) {
+         failure = cause;
+         available.countDown();
+      }
+
+      Transport await(SocketAddress server) {
+         try {
+            if (!await(available)) {
+               throw new TransportException(String.format("No response received from %s within %d ms",
+                     server, soTimeout));
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransportException("Interrupted while waiting for the response", e);
+         }
+         Throwable cause = failure;
+         if (cause instanceof HotRodClientException) {
+            throw (HotRodClientException) cause;
+         } else if (cause != null) {
+            throw new TransportException(cause);
+         }
+         read = true;
+         return response;
+      }
+
+      void finish() {
+         finished.countDown();
+      }
+
+      private boolean await(CountDownLatch latch) throws InterruptedException {
+         // a socket timeout of 0 means no timeout, as for blocking sockets
+         if (soTimeout > 0) {
+            return latch.await(soTimeout, TimeUnit.MILLISECONDS);
+         }
+         latch.await();
+         return true;
+      }
+   }
+}
@@ -0,0 +1,338 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHashFactory;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.RequestBalancingStrategy;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.Util;
+
+/**
+ * Transport factory multiplexing all the requests over a small, fixed number of non-blocking connections per server,
+ * configured through {@link ConfigurationProperties#CONNECTIONS_PER_SERVER}. Many requests can be in flight on the
+ * same connection at the same time, so there is no connection pool and no thread blocked per outstanding request:
+ * a single I/O thread writes the requests and reads the responses, which are decoded and completed on a pool of
+ * worker threads.
+ * <p/>
+ * Connections are opened lazily, and re-opened on the next request after a failure. No ping is sent on startup, the
+ * cluster topology is piggybacked on the response to the first request instead.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class NioTransportFactory implements TransportFactory {
+
+   private static final Log log = LogFactory.getLog(NioTransportFactory.class, Log.class);
+   private static final AtomicInteger WORKER_COUNTER = new AtomicInteger();
+
+   private final Object lock = new Object();
+   // guarded by lock
+   private final Map<SocketAddress, MultiplexedConnection[]> connections = new HashMap<SocketAddress, MultiplexedConnection[]>();
+   private IoLoop ioLoop;
+   private ExecutorService workers;
+   private RequestBalancingStrategy balancer;
+   private Collection<SocketAddress> servers;
+   private ConsistentHash consistentHash;
+   private final ConsistentHashFactory hashFactory = new ConsistentHashFactory();
+   private final AtomicInteger connectionIndex = new AtomicInteger();
+
+   private volatile boolean tcpNoDelay;
+   private volatile int soTimeout;
+   private volatile int connectTimeout;
+   private volatile int connectionsPerServer;
+   private volatile int requestSizeEstimate;
+   private volatile int transportCount;
+
+   @Override
+   public void start(Codec codec, ConfigurationProperties cfg,
+                     Collection<SocketAddress> staticConfiguredServers,
+                     AtomicInteger topologyId, ClassLoader classLoader) {
+      synchronized (lock) {
+         hashFactory.init(cfg, classLoader);
+         servers = Collections.unmodifiableCollection(new ArrayList<SocketAddress>(staticConfiguredServers));
+         String balancerClass = cfg.getRequestBalancingStrategy();
+         balancer = (RequestBalancingStrategy) Util.getInstance(balancerClass, classLoader);
+         tcpNoDelay = cfg.getTcpNoDelay();
+         soTimeout = cfg.getSoTimeout();
+         connectTimeout = cfg.getConnectTimeout();
+         connectionsPerServer = Math.max(1, cfg.getConnectionsPerServer());
+         requestSizeEstimate = cfg.getKeySizeEstimate() + cfg.getValueSizeEstimate();
+         if (log.isDebugEnabled()) {
+            log.debugf("Statically configured servers: %s", staticConfiguredServers);
+            log.debugf("Load balancer class: %s", balancerClass);
+            log.debugf("Tcp no delay = %b; client socket timeout = %d ms; connect timeout = %d ms; connections per server = %d",
+                       tcpNoDelay, soTimeout, connectTimeout, connectionsPerServer);
+         }
+         ioLoop = new IoLoop();
+         ioLoop.start();
+         workers = newWorkers();
+         balancer.setServers(servers);
+         updateTransportCount();
+      }
+   }
+
+   /**
+    * Decoding blocks while a response is partially received and completion handlers may run synchronous operations,
+    * so the pool is unbounded rather than risking to wait for its own threads.
+    */
+   private static ExecutorService newWorkers() {
+      return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+            new ThreadFactory() {
+               @Override
+               public Thread newThread(Runnable r) {
+                  Thread th = new Thread(r, "HotRod-client-worker-" + WORKER_COUNTER.incrementAndGet());
+                  th.setDaemon(true);
+                  return th;
+               }
+            });
+   }
+
+   @Override
+   public void destroy() {
+      IoLoop loop;
+      ExecutorService executor;
+      List<MultiplexedConnection> all = new ArrayList<MultiplexedConnection>();
+      synchronized (lock) {
+         loop = ioLoop;
+         ioLoop = null;
+         executor = workers;
+         workers = null;
+         for (MultiplexedConnection[] serverConnections : connections.values()) {
+            Collections.addAll(all, serverConnections);
+         }
+         connections.clear();
+      }
+      // the I/O thread might be waiting for the lock, so it must be stopped outside of it
+      if (loop != null) loop.stop();
+      for (MultiplexedConnection connection : all) {
+         if (connection != null) connection.close(new TransportException("The transport factory was stopped"));
+      }
+      // let the failures of the outstanding requests be notified
+      if (executor != null) executor.shutdown();
+   }
+
+   @Override
+   public void updateHashFunction(Map<SocketAddress, Set<Integer>> servers2Hash, int numKeyOwners, short hashFunctionVersion, int hashSpace) {
+      synchronized (lock) {
+         ConsistentHash hash = hashFactory.newConsistentHash(hashFunctionVersion);
+         if (hash == null) {
+            log.noHasHFunctionConfigured(hashFunctionVersion);
+         } else {
+            hash.init(servers2Hash, numKeyOwners, hashSpace);
+         }
+         consistentHash = hash;
+      }
+   }
+
+   @Override
+   public void updateHashFunction(ConsistentHash consistentHash) {
+      synchronized (lock) {
+         this.consistentHash = consistentHash;
+      }
+   }
+
+   @Override
+   public Transport getTransport() {
+      SocketAddress server;
+      synchronized (lock) {
+         server = balancer.nextServer();
+      }
+      return getTransport(server);
+   }
+
+   @Override
+   public Transport getTransport(byte[] key) {
+      SocketAddress server;
+      synchronized (lock) {
+         if (consistentHash != null) {
+            server = consistentHash.getServer(key);
+            if (log.isTraceEnabled()) {
+               log.tracef("Using consistent hash for determining the server: %s", server);
+            }
+         } else {
+            server = balancer.nextServer();
+            if (log.isTraceEnabled()) {
+               log.tracef("Using the balancer for determining the server: %s", server);
+            }
+         }
+      }
+      return getTransport(server);
+   }
+
+   @Override
+   public Transport getTransport(SocketAddress server) {
+      MultiplexedConnection connection;
+      synchronized (lock) {
+         if (ioLoop == null) {
+            throw new TransportException("The transport factory is not running");
+         }
+         MultiplexedConnection[] serverConnections = connections.get(server);
+         if (serverConnections == null) {
+            serverConnections = new MultiplexedConnection[connectionsPerServer];
+            connections.put(server, serverConnections);
+         }
+         int index = (connectionIndex.getAndIncrement() & Integer.MAX_VALUE) % serverConnections.length;
+         connection = serverConnections[index];
+         if (connection == null || !connection.isOpen()) {
+            connection = new MultiplexedConnection(ioLoop, workers, this, (InetSocketAddress) server);
+            serverConnections[index] = connection;
+            connection.connect();
+         }
+      }
+      return new NioTransport(this, connection, requestSizeEstimate);
+   }
+
+   @Override
+   public void releaseTransport(Transport transport) {
+      // connections are shared and stay open, only a response read by the caller has to be given back
+      transport.release();
+   }
+
+   @Override
+   public void updateServers(Collection<SocketAddress> newServers) {
+      synchronized (lock) {
+         Set<SocketAddress> addedServers = new HashSet<SocketAddress>(newServers);
+         addedServers.removeAll(servers);
+         Set<SocketAddress> failedServers = new HashSet<SocketAddress>(servers);
+         failedServers.removeAll(newServers);
+         if (log.isTraceEnabled()) {
+            log.tracef("Current list: %s", servers);
+            log.tracef("New list: %s", newServers);
+            log.tracef("Added servers: %s", addedServers);
+            log.tracef("Removed servers: %s", failedServers);
+         }
+         if (addedServers.isEmpty() && failedServers.isEmpty()) {
+            log.debug("Same list of servers, not changing the connections");
+            return;
+         }
+
+         // connections to the new servers are opened on first use
+         for (SocketAddress server : addedServers) {
+            log.newServerAdded(server);
+         }
+         balancer.setServers(newServers);
+
+         // this is usually invoked while a response is decoded, so the connections are closed by the I/O thread
+         // rather than from within the decoding
+         for (SocketAddress server : failedServers) {
+            log.removingServer(server);
+            final MultiplexedConnection[] serverConnections = connections.remove(server);
+            if (serverConnections != null && ioLoop != null) {
+               ioLoop.execute(new Runnable() {
+                  @Override
+                  public void run() {
+                     for (MultiplexedConnection connection : serverConnections) {
+                        if (connection != null) {
+                           connection.close(new TransportException(String.format(
+                                 "Server not in cluster anymore: %s", connection.getServerAddress())));
+                        }
+                     }
+                  }
+               });
+            }
+         }
+
+         servers = Collections.unmodifiableList(new ArrayList<SocketAddress>(newServers));
+         updateTransportCount();
+      }
+   }
+
+   @Override
+   public Collection<SocketAddress> getServers() {
+      synchronized (lock) {
+         return servers;
+      }
+   }
+
+   /**
+    * Note that the returned <code>ConsistentHash</code> may not be thread-safe.
+    */
+   @Override
+   public ConsistentHash getConsistentHash() {
+      synchronized (lock) {
+         return consistentHash;
+      }
+   }
+
+   @Override
+   public ConsistentHashFactory getConsistentHashFactory() {
+      return hashFactory;
+   }
+
+   @Override
+   public boolean isTcpNoDelay() {
+      return tcpNoDelay;
+   }
+
+   @Override
+   public int getTransportCount() {
+      if (Thread.currentThread().isInterrupted()) {
+         return -1;
+      }
+      return transportCount;
+   }
+
+   @Override
+   public int getSoTimeout() {
+      return soTimeout;
+   }
+
+   @Override
+   public int getConnectTimeout() {
+      return connectTimeout;
+   }
+
+   public int getConnectionsPerServer() {
+      return connectionsPerServer;
+   }
+
+   private void updateTransportCount() {
+      transportCount = connectionsPerServer * servers.size();
+   }
+}
@@ -0,0 +1,202 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+/**
+ * Read-only transport over the bytes received on a {@link MultiplexedConnection}, in the order in which they were
+ * received. Responses carry no length prefix, so they are decoded as a stream: a read blocks the decoding thread until
+ * the bytes it needs arrived, and decoding resumes where it stopped rather than starting the response over.
+ *
+ * @since 5.2
+ */
+class ResponseBuffer extends AbstractTransport {
+
+   private static final byte[] EMPTY = new byte[0];
+   /**
+    * Queued once the connection is closed, to fail the reads waiting for more bytes.
+    */
+   private static final byte[] CLOSED = new byte[0];
+
+   private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<byte[]>();
+   private final SocketAddress remoteAddress;
+
+   // only accessed by the thread decoding the responses
+   private byte[] chunk = EMPTY;
+   private int position;
+   private byte[] pushedBackChunk;
+   private int pushedBackPosition;
+
+   ResponseBuffer(TransportFactory transportFactory, SocketAddress remoteAddress) {
+      super(transportFactory);
+      this.remoteAddress = remoteAddress;
+   }
+
+   /**
+    * Appends bytes received from the server. Invoked by the I/O thread.
+    */
+   void received(byte[] bytes) {
+      chunks.add(bytes);
+   }
+
+   /**
+    * Fails the current and all future reads. Invoked by any thread.
+    */
+   void close() {
+      chunks.add(CLOSED);
+   }
+
+   /**
+    * @return true if bytes were received that have not been read yet
+    */
+   boolean hasRemaining() {
+      return position < chunk.length || pushedBackChunk != null || !chunks.isEmpty();
+   }
+
+   /**
+    * Makes the given bytes the next ones to be read, ahead of the ones not read yet.
+    */
+   void pushBack(byte[] bytes) {
+      if (pushedBackChunk != null) {
+         throw new IllegalStateException("Only one chunk can be pushed back");
+      }
+      pushedBackChunk = chunk;
+      pushedBackPosition = position;
+      chunk = bytes;
+      position = 0;
+   }
+
+   private void nextChunk() {
+      if (pushedBackChunk != null) {
+         chunk = pushedBackChunk;
+         position = pushedBackPosition;
+         pushedBackChunk = null;
+         return;
+      }
+      byte[] next;
+      try {
+         next = chunks.take();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new TransportException(String.format("Interrupted while reading a response from %s", remoteAddress), e);
+      }
+      if (next == CLOSED) {
+         // keep failing any further read
+         chunks.add(CLOSED);
+         throw new TransportException(String.format("Connection to %s is closed", remoteAddress));
+      }
+      chunk = next;
+      position = 0;
+   }
+
+   @Override
+   public short readByte() {
+      while (position == chunk.length) {
+         nextChunk();
+      }
+      return (short) (chunk[position++] & 0xFF);
+   }
+
+   @Override
+   public int readVInt() {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+         byte b = (byte) readByte();
+         value |= (b & 0x7F) << shift;
+         if ((b & 0x80) == 0) return value;
+      }
+   }
+
+   @Override
+   public long readVLong() {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+         byte b = (byte) readByte();
+         value |= (b & 0x7FL) << shift;
+         if ((b & 0x80) == 0) return value;
+      }
+   }
+
+   @Override
+   public byte[] readByteArray(int size) {
+      byte[] result = new byte[size];
+      int copied = 0;
+      while (copied < size) {
+         while (position == chunk.length) {
+            nextChunk();
+         }
+         int count = Math.min(size - copied, chunk.length - position);
+         System.arraycopy(chunk, position, result, copied, count);
+         position += count;
+         copied += count;
+      }
+      return result;
+   }
+
+   @Override
+   public byte[] dumpStream() {
+      return Arrays.copyOfRange(chunk, position, chunk.length);
+   }
+
+   @Override
+   public SocketAddress getRemoteSocketAddress() {
+      return remoteAddress;
+   }
+
+   @Override
+   public void writeByte(short toWrite) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void writeVInt(int vint) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void writeVLong(long l) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   protected void writeBytes(byte[] toAppend) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void flush() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void release() {
+   }
+}
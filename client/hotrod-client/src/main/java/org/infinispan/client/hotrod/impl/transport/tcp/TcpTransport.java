@@ -297,6 +297,19 @@ public boolean isValid() {
       return !socket.isClosed() && !invalid;
    }
 
+   /**
+    * Overrides the socket timeout configured in the transport factory, e.g. with 0 for connections waiting for events
+    * pushed by the server rather than for responses.
+    */
+   public void setSoTimeout(int soTimeout) {
+      try {
+         socket.setSoTimeout(soTimeout);
+      } catch (IOException e) {
+         invalid = true;
+         throw new TransportException(e);
+      }
+   }
+
    public long getId() {
       return id;
    }
@@ -136,6 +136,13 @@ public void updateHashFunction(Map<SocketAddress, Set<Integer>> servers2Hash, in
       }
    }
 
+   @Override
+   public void updateHashFunction(ConsistentHash consistentHash) {
+      synchronized (lock) {
+         this.consistentHash = consistentHash;
+      }
+   }
+
    @Override
    public Transport getTransport() {
       SocketAddress server;
@@ -164,6 +171,11 @@ public Transport getTransport(byte[] key) {
       return borrowTransportFromPool(server);
    }
 
+   @Override
+   public Transport getTransport(SocketAddress server) {
+      return borrowTransportFromPool(server);
+   }
+
    @Override
    public void releaseTransport(Transport transport) {
       // The invalidateObject()/returnObject() calls could take a long time, so we hold the lock only until we get the connection pool reference
@@ -234,6 +246,7 @@ public void updateServers(Collection<SocketAddress> newServers) {
       }
    }
 
+   @Override
    public Collection<SocketAddress> getServers() {
       synchronized (lock) {
          return servers;
@@ -264,6 +277,7 @@ private Transport borrowTransportFromPool(SocketAddress server) {
    /**
     * Note that the returned <code>ConsistentHash</code> may not be thread-safe.
     */
+   @Override
    public ConsistentHash getConsistentHash() {
       synchronized (lock) {
          return consistentHash;
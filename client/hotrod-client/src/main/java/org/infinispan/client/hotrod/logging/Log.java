@@ -125,4 +125,8 @@ public interface Log extends BasicLogger {
    @Message(value = "Unable to convert string property [%s] to a boolean! Using default value of %b", id = 4020)
    void unableToConvertStringPropertyToBoolean(String value, boolean defaultValue);
 
+   @LogMessage(level = WARN)
+   @Message(value = "Unable to receive invalidation events for cache %s from server %s, near cache entries will be revalidated periodically", id = 4021)
+   void unableToReceiveInvalidations(String cacheName, SocketAddress server, @Cause Exception e);
+
 }
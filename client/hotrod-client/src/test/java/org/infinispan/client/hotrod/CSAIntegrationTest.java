@@ -64,12 +64,12 @@
 @Test(groups = "functional", testName = "client.hotrod.CSAIntegrationTest")
 public class CSAIntegrationTest extends HitsAwareCacheManagersTest {
 
-   private HotRodServer hotRodServer1;
-   private HotRodServer hotRodServer2;
-   private HotRodServer hotRodServer3;
-   private RemoteCacheManager remoteCacheManager;
-   private RemoteCache<Object, Object> remoteCache;
-   private TcpTransportFactory tcpConnectionFactory;
+   protected HotRodServer hotRodServer1;
+   protected HotRodServer hotRodServer2;
+   protected HotRodServer hotRodServer3;
+   protected RemoteCacheManager remoteCacheManager;
+   protected RemoteCache<Object, Object> remoteCache;
+   protected TcpTransportFactory tcpConnectionFactory;
 
    private static final Log log = LogFactory.getLog(CSAIntegrationTest.class);
 
@@ -92,9 +92,7 @@ protected void clearContent() throws Throwable {
 
    @Override
    protected void createCacheManagers() throws Throwable {
-      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
-      builder.clustering().hash().numOwners(1);
-      builder.unsafe().unreliableReturnValues(true);
+      ConfigurationBuilder builder = buildConfiguration();
       addClusterEnabledCacheManager(builder);
       addClusterEnabledCacheManager(builder);
       addClusterEnabledCacheManager(builder);
@@ -133,6 +131,13 @@ protected void createCacheManagers() throws Throwable {
       tcpConnectionFactory = (TcpTransportFactory) extractField(remoteCacheManager, "transportFactory");
    }
 
+   protected ConfigurationBuilder buildConfiguration() {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(1);
+      builder.unsafe().unreliableReturnValues(true);
+      return builder;
+   }
+
    protected void setHotRodProtocolVersion(Properties props) {
       // No-op, use default Hot Rod protocol version
    }
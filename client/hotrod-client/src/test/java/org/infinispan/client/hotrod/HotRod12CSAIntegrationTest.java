@@ -0,0 +1,278 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.consistenthash.SegmentConsistentHash;
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.manager.CacheContainer;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.marshall.Marshaller;
+import org.infinispan.marshall.jboss.GenericJBossMarshaller;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.server.hotrod.TopologyHistory;
+import org.infinispan.server.hotrod.TopologySnapshot;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.test.TestingUtil.extractField;
+import static org.infinispan.test.TestingUtil.replaceField;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests consistent hash algorithm consistency between the client and server using Hot Rod's 1.2 protocol, where
+ * clients are sent the owners of each segment, and only the changes once they know a topology.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "client.hotrod.HotRod12CSAIntegrationTest")
+public class HotRod12CSAIntegrationTest extends CSAIntegrationTest {
+
+   private static final String DEFAULT_CACHE_NAME = "";
+
+   private final Marshaller marshaller = new GenericJBossMarshaller();
+   private HotRodServer hotRodServer4;
+   private HotRodServer hotRodServer5;
+
+   @Override
+   protected void setHotRodProtocolVersion(Properties props) {
+      props.setProperty("infinispan.client.hotrod.protocol_version", "1.2");
+   }
+
+   @AfterClass(alwaysRun = true)
+   @Override
+   protected void destroy() {
+      killServers(hotRodServer4, hotRodServer5);
+      super.destroy();
+   }
+
+   @Test(dependsOnMethods = "testHashInfoRetrieved")
+   public void testSegmentConsistentHashReceived() {
+      SegmentConsistentHash ch = (SegmentConsistentHash) tcpConnectionFactory.getConsistentHash();
+      assertEquals(3, ch.getServers().size());
+      assertEquals(manager(0).getCache().getAdvancedCache().getDistributionManager().getConsistentHash()
+            .getNumSegments(), ch.getNumSegments());
+      assertEquals(DEFAULT_CACHE_NAME, ch.getCacheName());
+   }
+
+   @Test(dependsOnMethods = {"testRequestsGoToExpectedServer", "testSegmentConsistentHashReceived"})
+   public void testTopologyDeltaAfterJoin() throws Exception {
+      int baseTopologyId = clientHash().getTopologyId();
+      HotRodServer server = findServerKnowing(baseTopologyId);
+
+      hotRodServer4 = addServer();
+      int topologyId = updateTopologyThrough(server, baseTopologyId);
+
+      assertEquals(4, clientHash().getServers().size());
+      assertDeltaSent(server, baseTopologyId, topologyId);
+      assertClientHashMatchesServers();
+   }
+
+   @Test(dependsOnMethods = "testTopologyDeltaAfterJoin")
+   public void testTopologyDeltaAfterLeave() throws Exception {
+      int baseTopologyId = clientHash().getTopologyId();
+      HotRodServer server = findServerKnowing(baseTopologyId);
+
+      removeServer(hotRodServer4);
+      int topologyId = updateTopologyThrough(server, baseTopologyId);
+
+      assertEquals(3, clientHash().getServers().size());
+      assertDeltaSent(server, baseTopologyId, topologyId);
+      assertClientHashMatchesServers();
+   }
+
+   @Test(dependsOnMethods = "testTopologyDeltaAfterLeave")
+   public void testFullTopologyRequestedWhenDeltaDoesNotApply() throws Exception {
+      SegmentConsistentHash ch = clientHash();
+      int currentTopologyId = ch.getTopologyId();
+      // A topology the server knows, but that is not the one the client hash is at
+      int staleTopologyId = -1;
+      for (int i = currentTopologyId - 1; i >= 0 && staleTopologyId < 0; i--) {
+         for (HotRodServer server : servers()) {
+            if (server.getTopologyHistory().get(DEFAULT_CACHE_NAME, i) != null) {
+               staleTopologyId = i;
+               break;
+            }
+         }
+      }
+      assertTrue("No older topology known by the servers", staleTopologyId >= 0);
+      HotRodServer server = findServerKnowing(staleTopologyId);
+
+      AtomicInteger topologyId = clientTopologyId();
+      topologyId.set(staleTopologyId);
+      remoteCache.put(keyOwnedBy(server), "v");
+      // The delta from the stale topology was received, but could not be applied to the hash
+      assertEquals(-1, topologyId.get());
+      assertSame(ch, tcpConnectionFactory.getConsistentHash());
+
+      remoteCache.put("k", "v");
+      assertEquals(currentTopologyId, topologyId.get());
+      assertFalse(ch == tcpConnectionFactory.getConsistentHash());
+      assertEquals(currentTopologyId, clientHash().getTopologyId());
+      assertClientHashMatchesServers();
+   }
+
+   @Test(dependsOnMethods = "testFullTopologyRequestedWhenDeltaDoesNotApply")
+   public void testFullTopologyRequestedForAnotherCache() throws Exception {
+      SegmentConsistentHash ch = clientHash();
+      // A topology with the same id, but which belongs to another cache
+      tcpConnectionFactory.updateHashFunction(new SegmentConsistentHash("otherCache", ch.getTopologyId(),
+            ch.getHash(), ch.getServers().toArray(new SocketAddress[0]), ch.copySegmentOwners()));
+
+      remoteCache.put("k", "v");
+      assertEquals(DEFAULT_CACHE_NAME, clientHash().getCacheName());
+      assertEquals(ch.getTopologyId(), clientHash().getTopologyId());
+      assertEquals(ch.getTopologyId(), clientTopologyId().get());
+      assertClientHashMatchesServers();
+   }
+
+   @Test(dependsOnMethods = "testFullTopologyRequestedForAnotherCache")
+   public void testFullTopologyAfterHistoryEviction() throws Exception {
+      // Only keep the current topology, so that the next topology change evicts the one the client knows
+      for (HotRodServer server : servers()) {
+         replaceField(new TopologyHistory(1), "topologyHistory", server, HotRodServer.class);
+      }
+      int baseTopologyId = clientHash().getTopologyId();
+      clientTopologyId().set(-1);
+      remoteCache.put(keyOwnedBy(hotRodServer2), "v");
+      assertNotNull(hotRodServer2.getTopologyHistory().get(DEFAULT_CACHE_NAME, baseTopologyId));
+
+      hotRodServer5 = addServer();
+      int topologyId = updateTopologyThrough(hotRodServer2, baseTopologyId);
+
+      assertNull(hotRodServer2.getTopologyHistory().get(DEFAULT_CACHE_NAME, baseTopologyId));
+      TopologySnapshot snapshot = hotRodServer2.getTopologyHistory().get(DEFAULT_CACHE_NAME, topologyId);
+      assertTrue(snapshot.encodedHeaders().containsKey(-1));
+      assertFalse(snapshot.encodedHeaders().containsKey(baseTopologyId));
+      assertEquals(4, clientHash().getServers().size());
+      assertClientHashMatchesServers();
+   }
+
+   private HotRodServer addServer() {
+      EmbeddedCacheManager cm = addClusterEnabledCacheManager(buildConfiguration());
+      HotRodServer server = TestHelper.startHotRodServer(cm);
+      hrServ2CacheManager.put(getAddress(server), cm);
+      waitForClusterToForm();
+      return server;
+   }
+
+   private void removeServer(HotRodServer server) {
+      server.stop();
+      CacheContainer cm = hrServ2CacheManager.remove(getAddress(server));
+      int index = cacheManagers.indexOf(cm);
+      killMember(index);
+      cacheManagers.remove(index);
+   }
+
+   /**
+    * Sends a request to the given server once it has installed a topology newer than the base one, and checks that
+    * the client picked it up.
+    */
+   private int updateTopologyThrough(final HotRodServer server, final int baseTopologyId) throws Exception {
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return server.getCacheTopologyId(DEFAULT_CACHE_NAME) != baseTopologyId;
+         }
+      });
+      remoteCache.put(keyOwnedBy(server), "v");
+      int topologyId = server.getCacheTopologyId(DEFAULT_CACHE_NAME);
+      assertEquals(topologyId, clientTopologyId().get());
+      assertEquals(topologyId, clientHash().getTopologyId());
+      return topologyId;
+   }
+
+   private void assertDeltaSent(HotRodServer server, int baseTopologyId, int topologyId) {
+      TopologySnapshot snapshot = server.getTopologyHistory().get(DEFAULT_CACHE_NAME, topologyId);
+      assertNotNull(snapshot);
+      assertTrue(snapshot.encodedHeaders().containsKey(baseTopologyId));
+      assertFalse(snapshot.encodedHeaders().containsKey(-1));
+   }
+
+   private void assertClientHashMatchesServers() {
+      Map<Address, SocketAddress> hotRodAddresses = new HashMap<Address, SocketAddress>();
+      for (Map.Entry<InetSocketAddress, CacheContainer> e : hrServ2CacheManager.entrySet()) {
+         hotRodAddresses.put(((EmbeddedCacheManager) e.getValue()).getAddress(), e.getKey());
+      }
+      SegmentConsistentHash ch = clientHash();
+      assertEquals(new HashSet<SocketAddress>(hotRodAddresses.values()), new HashSet<SocketAddress>(ch.getServers()));
+
+      ConsistentHash serverCh = manager(0).getCache().getAdvancedCache().getDistributionManager().getConsistentHash();
+      SocketAddress[][] segmentOwners = ch.copySegmentOwners();
+      assertEquals(serverCh.getNumSegments(), segmentOwners.length);
+      for (int segment = 0; segment < segmentOwners.length; segment++) {
+         List<SocketAddress> expected = new ArrayList<SocketAddress>();
+         for (Address owner : serverCh.locateOwnersForSegment(segment)) {
+            expected.add(hotRodAddresses.get(owner));
+         }
+         assertEquals("Owners of segment " + segment, expected, Arrays.asList(segmentOwners[segment]));
+      }
+   }
+
+   private HotRodServer findServerKnowing(int topologyId) {
+      for (HotRodServer server : servers()) {
+         if (server.getTopologyHistory().get(DEFAULT_CACHE_NAME, topologyId) != null) return server;
+      }
+      throw new AssertionError("No server knows topology " + topologyId);
+   }
+
+   private String keyOwnedBy(HotRodServer server) throws Exception {
+      SocketAddress address = getAddress(server);
+      SegmentConsistentHash ch = clientHash();
+      for (int i = 0; i < 10000; i++) {
+         String key = "key" + i;
+         if (address.equals(ch.getServer(marshaller.objectToByteBuffer(key)))) return key;
+      }
+      throw new AssertionError("No key found for " + address + " in " + ch);
+   }
+
+   private List<HotRodServer> servers() {
+      return Arrays.asList(hotRodServer1, hotRodServer2, hotRodServer3);
+   }
+
+   private SegmentConsistentHash clientHash() {
+      return (SegmentConsistentHash) tcpConnectionFactory.getConsistentHash();
+   }
+
+   private AtomicInteger clientTopologyId() {
+      return (AtomicInteger) extractField(remoteCacheManager, "topologyId");
+   }
+
+}
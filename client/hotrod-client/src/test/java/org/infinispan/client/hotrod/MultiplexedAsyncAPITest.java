@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.operations.PingOperation;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory;
+import org.infinispan.util.concurrent.FutureListener;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static junit.framework.Assert.assertEquals;
+import static org.infinispan.test.TestingUtil.extractField;
+
+/**
+ * Runs the asynchronous API tests over multiplexed connections.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "client.hotrod.MultiplexedAsyncAPITest")
+public class MultiplexedAsyncAPITest extends RemoteAsyncAPITest {
+
+   @Override
+   protected void configureClient(Properties props) {
+      props.put(ConfigurationProperties.TRANSPORT_FACTORY, NioTransportFactory.class.getName());
+      props.put(ConfigurationProperties.CONNECTIONS_PER_SERVER, "1");
+   }
+
+   public void testManyRequestsInFlight() throws Exception {
+      RemoteCache<String, String> remoteCache = rcm.getCache(true);
+      int count = 1000;
+      List<Future<String>> puts = new ArrayList<Future<String>>(count);
+      for (int i = 0; i < count; i++) {
+         puts.add(remoteCache.putAsync("key" + i, "value" + i));
+      }
+      for (Future<String> put : puts) put.get();
+
+      List<Future<String>> gets = new ArrayList<Future<String>>(count);
+      for (int i = 0; i < count; i++) {
+         gets.add(remoteCache.getAsync("key" + i));
+      }
+      for (int i = 0; i < count; i++) {
+         assertEquals("value" + i, gets.get(i).get());
+      }
+   }
+
+   public void testLargeValuesAndSyncOperations() throws Exception {
+      RemoteCache<String, String> remoteCache = rcm.getCache(true);
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 100000; i++) sb.append((char) ('a' + i % 26));
+      String large = sb.toString();
+
+      Map<String, String> data = new HashMap<String, String>();
+      for (int i = 0; i < 10; i++) data.put("large" + i, large + i);
+      remoteCache.putAllAsync(data).get();
+
+      for (int i = 0; i < 10; i++) {
+         assertEquals(large + i, remoteCache.get("large" + i));
+      }
+      assert remoteCache.containsKey("large0");
+      assert remoteCache.size() >= 10;
+   }
+
+   public void testSyncOperationInCompletionListener() throws Exception {
+      final RemoteCache<String, String> remoteCache = rcm.getCache(true);
+      remoteCache.put("k1", "v1");
+      final CountDownLatch done = new CountDownLatch(1);
+      final AtomicReference<Object> result = new AtomicReference<Object>();
+      remoteCache.putAsync("k2", "v2").attachListener(new FutureListener<String>() {
+         @Override
+         public void futureDone(Future<String> future) {
+            // needs another response from the same connection
+            try {
+               result.set(remoteCache.get("k1"));
+            } catch (Throwable t) {
+               result.set(t);
+            }
+            done.countDown();
+         }
+      });
+      assert done.await(10, TimeUnit.SECONDS) : "The listener did not complete";
+      assertEquals("v1", result.get());
+   }
+
+   public void testBlockingReads() {
+      TransportFactory transportFactory = (TransportFactory) extractField(rcm, "transportFactory");
+      Codec codec = (Codec) extractField(rcm, "codec");
+      Transport transport = transportFactory.getTransport();
+      try {
+         PingOperation ping = new PingOperation(codec, (AtomicInteger) extractField(rcm, "topologyId"), transport);
+         assertEquals(PingOperation.PingResult.SUCCESS, ping.execute());
+      } finally {
+         transportFactory.releaseTransport(transport);
+      }
+      // the connection goes on with the following responses
+      RemoteCache<String, String> remoteCache = rcm.getCache(true);
+      remoteCache.put("k", "v");
+      assertEquals("v", remoteCache.get("k"));
+   }
+}
@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.NearCache;
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests that the near cache serves repeated reads locally and drops the entries modified through any client.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "client.hotrod.NearCacheTest")
+public class NearCacheTest extends MultiHotRodServersTest {
+
+   private RemoteCacheManager nearCacheClient;
+   private RemoteCacheManager shortValidationClient;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createHotRodServers(2, getDefaultClusteredCacheConfig(CacheMode.REPL_SYNC, false).build());
+      Properties props = new Properties();
+      props.put(ConfigurationProperties.SERVER_LIST,
+            String.format("localhost:%d;localhost:%d", server(0).getPort(), server(1).getPort()));
+      props.put(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, "100");
+      // long enough for the entries to only be refreshed by invalidations during the test
+      props.put(ConfigurationProperties.NEAR_CACHE_VALIDATION_INTERVAL, "600000");
+      nearCacheClient = new RemoteCacheManager(props);
+      props.put(ConfigurationProperties.NEAR_CACHE_VALIDATION_INTERVAL, "500");
+      shortValidationClient = new RemoteCacheManager(props);
+   }
+
+   @AfterClass(alwaysRun = true)
+   @Override
+   protected void destroy() {
+      try {
+         if (nearCacheClient != null) nearCacheClient.stop();
+         if (shortValidationClient != null) shortValidationClient.stop();
+      } finally {
+         super.destroy();
+      }
+   }
+
+   public void testDisabledByDefault() {
+      assertNull(client(0).getCache().nearCacheStats());
+   }
+
+   public void testRepeatedReadsServedLocally() {
+      RemoteCache<String, String> cache = listeningCache();
+      final NearCacheStatistics stats = cache.nearCacheStats();
+      final long invalidations = stats.getInvalidations();
+      client(0).<String, String>getCache().put("local", "v1");
+      // both servers hold the entry and report its modification
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return stats.getInvalidations() == invalidations + 2;
+         }
+      });
+
+      assertEquals("v1", cache.get("local"));
+      long hits = stats.getHits();
+      long misses = stats.getMisses();
+      for (int i = 0; i < 10; i++) assertEquals("v1", cache.get("local"));
+      assertEquals(hits + 10, stats.getHits());
+      assertEquals(misses, stats.getMisses());
+   }
+
+   public void testInvalidatedByOwnWrites() {
+      RemoteCache<String, String> cache = listeningCache();
+      cache.put("own", "v1");
+      assertEquals("v1", cache.get("own"));
+      cache.put("own", "v2");
+      assertEquals("v2", cache.get("own"));
+      cache.remove("own");
+      assertNull(cache.get("own"));
+   }
+
+   public void testInvalidatedByOtherClients() {
+      final RemoteCache<String, String> cache = listeningCache();
+      RemoteCache<String, String> other = client(1).getCache();
+      other.put("other", "v1");
+      assertEquals("v1", cache.get("other"));
+      assertEquals("v1", cache.get("other"));
+
+      other.put("other", "v2");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return "v2".equals(cache.get("other"));
+         }
+      });
+      other.remove("other");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return cache.get("other") == null;
+         }
+      });
+   }
+
+   public void testExpiredEntriesNotServed() throws Exception {
+      RemoteCache<String, String> cache = listeningCache(shortValidationClient);
+      // servers do not notify expirations, the entry is dropped once too old to be trusted
+      client(0).<String, String>getCache().put("expiring", "v1", 1, TimeUnit.SECONDS);
+      assertEquals("v1", cache.get("expiring"));
+      Thread.sleep(1500);
+      assertNull(cache.get("expiring"));
+   }
+
+   /**
+    * @return the near cached cache, once it receives the invalidation events from both servers
+    */
+   private RemoteCache<String, String> listeningCache() {
+      return listeningCache(nearCacheClient);
+   }
+
+   private RemoteCache<String, String> listeningCache(RemoteCacheManager client) {
+      final RemoteCache<String, String> cache = client.getCache();
+      // the first miss registers the invalidation listeners
+      cache.get("missing");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return ((NearCache) cache.nearCacheStats()).isListening();
+         }
+      });
+      // one listener per near cache client that registered so far
+      for (int i = 0; i < 2; i++) {
+         assertTrue(server(i).getInvalidationNotifier().getListenerCount(cache(i).getName()) >= 1);
+      }
+      return cache;
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Tests the native putAll and getAll operations against a distributed cluster, where the keys are split in one
+ * request per owner.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "client.hotrod.PutAllGetAllTest")
+public class PutAllGetAllTest extends MultiHotRodServersTest {
+
+   private static final int NUM_ENTRIES = 100;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(1);
+      createHotRodServers(2, builder.build());
+   }
+
+   public void testPutAllAndGetAll() {
+      RemoteCache<String, String> remoteCache = client(0).getCache();
+      // make sure the client received the cluster topology
+      remoteCache.put("init", "init");
+
+      Map<String, String> data = new HashMap<String, String>();
+      for (int i = 0; i < NUM_ENTRIES; i++) data.put("key" + i, "value" + i);
+      remoteCache.putAll(data);
+
+      // with a single owner every entry is stored exactly once in the cluster
+      int stored = 0;
+      for (int i = 0; i < 2; i++) stored += cache(i).getAdvancedCache().getDataContainer().size();
+      // the "k" entry written while starting the servers and the "init" entry
+      assertEquals(NUM_ENTRIES + 2, stored);
+      for (int i = 0; i < NUM_ENTRIES; i++) assertEquals("value" + i, remoteCache.get("key" + i));
+
+      Set<String> keys = new HashSet<String>(data.keySet());
+      keys.add("missing");
+      Map<String, String> found = remoteCache.getAll(keys);
+      assertEquals(data, found);
+      assertNull(found.get("missing"));
+   }
+
+   public void testEmptyPutAllAndGetAll() throws Exception {
+      // no operation is created for an empty set of keys
+      RemoteCache<String, String> remoteCache = client(1).getCache();
+      remoteCache.putAll(new HashMap<String, String>());
+      remoteCache.putAllAsync(new HashMap<String, String>()).get();
+      assertEquals(0, remoteCache.getAll(new HashSet<String>()).size());
+      assertEquals(0, client(0).<String, String>getCache().getAll(new HashSet<String>()).size());
+   }
+
+   public void testPutAllAsync() throws Exception {
+      RemoteCache<String, String> remoteCache = client(1).getCache();
+      Map<String, String> data = new HashMap<String, String>();
+      for (int i = 0; i < NUM_ENTRIES; i++) data.put("async" + i, "value" + i);
+      remoteCache.putAllAsync(data).get();
+      assertEquals(data, remoteCache.getAll(data.keySet()));
+   }
+}
@@ -43,7 +43,7 @@
 @Test(groups = "functional", testName = "client.hotrod.RemoteAsyncAPITest")
 public class RemoteAsyncAPITest extends SingleCacheManagerTest {
    private HotRodServer hotrodServer;
-   private RemoteCacheManager rcm;
+   protected RemoteCacheManager rcm;
    private RemoteCache<String, String> c;
 
    @Override
@@ -55,11 +55,15 @@ protected EmbeddedCacheManager createCacheManager() throws Exception {
       props.put("infinispan.client.hotrod.server_list", "127.0.0.1:" + hotrodServer.getPort());
       props.put("infinispan.client.hotrod.force_return_values","true");
       props.put("testOnBorrow", "false");
+      configureClient(props);
       rcm = new RemoteCacheManager(props);
       c = rcm.getCache(true);
       return cm;
    }
 
+   protected void configureClient(Properties props) {
+   }
+
    @AfterClass(alwaysRun = true)
    @Override
    protected void destroyAfterClass() {
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Tests iterating over the entries of a distributed cache page by page, visiting every server in turn.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "client.hotrod.RemoteIterationTest")
+public class RemoteIterationTest extends MultiHotRodServersTest {
+
+   private static final int NUM_ENTRIES = 100;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(2);
+      createHotRodServers(2, builder.build());
+   }
+
+   public void testRetrieveAllEntries() {
+      RemoteCache<String, String> remoteCache = client(0).getCache();
+      for (int i = 0; i < NUM_ENTRIES; i++) remoteCache.put("key" + i, "value" + i);
+
+      Map<String, String> retrieved = new HashMap<String, String>();
+      CloseableIterator<Map.Entry<String, String>> it = remoteCache.retrieveEntries(7);
+      while (it.hasNext()) {
+         Map.Entry<String, String> entry = it.next();
+         // every server holds a copy of every entry, but only returns those it is the primary owner of
+         assertNull("Entry returned twice: " + entry, retrieved.put(entry.getKey(), entry.getValue()));
+      }
+      it.close();
+
+      assertEquals(cache(0).size(), retrieved.size());
+      for (int i = 0; i < NUM_ENTRIES; i++) assertEquals("value" + i, retrieved.get("key" + i));
+      assertOpenIterations(0);
+   }
+
+   public void testCloseBeforeEnd() {
+      RemoteCache<String, String> remoteCache = client(1).getCache();
+      for (int i = 0; i < NUM_ENTRIES; i++) remoteCache.put("close" + i, "value" + i);
+
+      CloseableIterator<Map.Entry<String, String>> it = remoteCache.retrieveEntries(5);
+      for (int i = 0; i < 3; i++) it.next();
+      assertEquals(1, server(0).getIterationManager().getOpenIterations()
+            + server(1).getIterationManager().getOpenIterations());
+      it.close();
+      assertOpenIterations(0);
+      assertFalse(it.hasNext());
+   }
+
+   public void testUnknownSegments() {
+      RemoteCache<String, String> remoteCache = client(0).getCache();
+      remoteCache.put("k1", "v1");
+      // no segment has such a large id, so nothing matches
+      CloseableIterator<Map.Entry<String, String>> it =
+            remoteCache.retrieveEntries(Collections.singleton(Integer.MAX_VALUE), 10);
+      assertFalse(it.hasNext());
+      it.close();
+      assertOpenIterations(0);
+   }
+
+   private void assertOpenIterations(int expected) {
+      for (int i = 0; i < 2; i++) {
+         assertEquals(expected, server(i).getIterationManager().getOpenIterations());
+      }
+   }
+}
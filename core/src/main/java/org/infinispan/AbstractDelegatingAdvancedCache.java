@@ -40,6 +40,8 @@
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Similar to {@link org.infinispan.AbstractDelegatingCache}, but for {@link AdvancedCache}.
@@ -179,6 +181,11 @@ public AdvancedCache<K, V> with(ClassLoader classLoader) {
       return cache.with(classLoader);
    }
 
+   @Override
+   public Map<K, V> getAll(Set<?> keys) {
+      return cache.getAll(keys);
+   }
+
    protected final void putForExternalRead(K key, V value, EnumSet<Flag> flags, ClassLoader classLoader) {
 
       ((CacheImpl) cache).putForExternalRead(key, value, flags, classLoader);
@@ -39,6 +39,8 @@
 import javax.transaction.xa.XAResource;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * An advanced interface that exposes additional methods not available on {@link Cache}.
@@ -291,4 +293,17 @@
     * with a particular {@link ClassLoader}.
     */
    AdvancedCache<K, V> with(ClassLoader classLoader);
+
+   /**
+    * Retrieves the values mapped to several keys at once.  This is equivalent to invoking {@link #get(Object)} for
+    * each key, but keys held by other nodes of a distributed cache are retrieved with a single remote call per owner,
+    * and keys missing from memory are loaded from the cache store together when the store supports it.
+    * <pre>
+    *    Map&lt;String, Person&gt; people = cache.getAdvancedCache().getAll(ids);
+    * </pre>
+    *
+    * @param keys keys to retrieve
+    * @return a map holding the keys that are mapped to a value, along with their values
+    */
+   Map<K, V> getAll(Set<?> keys);
 }
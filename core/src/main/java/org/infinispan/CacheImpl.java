@@ -28,6 +28,7 @@
 import org.infinispan.commands.VisitableCommand;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.SizeCommand;
@@ -277,6 +278,19 @@ final V get(Object key, EnumSet<Flag> explicitFlags, ClassLoader explicitClassLo
       return (V) invoker.invoke(ctx, command);
    }
 
+   @Override
+   public final Map<K, V> getAll(Set<?> keys) {
+      return getAll(keys, null, null);
+   }
+
+   @SuppressWarnings("unchecked")
+   final Map<K, V> getAll(Set<?> keys, EnumSet<Flag> explicitFlags, ClassLoader explicitClassLoader) {
+      for (Object key : keys) assertKeyNotNull(key);
+      InvocationContext ctx = getInvocationContextForRead(null, explicitClassLoader, keys.size());
+      GetAllCommand command = commandsFactory.buildGetAllCommand(keys, explicitFlags);
+      return (Map<K, V>) invoker.invoke(ctx, command);
+   }
+
    @Override
    public final V remove(Object key) {
       return remove(key, null, null);
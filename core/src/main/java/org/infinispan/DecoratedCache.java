@@ -314,6 +314,11 @@ public V get(Object key) {
       return cacheImplementation.get(key, flags, classLoader);
    }
 
+   @Override
+   public Map<K, V> getAll(Set<?> keys) {
+      return cacheImplementation.getAll(keys, flags, classLoader);
+   }
+
    @Override
    public V put(K key, V value) {
       return cacheImplementation.put(key, value, cacheImplementation.defaultLifespan, MILLISECONDS, cacheImplementation.defaultMaxIdleTime, MILLISECONDS, flags, classLoader);
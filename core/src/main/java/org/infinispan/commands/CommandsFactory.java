@@ -26,15 +26,18 @@
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
+import org.infinispan.commands.remote.WaitForGraphCommand;
 import org.infinispan.commands.remote.recovery.CompleteTransactionCommand;
 import org.infinispan.commands.remote.recovery.GetInDoubtTransactionsCommand;
 import org.infinispan.commands.remote.recovery.GetInDoubtTxInfoCommand;
@@ -55,6 +58,7 @@
 import org.infinispan.statetransfer.StateRequestCommand;
 import org.infinispan.statetransfer.StateResponseCommand;
 import org.infinispan.remoting.transport.Address;
+import org.infinispan.transaction.xa.DldGlobalTransaction;
 import org.infinispan.transaction.xa.GlobalTransaction;
 
 import javax.transaction.xa.Xid;
@@ -159,6 +163,13 @@ public interface CommandsFactory {
     */
    GetKeyValueCommand buildGetKeyValueCommand(Object key, Set<Flag> flags);
 
+   /**
+    * Builds a GetAllCommand
+    * @param keys keys to get
+    * @return a GetAllCommand
+    */
+   GetAllCommand buildGetAllCommand(Collection<?> keys, Set<Flag> flags);
+
    /**
     * Builds a KeySetCommand
     * @return a KeySetCommand
@@ -273,6 +284,21 @@ public interface CommandsFactory {
     */
    ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags, boolean acquireRemoteLock, GlobalTransaction gtx);
 
+   /**
+    * Builds a ClusteredGetAllCommand, which is a remote lookup command for several keys
+    * @param keys keys to look up
+    * @return a ClusteredGetAllCommand
+    */
+   ClusteredGetAllCommand buildClusteredGetAllCommand(List<Object> keys, Set<Flag> flags);
+
+   /**
+    * Builds a WaitForGraphCommand, used for cluster wide deadlock detection
+    * @param victims the deadlock victims to mark on the target nodes, or null for gathering the waits of the target
+    *                nodes
+    * @return a WaitForGraphCommand
+    */
+   WaitForGraphCommand buildWaitForGraphCommand(List<DldGlobalTransaction> victims);
+
    /**
     * Builds a LockControlCommand to control explicit remote locking
     *
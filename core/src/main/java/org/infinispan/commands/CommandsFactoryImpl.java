@@ -28,15 +28,18 @@
 import org.infinispan.commands.module.ModuleCommandInitializer;
 import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
+import org.infinispan.commands.remote.WaitForGraphCommand;
 import org.infinispan.commands.remote.recovery.CompleteTransactionCommand;
 import org.infinispan.commands.remote.recovery.GetInDoubtTransactionsCommand;
 import org.infinispan.commands.remote.recovery.GetInDoubtTxInfoCommand;
@@ -238,6 +241,11 @@ public GetKeyValueCommand buildGetKeyValueCommand(Object key, Set<Flag> flags) {
       return new GetKeyValueCommand(key, notifier, flags);
    }
 
+   @Override
+   public GetAllCommand buildGetAllCommand(Collection<?> keys, Set<Flag> flags) {
+      return new GetAllCommand(keys, notifier, flags);
+   }
+
    @Override
    public PutMapCommand buildPutMapCommand(Map<?, ?> map, long lifespan, long maxIdleTimeMillis, Set<Flag> flags) {
       return new PutMapCommand(map, notifier, lifespan, maxIdleTimeMillis, flags);
@@ -293,6 +301,16 @@ public ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags,
       return new ClusteredGetCommand(key, cacheName, flags, acquireRemoteLock, gtx);
    }
 
+   @Override
+   public ClusteredGetAllCommand buildClusteredGetAllCommand(List<Object> keys, Set<Flag> flags) {
+      return new ClusteredGetAllCommand(keys, cacheName, flags);
+   }
+
+   @Override
+   public WaitForGraphCommand buildWaitForGraphCommand(List<DldGlobalTransaction> victims) {
+      return new WaitForGraphCommand(cacheName, victims);
+   }
+
    /**
     * @param isRemote true if the command is deserialized and is executed remote.
     */
@@ -370,6 +388,13 @@ public void initializeReplicableCommand(ReplicableCommand c, boolean isRemote) {
             ClusteredGetCommand clusteredGetCommand = (ClusteredGetCommand) c;
             clusteredGetCommand.initialize(icc, this, entryFactory, interceptorChain, distributionManager, txTable);
             break;
+         case ClusteredGetAllCommand.COMMAND_ID:
+            ClusteredGetAllCommand clusteredGetAllCommand = (ClusteredGetAllCommand) c;
+            clusteredGetAllCommand.initialize(icc, this, entryFactory, interceptorChain, distributionManager);
+            break;
+         case WaitForGraphCommand.COMMAND_ID:
+            ((WaitForGraphCommand) c).init(lockManager);
+            break;
          case LockControlCommand.COMMAND_ID:
             LockControlCommand lcc = (LockControlCommand) c;
             lcc.init(interceptorChain, icc, txTable);
@@ -31,9 +31,11 @@
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.remote.CacheRpcCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
+import org.infinispan.commands.remote.WaitForGraphCommand;
 import org.infinispan.commands.remote.recovery.CompleteTransactionCommand;
 import org.infinispan.commands.remote.recovery.GetInDoubtTransactionsCommand;
 import org.infinispan.commands.remote.recovery.GetInDoubtTxInfoCommand;
@@ -200,6 +202,12 @@ public CacheRpcCommand fromStream(byte id, Object[] parameters, byte type, Strin
             case ClusteredGetCommand.COMMAND_ID:
                command = new ClusteredGetCommand(cacheName);
                break;
+            case ClusteredGetAllCommand.COMMAND_ID:
+               command = new ClusteredGetAllCommand(cacheName);
+               break;
+            case WaitForGraphCommand.COMMAND_ID:
+               command = new WaitForGraphCommand(cacheName);
+               break;
             case StateRequestCommand.COMMAND_ID:
                command = new StateRequestCommand(cacheName);
                break;
@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.commands.read;
+
+import org.infinispan.commands.AbstractFlagAffectedCommand;
+import org.infinispan.commands.LocalCommand;
+import org.infinispan.commands.VisitableCommand;
+import org.infinispan.commands.Visitor;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.lifecycle.ComponentStatus;
+import org.infinispan.notifications.cachelistener.CacheNotifier;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implements functionality defined by {@link org.infinispan.AdvancedCache#getAll(java.util.Set)}. Interceptors load
+ * the requested keys into the invocation context, so that this command only has to collect the entries found there.
+ * Keys that are not mapped to a value are left out of the returned map.
+ *
+ * @since 5.2
+ */
+public class GetAllCommand extends AbstractFlagAffectedCommand implements VisitableCommand, LocalCommand {
+
+   private static final Log log = LogFactory.getLog(GetAllCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+   private static final Object[] EMPTY_ARRAY = new Object[0];
+
+   private Collection<?> keys;
+   private CacheNotifier notifier;
+   private boolean returnEntries;
+
+   public GetAllCommand(Collection<?> keys, CacheNotifier notifier, Set<Flag> flags) {
+      this.keys = keys;
+      this.notifier = notifier;
+      this.flags = flags;
+   }
+
+   @Override
+   public Object acceptVisitor(InvocationContext ctx, Visitor visitor) throws Throwable {
+      return visitor.visitGetAllCommand(ctx, this);
+   }
+
+   public Collection<?> getKeys() {
+      return keys;
+   }
+
+   /**
+    * Replaces the keys to look up, e.g. with their binary form when storing keys as binary.
+    */
+   public void setKeys(Collection<?> keys) {
+      this.keys = keys;
+   }
+
+   /**
+    * Will make this command return {@link CacheEntry} instances instead of the values associated with the keys.
+    */
+   public void setReturnEntries(boolean returnEntries) {
+      this.returnEntries = returnEntries;
+   }
+
+   public boolean isReturnEntries() {
+      return returnEntries;
+   }
+
+   @Override
+   public Map<Object, Object> perform(InvocationContext ctx) throws Throwable {
+      Map<Object, Object> result = new HashMap<Object, Object>(keys.size());
+      for (Object key : keys) {
+         CacheEntry entry = ctx.lookupEntry(key);
+         if (entry == null || entry.isNull() || entry.isRemoved()) {
+            if (trace) log.tracef("Entry for key %s not found", key);
+            continue;
+         }
+         Object value = entry.getValue();
+         if (value == null) continue;
+         notifier.notifyCacheEntryVisited(key, value, true, ctx);
+         result.put(key, returnEntries ? entry : value);
+         notifier.notifyCacheEntryVisited(key, value, false, ctx);
+      }
+      if (trace) log.tracef("Found %d out of %d requested keys", result.size(), keys.size());
+      return result;
+   }
+
+   @Override
+   public byte getCommandId() {
+      return 0;  // local command
+   }
+
+   @Override
+   public Object[] getParameters() {
+      return EMPTY_ARRAY;
+   }
+
+   @Override
+   public void setParameters(int commandId, Object[] parameters) {
+      // no-op
+   }
+
+   @Override
+   public boolean shouldInvoke(InvocationContext ctx) {
+      return true;
+   }
+
+   @Override
+   public boolean ignoreCommandOnStatus(ComponentStatus status) {
+      return false;
+   }
+
+   @Override
+   public boolean isReturnValueExpected() {
+      return true;
+   }
+
+   @Override
+   public String toString() {
+      return "GetAllCommand{" +
+            "keys=" + keys +
+            ", flags=" + flags +
+            '}';
+   }
+}
@@ -51,6 +51,9 @@
    private String taskId;
    private boolean reducePhaseDistributed;
    private boolean emitCompositeIntermediateKeys;
+   private int mapParallelism = 1;
+   private boolean inputStreamed;
+   private int maxCollectedValues;
    private MapReduceManager mrManager;
 
    public MapCombineCommand() {
@@ -107,6 +110,40 @@ public void setReducePhaseDistributed(boolean reducePhaseDistributed) {
       this.reducePhaseDistributed = reducePhaseDistributed;
    }
 
+   /**
+    * The number of threads each node uses to map and combine its input keys.
+    */
+   public int getMapParallelism() {
+      return mapParallelism;
+   }
+
+   public void setMapParallelism(int mapParallelism) {
+      this.mapParallelism = mapParallelism;
+   }
+
+   /**
+    * Whether nodes map the entries of their data container and cache loader as they walk them, rather than looking up
+    * each key of the cache key set.
+    */
+   public boolean isInputStreamed() {
+      return inputStreamed;
+   }
+
+   public void setInputStreamed(boolean inputStreamed) {
+      this.inputStreamed = inputStreamed;
+   }
+
+   /**
+    * The number of intermediate values each node holds in memory before writing them to disk, 0 if unbounded.
+    */
+   public int getMaxCollectedValues() {
+      return maxCollectedValues;
+   }
+
+   public void setMaxCollectedValues(int maxCollectedValues) {
+      this.maxCollectedValues = maxCollectedValues;
+   }
+
    public Set<KIn> getKeys() {
       return keys;
    }
@@ -130,7 +167,8 @@ public byte getCommandId() {
 
    @Override
    public Object[] getParameters() {
-      return new Object[] { taskId, keys, mapper, combiner, reducePhaseDistributed, emitCompositeIntermediateKeys };
+      return new Object[] { taskId, keys, mapper, combiner, reducePhaseDistributed, emitCompositeIntermediateKeys, mapParallelism,
+            inputStreamed, maxCollectedValues };
    }
 
    @SuppressWarnings("unchecked")
@@ -145,6 +183,9 @@ public void setParameters(int commandId, Object[] args) {
       combiner = (Reducer<KOut,VOut>) args[i++];
       reducePhaseDistributed = (Boolean) args[i++];
       emitCompositeIntermediateKeys = (Boolean) args[i++];
+      mapParallelism = (Integer) args[i++];
+      inputStreamed = (Boolean) args[i++];
+      maxCollectedValues = (Integer) args[i++];
    }
 
    @Override
@@ -0,0 +1,222 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.commands.remote;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.Visitor;
+import org.infinispan.commands.read.GetAllCommand;
+import org.infinispan.container.InternalEntryFactory;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.container.entries.MVCCEntry;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.lifecycle.ComponentStatus;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Issues a remote get for several keys at once, typically all the keys of a
+ * {@link org.infinispan.AdvancedCache#getAll(java.util.Set)} call that are owned by the target node.  Like the
+ * {@link ClusteredGetCommand}, this is not passed up the {@link org.infinispan.interceptors.base.CommandInterceptor}
+ * chain itself.
+ *
+ * @since 5.2
+ */
+public class ClusteredGetAllCommand extends BaseRpcCommand implements FlagAffectedCommand {
+
+   public static final byte COMMAND_ID = 32;
+   private static final Log log = LogFactory.getLog(ClusteredGetAllCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private List<Object> keys;
+   private Set<Flag> flags;
+   private int topologyId;
+
+   private InvocationContextContainer icc;
+   private CommandsFactory commandsFactory;
+   private InterceptorChain invoker;
+   private DistributionManager distributionManager;
+   private InternalEntryFactory entryFactory;
+
+   private ClusteredGetAllCommand() {
+      super(null); // For command id uniqueness test
+   }
+
+   public ClusteredGetAllCommand(String cacheName) {
+      super(cacheName);
+   }
+
+   public ClusteredGetAllCommand(List<Object> keys, String cacheName, Set<Flag> flags) {
+      super(cacheName);
+      this.keys = keys;
+      this.flags = flags;
+   }
+
+   public void initialize(InvocationContextContainer icc, CommandsFactory commandsFactory, InternalEntryFactory entryFactory,
+                          InterceptorChain interceptorChain, DistributionManager distributionManager) {
+      this.icc = icc;
+      this.commandsFactory = commandsFactory;
+      this.entryFactory = entryFactory;
+      this.invoker = interceptorChain;
+      this.distributionManager = distributionManager;
+   }
+
+   /**
+    * Invokes a logical "getAll(keys)" on a remote cache and returns results.
+    *
+    * @param context invocation context, ignored.
+    * @return a map holding an <code>InternalCacheValue</code> for every key found and a null value for every key not
+    *         found.  Keys this node cannot give a reliable answer for, because they are being rehashed or are not
+    *         owned by this node, are left out.
+    */
+   @Override
+   public Map<Object, InternalCacheValue> perform(InvocationContext context) throws Throwable {
+      List<Object> stableKeys = new ArrayList<Object>(keys.size());
+      for (Object key : keys) {
+         if (distributionManager == null
+               || (!distributionManager.isAffectedByRehash(key) && distributionManager.getLocality(key).isLocal())) {
+            stableKeys.add(key);
+         }
+      }
+      if (trace && stableKeys.size() < keys.size())
+         log.tracef("Not answering for %d out of %d keys as they are not local or are being rehashed", keys.size() - stableKeys.size(), keys.size());
+
+      // make sure the get command doesn't perform a remote call
+      // as our caller is already calling the ClusteredGetAllCommand on the owners
+      Set<Flag> commandFlags = EnumSet.of(Flag.SKIP_REMOTE_LOOKUP);
+      if (this.flags != null) commandFlags.addAll(this.flags);
+      GetAllCommand command = commandsFactory.buildGetAllCommand(stableKeys, commandFlags);
+      command.setReturnEntries(true);
+      InvocationContext invocationContext = icc.createRemoteInvocationContextForCommand(command, getOrigin());
+      @SuppressWarnings("unchecked")
+      Map<Object, Object> entries = (Map<Object, Object>) invoker.invoke(invocationContext, command);
+
+      Map<Object, InternalCacheValue> result = new HashMap<Object, InternalCacheValue>(stableKeys.size());
+      for (Object key : stableKeys) {
+         CacheEntry cacheEntry = (CacheEntry) entries.get(key);
+         if (cacheEntry == null) {
+            result.put(key, null);
+         } else if (cacheEntry instanceof MVCCEntry) {
+            //this might happen if the value was fetched from a cache loader
+            result.put(key, entryFactory.createValue(cacheEntry));
+         } else {
+            result.put(key, ((InternalCacheEntry) cacheEntry).toInternalCacheValue());
+         }
+      }
+      return result;
+   }
+
+   @Override
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   @Override
+   public Object[] getParameters() {
+      return new Object[]{keys, flags};
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] args) {
+      keys = (List<Object>) args[0];
+      flags = (Set<Flag>) args[1];
+   }
+
+   public List<Object> getKeys() {
+      return keys;
+   }
+
+   @Override
+   public Set<Flag> getFlags() {
+      return flags;
+   }
+
+   @Override
+   public void setFlags(Set<Flag> flags) {
+      this.flags = flags;
+   }
+
+   @Override
+   public void setFlags(Flag... flags) {
+      if (flags == null || flags.length == 0) return;
+      if (this.flags == null)
+         this.flags = EnumSet.copyOf(Arrays.asList(flags));
+      else
+         this.flags.addAll(Arrays.asList(flags));
+   }
+
+   @Override
+   public boolean hasFlag(Flag flag) {
+      return flags != null && flags.contains(flag);
+   }
+
+   @Override
+   public int getTopologyId() {
+      return topologyId;
+   }
+
+   @Override
+   public void setTopologyId(int topologyId) {
+      this.topologyId = topologyId;
+   }
+
+   @Override
+   public boolean isReturnValueExpected() {
+      return true;
+   }
+
+   @Override
+   public Object acceptVisitor(InvocationContext ctx, Visitor visitor) throws Throwable {
+      return visitor.visitUnknownCommand(ctx, this);
+   }
+
+   @Override
+   public boolean shouldInvoke(InvocationContext ctx) {
+      return true;
+   }
+
+   @Override
+   public boolean ignoreCommandOnStatus(ComponentStatus status) {
+      return false;
+   }
+
+   @Override
+   public String toString() {
+      return "ClusteredGetAllCommand{keys=" + keys + ", flags=" + flags + "}";
+   }
+}
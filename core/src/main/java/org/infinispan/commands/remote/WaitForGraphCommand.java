@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.commands.remote;
+
+import org.infinispan.context.InvocationContext;
+import org.infinispan.transaction.xa.DldGlobalTransaction;
+import org.infinispan.util.concurrent.locks.LockManager;
+import org.infinispan.util.concurrent.locks.WaitForGraphLockManager;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Used by the {@link WaitForGraphLockManager} for cluster wide deadlock detection. Without victims, it returns the
+ * waits recorded on the target node, keyed by the waiting transaction. With victims, it marks them on the target
+ * node so that the threads waiting on their behalf give up.
+ *
+ * @since 5.2
+ */
+public class WaitForGraphCommand extends BaseRpcCommand {
+
+   public static final byte COMMAND_ID = 33;
+
+   private List<DldGlobalTransaction> victims;
+
+   private LockManager lockManager;
+
+   private WaitForGraphCommand() {
+      super(null); // For command id uniqueness test
+   }
+
+   public WaitForGraphCommand(String cacheName) {
+      super(cacheName);
+   }
+
+   public WaitForGraphCommand(String cacheName, List<DldGlobalTransaction> victims) {
+      super(cacheName);
+      this.victims = victims;
+   }
+
+   public void init(LockManager lockManager) {
+      this.lockManager = lockManager;
+   }
+
+   @Override
+   public Object perform(InvocationContext ctx) throws Throwable {
+      if (!(lockManager instanceof WaitForGraphLockManager)) {
+         // this node isn't configured for wait-for graph based deadlock detection
+         return victims == null ? Collections.emptyMap() : null;
+      }
+      WaitForGraphLockManager waitForGraphLockManager = (WaitForGraphLockManager) lockManager;
+      if (victims == null) return waitForGraphLockManager.getWaitForEdges();
+      waitForGraphLockManager.markVictims(victims);
+      return null;
+   }
+
+   public List<DldGlobalTransaction> getVictims() {
+      return victims;
+   }
+
+   @Override
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   @Override
+   public Object[] getParameters() {
+      return new Object[]{victims};
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] parameters) {
+      if (commandId != COMMAND_ID)
+         throw new IllegalStateException("Expected " + COMMAND_ID + "and received " + commandId);
+      victims = (List<DldGlobalTransaction>) parameters[0];
+   }
+
+   @Override
+   public boolean isReturnValueExpected() {
+      return victims == null;
+   }
+
+   @Override
+   public String toString() {
+      return "WaitForGraphCommand{cacheName=" + cacheName + ", victims=" + victims + "}";
+   }
+}
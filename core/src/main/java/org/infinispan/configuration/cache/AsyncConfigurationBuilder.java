@@ -36,6 +36,7 @@ public class AsyncConfigurationBuilder extends AbstractClusteringConfigurationCh
    private ReplicationQueue replicationQueue = new ReplicationQueueImpl();
    private long replicationQueueInterval = TimeUnit.SECONDS.toMillis(5);
    private int replicationQueueMaxElements = 1000;
+   private long replicationQueueMaxBytes = 0;
    private boolean useReplicationQueue = false;
 
    protected AsyncConfigurationBuilder(ClusteringConfigurationBuilder builder) {
@@ -106,6 +107,16 @@ public AsyncConfigurationBuilder replQueueMaxElements(int elements) {
       return this;
    }
 
+   /**
+    * If useReplQueue is set to true, this attribute can be used to trigger flushing of the queue
+    * when the estimated size of the queued modifications reaches a specific number of bytes. Zero,
+    * the default, means that the queue is not flushed based on its size in bytes.
+    */
+   public AsyncConfigurationBuilder replQueueMaxBytes(long bytes) {
+      this.replicationQueueMaxBytes = bytes;
+      return this;
+   }
+
    /**
     * If true, forces all async communications to be queued up and sent out periodically as a
     * batch.
@@ -123,12 +134,15 @@ void validate() {
 
       if (useReplicationQueue && getClusteringBuilder().cacheMode().isSynchronous())
          throw new ConfigurationException("Use of the replication queue is only allowed with an ASYNCHRONOUS cluster mode.");
+
+      if (replicationQueueMaxBytes < 0)
+         throw new ConfigurationException("replQueueMaxBytes cannot be negative.");
    }
 
    @Override
    public
    AsyncConfiguration create() {
-      return new AsyncConfiguration(asyncMarshalling, replicationQueue, replicationQueueInterval, replicationQueueMaxElements, useReplicationQueue);
+      return new AsyncConfiguration(asyncMarshalling, replicationQueue, replicationQueueInterval, replicationQueueMaxElements, replicationQueueMaxBytes, useReplicationQueue);
    }
 
    @Override
@@ -137,6 +151,7 @@ public AsyncConfigurationBuilder read(AsyncConfiguration template) {
       this.replicationQueue = template.replQueue();
       this.replicationQueueInterval = template.replQueueInterval();
       this.replicationQueueMaxElements = template.replQueueMaxElements();
+      this.replicationQueueMaxBytes = template.replQueueMaxBytes();
       this.useReplicationQueue = template.useReplQueue();
 
       return this;
@@ -149,6 +164,7 @@ public String toString() {
             ", replicationQueue=" + replicationQueue +
             ", replicationQueueInterval=" + replicationQueueInterval +
             ", replicationQueueMaxElements=" + replicationQueueMaxElements +
+            ", replicationQueueMaxBytes=" + replicationQueueMaxBytes +
             ", useReplicationQueue=" + useReplicationQueue +
             '}';
    }
@@ -32,14 +32,20 @@ public class AsyncStoreConfiguration {
    private final int modificationQueueSize;
    private long shutdownTimeout;
    private final int threadPoolSize;
+   private final int maxBatchSize;
+   private final long maxBatchBytes;
+   private final long flushInterval;
 
    AsyncStoreConfiguration(boolean enabled, long flushLockTimeout, int modificationQueueSize, long shutdownTimeout,
-         int threadPoolSize) {
+         int threadPoolSize, int maxBatchSize, long maxBatchBytes, long flushInterval) {
       this.enabled = enabled;
       this.flushLockTimeout = flushLockTimeout;
       this.modificationQueueSize = modificationQueueSize;
       this.shutdownTimeout = shutdownTimeout;
       this.threadPoolSize = threadPoolSize;
+      this.maxBatchSize = maxBatchSize;
+      this.maxBatchBytes = maxBatchBytes;
+      this.flushInterval = flushInterval;
    }
 
    /**
@@ -99,6 +105,31 @@ public int threadPoolSize() {
       return threadPoolSize;
    }
 
+   /**
+    * Maximum number of modifications handed to the underlying store in a single one-phase prepare call. Zero means
+    * that all the modifications pending when a flush starts are applied as a single batch.
+    */
+   public int maxBatchSize() {
+      return maxBatchSize;
+   }
+
+   /**
+    * Maximum estimated size, in bytes, of the entries handed to the underlying store in a single batch. Zero means
+    * that batches are not bounded by size.
+    */
+   public long maxBatchBytes() {
+      return maxBatchBytes;
+   }
+
+   /**
+    * Maximum time, in milliseconds, modifications wait in the async store before being flushed to the underlying
+    * store, unless enough modifications to fill a batch arrive earlier. Zero means that modifications are flushed as
+    * soon as they are received.
+    */
+   public long flushInterval() {
+      return flushInterval;
+   }
+
    @Override
    public String toString() {
       return "AsyncLoaderConfiguration{" +
@@ -107,6 +138,9 @@ public String toString() {
             ", modificationQueueSize=" + modificationQueueSize +
             ", shutdownTimeout=" + shutdownTimeout +
             ", threadPoolSize=" + threadPoolSize +
+            ", maxBatchSize=" + maxBatchSize +
+            ", maxBatchBytes=" + maxBatchBytes +
+            ", flushInterval=" + flushInterval +
             '}';
    }
 
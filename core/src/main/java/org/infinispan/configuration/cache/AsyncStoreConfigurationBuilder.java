@@ -18,6 +18,8 @@
  */
 package org.infinispan.configuration.cache;
 
+import org.infinispan.config.ConfigurationException;
+
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -34,6 +36,9 @@ public class AsyncStoreConfigurationBuilder extends AbstractLoaderConfigurationC
    private int modificationQueueSize = 1024;
    private long shutdownTimeout = TimeUnit.SECONDS.toMillis(25);
    private int threadPoolSize = 1;
+   private int maxBatchSize = 100;
+   private long maxBatchBytes = 0;
+   private long flushInterval = 0;
 
    AsyncStoreConfigurationBuilder(LoadersConfigurationBuilder builder) {
       super(builder);
@@ -112,15 +117,58 @@ public AsyncStoreConfigurationBuilder threadPoolSize(int i) {
       return this;
    }
 
+   /**
+    * Maximum number of modifications handed to the underlying store in a single one-phase prepare call. Zero means
+    * that all the modifications pending when a flush starts are applied as a single batch.
+    */
+   public AsyncStoreConfigurationBuilder maxBatchSize(int i) {
+      this.maxBatchSize = i;
+      return this;
+   }
+
+   /**
+    * Maximum estimated size, in bytes, of the entries handed to the underlying store in a single batch. Zero means
+    * that batches are not bounded by size.
+    */
+   public AsyncStoreConfigurationBuilder maxBatchBytes(long l) {
+      this.maxBatchBytes = l;
+      return this;
+   }
+
+   /**
+    * Maximum time, in milliseconds, modifications wait in the async store before being flushed to the underlying
+    * store, unless enough modifications to fill a batch arrive earlier. Zero means that modifications are flushed as
+    * soon as they are received. Longer intervals coalesce more updates, at the cost of more modifications being lost
+    * if the node crashes.
+    */
+   public AsyncStoreConfigurationBuilder flushInterval(long l) {
+      this.flushInterval = l;
+      return this;
+   }
+
+   /**
+    * Maximum time modifications wait in the async store before being flushed to the underlying store.
+    */
+   public AsyncStoreConfigurationBuilder flushInterval(long l, TimeUnit unit) {
+      return flushInterval(unit.toMillis(l));
+   }
+
    @Override
    public
    void validate() {
+      if (maxBatchSize < 0)
+         throw new ConfigurationException("maxBatchSize cannot be negative");
+      if (maxBatchBytes < 0)
+         throw new ConfigurationException("maxBatchBytes cannot be negative");
+      if (flushInterval < 0)
+         throw new ConfigurationException("flushInterval cannot be negative");
    }
 
    @Override
    public
    AsyncStoreConfiguration create() {
-      return new AsyncStoreConfiguration(enabled, flushLockTimeout, modificationQueueSize, shutdownTimeout, threadPoolSize);
+      return new AsyncStoreConfiguration(enabled, flushLockTimeout, modificationQueueSize, shutdownTimeout, threadPoolSize,
+            maxBatchSize, maxBatchBytes, flushInterval);
    }
 
    @Override
@@ -130,6 +178,9 @@ public AsyncStoreConfigurationBuilder read(AsyncStoreConfiguration template) {
       this.modificationQueueSize = template.modificationQueueSize();
       this.shutdownTimeout = template.shutdownTimeout();
       this.threadPoolSize = template.threadPoolSize();
+      this.maxBatchSize = template.maxBatchSize();
+      this.maxBatchBytes = template.maxBatchBytes();
+      this.flushInterval = template.flushInterval();
 
       return this;
    }
@@ -142,6 +193,9 @@ public String toString() {
             ", modificationQueueSize=" + modificationQueueSize +
             ", shutdownTimeout=" + shutdownTimeout +
             ", threadPoolSize=" + threadPoolSize +
+            ", maxBatchSize=" + maxBatchSize +
+            ", maxBatchBytes=" + maxBatchBytes +
+            ", flushInterval=" + flushInterval +
             '}';
    }
 
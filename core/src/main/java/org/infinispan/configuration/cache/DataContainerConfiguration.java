@@ -31,10 +31,15 @@
 public class DataContainerConfiguration extends AbstractTypedPropertiesConfiguration {
 
    private final DataContainer dataContainer;
+   private final boolean offHeap;
+   private final boolean segmented;
 
-   DataContainerConfiguration(DataContainer dataContainer, TypedProperties properties) {
+   DataContainerConfiguration(DataContainer dataContainer, boolean offHeap, boolean segmented,
+         TypedProperties properties) {
       super(properties);
       this.dataContainer = dataContainer;
+      this.offHeap = offHeap;
+      this.segmented = segmented;
    }
    
    /**
@@ -45,10 +50,28 @@ public DataContainer dataContainer() {
       return dataContainer;
    }
 
+   /**
+    * Whether keys and values are stored marshalled in off-heap memory. Only takes effect when no explicit
+    * {@link #dataContainer()} has been configured.
+    */
+   public boolean offHeap() {
+      return offHeap;
+   }
+
+   /**
+    * Whether the entries of distributed caches are grouped by hash segment. Only takes effect for unbounded,
+    * on-heap containers when no explicit {@link #dataContainer()} has been configured.
+    */
+   public boolean segmented() {
+      return segmented;
+   }
+
    @Override
    public String toString() {
       return "DataContainerConfiguration{" +
             "dataContainer=" + dataContainer +
+            ", offHeap=" + offHeap +
+            ", segmented=" + segmented +
             '}';
    }
 
@@ -59,6 +82,8 @@ public boolean equals(Object o) {
 
       DataContainerConfiguration that = (DataContainerConfiguration) o;
 
+      if (offHeap != that.offHeap) return false;
+      if (segmented != that.segmented) return false;
       if (dataContainer != null ? !dataContainer.equals(that.dataContainer) : that.dataContainer != null)
          return false;
 
@@ -67,7 +92,10 @@ public boolean equals(Object o) {
 
    @Override
    public int hashCode() {
-      return dataContainer != null ? dataContainer.hashCode() : 0;
+      int result = dataContainer != null ? dataContainer.hashCode() : 0;
+      result = 31 * result + (offHeap ? 1 : 0);
+      result = 31 * result + (segmented ? 1 : 0);
+      return result;
    }
 
 }
@@ -33,6 +33,8 @@ public class DataContainerConfigurationBuilder extends AbstractConfigurationChil
 
    // No default here. DataContainerFactory figures out default.
    private DataContainer dataContainer;
+   private boolean offHeap = false;
+   private boolean segmented = false;
    private Properties properties = new Properties();
 
    DataContainerConfigurationBuilder(ConfigurationBuilder builder) {
@@ -49,6 +51,36 @@ public DataContainerConfigurationBuilder dataContainer(DataContainer dataContain
       return this;
    }
 
+   /**
+    * Store marshalled keys and values in off-heap memory instead of as Java objects on the heap. This
+    * greatly reduces the number of objects the garbage collector has to trace for large caches, at the
+    * cost of marshalling on every write and unmarshalling on every read. Eviction and expiration settings
+    * are honoured as for the default container. Ignored if a custom {@link #dataContainer(DataContainer)}
+    * has been specified.
+    *
+    * @param offHeap whether to store entries off-heap
+    * @return this DataContainerConfigurationBuilder
+    */
+   public DataContainerConfigurationBuilder offHeap(boolean offHeap) {
+      this.offHeap = offHeap;
+      return this;
+   }
+
+   /**
+    * Group the entries of distributed caches by hash segment, so that state transfer and map/reduce only go
+    * through the segments involved rather than through the whole container. Keeping a map per segment costs
+    * some memory and slows down iteration over all the entries, so this is disabled by default. Only applies to
+    * unbounded, on-heap containers of distributed caches, and is ignored if a custom
+    * {@link #dataContainer(DataContainer)} has been specified.
+    *
+    * @param segmented whether to group entries by segment
+    * @return this DataContainerConfigurationBuilder
+    */
+   public DataContainerConfigurationBuilder segmented(boolean segmented) {
+      this.segmented = segmented;
+      return this;
+   }
+
    /**
     * Add key/value property pair to this data container configuration
     *
@@ -80,12 +112,15 @@ void validate() {
    @Override
    public
    DataContainerConfiguration create() {
-      return new DataContainerConfiguration(dataContainer, TypedProperties.toTypedProperties(properties));
+      return new DataContainerConfiguration(dataContainer, offHeap, segmented,
+            TypedProperties.toTypedProperties(properties));
    }
 
    @Override
    public DataContainerConfigurationBuilder read(DataContainerConfiguration template) {
       this.dataContainer = template.dataContainer();
+      this.offHeap = template.offHeap();
+      this.segmented = template.segmented();
       this.properties = template.properties();
 
       return this;
@@ -95,6 +130,8 @@ public DataContainerConfigurationBuilder read(DataContainerConfiguration templat
    public String toString() {
       return "DataContainerConfigurationBuilder{" +
             "dataContainer=" + dataContainer +
+            ", offHeap=" + offHeap +
+            ", segmented=" + segmented +
             ", properties=" + properties +
             '}';
    }
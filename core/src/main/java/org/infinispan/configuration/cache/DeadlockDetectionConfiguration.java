@@ -25,10 +25,12 @@ public class DeadlockDetectionConfiguration {
 
    private final boolean enabled;
    private final long spinDuration;
+   private final boolean waitForGraph;
    
-   DeadlockDetectionConfiguration(boolean enabled, long spinDuration) {
+   DeadlockDetectionConfiguration(boolean enabled, long spinDuration, boolean waitForGraph) {
       this.enabled = enabled;
       this.spinDuration = spinDuration;
+      this.waitForGraph = waitForGraph;
    }
    
    /**
@@ -46,11 +48,20 @@ public boolean enabled() {
       return enabled;
    }
 
+   /**
+    * Whether deadlocks are detected by looking for cycles in a cluster wide graph of the transactions waiting for
+    * locks, rather than by comparing the lock intentions of each pair of conflicting transactions
+    */
+   public boolean waitForGraph() {
+      return waitForGraph;
+   }
+
    @Override
    public String toString() {
       return "DeadlockDetectionConfiguration{" +
             "enabled=" + enabled +
             ", spinDuration=" + spinDuration +
+            ", waitForGraph=" + waitForGraph +
             '}';
    }
 
@@ -63,6 +74,7 @@ public boolean equals(Object o) {
 
       if (enabled != that.enabled) return false;
       if (spinDuration != that.spinDuration) return false;
+      if (waitForGraph != that.waitForGraph) return false;
 
       return true;
    }
@@ -71,6 +83,7 @@ public boolean equals(Object o) {
    public int hashCode() {
       int result = (enabled ? 1 : 0);
       result = 31 * result + (int) (spinDuration ^ (spinDuration >>> 32));
+      result = 31 * result + (waitForGraph ? 1 : 0);
       return result;
    }
 
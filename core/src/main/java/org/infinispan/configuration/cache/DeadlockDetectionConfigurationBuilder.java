@@ -27,6 +27,7 @@ public class DeadlockDetectionConfigurationBuilder extends AbstractConfiguration
 
    private boolean enabled = false;
    private long spinDuration = TimeUnit.MILLISECONDS.toMillis(100);
+   private boolean waitForGraph = false;
 
    DeadlockDetectionConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
@@ -73,6 +74,16 @@ public DeadlockDetectionConfigurationBuilder enabled(boolean enabled) {
       return this;
    }
 
+   /**
+    * Detect deadlocks by looking for cycles in a cluster wide graph of the transactions waiting for locks. The
+    * youngest transaction of each cycle is rolled back. Waiting transactions check for cycles every
+    * {@link #spinDuration(long)} milliseconds.
+    */
+   public DeadlockDetectionConfigurationBuilder waitForGraph(boolean waitForGraph) {
+      this.waitForGraph = waitForGraph;
+      return this;
+   }
+
    @Override
    public
    void validate() {
@@ -81,13 +92,14 @@ void validate() {
    @Override
    public
    DeadlockDetectionConfiguration create() {
-      return new DeadlockDetectionConfiguration(enabled, spinDuration);
+      return new DeadlockDetectionConfiguration(enabled, spinDuration, waitForGraph);
    }
 
    @Override
    public DeadlockDetectionConfigurationBuilder read(DeadlockDetectionConfiguration template) {
       this.enabled = template.enabled();
       this.spinDuration = template.spinDuration();
+      this.waitForGraph = template.waitForGraph();
 
       return this;
    }
@@ -97,6 +109,7 @@ public String toString() {
       return "DeadlockDetectionConfigurationBuilder{" +
             "enabled=" + enabled +
             ", spinDuration=" + spinDuration +
+            ", waitForGraph=" + waitForGraph +
             '}';
    }
 
@@ -27,11 +27,13 @@
 public class EvictionConfiguration {
    
    private final int maxEntries;
+   private final long maxMemory;
    private final EvictionStrategy strategy;
    private final EvictionThreadPolicy threadPolicy;
    
-   EvictionConfiguration(int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy threadPolicy) {
+   EvictionConfiguration(int maxEntries, long maxMemory, EvictionStrategy strategy, EvictionThreadPolicy threadPolicy) {
       this.maxEntries = maxEntries;
+      this.maxMemory = maxMemory;
       this.strategy = strategy;
       this.threadPolicy = threadPolicy;
    }
@@ -60,10 +62,20 @@ public int maxEntries() {
       return maxEntries;
    }
 
+   /**
+    * Maximum number of bytes the entries of a cache instance may take up in memory, as an alternative to
+    * {@link #maxEntries()} when value sizes vary widely. The memory taken by each entry is estimated when
+    * it is written. A value less than or equal to zero means eviction is driven by maxEntries instead.
+    */
+   public long maxMemory() {
+      return maxMemory;
+   }
+
    @Override
    public String toString() {
       return "EvictionConfiguration{" +
             "maxEntries=" + maxEntries +
+            ", maxMemory=" + maxMemory +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
             '}';
@@ -77,6 +89,7 @@ public boolean equals(Object o) {
       EvictionConfiguration that = (EvictionConfiguration) o;
 
       if (maxEntries != that.maxEntries) return false;
+      if (maxMemory != that.maxMemory) return false;
       if (strategy != that.strategy) return false;
       if (threadPolicy != that.threadPolicy) return false;
 
@@ -86,6 +99,7 @@ public boolean equals(Object o) {
    @Override
    public int hashCode() {
       int result = maxEntries;
+      result = 31 * result + (int) (maxMemory ^ (maxMemory >>> 32));
       result = 31 * result + (strategy != null ? strategy.hashCode() : 0);
       result = 31 * result + (threadPolicy != null ? threadPolicy.hashCode() : 0);
       return result;
@@ -32,6 +32,7 @@ public class EvictionConfigurationBuilder extends AbstractConfigurationChildBuil
    private static final Log log = LogFactory.getLog(EvictionConfigurationBuilder.class);
 
    private int maxEntries = -1;
+   private long maxMemory = -1;
    private EvictionStrategy strategy = EvictionStrategy.NONE;
    private EvictionThreadPolicy threadPolicy = EvictionThreadPolicy.DEFAULT;
 
@@ -73,28 +74,48 @@ public EvictionConfigurationBuilder maxEntries(int maxEntries) {
       return this;
    }
 
+   /**
+    * Maximum number of bytes the entries of a cache instance may take up in memory. Use this instead of
+    * {@link #maxEntries(int)} when value sizes vary widely. The memory taken by each entry is estimated
+    * when it is written, and entries are evicted according to the eviction strategy once the budget is
+    * exceeded.
+    *
+    * @param maxMemory
+    */
+   public EvictionConfigurationBuilder maxMemory(long maxMemory) {
+      this.maxMemory = maxMemory;
+      return this;
+   }
+
    @Override
    public void validate() {
       if (!strategy.isEnabled() && getBuilder().loaders().passivation())
          log.passivationWithoutEviction();
       if(strategy == EvictionStrategy.FIFO)
          log.warn("FIFO strategy is deprecated, LRU will be used instead");
-      if (strategy.isEnabled() && maxEntries <= 0)
+      if (maxEntries > 0 && maxMemory > 0)
+         throw new ConfigurationException("Eviction maxEntries and maxMemory cannot be both configured");
+      if (strategy.isEnabled() && maxEntries <= 0 && maxMemory <= 0)
          throw new ConfigurationException("Eviction maxEntries value cannot be less than or equal to zero if eviction is enabled");
       if (maxEntries > 0 && !strategy.isEnabled()) {
          strategy = EvictionStrategy.LIRS;
          log.debugf("Max entries configured (%d) without eviction strategy. Eviction strategy overriden to %s", maxEntries, strategy);
       }
+      if (maxMemory > 0 && !strategy.isEnabled()) {
+         strategy = EvictionStrategy.LIRS;
+         log.debugf("Max memory configured (%d) without eviction strategy. Eviction strategy overriden to %s", maxMemory, strategy);
+      }
    }
 
    @Override
    public EvictionConfiguration create() {
-      return new EvictionConfiguration(maxEntries, strategy, threadPolicy);
+      return new EvictionConfiguration(maxEntries, maxMemory, strategy, threadPolicy);
    }
 
    @Override
    public EvictionConfigurationBuilder read(EvictionConfiguration template) {
       this.maxEntries = template.maxEntries();
+      this.maxMemory = template.maxMemory();
       this.strategy = template.strategy();
       this.threadPolicy = template.threadPolicy();
 
@@ -105,6 +126,7 @@ public EvictionConfigurationBuilder read(EvictionConfiguration template) {
    public String toString() {
       return "EvictionConfigurationBuilder{" +
             "maxEntries=" + maxEntries +
+            ", maxMemory=" + maxMemory +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
             '}';
@@ -529,6 +529,9 @@ public static void adapt(ClassLoader cl, ConfigurationBuilder builder, CacheLoad
          storeBuilder.async().modificationQueueSize(csc.getAsyncStoreConfig().getModificationQueueSize());
          storeBuilder.async().shutdownTimeout(csc.getAsyncStoreConfig().getShutdownTimeout());
          storeBuilder.async().threadPoolSize(csc.getAsyncStoreConfig().getThreadPoolSize());
+         storeBuilder.async().maxBatchSize(csc.getAsyncStoreConfig().getMaxBatchSize());
+         storeBuilder.async().maxBatchBytes(csc.getAsyncStoreConfig().getMaxBatchBytes());
+         storeBuilder.async().flushInterval(csc.getAsyncStoreConfig().getFlushInterval());
          storeBuilder.singletonStore().enabled(csc.getSingletonStoreConfig().isSingletonStoreEnabled());
          storeBuilder.singletonStore().pushStateTimeout(csc.getSingletonStoreConfig().getPushStateTimeout());
          storeBuilder.singletonStore().pushStateWhenCoordinator(csc.getSingletonStoreConfig().isPushStateWhenCoordinator());
@@ -547,6 +550,9 @@ public static void adapt(StoreConfiguration config, CacheStoreConfig legacy) {
       legacy.getAsyncStoreConfig().modificationQueueSize(config.async().modificationQueueSize());
       legacy.getAsyncStoreConfig().shutdownTimeout(config.async().shutdownTimeout());
       legacy.getAsyncStoreConfig().threadPoolSize(config.async().threadPoolSize());
+      legacy.getAsyncStoreConfig().maxBatchSize(config.async().maxBatchSize());
+      legacy.getAsyncStoreConfig().maxBatchBytes(config.async().maxBatchBytes());
+      legacy.getAsyncStoreConfig().flushInterval(config.async().flushInterval());
       legacy.getSingletonStoreConfig().enabled(config.singletonStore().enabled());
       legacy.getSingletonStoreConfig().pushStateTimeout(config.singletonStore().pushStateTimeout());
       legacy.getSingletonStoreConfig().pushStateWhenCoordinator(config.singletonStore().pushStateWhenCoordinator());
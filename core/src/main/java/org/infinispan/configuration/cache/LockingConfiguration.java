@@ -33,14 +33,18 @@ public class LockingConfiguration {
    private long lockAcquisitionTimeout;
    private final boolean useLockStriping;
    private final boolean writeSkewCheck;
+   private final boolean lightweightLocks;
+   private final boolean lockElision;
 
    LockingConfiguration(int concurrencyLevel, IsolationLevel isolationLevel, long lockAcquisitionTimeout,
-         boolean useLockStriping, boolean writeSkewCheck) {
+         boolean useLockStriping, boolean writeSkewCheck, boolean lightweightLocks, boolean lockElision) {
       this.concurrencyLevel = concurrencyLevel;
       this.isolationLevel = isolationLevel;
       this.lockAcquisitionTimeout = lockAcquisitionTimeout;
       this.useLockStriping = useLockStriping;
       this.writeSkewCheck = writeSkewCheck;
+      this.lightweightLocks = lightweightLocks;
+      this.lockElision = lockElision;
    }
 
    /**
@@ -93,6 +97,25 @@ public boolean writeSkewCheck() {
       return writeSkewCheck;
    }
 
+   /**
+    * If true, locks are taken from a fixed pool of lightweight, compare-and-swap based locks shared
+    * by all entries, as with lock striping, so that no lock object is allocated per key and
+    * uncontended acquisitions never queue. Implies lock striping.
+    */
+   public boolean lightweightLocks() {
+      return lightweightLocks;
+   }
+
+   /**
+    * Only applicable to non-transactional caches without cache loaders. If true, unconditional
+    * single key writes do not acquire a lock, relying instead on the data container updating the
+    * entry atomically. Concurrent writes on the same key are then applied in an arbitrary order and
+    * the previous value they return may not reflect a concurrent write.
+    */
+   public boolean lockElision() {
+      return lockElision;
+   }
+
    @Override
    public String toString() {
       return "LockingConfiguration{" +
@@ -101,6 +124,8 @@ public String toString() {
             ", lockAcquisitionTimeout=" + lockAcquisitionTimeout +
             ", useLockStriping=" + useLockStriping +
             ", writeSkewCheck=" + writeSkewCheck +
+            ", lightweightLocks=" + lightweightLocks +
+            ", lockElision=" + lockElision +
             '}';
    }
 
@@ -115,6 +140,8 @@ public boolean equals(Object o) {
       if (lockAcquisitionTimeout != that.lockAcquisitionTimeout) return false;
       if (useLockStriping != that.useLockStriping) return false;
       if (writeSkewCheck != that.writeSkewCheck) return false;
+      if (lightweightLocks != that.lightweightLocks) return false;
+      if (lockElision != that.lockElision) return false;
       if (isolationLevel != that.isolationLevel) return false;
 
       return true;
@@ -127,6 +154,8 @@ public int hashCode() {
       result = 31 * result + (int) (lockAcquisitionTimeout ^ (lockAcquisitionTimeout >>> 32));
       result = 31 * result + (useLockStriping ? 1 : 0);
       result = 31 * result + (writeSkewCheck ? 1 : 0);
+      result = 31 * result + (lightweightLocks ? 1 : 0);
+      result = 31 * result + (lockElision ? 1 : 0);
       return result;
    }
 
@@ -37,6 +37,8 @@ public class LockingConfigurationBuilder extends AbstractConfigurationChildBuild
    private long lockAcquisitionTimeout = TimeUnit.SECONDS.toMillis(10);
    private boolean useLockStriping = false;
    boolean writeSkewCheck = false;
+   private boolean lightweightLocks = false;
+   private boolean lockElision = false;
 
    protected LockingConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
@@ -99,6 +101,27 @@ public LockingConfigurationBuilder writeSkewCheck(boolean b) {
       return this;
    }
 
+   /**
+    * If true, locks are taken from a fixed pool of lightweight, compare-and-swap based locks shared
+    * by all entries, as with lock striping, so that no lock object is allocated per key and
+    * uncontended acquisitions never queue. Implies lock striping.
+    */
+   public LockingConfigurationBuilder lightweightLocks(boolean b) {
+      this.lightweightLocks = b;
+      return this;
+   }
+
+   /**
+    * Only applicable to non-transactional caches without cache loaders. If true, unconditional
+    * single key writes do not acquire a lock, relying instead on the data container updating the
+    * entry atomically. Concurrent writes on the same key are then applied in an arbitrary order and
+    * the previous value they return may not reflect a concurrent write.
+    */
+   public LockingConfigurationBuilder lockElision(boolean b) {
+      this.lockElision = b;
+      return this;
+   }
+
    @Override
    public void validate() {
       if (writeSkewCheck) {
@@ -127,7 +150,8 @@ && clustering().cacheMode() != CacheMode.LOCAL)
 
    @Override
    public LockingConfiguration create() {
-      return new LockingConfiguration(concurrencyLevel, isolationLevel, lockAcquisitionTimeout, useLockStriping, writeSkewCheck);
+      return new LockingConfiguration(concurrencyLevel, isolationLevel, lockAcquisitionTimeout, useLockStriping,
+            writeSkewCheck, lightweightLocks, lockElision);
    }
 
    @Override
@@ -137,6 +161,8 @@ public LockingConfigurationBuilder read(LockingConfiguration template) {
       lockAcquisitionTimeout = template.lockAcquisitionTimeout();
       useLockStriping = template.useLockStriping();
       writeSkewCheck = template.writeSkewCheck();
+      lightweightLocks = template.lightweightLocks();
+      lockElision = template.lockElision();
 
       return this;
    }
@@ -149,6 +175,8 @@ public String toString() {
             ", lockAcquisitionTimeout=" + lockAcquisitionTimeout +
             ", useLockStriping=" + useLockStriping +
             ", writeSkewCheck=" + writeSkewCheck +
+            ", lightweightLocks=" + lightweightLocks +
+            ", lockElision=" + lockElision +
             '}';
    }
 
@@ -67,6 +67,11 @@ public ScheduledExecutorFactoryConfigurationBuilder replicationQueueScheduledExe
       return globalConfig.replicationQueueScheduledExecutor();
    }
 
+   @Override
+   public ExecutorFactoryConfigurationBuilder mapReduceExecutor() {
+      return globalConfig.mapReduceExecutor();
+   }
+
    @Override
    public ShutdownConfigurationBuilder shutdown() {
       return globalConfig.shutdown();
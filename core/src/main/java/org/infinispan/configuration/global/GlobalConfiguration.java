@@ -61,6 +61,7 @@ public class GlobalConfiguration {
    private final ExecutorFactoryConfiguration asyncTransportExecutor;
    private final ScheduledExecutorFactoryConfiguration evictionScheduledExecutor;
    private final ScheduledExecutorFactoryConfiguration replicationQueueScheduledExecutor;
+   private final ExecutorFactoryConfiguration mapReduceExecutor;
    private final GlobalJmxStatisticsConfiguration globalJmxStatistics;
    private final TransportConfiguration transport;
    private final SerializationConfiguration serialization;
@@ -71,13 +72,15 @@ public class GlobalConfiguration {
 
    GlobalConfiguration(ExecutorFactoryConfiguration asyncListenerExecutor,
          ExecutorFactoryConfiguration asyncTransportExecutor, ScheduledExecutorFactoryConfiguration evictionScheduledExecutor,
-         ScheduledExecutorFactoryConfiguration replicationQueueScheduledExecutor, GlobalJmxStatisticsConfiguration globalJmxStatistics,
+         ScheduledExecutorFactoryConfiguration replicationQueueScheduledExecutor, ExecutorFactoryConfiguration mapReduceExecutor,
+         GlobalJmxStatisticsConfiguration globalJmxStatistics,
          TransportConfiguration transport, SerializationConfiguration serialization, ShutdownConfiguration shutdown,
          List<?> modules, SitesConfiguration sites ,ClassLoader cl) {
       this.asyncListenerExecutor = asyncListenerExecutor;
       this.asyncTransportExecutor = asyncTransportExecutor;
       this.evictionScheduledExecutor = evictionScheduledExecutor;
       this.replicationQueueScheduledExecutor = replicationQueueScheduledExecutor;
+      this.mapReduceExecutor = mapReduceExecutor;
       this.globalJmxStatistics = globalJmxStatistics;
       this.transport = transport;
       this.serialization = serialization;
@@ -107,6 +110,13 @@ public ScheduledExecutorFactoryConfiguration replicationQueueScheduledExecutor()
       return replicationQueueScheduledExecutor;
    }
 
+   /**
+    * The executor service used to run the map and combine phases of MapReduce tasks in parallel on each node.
+    */
+   public ExecutorFactoryConfiguration mapReduceExecutor() {
+      return mapReduceExecutor;
+   }
+
    public GlobalJmxStatisticsConfiguration globalJmxStatistics() {
       return globalJmxStatistics;
    }
@@ -150,6 +160,7 @@ public String toString() {
             ", asyncTransportExecutor=" + asyncTransportExecutor +
             ", evictionScheduledExecutor=" + evictionScheduledExecutor +
             ", replicationQueueScheduledExecutor=" + replicationQueueScheduledExecutor +
+            ", mapReduceExecutor=" + mapReduceExecutor +
             ", globalJmxStatistics=" + globalJmxStatistics +
             ", transport=" + transport +
             ", serialization=" + serialization +
@@ -43,6 +43,7 @@ public class GlobalConfigurationBuilder implements GlobalConfigurationChildBuild
    private final ExecutorFactoryConfigurationBuilder asyncListenerExecutor;
    private final ScheduledExecutorFactoryConfigurationBuilder evictionScheduledExecutor;
    private final ScheduledExecutorFactoryConfigurationBuilder replicationQueueScheduledExecutor;
+   private final ExecutorFactoryConfigurationBuilder mapReduceExecutor;
    private final ShutdownConfigurationBuilder shutdown;
    private final List<Builder<?>> modules = new ArrayList<Builder<?>>();
    private final SitesConfigurationBuilder sites;
@@ -56,6 +57,7 @@ public GlobalConfigurationBuilder() {
       this.asyncTransportExecutor = new ExecutorFactoryConfigurationBuilder(this);
       this.evictionScheduledExecutor = new ScheduledExecutorFactoryConfigurationBuilder(this);
       this.replicationQueueScheduledExecutor = new ScheduledExecutorFactoryConfigurationBuilder(this);
+      this.mapReduceExecutor = new ExecutorFactoryConfigurationBuilder(this);
       this.shutdown = new ShutdownConfigurationBuilder(this);
       this.sites = new SitesConfigurationBuilder(this);
    }
@@ -135,6 +137,11 @@ public ScheduledExecutorFactoryConfigurationBuilder replicationQueueScheduledExe
       return replicationQueueScheduledExecutor;
    }
 
+   @Override
+   public ExecutorFactoryConfigurationBuilder mapReduceExecutor() {
+      return mapReduceExecutor;
+   }
+
    @Override
    public ShutdownConfigurationBuilder shutdown() {
       return shutdown;
@@ -168,7 +175,7 @@ public <T extends Builder<?>> T addModule(Class<T> klass) {
    @SuppressWarnings("unchecked")
    public void validate() {
       for (AbstractGlobalConfigurationBuilder<?> validatable : asList(asyncListenerExecutor, asyncTransportExecutor,
-            evictionScheduledExecutor, replicationQueueScheduledExecutor, globalJmxStatistics, transport,
+            evictionScheduledExecutor, replicationQueueScheduledExecutor, mapReduceExecutor, globalJmxStatistics, transport,
             serialization, shutdown, sites)) {
          validatable.validate();
       }
@@ -188,6 +195,7 @@ public GlobalConfiguration build() {
             asyncTransportExecutor.create(),
             evictionScheduledExecutor.create(),
             replicationQueueScheduledExecutor.create(),
+            mapReduceExecutor.create(),
             globalJmxStatistics.create(),
             transport.create(),
             serialization.create(),
@@ -212,6 +220,7 @@ public GlobalConfigurationBuilder read(GlobalConfiguration template) {
       evictionScheduledExecutor.read(template.evictionScheduledExecutor());
       globalJmxStatistics.read(template.globalJmxStatistics());
       replicationQueueScheduledExecutor.read(template.replicationQueueScheduledExecutor());
+      mapReduceExecutor.read(template.mapReduceExecutor());
       serialization.read(template.serialization());
       shutdown.read(template.shutdown());
       transport.read(template.transport());
@@ -241,6 +250,7 @@ public String toString() {
             ", asyncTransportExecutor=" + asyncTransportExecutor +
             ", evictionScheduledExecutor=" + evictionScheduledExecutor +
             ", replicationQueueScheduledExecutor=" + replicationQueueScheduledExecutor +
+            ", mapReduceExecutor=" + mapReduceExecutor +
             ", shutdown=" + shutdown +
             ", sites=" + sites +
             '}';
@@ -264,6 +274,8 @@ public boolean equals(Object o) {
          return false;
       if (replicationQueueScheduledExecutor != null ? !replicationQueueScheduledExecutor.equals(that.replicationQueueScheduledExecutor) : that.replicationQueueScheduledExecutor != null)
          return false;
+      if (mapReduceExecutor != null ? !mapReduceExecutor.equals(that.mapReduceExecutor) : that.mapReduceExecutor != null)
+         return false;
       if (serialization != null ? !serialization.equals(that.serialization) : that.serialization != null)
          return false;
       if (shutdown != null ? !shutdown.equals(that.shutdown) : that.shutdown != null)
@@ -286,6 +298,7 @@ public int hashCode() {
       result = 31 * result + (asyncListenerExecutor != null ? asyncListenerExecutor.hashCode() : 0);
       result = 31 * result + (evictionScheduledExecutor != null ? evictionScheduledExecutor.hashCode() : 0);
       result = 31 * result + (replicationQueueScheduledExecutor != null ? replicationQueueScheduledExecutor.hashCode() : 0);
+      result = 31 * result + (mapReduceExecutor != null ? mapReduceExecutor.hashCode() : 0);
       result = 31 * result + (shutdown != null ? shutdown.hashCode() : 0);
       result = 31 * result + (sites != null ? sites.hashCode() : 0);
       return result;
@@ -33,6 +33,8 @@ public interface GlobalConfigurationChildBuilder {
 
    ScheduledExecutorFactoryConfigurationBuilder replicationQueueScheduledExecutor();
 
+   ExecutorFactoryConfigurationBuilder mapReduceExecutor();
+
    ShutdownConfigurationBuilder shutdown();
 
    SitesConfigurationBuilder sites();
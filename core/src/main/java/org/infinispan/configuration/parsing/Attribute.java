@@ -53,6 +53,7 @@ public enum Attribute {
     FACTORY("factory"),
     FETCH_IN_MEMORY_STATE("fetchInMemoryState"),
     FETCH_PERSISTENT_STATE("fetchPersistentState"),
+    FLUSH_INTERVAL("flushInterval"),
     FLUSH_LOCK_TIMEOUT("flushLockTimeout"),
     FSYNC_INTERVAL("fsyncInterval"),
     FSYNC_MODE("fsyncMode"),
@@ -68,15 +69,20 @@ public enum Attribute {
     ISOLATION_LEVEL("isolationLevel"),
     JMX_DOMAIN("jmxDomain"),
     LIFESPAN("lifespan"),
+    LIGHTWEIGHT_LOCKS("lightweightLocks"),
     LOCATION("location"),
     INVALIDATION_CLEANUP_TASK_FREQUENCY("cleanupTaskFrequency"),
     LOCK_ACQUISITION_TIMEOUT("lockAcquisitionTimeout"),
+    LOCK_ELISION("lockElision"),
     LOCKING_MODE("lockingMode"),
     LOG_FLUSH_TIMEOUT("logFlushTimeout"),
     MACHINE_ID("machineId"),
     MARSHALLER_CLASS("marshallerClass"),
+    MAX_BATCH_BYTES("maxBatchBytes"),
+    MAX_BATCH_SIZE("maxBatchSize"),
     MAX_ENTRIES("maxEntries"),
     MAX_IDLE("maxIdle"),
+    MAX_MEMORY("maxMemory"),
     MAX_NON_PROGRESSING_LOG_WRITES("maxProgressingLogWrites"),
     MBEAN_SERVER_LOOKUP("mBeanServerLookup"),
     MODE("mode"),
@@ -87,6 +93,7 @@ public enum Attribute {
     NUM_SEGMENTS("numSegments"),
     NUM_RETRIES("numRetries"),
     NUM_VIRTUAL_NODES("numVirtualNodes"),
+    OFF_HEAP("offHeap"),
     ON_REHASH("onRehash"),
     PASSIVATION("passivation"),
     POSITION("position"),
@@ -105,9 +112,11 @@ public enum Attribute {
     REMOTE_CALL_TIMEOUT("remoteCallTimeout"),
     REPL_QUEUE_INTERVAL("replQueueInterval"),
     REPL_QUEUE_CLASS("replQueueClass"),
+    REPL_QUEUE_MAX_BYTES("replQueueMaxBytes"),
     REPL_QUEUE_MAX_ELEMENTS("replQueueMaxElements"),
     REPL_TIMEOUT("replTimeout"),
     RETRY_WAIT_TIME_INCREASE_FACTOR("retryWaitTimeIncreaseFactor"),
+    SEGMENTED("segmented"),
     SHARED("shared"),
     SHUTDOWN_TIMEOUT("shutdownTimeout"),
     SITE_ID("siteId"),
@@ -132,6 +141,7 @@ public enum Attribute {
     USE_SYNCHRONIZAION("useSynchronization"),
     VALUE("value"),
     VERSION("version"),
+    WAIT_FOR_GRAPH("waitForGraph"),
     WAKE_UP_INTERVAL("wakeUpInterval"),
     WRITE_SKEW_CHECK("writeSkewCheck"),
     USE_1PC_FOR_AUTOCOMMIT_TX("use1PcForAutoCommitTransactions"),
@@ -64,6 +64,7 @@ public enum Element {
     LOADER("loader"),
     LOADERS("loaders"),
     LOCKING("locking"),
+    MAP_REDUCE_EXECUTOR("mapReduceExecutor"),
     MODULES("modules"),
     NAMED_CACHE("namedCache"),
     PROPERTIES("properties"),
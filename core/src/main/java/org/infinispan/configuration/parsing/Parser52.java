@@ -535,6 +535,12 @@ private void parseLocking(final XMLExtendedStreamReader reader, final Configurat
             case LOCK_ACQUISITION_TIMEOUT:
                builder.locking().lockAcquisitionTimeout(Long.parseLong(value));
                break;
+            case LIGHTWEIGHT_LOCKS:
+               builder.locking().lightweightLocks(Boolean.parseBoolean(value));
+               break;
+            case LOCK_ELISION:
+               builder.locking().lockElision(Boolean.parseBoolean(value));
+               break;
             case USE_LOCK_STRIPING:
                builder.locking().useLockStriping(Boolean.parseBoolean(value));
                break;
@@ -937,6 +943,15 @@ public static void parseAsyncStore(final XMLExtendedStreamReader reader, final S
             case THREAD_POOL_SIZE:
                storeBuilder.async().threadPoolSize(Integer.parseInt(value));
                break;
+            case MAX_BATCH_SIZE:
+               storeBuilder.async().maxBatchSize(Integer.parseInt(value));
+               break;
+            case MAX_BATCH_BYTES:
+               storeBuilder.async().maxBatchBytes(Long.parseLong(value));
+               break;
+            case FLUSH_INTERVAL:
+               storeBuilder.async().flushInterval(Long.parseLong(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -1073,6 +1088,9 @@ private void parseEviction(final XMLExtendedStreamReader reader, final Configura
             case MAX_ENTRIES:
                builder.eviction().maxEntries(Integer.parseInt(value));
                break;
+            case MAX_MEMORY:
+               builder.eviction().maxMemory(Long.parseLong(value));
+               break;
             case STRATEGY:
                builder.eviction().strategy(EvictionStrategy.valueOf(value));
                break;
@@ -1105,6 +1123,9 @@ private void parseDeadlockDetection(final XMLExtendedStreamReader reader, final
             case SPIN_DURATION:
                builder.deadlockDetection().spinDuration(Long.parseLong(value));
                break;
+            case WAIT_FOR_GRAPH:
+               builder.deadlockDetection().waitForGraph(Boolean.parseBoolean(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -1124,6 +1145,12 @@ private void parseDataContainer(final XMLExtendedStreamReader reader, final Conf
             case CLASS:
                builder.dataContainer().dataContainer(Util.<DataContainer>getInstance(value, holder.getClassLoader()));
                break;
+            case OFF_HEAP:
+               builder.dataContainer().offHeap(Boolean.parseBoolean(value));
+               break;
+            case SEGMENTED:
+               builder.dataContainer().segmented(Boolean.parseBoolean(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -1462,6 +1489,9 @@ private void parseAsync(final XMLExtendedStreamReader reader, final Configuratio
             case REPL_QUEUE_MAX_ELEMENTS:
                builder.clustering().async().replQueueMaxElements(Integer.parseInt(value));
                break;
+            case REPL_QUEUE_MAX_BYTES:
+               builder.clustering().async().replQueueMaxBytes(Long.parseLong(value));
+               break;
             case USE_REPL_QUEUE:
                builder.clustering().async().useReplQueue(Boolean.parseBoolean(value));
                break;
@@ -1497,6 +1527,10 @@ private void parseGlobal(final XMLExtendedStreamReader reader, final Configurati
                parseGlobalJMXStatistics(reader, holder);
                break;
             }
+            case MAP_REDUCE_EXECUTOR: {
+               parseMapReduceExecutor(reader, holder);
+               break;
+            }
             case MODULES: {
                parseModules(reader, holder);
                break;
@@ -1821,6 +1855,38 @@ private void parseEvictionScheduledExecutor(final XMLExtendedStreamReader reader
       }
    }
 
+   private void parseMapReduceExecutor(final XMLExtendedStreamReader reader, final ConfigurationBuilderHolder holder)
+         throws XMLStreamException {
+      GlobalConfigurationBuilder builder = holder.getGlobalConfigurationBuilder();
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+         ParseUtils.requireNoNamespaceAttribute(reader, i);
+         String value = replaceProperties(reader.getAttributeValue(i));
+         Attribute attribute = Attribute.forName(reader.getAttributeLocalName(i));
+         switch (attribute) {
+            case FACTORY: {
+               builder.mapReduceExecutor().factory(Util.<ExecutorFactory> getInstance(value, holder.getClassLoader()));
+               break;
+            }
+            default: {
+               throw ParseUtils.unexpectedAttribute(reader, i);
+            }
+         }
+      }
+
+      while (reader.hasNext() && (reader.nextTag() != XMLStreamConstants.END_ELEMENT)) {
+         Element element = Element.forName(reader.getLocalName());
+         switch (element) {
+            case PROPERTIES: {
+               builder.mapReduceExecutor().withProperties(parseProperties(reader));
+               break;
+            }
+            default: {
+               throw ParseUtils.unexpectedElement(reader);
+            }
+         }
+      }
+   }
+
    private void parseAsyncTransportExecutor(final XMLExtendedStreamReader reader, final ConfigurationBuilderHolder holder)
          throws XMLStreamException {
       GlobalConfigurationBuilder builder = holder.getGlobalConfigurationBuilder();
@@ -24,6 +24,7 @@
 
 import net.jcip.annotations.ThreadSafe;
 import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.container.ExpirationIndex.ExpirationHandler;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.entries.InternalNullEntry;
 import org.infinispan.container.versioning.EntryVersion;
@@ -37,6 +38,7 @@
 import org.infinispan.loaders.decorators.AsyncStore;
 import org.infinispan.util.Immutables;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
 import org.infinispan.util.concurrent.ConcurrentMapFactory;
@@ -67,6 +69,21 @@ public class DefaultDataContainer implements DataContainer {
    final protected ConcurrentMap<Object, InternalCacheEntry> entries;
    protected InternalEntryFactory entryFactory;
    final protected DefaultEvictionListener evictionListener;
+   protected final ExpirationIndex expirationIndex = new ExpirationIndex();
+   private final ExpirationHandler expirationHandler = new ExpirationHandler() {
+      @Override
+      public long purgeIfExpired(Object key, long now) {
+         InternalCacheEntry e = entries.get(key);
+         // the markers of removals in flight to an async store are purged separately
+         if (e instanceof InternalNullEntry) return ExpirationIndex.NOT_EXPIRABLE;
+         if (e != null && e.canExpire() && e.isExpired(now)) {
+            if (entries.remove(key, e)) return ExpirationIndex.PURGED;
+            // replaced concurrently, so check the new entry instead
+            e = entries.get(key);
+         }
+         return e == null || e instanceof InternalNullEntry || !e.canExpire() ? ExpirationIndex.NOT_EXPIRABLE : e.getExpiryTime();
+      }
+   };
    private EvictionManager evictionManager;
    private PassivationManager passivator;
    private boolean isAsyncStore;
@@ -79,31 +96,50 @@ public DefaultDataContainer(int concurrencyLevel) {
       evictionListener = null;
    }
 
+   /**
+    * Creates an unbounded container storing its entries in the given map.
+    */
+   protected DefaultDataContainer(ConcurrentMap<Object, InternalCacheEntry> entries) {
+      this.entries = entries;
+      evictionListener = null;
+   }
+
    protected DefaultDataContainer(int concurrencyLevel, int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy policy) {
+      // translate eviction policy and strategy
+      evictionListener = createEvictionListener(policy);
+      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxEntries, concurrencyLevel,
+            translateStrategy(strategy), evictionListener);
+   }
+
+   protected DefaultDataContainer(int concurrencyLevel, long maxMemory, EvictionStrategy strategy, EvictionThreadPolicy policy,
+         EntrySizeCalculator<Object, InternalCacheEntry> sizeCalculator) {
+      evictionListener = createEvictionListener(policy);
+      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxMemory, concurrencyLevel,
+            translateStrategy(strategy), evictionListener, sizeCalculator);
+   }
+
+   private DefaultEvictionListener createEvictionListener(EvictionThreadPolicy policy) {
       // translate eviction policy and strategy
       switch (policy) {
          case PIGGYBACK:
          case DEFAULT:
-            evictionListener = new DefaultEvictionListener();
-            break;
+            return new DefaultEvictionListener();
          default:
-            throw new IllegalArgumentException("No such eviction thread policy " + strategy);
+            throw new IllegalArgumentException("No such eviction thread policy " + policy);
       }
+   }
 
-      Eviction eviction;
+   private static Eviction translateStrategy(EvictionStrategy strategy) {
       switch (strategy) {
          case FIFO:
          case UNORDERED:
          case LRU:
-            eviction = Eviction.LRU;
-            break;
+            return Eviction.LRU;
          case LIRS:
-            eviction = Eviction.LIRS;
-            break;
+            return Eviction.LIRS;
          default:
             throw new IllegalArgumentException("No such eviction strategy " + strategy);
       }
-      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxEntries, concurrencyLevel, eviction, evictionListener);
    }
 
    @Inject
@@ -128,10 +164,25 @@ public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEn
       return new DefaultDataContainer(concurrencyLevel, maxEntries, strategy, policy);
    }
 
+   /**
+    * Creates a container which evicts entries once the estimated memory taken by the entries exceeds maxMemory bytes.
+    */
+   public static DataContainer memoryBoundedDataContainer(int concurrencyLevel, long maxMemory,
+            EvictionStrategy strategy, EvictionThreadPolicy policy, EntrySizeCalculator<Object, InternalCacheEntry> sizeCalculator) {
+      return new DefaultDataContainer(concurrencyLevel, maxMemory, strategy, policy, sizeCalculator);
+   }
+
    public static DataContainer unBoundedDataContainer(int concurrencyLevel) {
       return new DefaultDataContainer(concurrencyLevel);
    }
 
+   /**
+    * @return the estimated number of bytes taken up by the entries, or 0 if the container is not bounded by memory
+    */
+   public long getMemoryUsed() {
+      return entries instanceof BoundedConcurrentHashMap ? ((BoundedConcurrentHashMap<?, ?>) entries).memoryUsed() : 0;
+   }
+
    @Override
    public InternalCacheEntry peek(Object key) {
       InternalCacheEntry entry = entries.get(key);
@@ -177,6 +228,7 @@ public void put(Object k, Object v, EntryVersion version, long lifespan, long ma
          e = entryFactory.create(k, v, version, lifespan, maxIdle);
       }
       entries.put(k, e);
+      if (e.canExpire()) expirationIndex.register(k, e.getExpiryTime());
    }
 
    @Override
@@ -208,6 +260,7 @@ public int size() {
    @Override
    public void clear() {
       entries.clear();
+      expirationIndex.clear();
    }
 
    @Override
@@ -227,23 +280,25 @@ public Set<InternalCacheEntry> entrySet() {
 
    @Override
    public void purgeExpired() {
-      long currentTimeMillis = System.currentTimeMillis();
+      expirationIndex.purge(System.currentTimeMillis(), expirationHandler);
+      if (!isAsyncStore) return;
+
+      // only the markers of removals in flight to an async store are not tracked by the index
       for (Iterator<InternalCacheEntry> purgeCandidates = entries.values().iterator(); purgeCandidates.hasNext();) {
          InternalCacheEntry e = purgeCandidates.next();
-         if (isAsyncStore && e instanceof InternalNullEntry) {
-            InternalNullEntry nullEntry = (InternalNullEntry) e;
-            if (nullEntry.isExpired(asyncStore.getAsyncProcessorId())) {
-               purgeCandidates.remove();
-               continue;
-            }
-         }
-
-         if (e.isExpired(currentTimeMillis)) {
+         if (e instanceof InternalNullEntry && e.isExpired(asyncStore.getAsyncProcessorId())) {
             purgeCandidates.remove();
          }
       }
    }
 
+   /**
+    * @return the index of the entries that can expire
+    */
+   public ExpirationIndex getExpirationIndex() {
+      return expirationIndex;
+   }
+
    private boolean isKeyFlushedToStore(Object key) {
       return !isAsyncStore || (isAsyncStore && !asyncStore.isLocked(key));
    }
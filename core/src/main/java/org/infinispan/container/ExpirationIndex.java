@@ -0,0 +1,301 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the keys of entries that can expire by their expiry time, so that purging expired entries only needs to
+ * look at the entries that are due instead of scanning the whole data container.
+ * <p/>
+ * The index is a hierarchical timing wheel with {@link #LEVELS} levels of {@link #SLOTS} slots each. A slot of the
+ * first level covers one tick, a slot of each following level covers a whole revolution of the level below it, and
+ * the slots of a higher level are cascaded into the lower levels as time advances. Expiry times beyond the range of
+ * the wheel are kept in an overflow list, which is rescheduled whenever a slot of the top level is cascaded, so that
+ * they enter the wheel as soon as it covers them.
+ * <p/>
+ * Registrations are validated lazily: removing or updating an entry does not touch the index, instead the
+ * {@link ExpirationHandler} is asked to check the entry when its slot comes due, and either purges it, reports that
+ * it no longer exists, or returns its new expiry time (e.g. after a transient entry was accessed) so it is
+ * rescheduled. Only the earliest registration of each key is kept, a later expiry time is picked up by the
+ * rescheduling.
+ * <p/>
+ * Registering is lock free and may be done by any thread, purging is serialized.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class ExpirationIndex {
+
+   /**
+    * Returned by an {@link ExpirationHandler} when the entry was expired and has been removed.
+    */
+   public static final long PURGED = 0;
+
+   /**
+    * Returned by an {@link ExpirationHandler} when the entry no longer exists or can no longer expire.
+    */
+   public static final long NOT_EXPIRABLE = -1;
+
+   /**
+    * Checks the entry of a key whose expiry time has passed.
+    */
+   public interface ExpirationHandler {
+      /**
+       * Removes the entry mapped to the given key if it has expired.
+       *
+       * @return {@link #PURGED} if the entry was removed, {@link #NOT_EXPIRABLE} if there is no such entry or it can
+       *         no longer expire, and the entry's current expiry time otherwise
+       */
+      long purgeIfExpired(Object key, long now);
+   }
+
+   static final int LEVELS = 4;
+   static final int SLOT_BITS = 6;
+   static final int SLOTS = 1 << SLOT_BITS;
+   static final int SLOT_MASK = SLOTS - 1;
+   static final long DEFAULT_TICK = 100;
+
+   private final long tick;
+
+   /**
+    * The earliest registered expiry time of each key.
+    */
+   private final ConcurrentMap<Object, Long> scheduled = ConcurrentMapFactory.makeConcurrentMap();
+
+   /**
+    * Registrations not yet added to the wheel, only the purging thread works on the wheel itself.
+    */
+   private final Queue<Node> pending = new ConcurrentLinkedQueue<Node>();
+
+   // guarded by this
+   private final List<Node>[][] wheel;
+   private final List<Node> due = new ArrayList<Node>();
+   private final List<Node> overflow = new ArrayList<Node>();
+   private long currentTick;
+
+   private final AtomicLong purged = new AtomicLong();
+   private final AtomicLong totalPurgeLag = new AtomicLong();
+   private volatile long maxPurgeLag;
+
+   public ExpirationIndex() {
+      this(DEFAULT_TICK);
+   }
+
+   @SuppressWarnings("unchecked")
+   public ExpirationIndex(long tick) {
+      if (tick <= 0) throw new IllegalArgumentException("The tick must be positive");
+      this.tick = tick;
+      this.wheel = new List[LEVELS][SLOTS];
+      this.currentTick = System.currentTimeMillis() / tick;
+   }
+
+   /**
+    * Tracks the key of an entry expiring at the given time.
+    */
+   public void register(Object key, long expiryTime) {
+      Long previous = scheduled.get(key);
+      while (true) {
+         if (previous == null) {
+            previous = scheduled.putIfAbsent(key, expiryTime);
+            if (previous == null) break;
+         } else if (previous <= expiryTime) {
+            // the earlier registration will find out about the new expiry time when it comes due
+            return;
+         } else if (scheduled.replace(key, previous, expiryTime)) {
+            break;
+         } else {
+            previous = scheduled.get(key);
+         }
+      }
+      pending.add(new Node(key, expiryTime));
+   }
+
+   /**
+    * @return the number of keys currently tracked
+    */
+   public int size() {
+      return scheduled.size();
+   }
+
+   /**
+    * Removes all the expired entries the index knows about.
+    */
+   public synchronized void purge(long now, ExpirationHandler handler) {
+      for (Node node = pending.poll(); node != null; node = pending.poll()) {
+         schedule(node);
+      }
+
+      long nowTick = now / tick;
+      while (currentTick < nowTick) {
+         List<Node> slot = wheel[0][(int) (currentTick & SLOT_MASK)];
+         if (slot != null && !slot.isEmpty()) {
+            due.addAll(slot);
+            slot.clear();
+         }
+         currentTick++;
+         // entering a new revolution of a level cascades the corresponding slot of the level above
+         for (int level = 1; level < LEVELS && (currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0; level++) {
+            List<Node> cascaded = wheel[level][(int) ((currentTick >>> (level * SLOT_BITS)) & SLOT_MASK)];
+            if (cascaded != null && !cascaded.isEmpty()) {
+               List<Node> nodes = new ArrayList<Node>(cascaded);
+               cascaded.clear();
+               for (Node n : nodes) schedule(n);
+            }
+         }
+         if ((currentTick & ((1L << ((LEVELS - 1) * SLOT_BITS)) - 1)) == 0 && !overflow.isEmpty()) {
+            List<Node> nodes = new ArrayList<Node>(overflow);
+            overflow.clear();
+            for (Node n : nodes) schedule(n);
+         }
+      }
+
+      List<Node> toCheck = new ArrayList<Node>(due);
+      due.clear();
+      for (Node node : toCheck) fire(node, now, handler);
+
+      // the slot of the current tick is only partially over, so only check the entries that are due already
+      List<Node> current = wheel[0][(int) (currentTick & SLOT_MASK)];
+      if (current != null && !current.isEmpty()) {
+         List<Node> remaining = new ArrayList<Node>(current.size());
+         for (Node node : current) {
+            if (node.expiryTime < now) {
+               fire(node, now, handler);
+            } else {
+               remaining.add(node);
+            }
+         }
+         current.clear();
+         current.addAll(remaining);
+      }
+   }
+
+   /**
+    * Forgets about all the tracked keys.
+    */
+   public synchronized void clear() {
+      pending.clear();
+      scheduled.clear();
+      due.clear();
+      overflow.clear();
+      for (List<Node>[] level : wheel) {
+         for (List<Node> slot : level) {
+            if (slot != null) slot.clear();
+         }
+      }
+   }
+
+   /**
+    * @return the number of expired entries purged through the index
+    */
+   public long getPurgedCount() {
+      return purged.get();
+   }
+
+   /**
+    * @return the average time in milliseconds between the expiry of an entry and its removal
+    */
+   public long getAveragePurgeLag() {
+      long count = purged.get();
+      return count == 0 ? 0 : totalPurgeLag.get() / count;
+   }
+
+   /**
+    * @return the maximum time in milliseconds between the expiry of an entry and its removal
+    */
+   public long getMaxPurgeLag() {
+      return maxPurgeLag;
+   }
+
+   public void resetStatistics() {
+      purged.set(0);
+      totalPurgeLag.set(0);
+      maxPurgeLag = 0;
+   }
+
+   private void fire(Node node, long now, ExpirationHandler handler) {
+      Long registered = scheduled.get(node.key);
+      if (registered == null || registered != node.expiryTime) {
+         // superseded by an earlier registration, or the key was cleared
+         return;
+      }
+      scheduled.remove(node.key, registered);
+      long result = handler.purgeIfExpired(node.key, now);
+      if (result == PURGED) {
+         long lag = Math.max(0, now - node.expiryTime);
+         purged.incrementAndGet();
+         totalPurgeLag.addAndGet(lag);
+         if (lag > maxPurgeLag) maxPurgeLag = lag;
+      } else if (result != NOT_EXPIRABLE) {
+         // still alive, e.g. a transient entry that was accessed meanwhile
+         register(node.key, result);
+      }
+   }
+
+   /**
+    * Adds the node to the level of the wheel whose slots span the distance to its expiry time.
+    */
+   private void schedule(Node node) {
+      long expiryTick = node.expiryTime / tick;
+      if (expiryTick < currentTick) {
+         due.add(node);
+         return;
+      }
+      for (int level = 0; level < LEVELS; level++) {
+         int shift = (level + 1) * SLOT_BITS;
+         if (expiryTick >>> shift == currentTick >>> shift) {
+            addToSlot(level, (int) ((expiryTick >>> (level * SLOT_BITS)) & SLOT_MASK), node);
+            return;
+         }
+      }
+      // beyond the range of the wheel, keep it aside until the wheel reaches its block
+      overflow.add(node);
+   }
+
+   private void addToSlot(int level, int index, Node node) {
+      List<Node> slot = wheel[level][index];
+      if (slot == null) {
+         slot = new ArrayList<Node>();
+         wheel[level][index] = slot;
+      }
+      slot.add(node);
+   }
+
+   private static final class Node {
+      final Object key;
+      final long expiryTime;
+
+      Node(Object key, long expiryTime) {
+         this.key = key;
+         this.expiryTime = expiryTime;
+      }
+   }
+}
@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.marshall.MarshalledValue;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+/**
+ * Estimates the memory taken by an {@link InternalCacheEntry} for data containers bounded by memory.
+ * <p/>
+ * Arrays, strings, boxed primitives and already serialized {@link MarshalledValue}s are sized directly. Any other
+ * key or value is sized by the length of its marshalled form, which is exact enough for eviction purposes but costs
+ * a marshalling operation per write, so enabling storeAsBinary is recommended for memory bounded caches holding
+ * arbitrary objects.
+ *
+ * @since 5.2
+ */
+public class InternalCacheEntrySizeCalculator implements EntrySizeCalculator<Object, InternalCacheEntry> {
+
+   private static final Log log = LogFactory.getLog(InternalCacheEntrySizeCalculator.class);
+
+   /**
+    * Rough footprint of the map entry, the internal cache entry and its cache value.
+    */
+   static final int ENTRY_OVERHEAD = 96;
+   static final int OBJECT_HEADER = 16;
+   /**
+    * Used for objects that cannot be marshalled.
+    */
+   static final int DEFAULT_OBJECT_SIZE = 256;
+
+   private final ComponentRegistry componentRegistry;
+   private volatile StreamingMarshaller marshaller;
+
+   public InternalCacheEntrySizeCalculator(StreamingMarshaller marshaller) {
+      this.componentRegistry = null;
+      this.marshaller = marshaller;
+   }
+
+   /**
+    * The data container is created before the cache marshaller is wired, so the marshaller is looked up on first use.
+    */
+   public InternalCacheEntrySizeCalculator(ComponentRegistry componentRegistry) {
+      this.componentRegistry = componentRegistry;
+   }
+
+   @Override
+   public long calculateSize(Object key, InternalCacheEntry entry) {
+      return ENTRY_OVERHEAD + sizeOf(key) + (entry == null ? 0 : sizeOf(entry.getValue()));
+   }
+
+   /**
+    * @return the estimated memory taken by a single key or value
+    */
+   public long sizeOf(Object o) {
+      if (o == null) return 0;
+      if (o instanceof byte[]) return OBJECT_HEADER + ((byte[]) o).length;
+      if (o instanceof String) return 2 * OBJECT_HEADER + 2 * ((String) o).length();
+      if (o instanceof Long || o instanceof Double) return OBJECT_HEADER + 8;
+      if (o instanceof Number || o instanceof Boolean || o instanceof Character) return OBJECT_HEADER + 4;
+      if (o instanceof MarshalledValue) return 2 * OBJECT_HEADER + ((MarshalledValue) o).getRaw().size();
+      StreamingMarshaller marshaller = marshaller();
+      if (marshaller == null) return DEFAULT_OBJECT_SIZE;
+      try {
+         return OBJECT_HEADER + marshaller.objectToBuffer(o).getLength();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return DEFAULT_OBJECT_SIZE;
+      } catch (Exception e) {
+         if (log.isTraceEnabled()) log.tracef(e, "Unable to marshall %s to estimate its size", o);
+         return DEFAULT_OBJECT_SIZE;
+      }
+   }
+
+   private StreamingMarshaller marshaller() {
+      StreamingMarshaller m = marshaller;
+      if (m == null && componentRegistry != null) {
+         m = componentRegistry.getCacheMarshaller();
+         marshaller = m;
+      }
+      return m;
+   }
+}
@@ -0,0 +1,1029 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.CacheException;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.container.ExpirationIndex.ExpirationHandler;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalNullEntry;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.PassivationManager;
+import org.infinispan.factories.annotations.ComponentName;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
+import org.infinispan.factories.annotations.Stop;
+import org.infinispan.io.ByteBuffer;
+import org.infinispan.loaders.CacheLoaderManager;
+import org.infinispan.loaders.decorators.AsyncStore;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Immutables;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
+
+/**
+ * A {@link DataContainer} which keeps marshalled keys and values outside of the Java heap.
+ * <p/>
+ * Entries are split into segments, each guarded by its own lock. Every segment owns an off-heap hash index (an
+ * open array of bucket heads) and stores each entry in a single natively allocated block holding the entry
+ * metadata, the marshalled key, the marshalled value and the marshalled version. Since the only Java objects kept
+ * per entry are the ones materialized on demand for readers, the garbage collector no longer has to trace millions
+ * of {@link InternalCacheEntry} instances for large caches.
+ * <p/>
+ * When bounded, each segment keeps an off-heap access-ordered list of its entries and evicts from its head, i.e.
+ * both {@link EvictionStrategy#LRU} and {@link EvictionStrategy#LIRS} are approximated with LRU ordering. Evicted
+ * entries are passivated and reported to the {@link EvictionManager} exactly as with the {@link DefaultDataContainer}.
+ * The container can be bounded either by number of entries or by the native memory taken up by the entries.
+ * <p/>
+ * Entries returned by this container are copies, materialized from the native block on every read, so changes made
+ * to them are not reflected in the container unless they are {@link #put(Object, Object, EntryVersion, long, long)}
+ * back, and they do not see later changes either: an entry read before a {@link #get(Object)} keeps its old last
+ * used time, only the entry returned by that get carries the new one.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class OffHeapDataContainer implements DataContainer {
+
+   private static final Log log = LogFactory.getLog(OffHeapDataContainer.class);
+
+   private static final sun.misc.Unsafe UNSAFE = getUnsafe();
+   private static final long BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+
+   // Layout of a native entry block
+   private static final int NEXT_OFFSET = 0;
+   private static final int LRU_PREV_OFFSET = 8;
+   private static final int LRU_NEXT_OFFSET = 16;
+   private static final int CREATED_OFFSET = 24;
+   private static final int LAST_USED_OFFSET = 32;
+   private static final int LIFESPAN_OFFSET = 40;
+   private static final int MAX_IDLE_OFFSET = 48;
+   private static final int HASH_OFFSET = 56;
+   private static final int KEY_LENGTH_OFFSET = 60;
+   private static final int VALUE_LENGTH_OFFSET = 64;
+   private static final int VERSION_LENGTH_OFFSET = 68;
+   private static final int FLAGS_OFFSET = 72;
+   private static final int HEADER_SIZE = 80;
+
+   private static final int FLAG_EVICTED = 1;
+
+   private static final int MAX_SEGMENTS = 1 << 16;
+   private static final int INITIAL_BUCKETS = 64;
+   private static final float LOAD_FACTOR = 0.75f;
+
+   private final Segment[] segments;
+   private final int segmentShift;
+   private final int segmentMask;
+
+   /**
+    * Keys removed while an async store is in use, until the removal has been flushed to the store.
+    */
+   private final ConcurrentMap<Object, InternalNullEntry> removedEntries;
+
+   private final ExpirationIndex expirationIndex = new ExpirationIndex();
+   private final ExpirationHandler expirationHandler = new ExpirationHandler() {
+      @Override
+      public long purgeIfExpired(Object key, long now) {
+         return segmentFor(key).purgeIfExpired(key, marshall(key), hash(key), now);
+      }
+   };
+
+   private InternalEntryFactory entryFactory;
+   private StreamingMarshaller marshaller;
+   private EvictionManager evictionManager;
+   private PassivationManager passivator;
+   private CacheLoaderManager cacheLoaderManager;
+   private Configuration config;
+   private boolean isAsyncStore;
+   private AsyncStore asyncStore;
+
+   public OffHeapDataContainer(int concurrencyLevel) {
+      this(concurrencyLevel, -1, -1);
+   }
+
+   protected OffHeapDataContainer(int concurrencyLevel, int maxEntries, long maxMemory) {
+      if (concurrencyLevel <= 0)
+         throw new IllegalArgumentException("Concurrency level must be positive: " + concurrencyLevel);
+      if (concurrencyLevel > MAX_SEGMENTS)
+         concurrencyLevel = MAX_SEGMENTS;
+
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+      int perSegment = -1;
+      if (maxEntries > 0) {
+         // never allow a segment to hold less than one entry
+         perSegment = Math.max(1, (maxEntries + ssize - 1) / ssize);
+      }
+      long memoryPerSegment = maxMemory > 0 ? Math.max(1, maxMemory / ssize) : -1;
+      segments = new Segment[ssize];
+      for (int i = 0; i < ssize; i++)
+         segments[i] = new Segment(perSegment, memoryPerSegment);
+      removedEntries = ConcurrentMapFactory.makeConcurrentMap(16, concurrencyLevel);
+   }
+
+   @Inject
+   public void initialize(EvictionManager evictionManager, PassivationManager passivator,
+         InternalEntryFactory entryFactory, Configuration config, CacheLoaderManager cacheLoaderManager,
+         @ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
+      this.evictionManager = evictionManager;
+      this.passivator = passivator;
+      this.entryFactory = entryFactory;
+      this.config = config;
+      this.cacheLoaderManager = cacheLoaderManager;
+      this.marshaller = marshaller;
+   }
+
+   @Start(priority = 11) // Start after cache loader manager
+   public void start() {
+      for (Segment s : segments)
+         s.init();
+      this.isAsyncStore = config.loaders().usingAsyncStore();
+      if (isAsyncStore)
+         this.asyncStore = (AsyncStore) cacheLoaderManager.getCacheStore();
+   }
+
+   /**
+    * Releases all the native memory held by this container.
+    */
+   @Stop(priority = 1000) // Stop after the container has been cleared
+   public void stop() {
+      for (Segment s : segments)
+         s.destroy();
+   }
+
+   public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEntries, EvictionStrategy strategy) {
+      if (strategy == EvictionStrategy.LIRS)
+         log.debugf("LIRS eviction is approximated with LRU ordering by the off-heap data container");
+      return new OffHeapDataContainer(concurrencyLevel, maxEntries, -1);
+   }
+
+   /**
+    * Creates a container which evicts entries once the native memory taken up by the entries exceeds maxMemory
+    * bytes. Since entries are stored marshalled, their exact size is known.
+    */
+   public static DataContainer memoryBoundedDataContainer(int concurrencyLevel, long maxMemory, EvictionStrategy strategy) {
+      if (strategy == EvictionStrategy.LIRS)
+         log.debugf("LIRS eviction is approximated with LRU ordering by the off-heap data container");
+      return new OffHeapDataContainer(concurrencyLevel, -1, maxMemory);
+   }
+
+   public static DataContainer unBoundedDataContainer(int concurrencyLevel) {
+      return new OffHeapDataContainer(concurrencyLevel);
+   }
+
+   @Override
+   public InternalCacheEntry peek(Object k) {
+      if (isAsyncStore) {
+         InternalNullEntry removed = removedEntries.get(k);
+         if (removed != null) return removed;
+      }
+      byte[] key = marshall(k);
+      return segmentFor(k).peek(k, key, hash(k));
+   }
+
+   @Override
+   public InternalCacheEntry get(Object k) {
+      if (isAsyncStore) {
+         InternalNullEntry removed = removedEntries.get(k);
+         if (removed != null) return removed;
+      }
+      byte[] key = marshall(k);
+      return segmentFor(k).get(k, key, hash(k), System.currentTimeMillis());
+   }
+
+   @Override
+   public void put(Object k, Object v, EntryVersion version, long lifespan, long maxIdle) {
+      byte[] key = marshall(k);
+      ByteBuffer value = marshallToBuffer(v);
+      ByteBuffer ver = version == null ? null : marshallToBuffer(version);
+      long now = System.currentTimeMillis();
+      List<InternalCacheEntry> evicted = segmentFor(k).put(k, key, hash(k), value, ver, lifespan, maxIdle, now);
+      if (lifespan > -1 || maxIdle > -1) {
+         long expiry = Long.MAX_VALUE;
+         if (lifespan > -1) expiry = now + lifespan;
+         if (maxIdle > -1) expiry = Math.min(expiry, now + maxIdle);
+         expirationIndex.register(k, expiry);
+      }
+      if (isAsyncStore) removedEntries.remove(k);
+      if (evicted != null && !evicted.isEmpty()) {
+         Map<Object, InternalCacheEntry> evictedMap = new HashMap<Object, InternalCacheEntry>(evicted.size());
+         for (InternalCacheEntry ice : evicted)
+            evictedMap.put(ice.getKey(), ice);
+         evictionManager.onEntryEviction(evictedMap);
+      }
+   }
+
+   @Override
+   public boolean containsKey(Object k) {
+      InternalCacheEntry ice = peek(k);
+      if (ice != null && ice.canExpire() && ice.isExpired(System.currentTimeMillis())) {
+         remove(k);
+         ice = null;
+      }
+      return ice != null;
+   }
+
+   @Override
+   public InternalCacheEntry remove(Object k) {
+      byte[] key = marshall(k);
+      InternalCacheEntry e = segmentFor(k).remove(k, key, hash(k));
+      if (isAsyncStore) {
+         // Keep a marker until the removal has reached the store, so the old value is not activated meanwhile
+         InternalNullEntry marker = new InternalNullEntry(asyncStore);
+         InternalNullEntry previous = e != null ? removedEntries.put(k, marker) : removedEntries.replace(k, marker);
+         if (e == null) e = previous;
+      }
+      return e == null || (e.canExpire() && e.isExpired(System.currentTimeMillis())) ? null : e;
+   }
+
+   @Override
+   public int size() {
+      int size = 0;
+      for (Segment s : segments) size += s.count;
+      return size + removedEntries.size();
+   }
+
+   @Override
+   public void clear() {
+      for (Segment s : segments) s.clear();
+      removedEntries.clear();
+      expirationIndex.clear();
+   }
+
+   @Override
+   public Set<Object> keySet() {
+      return Collections.unmodifiableSet(new KeySet());
+   }
+
+   @Override
+   public Collection<Object> values() {
+      return new Values();
+   }
+
+   @Override
+   public Set<InternalCacheEntry> entrySet() {
+      return new EntrySet();
+   }
+
+   @Override
+   public void purgeExpired() {
+      expirationIndex.purge(System.currentTimeMillis(), expirationHandler);
+
+      if (isAsyncStore) {
+         for (Iterator<InternalNullEntry> it = removedEntries.values().iterator(); it.hasNext();) {
+            if (it.next().isExpired(asyncStore.getAsyncProcessorId()))
+               it.remove();
+         }
+      }
+   }
+
+   @Override
+   public Iterator<InternalCacheEntry> iterator() {
+      return new EntryIterator();
+   }
+
+   /**
+    * @return the number of bytes of native memory currently used to hold entries and their hash indexes
+    */
+   public long getOffHeapMemoryUsed() {
+      long used = 0;
+      for (Segment s : segments) used += s.memoryUsed;
+      return used;
+   }
+
+   /**
+    * @return the index of the entries that can expire
+    */
+   public ExpirationIndex getExpirationIndex() {
+      return expirationIndex;
+   }
+
+   private boolean isKeyFlushedToStore(Object key) {
+      return !isAsyncStore || !asyncStore.isLocked(key);
+   }
+
+   private Segment segmentFor(Object key) {
+      return segments[(hash(key) >>> segmentShift) & segmentMask];
+   }
+
+   /**
+    * Same supplemental hash as {@link java.util.concurrent.ConcurrentHashMap}, to defend against poor quality hash
+    * functions, as both the segment and the bucket indexes are derived from it.
+    */
+   private static int hash(Object key) {
+      int h = key.hashCode();
+      h += (h <<  15) ^ 0xffffcd7d;
+      h ^= (h >>> 10);
+      h += (h <<   3);
+      h ^= (h >>>  6);
+      h += (h <<   2) + (h << 14);
+      return h ^ (h >>> 16);
+   }
+
+   private byte[] marshall(Object o) {
+      ByteBuffer buf = marshallToBuffer(o);
+      if (buf.getOffset() == 0 && buf.getLength() == buf.getBuf().length)
+         return buf.getBuf();
+      return Arrays.copyOfRange(buf.getBuf(), buf.getOffset(), buf.getOffset() + buf.getLength());
+   }
+
+   private ByteBuffer marshallToBuffer(Object o) {
+      try {
+         return marshaller.objectToBuffer(o);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Interrupted while marshalling " + o, e);
+      } catch (Exception e) {
+         throw new CacheException("Unable to marshall " + o + " for off-heap storage", e);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes) {
+      try {
+         return marshaller.objectFromByteBuffer(bytes);
+      } catch (Exception e) {
+         throw new CacheException("Unable to unmarshall entry from off-heap storage", e);
+      }
+   }
+
+   private static boolean isExpired(long address, long now) {
+      long lifespan = UNSAFE.getLong(address + LIFESPAN_OFFSET);
+      if (lifespan > -1 && now > UNSAFE.getLong(address + CREATED_OFFSET) + lifespan)
+         return true;
+      long maxIdle = UNSAFE.getLong(address + MAX_IDLE_OFFSET);
+      return maxIdle > -1 && now > UNSAFE.getLong(address + LAST_USED_OFFSET) + maxIdle;
+   }
+
+   private static long expiryTime(long address) {
+      long lifespan = UNSAFE.getLong(address + LIFESPAN_OFFSET);
+      long maxIdle = UNSAFE.getLong(address + MAX_IDLE_OFFSET);
+      long expiry = Long.MAX_VALUE;
+      if (lifespan > -1) expiry = UNSAFE.getLong(address + CREATED_OFFSET) + lifespan;
+      if (maxIdle > -1) expiry = Math.min(expiry, UNSAFE.getLong(address + LAST_USED_OFFSET) + maxIdle);
+      return expiry;
+   }
+
+   private static boolean canExpire(long address) {
+      return UNSAFE.getLong(address + LIFESPAN_OFFSET) > -1 || UNSAFE.getLong(address + MAX_IDLE_OFFSET) > -1;
+   }
+
+   private static long blockSize(long address) {
+      return HEADER_SIZE + UNSAFE.getInt(address + KEY_LENGTH_OFFSET) + UNSAFE.getInt(address + VALUE_LENGTH_OFFSET)
+            + UNSAFE.getInt(address + VERSION_LENGTH_OFFSET);
+   }
+
+   private static long keyAddress(long address) {
+      return address + HEADER_SIZE;
+   }
+
+   private static long valueAddress(long address) {
+      return keyAddress(address) + UNSAFE.getInt(address + KEY_LENGTH_OFFSET);
+   }
+
+   private static long versionAddress(long address) {
+      return valueAddress(address) + UNSAFE.getInt(address + VALUE_LENGTH_OFFSET);
+   }
+
+   private static void copyToNative(byte[] src, int srcOffset, long dst, int length) {
+      int i = 0;
+      for (; i + 8 <= length; i += 8)
+         UNSAFE.putLong(dst + i, UNSAFE.getLong(src, BYTE_ARRAY_OFFSET + srcOffset + i));
+      for (; i < length; i++)
+         UNSAFE.putByte(dst + i, src[srcOffset + i]);
+   }
+
+   private static byte[] copyFromNative(long src, int length) {
+      byte[] dst = new byte[length];
+      int i = 0;
+      for (; i + 8 <= length; i += 8)
+         UNSAFE.putLong(dst, BYTE_ARRAY_OFFSET + i, UNSAFE.getLong(src + i));
+      for (; i < length; i++)
+         dst[i] = UNSAFE.getByte(src + i);
+      return dst;
+   }
+
+   private static boolean nativeEquals(long address, byte[] bytes) {
+      int length = bytes.length;
+      int i = 0;
+      for (; i + 8 <= length; i += 8) {
+         if (UNSAFE.getLong(address + i) != UNSAFE.getLong(bytes, BYTE_ARRAY_OFFSET + i))
+            return false;
+      }
+      for (; i < length; i++) {
+         if (UNSAFE.getByte(address + i) != bytes[i])
+            return false;
+      }
+      return true;
+   }
+
+   /**
+    * A segment of the container: an off-heap chained hash table plus, when bounded, an off-heap access-ordered
+    * doubly linked list. All access, including reads, happens under the segment lock, since reads may update the
+    * last used time and the access order, and since a block may be freed as soon as the lock is released.
+    */
+   private final class Segment extends ReentrantLock {
+
+      private static final long serialVersionUID = -2731263286318410196L;
+
+      private final int maxEntries;
+      private final long maxMemory;
+      private final boolean bounded;
+      /**
+       * Bytes taken up by the entry blocks, excluding the hash index.
+       */
+      private long entriesMemory;
+      /**
+       * Entries already evicted but kept until the async store has caught up with them, and the bytes they take up.
+       * They no longer count towards the bounds, otherwise every put would evict another live entry meanwhile.
+       */
+      private int evictedCount;
+      private long evictedMemory;
+      private long table;
+      private int capacity;
+      private long lruHead;
+      private long lruTail;
+      volatile int count;
+      volatile long memoryUsed;
+
+      Segment(int maxEntries, long maxMemory) {
+         this.maxEntries = maxEntries;
+         this.maxMemory = maxMemory;
+         this.bounded = maxEntries > 0 || maxMemory > 0;
+         allocateTable(INITIAL_BUCKETS);
+      }
+
+      /**
+       * Re-allocates the hash index if the native memory has been released by a previous stop.
+       */
+      void init() {
+         lock();
+         try {
+            if (table == 0) allocateTable(INITIAL_BUCKETS);
+         } finally {
+            unlock();
+         }
+      }
+
+      private void allocateTable(int buckets) {
+         long bytes = (long) buckets * 8;
+         table = UNSAFE.allocateMemory(bytes);
+         UNSAFE.setMemory(table, bytes, (byte) 0);
+         capacity = buckets;
+         memoryUsed += bytes;
+      }
+
+      private long bucket(int hash) {
+         return table + ((long) (hash & (capacity - 1)) << 3);
+      }
+
+      /**
+       * Must be invoked while holding the lock.
+       */
+      private long find(Object k, byte[] key, int hash) {
+         long address = UNSAFE.getLong(bucket(hash));
+         while (address != 0) {
+            if (UNSAFE.getInt(address + HASH_OFFSET) == hash && matches(address, k, key))
+               return address;
+            address = UNSAFE.getLong(address + NEXT_OFFSET);
+         }
+         return 0;
+      }
+
+      private boolean matches(long address, Object k, byte[] key) {
+         int keyLength = UNSAFE.getInt(address + KEY_LENGTH_OFFSET);
+         if (keyLength == key.length && nativeEquals(keyAddress(address), key))
+            return true;
+         // Same hash but different bytes: fall back to equals() for keys whose marshalled form is not canonical
+         return k.equals(unmarshall(copyFromNative(keyAddress(address), keyLength)));
+      }
+
+      InternalCacheEntry peek(Object k, byte[] key, int hash) {
+         lock();
+         try {
+            long address = find(k, key, hash);
+            if (address == 0) return null;
+            if ((UNSAFE.getInt(address + FLAGS_OFFSET) & FLAG_EVICTED) != 0 && isKeyFlushedToStore(k)) {
+               // The entry has been passivated to an async store and the store has caught up, so let it be
+               // activated from there
+               unlink(address, hash);
+               return null;
+            }
+            return toEntry(address, k);
+         } finally {
+            unlock();
+         }
+      }
+
+      InternalCacheEntry get(Object k, byte[] key, int hash, long now) {
+         lock();
+         try {
+            long address = find(k, key, hash);
+            if (address == 0) return null;
+            if ((UNSAFE.getInt(address + FLAGS_OFFSET) & FLAG_EVICTED) != 0 && isKeyFlushedToStore(k)) {
+               unlink(address, hash);
+               return null;
+            }
+            if (canExpire(address)) {
+               if (isExpired(address, now)) {
+                  unlink(address, hash);
+                  return null;
+               }
+               UNSAFE.putLong(address + LAST_USED_OFFSET, now);
+            }
+            if (bounded) moveToTail(address);
+            return toEntry(address, k);
+         } finally {
+            unlock();
+         }
+      }
+
+      List<InternalCacheEntry> put(Object k, byte[] key, int hash, ByteBuffer value, ByteBuffer version,
+                                   long lifespan, long maxIdle, long now) {
+         int valueLength = value.getLength();
+         int versionLength = version == null ? 0 : version.getLength();
+         long size = (long) HEADER_SIZE + key.length + valueLength + versionLength;
+         long block = UNSAFE.allocateMemory(size);
+         UNSAFE.putLong(block + NEXT_OFFSET, 0);
+         UNSAFE.putLong(block + LRU_PREV_OFFSET, 0);
+         UNSAFE.putLong(block + LRU_NEXT_OFFSET, 0);
+         UNSAFE.putLong(block + CREATED_OFFSET, now);
+         UNSAFE.putLong(block + LAST_USED_OFFSET, now);
+         UNSAFE.putLong(block + LIFESPAN_OFFSET, lifespan);
+         UNSAFE.putLong(block + MAX_IDLE_OFFSET, maxIdle);
+         UNSAFE.putInt(block + HASH_OFFSET, hash);
+         UNSAFE.putInt(block + KEY_LENGTH_OFFSET, key.length);
+         UNSAFE.putInt(block + VALUE_LENGTH_OFFSET, valueLength);
+         UNSAFE.putInt(block + VERSION_LENGTH_OFFSET, versionLength);
+         UNSAFE.putInt(block + FLAGS_OFFSET, 0);
+         copyToNative(key, 0, keyAddress(block), key.length);
+         copyToNative(value.getBuf(), value.getOffset(), valueAddress(block), valueLength);
+         if (version != null)
+            copyToNative(version.getBuf(), version.getOffset(), versionAddress(block), versionLength);
+
+         lock();
+         try {
+            long existing = find(k, key, hash);
+            if (existing != 0) unlink(existing, hash);
+
+            if (count + 1 > capacity * LOAD_FACTOR) rehash();
+            long bucket = bucket(hash);
+            UNSAFE.putLong(block + NEXT_OFFSET, UNSAFE.getLong(bucket));
+            UNSAFE.putLong(bucket, block);
+            if (bounded) linkAtTail(block);
+            memoryUsed += size;
+            entriesMemory += size;
+            count++;
+
+            return isOverBounds(count - evictedCount, entriesMemory - evictedMemory) ? evict(block) : null;
+         } finally {
+            unlock();
+         }
+      }
+
+      InternalCacheEntry remove(Object k, byte[] key, int hash) {
+         lock();
+         try {
+            long address = find(k, key, hash);
+            if (address == 0) return null;
+            InternalCacheEntry ice = toEntry(address, k);
+            unlink(address, hash);
+            return ice;
+         } finally {
+            unlock();
+         }
+      }
+
+      /**
+       * Evicts entries from the head of the access order list until the segment is back within bounds. Entries
+       * with pending async store writes are skipped, as is the entry that has just been inserted.
+       */
+      private List<InternalCacheEntry> evict(long justInserted) {
+         List<InternalCacheEntry> evicted = new ArrayList<InternalCacheEntry>(1);
+         long candidate = lruHead;
+         int live = count - evictedCount;
+         long liveMemory = entriesMemory - evictedMemory;
+         while (isOverBounds(live, liveMemory) && candidate != 0) {
+            long next = UNSAFE.getLong(candidate + LRU_NEXT_OFFSET);
+            int flags = UNSAFE.getInt(candidate + FLAGS_OFFSET);
+            if (candidate != justInserted && (flags & FLAG_EVICTED) == 0) {
+               Object k = unmarshall(copyFromNative(keyAddress(candidate), UNSAFE.getInt(candidate + KEY_LENGTH_OFFSET)));
+               if (isKeyFlushedToStore(k)) {
+                  InternalCacheEntry ice = toEntry(candidate, k);
+                  passivator.passivate(ice);
+                  long size = blockSize(candidate);
+                  liveMemory -= size;
+                  if (isAsyncStore) {
+                     // Storing in the cache store is still in flight, so keep the entry until the store has
+                     // caught up, as DefaultDataContainer does
+                     UNSAFE.putInt(candidate + FLAGS_OFFSET, flags | FLAG_EVICTED);
+                     evictedCount++;
+                     evictedMemory += size;
+                  } else {
+                     unlink(candidate, UNSAFE.getInt(candidate + HASH_OFFSET));
+                     evicted.add(ice);
+                  }
+                  live--;
+               }
+            }
+            candidate = next;
+         }
+         return evicted;
+      }
+
+      private boolean isOverBounds(int entries, long bytes) {
+         return (maxEntries > 0 && entries > maxEntries) || (maxMemory > 0 && bytes > maxMemory);
+      }
+
+      long purgeIfExpired(Object k, byte[] key, int hash, long now) {
+         lock();
+         try {
+            long address = find(k, key, hash);
+            if (address == 0 || !canExpire(address)) return ExpirationIndex.NOT_EXPIRABLE;
+            if (isExpired(address, now)) {
+               unlink(address, hash);
+               return ExpirationIndex.PURGED;
+            }
+            return expiryTime(address);
+         } finally {
+            unlock();
+         }
+      }
+
+      void clear() {
+         lock();
+         try {
+            freeEntries();
+            UNSAFE.setMemory(table, (long) capacity * 8, (byte) 0);
+            lruHead = lruTail = 0;
+            count = 0;
+            entriesMemory = 0;
+            evictedCount = 0;
+            evictedMemory = 0;
+            memoryUsed = (long) capacity * 8;
+         } finally {
+            unlock();
+         }
+      }
+
+      void destroy() {
+         lock();
+         try {
+            if (table == 0) return;
+            freeEntries();
+            UNSAFE.freeMemory(table);
+            table = 0;
+            capacity = 0;
+            lruHead = lruTail = 0;
+            count = 0;
+            entriesMemory = 0;
+            evictedCount = 0;
+            evictedMemory = 0;
+            memoryUsed = 0;
+         } finally {
+            unlock();
+         }
+      }
+
+      private void freeEntries() {
+         for (int i = 0; i < capacity; i++) {
+            long address = UNSAFE.getLong(table + ((long) i << 3));
+            while (address != 0) {
+               long next = UNSAFE.getLong(address + NEXT_OFFSET);
+               UNSAFE.freeMemory(address);
+               address = next;
+            }
+         }
+      }
+
+      /**
+       * Materializes the entries of this segment, so that iterators never hold on to native addresses.
+       */
+      List<InternalCacheEntry> snapshotEntries() {
+         lock();
+         try {
+            List<InternalCacheEntry> snapshot = new ArrayList<InternalCacheEntry>(count);
+            for (int i = 0; i < capacity; i++) {
+               long address = UNSAFE.getLong(table + ((long) i << 3));
+               while (address != 0) {
+                  Object k = unmarshall(copyFromNative(keyAddress(address), UNSAFE.getInt(address + KEY_LENGTH_OFFSET)));
+                  snapshot.add(toEntry(address, k));
+                  address = UNSAFE.getLong(address + NEXT_OFFSET);
+               }
+            }
+            return snapshot;
+         } finally {
+            unlock();
+         }
+      }
+
+      List<Object> snapshotKeys() {
+         lock();
+         try {
+            List<Object> snapshot = new ArrayList<Object>(count);
+            for (int i = 0; i < capacity; i++) {
+               long address = UNSAFE.getLong(table + ((long) i << 3));
+               while (address != 0) {
+                  snapshot.add(unmarshall(copyFromNative(keyAddress(address), UNSAFE.getInt(address + KEY_LENGTH_OFFSET))));
+                  address = UNSAFE.getLong(address + NEXT_OFFSET);
+               }
+            }
+            return snapshot;
+         } finally {
+            unlock();
+         }
+      }
+
+      private InternalCacheEntry toEntry(long address, Object k) {
+         Object value = unmarshall(copyFromNative(valueAddress(address), UNSAFE.getInt(address + VALUE_LENGTH_OFFSET)));
+         int versionLength = UNSAFE.getInt(address + VERSION_LENGTH_OFFSET);
+         EntryVersion version = versionLength == 0 ? null :
+               (EntryVersion) unmarshall(copyFromNative(versionAddress(address), versionLength));
+         InternalCacheEntry ice = entryFactory.create(k, value, version,
+               UNSAFE.getLong(address + CREATED_OFFSET), UNSAFE.getLong(address + LIFESPAN_OFFSET),
+               UNSAFE.getLong(address + LAST_USED_OFFSET), UNSAFE.getLong(address + MAX_IDLE_OFFSET));
+         if ((UNSAFE.getInt(address + FLAGS_OFFSET) & FLAG_EVICTED) != 0)
+            ice.setEvicted(true);
+         return ice;
+      }
+
+      /**
+       * Removes the block from the hash index and the access order list, and frees it.
+       */
+      private void unlink(long address, int hash) {
+         long bucket = bucket(hash);
+         long current = UNSAFE.getLong(bucket);
+         long previous = 0;
+         while (current != 0 && current != address) {
+            previous = current;
+            current = UNSAFE.getLong(current + NEXT_OFFSET);
+         }
+         if (current == 0) return;
+
+         long next = UNSAFE.getLong(address + NEXT_OFFSET);
+         if (previous == 0)
+            UNSAFE.putLong(bucket, next);
+         else
+            UNSAFE.putLong(previous + NEXT_OFFSET, next);
+
+         if (bounded) unlinkFromLru(address);
+         long size = blockSize(address);
+         memoryUsed -= size;
+         entriesMemory -= size;
+         count--;
+         if ((UNSAFE.getInt(address + FLAGS_OFFSET) & FLAG_EVICTED) != 0) {
+            evictedCount--;
+            evictedMemory -= size;
+         }
+         UNSAFE.freeMemory(address);
+      }
+
+      private void rehash() {
+         long oldTable = table;
+         int oldCapacity = capacity;
+         allocateTable(oldCapacity << 1);
+         for (int i = 0; i < oldCapacity; i++) {
+            long address = UNSAFE.getLong(oldTable + ((long) i << 3));
+            while (address != 0) {
+               long next = UNSAFE.getLong(address + NEXT_OFFSET);
+               long bucket = bucket(UNSAFE.getInt(address + HASH_OFFSET));
+               UNSAFE.putLong(address + NEXT_OFFSET, UNSAFE.getLong(bucket));
+               UNSAFE.putLong(bucket, address);
+               address = next;
+            }
+         }
+         UNSAFE.freeMemory(oldTable);
+         memoryUsed -= (long) oldCapacity * 8;
+      }
+
+      private void linkAtTail(long address) {
+         UNSAFE.putLong(address + LRU_PREV_OFFSET, lruTail);
+         UNSAFE.putLong(address + LRU_NEXT_OFFSET, 0);
+         if (lruTail != 0)
+            UNSAFE.putLong(lruTail + LRU_NEXT_OFFSET, address);
+         else
+            lruHead = address;
+         lruTail = address;
+      }
+
+      private void unlinkFromLru(long address) {
+         long prev = UNSAFE.getLong(address + LRU_PREV_OFFSET);
+         long next = UNSAFE.getLong(address + LRU_NEXT_OFFSET);
+         if (prev != 0)
+            UNSAFE.putLong(prev + LRU_NEXT_OFFSET, next);
+         else
+            lruHead = next;
+         if (next != 0)
+            UNSAFE.putLong(next + LRU_PREV_OFFSET, prev);
+         else
+            lruTail = prev;
+      }
+
+      private void moveToTail(long address) {
+         if (address == lruTail) return;
+         unlinkFromLru(address);
+         linkAtTail(address);
+      }
+   }
+
+   /**
+    * Iterates over the container one segment at a time, materializing the entries of a single segment at once.
+    */
+   private abstract class SegmentIterator<T> implements Iterator<T> {
+      private int nextSegment = 0;
+      private Iterator<T> current = Collections.<T>emptyList().iterator();
+
+      protected abstract List<T> snapshot(Segment segment);
+
+      @Override
+      public boolean hasNext() {
+         while (!current.hasNext()) {
+            if (nextSegment >= segments.length) return false;
+            current = snapshot(segments[nextSegment++]).iterator();
+         }
+         return true;
+      }
+
+      @Override
+      public T next() {
+         if (!hasNext()) throw new NoSuchElementException();
+         return current.next();
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private class EntryIterator extends SegmentIterator<InternalCacheEntry> {
+      @Override
+      protected List<InternalCacheEntry> snapshot(Segment segment) {
+         return segment.snapshotEntries();
+      }
+   }
+
+   private class ImmutableEntryIterator extends EntryIterator {
+      @Override
+      public InternalCacheEntry next() {
+         return Immutables.immutableInternalCacheEntry(super.next());
+      }
+   }
+
+   private class KeyIterator extends SegmentIterator<Object> {
+      @Override
+      protected List<Object> snapshot(Segment segment) {
+         return segment.snapshotKeys();
+      }
+   }
+
+   private class ValueIterator implements Iterator<Object> {
+      private final Iterator<InternalCacheEntry> it = new EntryIterator();
+
+      @Override
+      public boolean hasNext() {
+         return it.hasNext();
+      }
+
+      @Override
+      public Object next() {
+         return it.next().getValue();
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private class KeySet extends AbstractSet<Object> {
+      @Override
+      public boolean contains(Object o) {
+         return peek(o) != null;
+      }
+
+      @Override
+      public Iterator<Object> iterator() {
+         return new KeyIterator();
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    *
+    */
+   private class EntrySet extends AbstractSet<InternalCacheEntry> {
+
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry)) {
+            return false;
+         }
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         if (ice == null) {
+            return false;
+         }
+         return ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry> iterator() {
+         return new ImmutableEntryIterator();
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Collection
+    *
+    */
+   private class Values extends AbstractCollection<Object> {
+      @Override
+      public Iterator<Object> iterator() {
+         return new ValueIterator();
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   private static sun.misc.Unsafe getUnsafe() {
+      try {
+         return sun.misc.Unsafe.getUnsafe();
+      } catch (SecurityException se) {
+         try {
+            return java.security.AccessController.doPrivileged
+                  (new java.security.PrivilegedExceptionAction<sun.misc.Unsafe>() {
+                     @Override
+                     public sun.misc.Unsafe run() throws Exception {
+                        java.lang.reflect.Field f = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+                        f.setAccessible(true);
+                        return (sun.misc.Unsafe) f.get(null);
+                     }
+                  });
+         } catch (java.security.PrivilegedActionException e) {
+            throw new RuntimeException("Could not access sun.misc.Unsafe", e.getCause());
+         }
+      }
+   }
+}
@@ -0,0 +1,274 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.commons.hash.Hash;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.distribution.ch.DefaultConsistentHash;
+import org.infinispan.distribution.group.GroupManager;
+import org.infinispan.distribution.group.GroupingConsistentHash;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An unbounded data container which keeps its entries bucketed by consistent hash segment, so that state transfer,
+ * the removal of segments no longer owned after a rebalance and per-segment size queries only need to touch the
+ * affected segments instead of scanning the whole container.
+ * <p/>
+ * The segment of a key is computed the same way {@link DefaultConsistentHash} computes it, using the hash function
+ * and number of segments of the cache configuration and the key's group if grouping is enabled. Callers should check
+ * {@link #isSegmentedBy(ConsistentHash)} before relying on the per-segment operations, since a custom consistent hash
+ * factory is free to map keys to segments in a different way.
+ * <p/>
+ * Distributed caches only use this container when enabled with
+ * {@link org.infinispan.configuration.cache.DataContainerConfigurationBuilder#segmented(boolean)}.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class SegmentedDataContainer extends DefaultDataContainer {
+
+   private final SegmentedMap segmentedEntries;
+
+   public SegmentedDataContainer(int concurrencyLevel, Hash hashFunction, int numSegments) {
+      super(new SegmentedMap(concurrencyLevel, hashFunction, numSegments));
+      this.segmentedEntries = (SegmentedMap) entries;
+   }
+
+   @Inject
+   public void injectGroupManager(GroupManager groupManager) {
+      segmentedEntries.groupManager = groupManager;
+   }
+
+   /**
+    * @return the number of segments the entries are bucketed into
+    */
+   public int getNumSegments() {
+      return segmentedEntries.segments.length;
+   }
+
+   /**
+    * @return the segment the given key is stored in
+    */
+   public int getSegment(Object key) {
+      return segmentedEntries.segmentOf(key);
+   }
+
+   /**
+    * Checks whether this container maps keys to the same segments as the given consistent hash.
+    */
+   public boolean isSegmentedBy(ConsistentHash ch) {
+      boolean grouped = false;
+      if (ch instanceof GroupingConsistentHash) {
+         ch = ((GroupingConsistentHash) ch).getConsistentHash();
+         grouped = true;
+      }
+      return ch instanceof DefaultConsistentHash
+            && grouped == (segmentedEntries.groupManager != null)
+            && ch.getNumSegments() == getNumSegments()
+            && segmentedEntries.hashFunction.equals(ch.getHashFunction());
+   }
+
+   /**
+    * @return the number of entries stored in the given segment
+    */
+   public int sizeOfSegment(int segmentId) {
+      return segmentedEntries.segments[segmentId].size();
+   }
+
+   /**
+    * Iterates over the entries of the given segments only. Like {@link #iterator()}, the returned entries are the
+    * mutable instances stored in the container.
+    */
+   @SuppressWarnings("unchecked")
+   public Iterator<InternalCacheEntry> iterator(Set<Integer> segmentIds) {
+      ConcurrentMap<?, InternalCacheEntry>[] selected = new ConcurrentMap[segmentIds.size()];
+      int i = 0;
+      for (Integer segmentId : segmentIds) {
+         selected[i++] = segmentedEntries.segments[segmentId];
+      }
+      return new EntryIterator(new SegmentsIterator<InternalCacheEntry>(selected, false));
+   }
+
+   /**
+    * A concurrent map delegating to one map per segment.
+    */
+   private static final class SegmentedMap extends AbstractMap<Object, InternalCacheEntry>
+         implements ConcurrentMap<Object, InternalCacheEntry> {
+
+      final ConcurrentMap<Object, InternalCacheEntry>[] segments;
+      final Hash hashFunction;
+      final int segmentSize;
+      volatile GroupManager groupManager;
+
+      @SuppressWarnings("unchecked")
+      SegmentedMap(int concurrencyLevel, Hash hashFunction, int numSegments) {
+         if (numSegments <= 0) throw new IllegalArgumentException("The number of segments must be positive");
+         this.hashFunction = hashFunction;
+         this.segmentSize = (int) Math.ceil((double) Integer.MAX_VALUE / numSegments);
+         this.segments = new ConcurrentMap[numSegments];
+         int segmentConcurrency = Math.max(1, concurrencyLevel / numSegments);
+         for (int i = 0; i < numSegments; i++) {
+            segments[i] = ConcurrentMapFactory.makeConcurrentMap(16, segmentConcurrency);
+         }
+      }
+
+      int segmentOf(Object key) {
+         GroupManager gm = groupManager;
+         if (gm != null) {
+            String group = gm.getGroup(key);
+            if (group != null) key = group;
+         }
+         // same computation as DefaultConsistentHash.getSegment()
+         return (hashFunction.hash(key) & Integer.MAX_VALUE) / segmentSize;
+      }
+
+      ConcurrentMap<Object, InternalCacheEntry> segmentFor(Object key) {
+         return segments[segmentOf(key)];
+      }
+
+      @Override
+      public InternalCacheEntry get(Object key) {
+         return segmentFor(key).get(key);
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+         return segmentFor(key).containsKey(key);
+      }
+
+      @Override
+      public InternalCacheEntry put(Object key, InternalCacheEntry value) {
+         return segmentFor(key).put(key, value);
+      }
+
+      @Override
+      public InternalCacheEntry putIfAbsent(Object key, InternalCacheEntry value) {
+         return segmentFor(key).putIfAbsent(key, value);
+      }
+
+      @Override
+      public InternalCacheEntry remove(Object key) {
+         return segmentFor(key).remove(key);
+      }
+
+      @Override
+      public boolean remove(Object key, Object value) {
+         return segmentFor(key).remove(key, value);
+      }
+
+      @Override
+      public boolean replace(Object key, InternalCacheEntry oldValue, InternalCacheEntry newValue) {
+         return segmentFor(key).replace(key, oldValue, newValue);
+      }
+
+      @Override
+      public InternalCacheEntry replace(Object key, InternalCacheEntry value) {
+         return segmentFor(key).replace(key, value);
+      }
+
+      @Override
+      public int size() {
+         long size = 0;
+         for (ConcurrentMap<?, ?> segment : segments) size += segment.size();
+         return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+      }
+
+      @Override
+      public boolean isEmpty() {
+         for (ConcurrentMap<?, ?> segment : segments) {
+            if (!segment.isEmpty()) return false;
+         }
+         return true;
+      }
+
+      @Override
+      public void clear() {
+         for (ConcurrentMap<?, ?> segment : segments) segment.clear();
+      }
+
+      @Override
+      public Set<Entry<Object, InternalCacheEntry>> entrySet() {
+         return new AbstractSet<Entry<Object, InternalCacheEntry>>() {
+            @Override
+            public Iterator<Entry<Object, InternalCacheEntry>> iterator() {
+               return new SegmentsIterator<Entry<Object, InternalCacheEntry>>(segments, true);
+            }
+
+            @Override
+            public int size() {
+               return SegmentedMap.this.size();
+            }
+         };
+      }
+   }
+
+   /**
+    * Chains the iterators of several segments, yielding either their entries or their values.
+    */
+   private static final class SegmentsIterator<T> implements Iterator<T> {
+      private final ConcurrentMap<?, InternalCacheEntry>[] segments;
+      private final boolean mapEntries;
+      private int nextSegment;
+      private Iterator<?> current;
+      private Iterator<?> last;
+
+      SegmentsIterator(ConcurrentMap<?, InternalCacheEntry>[] segments, boolean mapEntries) {
+         this.segments = segments;
+         this.mapEntries = mapEntries;
+      }
+
+      @Override
+      public boolean hasNext() {
+         while (current == null || !current.hasNext()) {
+            if (nextSegment == segments.length) return false;
+            ConcurrentMap<?, InternalCacheEntry> segment = segments[nextSegment++];
+            current = mapEntries ? segment.entrySet().iterator() : segment.values().iterator();
+         }
+         return true;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public T next() {
+         if (!hasNext()) throw new NoSuchElementException();
+         last = current;
+         return (T) current.next();
+      }
+
+      @Override
+      public void remove() {
+         if (last == null) throw new IllegalStateException();
+         last.remove();
+      }
+   }
+}
@@ -19,19 +19,34 @@
 package org.infinispan.distexec.mapreduce;
 
 import static org.infinispan.distexec.mapreduce.MapReduceTask.DEFAULT_TMP_CACHE_CONFIGURATION_NAME;
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
+import static org.infinispan.factories.KnownComponentNames.MAP_REDUCE_EXECUTOR;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.transaction.TransactionManager;
 
@@ -41,15 +56,24 @@
 import org.infinispan.atomic.DeltaAware;
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
+import org.infinispan.configuration.cache.StoreAsBinaryConfiguration;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distexec.mapreduce.spi.MapReduceTaskLifecycleService;
 import org.infinispan.distribution.DistributionManager;
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
+import org.infinispan.io.ByteBuffer;
 import org.infinispan.loaders.CacheLoader;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.marshall.MarshalledValue;
+import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.Util;
 import org.infinispan.util.concurrent.ConcurrentMapFactory;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -70,14 +94,20 @@ public class MapReduceManagerImpl implements MapReduceManager {
    private Address localAddress;
    private EmbeddedCacheManager cacheManager;
    private CacheLoaderManager cacheLoaderManager;
+   private ExecutorService mapReduceExecutor;
+   private StreamingMarshaller marshaller;
    
    MapReduceManagerImpl() {
    }
    
    @Inject
-   public void init(EmbeddedCacheManager cacheManager, CacheLoaderManager cacheLoaderManager) {
+   public void init(EmbeddedCacheManager cacheManager, CacheLoaderManager cacheLoaderManager,
+            @ComponentName(MAP_REDUCE_EXECUTOR) ExecutorService mapReduceExecutor,
+            @ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
       this.cacheManager = cacheManager;
       this.cacheLoaderManager = cacheLoaderManager;
+      this.mapReduceExecutor = mapReduceExecutor;
+      this.marshaller = marshaller;
       this.localAddress = cacheManager.getAddress();
    }
    
@@ -141,48 +171,182 @@ public <KOut, VOut> Map<KOut, VOut> reduce(ReduceCommand<KOut,VOut> reduceComman
    protected <KIn, VIn, KOut, VOut> CollectableCollector<KOut, VOut> map(MapCombineCommand<KIn, VIn, KOut, VOut> mcc) {
       Cache<KIn, VIn> cache = cacheManager.getCache(mcc.getCacheName());
       Set<KIn> keys = mcc.getKeys();
-      Set<KIn> inputKeysCopy = null;
-      Mapper<KIn, VIn, KOut, VOut> mapper = mcc.getMapper();
       DistributionManager dm = cache.getAdvancedCache().getDistributionManager();      
       boolean inputKeysSpecified = keys != null && !keys.isEmpty();
-      Set <KIn> inputKeys = keys;      
-      if (!inputKeysSpecified) {
-         inputKeys = filterLocalPrimaryOwner(cache.keySet(), dm);
+      int parallelism = mcc.getMapParallelism();
+      List<MapInput<KIn, VIn>> inputs;
+      if (!inputKeysSpecified && mcc.isInputStreamed()) {
+         Set<KIn> keysInCacheLoader = loadAllKeysFromCacheLoaderUsingFilter(null);
+         log.tracef("For m/r task %s invoking %s streaming the data container and %s cache loader keys", mcc.getTaskId(),
+                  mcc, keysInCacheLoader.size());
+         inputs = new ArrayList<MapInput<KIn, VIn>>(parallelism);
+         for (int i = 0; i < parallelism; i++) {
+            inputs.add(new StreamedInput<KIn, VIn>(cache, dm, keysInCacheLoader, i, parallelism));
+         }
       } else {
-         inputKeysCopy = new HashSet<KIn>(keys);
-      }
-      // hook map function into lifecycle and execute it
-      MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();     
-      DefaultCollector<KOut, VOut> collector = new DefaultCollector<KOut, VOut>();
-      log.tracef("For m/r task %s invoking %s with input keys %s",  mcc.getTaskId(), mcc, inputKeys);
-      try {
-         taskLifecycleService.onPreExecute(mapper, cache);
-         for (KIn key : inputKeys) {           
-            VIn value = cache.get(key);
-            mapper.map(key, value, collector);
-            if (inputKeysSpecified) {
-               inputKeysCopy.remove(key);
-            }
+         Set <KIn> inputKeys = keys;      
+         if (!inputKeysSpecified) {
+            inputKeys = filterLocalPrimaryOwner(cache.keySet(), dm);
          }
-         Set<KIn> keysFromCacheLoader = null;
+         log.tracef("For m/r task %s invoking %s with input keys %s",  mcc.getTaskId(), mcc, inputKeys);
+         Set<KIn> keysFromCacheLoader;
          if (inputKeysSpecified) {
-            // load only specified remaining input keys - iff in CL and pinned to this primary owner
-            keysFromCacheLoader = filterLocalPrimaryOwner(inputKeysCopy, dm);
+            // specified input keys are all looked up through the cache
+            keysFromCacheLoader = Collections.emptySet();
          } else {
             // load everything from CL pinned to this primary owner
             keysFromCacheLoader = filterLocalPrimaryOwner(loadAllKeysFromCacheLoaderUsingFilter(inputKeys), dm);
-         }   
+         }
          log.tracef("For m/r task %s cache loader input keys %s", mcc.getTaskId(), keysFromCacheLoader);
-         for (KIn key : keysFromCacheLoader) {            
-            VIn value = loadValueFromCacheLoader(key);            
-            if(value != null){
-               mapper.map(key, value, collector);
-            }
+         if (parallelism > 1 && inputKeys.size() + keysFromCacheLoader.size() > 1) {
+            inputs = partitionInput(cache, dm, inputKeys, keysFromCacheLoader, parallelism);
+         } else {
+            inputs = Collections.<MapInput<KIn, VIn>> singletonList(
+                     new KeySetInput<KIn, VIn>(cache, inputKeys, keysFromCacheLoader));
          }
+      }
+
+      if (inputs.size() > 1) {
+         return mapInParallel(mcc, cache, inputs);
+      }
+      DefaultCollector<KOut, VOut> collector = createCollector(mcc, 1);
+      mapInput(mcc.getMapper(), cache, inputs.get(0), collector);
+      return collector;            
+   }
+
+   private <KIn, VIn, KOut, VOut> void mapInput(Mapper<KIn, VIn, KOut, VOut> mapper, Cache<KIn, VIn> cache,
+            MapInput<KIn, VIn> input, Collector<KOut, VOut> collector) {
+      // hook map function into lifecycle and execute it
+      MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      try {
+         taskLifecycleService.onPreExecute(mapper, cache);
+         input.map(mapper, collector);
       } finally {
          taskLifecycleService.onPostExecute(mapper);
       }
-      return collector;            
+   }
+
+   private <KOut, VOut> DefaultCollector<KOut, VOut> createCollector(MapCombineCommand<?, ?, KOut, VOut> mcc,
+            int partitions) {
+      int maxCollectedValues = mcc.getMaxCollectedValues();
+      if (maxCollectedValues > 0) {
+         return new SpillingCollector<KOut, VOut>(mcc.getTaskId(), marshaller, Math.max(1, maxCollectedValues / partitions));
+      }
+      return new DefaultCollector<KOut, VOut>();
+   }
+
+   /**
+    * Maps each of the given inputs with its own copy of the mapper, and of the combiner if there is one, into its own
+    * collector. One input is processed by the calling thread, the others by the map/reduce executor; their collectors
+    * are merged once they are all done.
+    */
+   private <KIn, VIn, KOut, VOut> CollectableCollector<KOut, VOut> mapInParallel(MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
+            final Cache<KIn, VIn> cache, List<MapInput<KIn, VIn>> inputs) {
+      final String taskId = mcc.getTaskId();
+      List<DefaultCollector<KOut, VOut>> collectors = new ArrayList<DefaultCollector<KOut, VOut>>(inputs.size());
+      List<Callable<DefaultCollector<KOut, VOut>>> tasks = new ArrayList<Callable<DefaultCollector<KOut, VOut>>>(inputs.size());
+      for (final MapInput<KIn, VIn> input : inputs) {
+         if (input.isEmpty()) continue;
+         final Mapper<KIn, VIn, KOut, VOut> mapper = Util.cloneWithMarshaller(marshaller, mcc.getMapper());
+         final Reducer<KOut, VOut> combiner = mcc.getCombiner() == null ? null : Util.cloneWithMarshaller(marshaller, mcc.getCombiner());
+         final DefaultCollector<KOut, VOut> collector = createCollector(mcc, inputs.size());
+         collectors.add(collector);
+         tasks.add(new Callable<DefaultCollector<KOut, VOut>>() {
+            @Override
+            public DefaultCollector<KOut, VOut> call() throws Exception {
+               mapInput(mapper, cache, input, collector);
+               if (combiner != null) {
+                  combinePartition(taskId, combiner, cache, collector);
+               }
+               return collector;
+            }
+         });
+      }
+      log.tracef("For m/r task %s mapping %s partitions in parallel at %s", taskId, tasks.size(), localAddress);
+
+      List<Future<DefaultCollector<KOut, VOut>>> futures = new ArrayList<Future<DefaultCollector<KOut, VOut>>>(tasks.size());
+      boolean mapped = false;
+      try {
+         for (Callable<DefaultCollector<KOut, VOut>> task : tasks.subList(1, tasks.size())) {
+            futures.add(mapReduceExecutor.submit(task));
+         }
+         DefaultCollector<KOut, VOut> collector = tasks.get(0).call();
+         for (Future<DefaultCollector<KOut, VOut>> future : futures) {
+            collector.merge(future.get());
+         }
+         mapped = true;
+         return collector;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Interrupted while executing map phase of M/R task " + taskId, e);
+      } catch (ExecutionException e) {
+         throw new CacheException("Could not execute map phase of M/R task " + taskId, e.getCause());
+      } catch (CacheException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new CacheException("Could not execute map phase of M/R task " + taskId, e);
+      } finally {
+         for (Future<DefaultCollector<KOut, VOut>> future : futures) {
+            future.cancel(true);
+         }
+         if (!mapped) {
+            for (DefaultCollector<KOut, VOut> collector : collectors) {
+               collector.dispose();
+            }
+         }
+      }
+   }
+
+   /**
+    * Splits the input keys by consistent hash segment into <code>parallelism</code> partitions.
+    */
+   private <KIn, VIn> List<MapInput<KIn, VIn>> partitionInput(Cache<KIn, VIn> cache, DistributionManager dm,
+            Set<KIn> inputKeys, Set<KIn> keysFromCacheLoader, int parallelism) {
+      List<List<KIn>> inputPartitions = partitionBySegment(inputKeys, dm, parallelism);
+      List<List<KIn>> cacheLoaderPartitions = partitionBySegment(keysFromCacheLoader, dm, parallelism);
+      List<MapInput<KIn, VIn>> inputs = new ArrayList<MapInput<KIn, VIn>>(parallelism);
+      for (int i = 0; i < parallelism; i++) {
+         inputs.add(new KeySetInput<KIn, VIn>(cache, inputPartitions.get(i), cacheLoaderPartitions.get(i)));
+      }
+      return inputs;
+   }
+
+   private <KIn> List<List<KIn>> partitionBySegment(Set<KIn> keys, DistributionManager dm, int parallelism) {
+      ConsistentHash ch = dm.getReadConsistentHash();
+      List<List<KIn>> partitions = new ArrayList<List<KIn>>(parallelism);
+      for (int i = 0; i < parallelism; i++) {
+         partitions.add(new ArrayList<KIn>(keys.size() / parallelism + 1));
+      }
+      for (KIn key : keys) {
+         partitions.get(ch.getSegment(key) % parallelism).add(key);
+      }
+      return partitions;
+   }
+
+   /**
+    * Combines the values mapped by a single partition that are held in memory, leaving a single value per key.
+    */
+   private <KOut, VOut> void combinePartition(String taskId, Reducer<KOut, VOut> combiner, Cache<?, ?> cache,
+            DefaultCollector<KOut, VOut> collector) {
+      MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      try {
+         taskLifecycleService.onPreExecute(combiner, cache);
+         combineInPlace(taskId, combiner, collector.collectedValues());
+      } finally {
+         taskLifecycleService.onPostExecute(combiner);
+      }
+   }
+
+   private <KOut, VOut> void combineInPlace(String taskId, Reducer<KOut, VOut> combiner, Map<KOut, List<VOut>> values) {
+      for (Entry<KOut, List<VOut>> e : values.entrySet()) {
+         List<VOut> list = e.getValue();
+         if (list.size() > 1) {
+            VOut combined = combiner.reduce(e.getKey(), list.iterator());
+            list.clear();
+            list.add(combined);
+            log.tracef("For m/r task %s combined %s to %s at %s", taskId, e.getKey(), combined, localAddress);
+         }
+      }
    }
    
    protected <KIn, VIn, KOut, VOut> Set<KOut> combine(MapCombineCommand<KIn, VIn, KOut, VOut> mcc,
@@ -203,84 +367,48 @@ protected <KIn, VIn, KOut, VOut> Set<KOut> combine(MapCombineCommand<KIn, VIn, K
                   + " not found on " + localAddress);
       }
       DistributionManager dm = tmpCache.getAdvancedCache().getDistributionManager();
-
-      if (combiner != null) {
-         Cache<?, ?> cache = cacheManager.getCache(mcc.getCacheName());
-         log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
-         MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
-         Map<KOut, VOut> combinedMap = new ConcurrentHashMap<KOut, VOut>();
-         try {
-            taskLifecycleService.onPreExecute(combiner, cache);
-            Map<KOut, List<VOut>> collectedValues = collector.collectedValues();
-            for (Entry<KOut, List<VOut>> e : collectedValues.entrySet()) {
-               List<VOut> list = e.getValue();
-               VOut combined = null;
-               if (list.size() > 1) {
-                  combined = (VOut) combiner.reduce(e.getKey(), list.iterator());
-                  combinedMap.put(e.getKey(), combined);
-               } else {
-                  combined = list.get(0);
-                  combinedMap.put(e.getKey(), combined);
-               }               
-               log.tracef("For m/r task %s combined %s to %s at %s" , taskId, e.getKey(), combined, localAddress);               
-            }
-         } finally {
-            taskLifecycleService.onPostExecute(combiner);
+      TransactionManager tm = tmpCache.getAdvancedCache().getTransactionManager();
+      MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      try {
+         if (combiner != null) {
+            log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
+            taskLifecycleService.onPreExecute(combiner, cacheManager.getCache(mcc.getCacheName()));
          }
-         Map<Address, List<KOut>> keysToNodes = mapKeysToNodes(dm, taskId, combinedMap.keySet(),
-                  emitCompositeIntermediateKeys);
-
-         TransactionManager tm = tmpCache.getAdvancedCache().getTransactionManager();
-         for (Entry<Address, List<KOut>> entry : keysToNodes.entrySet()) {
-            List<KOut> keysHashedToAddress = entry.getValue();
-            try {
-               tm.begin();
-               log.tracef("For m/r task %s migrating intermediate keys %s to %s",  taskId, keysHashedToAddress, entry.getKey());
-               for (KOut key : keysHashedToAddress) {
-                  VOut value = combinedMap.get(key);
-                  DeltaAwareList<VOut> delta = new DeltaAwareList<VOut>(value);
-                  if (emitCompositeIntermediateKeys) {
-                     tmpCache.put(new IntermediateCompositeKey<KOut>(taskId, key), delta);
-                  } else {
-                     tmpCache.put(key, delta);
-                  }
-                  mapPhaseKeys.add(key);
-               }
-               tm.commit();
-            } catch (Exception e) {
-               tm.rollback();
-               throw new CacheException("Could not move intermediate keys/values for M/R task " + taskId, e);
+         // each key shows up in a single chunk, so chunks can be combined and migrated one after the other
+         for (Iterator<Map<KOut, List<VOut>>> chunks = collector.chunks(); chunks.hasNext();) {
+            Map<KOut, List<VOut>> collectedValues = chunks.next();
+            if (combiner != null) {
+               combineInPlace(taskId, combiner, collectedValues);
             }
-         }
-      } else {
-         // Combiner not specified so lets insert each key/uncombined-List pair into tmp cache
-         
-         Map<KOut, List<VOut>> collectedValues = collector.collectedValues();         
-         Map<Address, List<KOut>> keysToNodes = mapKeysToNodes(dm, taskId, collectedValues.keySet(),
-                  emitCompositeIntermediateKeys);
-                  
-         TransactionManager tm = tmpCache.getAdvancedCache().getTransactionManager();
-         for (Entry<Address, List<KOut>> entry : keysToNodes.entrySet()) {
-            List<KOut> keysHashedToAddress = entry.getValue();
-            try {
-               tm.begin();
-               log.tracef("For m/r task %s migrating intermediate keys %s to %s",  taskId, keysHashedToAddress, entry.getKey());
-               for (KOut key : keysHashedToAddress) {
-                  List<VOut> value = collectedValues.get(key);
-                  DeltaAwareList<VOut> delta = new DeltaAwareList<VOut>(value);
-                  if (emitCompositeIntermediateKeys) {
-                     tmpCache.put(new IntermediateCompositeKey<KOut>(taskId, key), delta);
-                  } else {
-                     tmpCache.put(key, delta);
+            Map<Address, List<KOut>> keysToNodes = mapKeysToNodes(dm, taskId, collectedValues.keySet(),
+                     emitCompositeIntermediateKeys);
+            for (Entry<Address, List<KOut>> entry : keysToNodes.entrySet()) {
+               List<KOut> keysHashedToAddress = entry.getValue();
+               try {
+                  tm.begin();
+                  log.tracef("For m/r task %s migrating intermediate keys %s to %s",  taskId, keysHashedToAddress, entry.getKey());
+                  for (KOut key : keysHashedToAddress) {
+                     List<VOut> value = collectedValues.get(key);
+                     DeltaAwareList<VOut> delta = new DeltaAwareList<VOut>(value);
+                     if (emitCompositeIntermediateKeys) {
+                        tmpCache.put(new IntermediateCompositeKey<KOut>(taskId, key), delta);
+                     } else {
+                        tmpCache.put(key, delta);
+                     }
+                     mapPhaseKeys.add(key);
                   }
-                  mapPhaseKeys.add(key);
+                  tm.commit();
+               } catch (Exception e) {
+                  tm.rollback();
+                  throw new CacheException("Could not move intermediate keys/values for M/R task " + taskId, e);
                }
-               tm.commit();
-            } catch (Exception e) { 
-               tm.rollback();
-               throw new CacheException("Could not move intermediate keys/values for M/R task " + taskId, e);
             }
          }
+      } finally {
+         if (combiner != null) {
+            taskLifecycleService.onPostExecute(combiner);
+         }
+         collector.dispose();
       }
       return mapPhaseKeys;
    }
@@ -292,36 +420,30 @@ private <KIn, VIn, KOut, VOut> Map<KOut, List<VOut>> combineForLocalReduction(
       String taskId =  mcc.getTaskId();      
       Reducer <KOut,VOut> combiner = mcc.getCombiner();
       Map<KOut, List<VOut>> result = null;      
-
-      if (combiner != null) {
-         result = new HashMap<KOut, List<VOut>>();   
-         log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
-         MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
-         try {
-            Cache<?, ?> cache = cacheManager.getCache(mcc.getCacheName());
-            taskLifecycleService.onPreExecute(combiner, cache);
-            Map<KOut, List<VOut>> collectedValues = collector.collectedValues();
-            for (Entry<KOut, List<VOut>> e : collectedValues.entrySet()) {
-               VOut combined = null;
-               List<VOut> list = e.getValue();               
-               List<VOut> l = new LinkedList<VOut>();
-               if (list.size() > 1) {
-                  combined = (VOut) combiner.reduce(e.getKey(), list.iterator());                                    
-               } else {
-                  combined = list.get(0);                  
-               }                              
-               l.add(combined);
-               result.put(e.getKey(), l);
-               log.tracef("For m/r task %s combined %s to %s at %s" , taskId, e.getKey(), combined, localAddress);               
+      MapReduceTaskLifecycleService taskLifecycleService = MapReduceTaskLifecycleService.getInstance();
+      try {
+         if (combiner != null) {
+            log.tracef("For m/r task %s invoking combiner %s at %s",  taskId, mcc, localAddress);
+            taskLifecycleService.onPreExecute(combiner, cacheManager.getCache(mcc.getCacheName()));
+         }
+         for (Iterator<Map<KOut, List<VOut>>> chunks = collector.chunks(); chunks.hasNext();) {
+            Map<KOut, List<VOut>> collectedValues = chunks.next();
+            if (combiner != null) {
+               combineInPlace(taskId, combiner, collectedValues);
             }
-         } finally {
+            if (result == null) {
+               result = collectedValues;
+            } else {
+               result.putAll(collectedValues);
+            }
+         }
+      } finally {
+         if (combiner != null) {
             taskLifecycleService.onPostExecute(combiner);
          }
-      } else {
-         // Combiner not specified     
-         result = collector.collectedValues();                  
+         collector.dispose();
       }
-      return result;
+      return result == null ? new HashMap<KOut, List<VOut>>() : result;
    }
       
    @SuppressWarnings("unchecked")
@@ -394,12 +516,148 @@ protected <KIn> Set<KIn> filterLocalPrimaryOwner(Set<KIn> nodeLocalKeys, Distrib
       return selectedKeys;
    }
    
+   /**
+    * A share of the input mapped on this node.
+    */
+   private interface MapInput<KIn, VIn> {
+
+      <KOut, VOut> void map(Mapper<KIn, VIn, KOut, VOut> mapper, Collector<KOut, VOut> collector);
+
+      boolean isEmpty();
+   }
+
+   /**
+    * Input keys looked up through the cache, followed by keys loaded directly from the cache loader.
+    */
+   private class KeySetInput<KIn, VIn> implements MapInput<KIn, VIn> {
+
+      private final Cache<KIn, VIn> cache;
+      private final Collection<KIn> keys;
+      private final Collection<KIn> keysFromCacheLoader;
+
+      KeySetInput(Cache<KIn, VIn> cache, Collection<KIn> keys, Collection<KIn> keysFromCacheLoader) {
+         this.cache = cache;
+         this.keys = keys;
+         this.keysFromCacheLoader = keysFromCacheLoader;
+      }
+
+      @Override
+      public <KOut, VOut> void map(Mapper<KIn, VIn, KOut, VOut> mapper, Collector<KOut, VOut> collector) {
+         for (KIn key : keys) {           
+            VIn value = cache.get(key);
+            mapper.map(key, value, collector);
+         }
+         for (KIn key : keysFromCacheLoader) {            
+            VIn value = loadValueFromCacheLoader(key);            
+            if(value != null){
+               mapper.map(key, value, collector);
+            }
+         }
+      }
+
+      @Override
+      public boolean isEmpty() {
+         return keys.isEmpty() && keysFromCacheLoader.isEmpty();
+      }
+   }
+
+   /**
+    * Walks the entries of the data container and then the cache loader keys that are not in memory, mapping those this
+    * node is the primary owner of and whose segment belongs to this partition. Entries are never read through the
+    * cache, so the walk neither builds a key set of the data container nor pulls stored entries into memory.
+    * <p>
+    * Like any iteration over the data container the walk is weakly consistent, an entry evicted while it runs may be
+    * mapped twice.
+    */
+   private class StreamedInput<KIn, VIn> implements MapInput<KIn, VIn> {
+
+      private final Cache<KIn, VIn> cache;
+      private final DistributionManager dm;
+      private final Set<KIn> keysInCacheLoader;
+      private final int partition;
+      private final int partitions;
+
+      StreamedInput(Cache<KIn, VIn> cache, DistributionManager dm, Set<KIn> keysInCacheLoader, int partition,
+               int partitions) {
+         this.cache = cache;
+         this.dm = dm;
+         this.keysInCacheLoader = keysInCacheLoader;
+         this.partition = partition;
+         this.partitions = partitions;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public <KOut, VOut> void map(Mapper<KIn, VIn, KOut, VOut> mapper, Collector<KOut, VOut> collector) {
+         DataContainer dataContainer = cache.getAdvancedCache().getDataContainer();
+         long now = System.currentTimeMillis();
+         for (Iterator<InternalCacheEntry> it = entries(dataContainer); it.hasNext(); ) {
+            InternalCacheEntry entry = it.next();
+            Object key = unwrap(entry.getKey());
+            Object value = unwrap(entry.getValue());
+            if (value != null && !entry.isExpired(now) && isInPartition(key)) {
+               mapper.map((KIn) key, (VIn) value, collector);
+            }
+         }
+         for (KIn key : keysInCacheLoader) {
+            if (isInPartition(key) && !isInDataContainer(dataContainer, key)) {
+               VIn value = loadValueFromCacheLoader(key);
+               if (value != null) {
+                  mapper.map(key, value, collector);
+               }
+            }
+         }
+      }
+
+      @Override
+      public boolean isEmpty() {
+         return false;
+      }
+
+      /**
+       * With a segmented data container each partition only visits its own segments, otherwise all partitions scan
+       * the whole container and filter the keys by segment.
+       */
+      private Iterator<InternalCacheEntry> entries(DataContainer dataContainer) {
+         ConsistentHash ch = dm.getReadConsistentHash();
+         if (dataContainer instanceof SegmentedDataContainer
+               && ((SegmentedDataContainer) dataContainer).isSegmentedBy(ch)) {
+            Set<Integer> segments = new HashSet<Integer>();
+            for (Integer segment : ch.getSegmentsForOwner(localAddress)) {
+               if (segment % partitions == partition) segments.add(segment);
+            }
+            return ((SegmentedDataContainer) dataContainer).iterator(segments);
+         }
+         return dataContainer.iterator();
+      }
+
+      private boolean isInPartition(Object key) {
+         if (partitions > 1 && dm.getReadConsistentHash().getSegment(key) % partitions != partition) {
+            return false;
+         }
+         return localAddress.equals(dm.getPrimaryLocation(key));
+      }
+
+      private boolean isInDataContainer(DataContainer dataContainer, Object key) {
+         StoreAsBinaryConfiguration storeAsBinary = cache.getCacheConfiguration().storeAsBinary();
+         if (storeAsBinary.enabled() && storeAsBinary.storeKeysAsBinary() && !(key instanceof MarshalledValue)
+                  && !MarshalledValue.isTypeExcluded(key.getClass())) {
+            key = new MarshalledValue(key, true, marshaller);
+         }
+         return dataContainer.containsKey(key);
+      }
+
+      private Object unwrap(Object o) {
+         return o instanceof MarshalledValue ? ((MarshalledValue) o).get() : o;
+      }
+   }
+
    /**
     * @author Sanne Grinovero <sanne@hibernate.org> (C) 2011 Red Hat Inc.
     */
    private static class DefaultCollector<KOut, VOut> implements CollectableCollector<KOut, VOut> {
 
-      private final Map<KOut, List<VOut>> store = ConcurrentMapFactory.makeConcurrentMap();
+      protected final Map<KOut, List<VOut>> store = ConcurrentMapFactory.makeConcurrentMap();
 
       @Override
       public void emit(KOut key, VOut value) {
@@ -411,13 +669,264 @@ public void emit(KOut key, VOut value) {
          list.add(value);
       }
 
+      protected void emitAll(KOut key, List<VOut> values) {
+         List<VOut> list = store.get(key);
+         if (list == null) {
+            store.put(key, values);
+         } else {
+            list.addAll(values);
+         }
+      }
+
+      /**
+       * Returns the collected values held in memory.
+       */
       public Map<KOut, List<VOut>> collectedValues() {
          return store;
       }
+
+      @Override
+      public Iterator<Map<KOut, List<VOut>>> chunks() {
+         return Collections.singleton(collectedValues()).iterator();
+      }
+
+      @Override
+      public void dispose() {
+      }
+
+      void merge(DefaultCollector<KOut, VOut> other) {
+         for (Entry<KOut, List<VOut>> e : other.store.entrySet()) {
+            emitAll(e.getKey(), e.getValue());
+         }
+      }
+   }
+
+   /**
+    * Collector writing the values it holds to temporary files whenever there are more than a given number of them, so
+    * that the intermediate results of large tasks do not have to fit in memory. Keys are hashed to a fixed number of
+    * file groups, {@link #chunks()} reads one group at a time back into memory.
+    */
+   private static class SpillingCollector<KOut, VOut> extends DefaultCollector<KOut, VOut> {
+
+      private static final int SPILL_FILE_GROUPS = 16;
+
+      private final String taskId;
+      private final StreamingMarshaller marshaller;
+      private final int maxValuesInMemory;
+      private final List<List<File>> spillFiles = new ArrayList<List<File>>(SPILL_FILE_GROUPS);
+      private DataOutputStream[] spillStreams;
+      private int valuesInMemory;
+
+      SpillingCollector(String taskId, StreamingMarshaller marshaller, int maxValuesInMemory) {
+         this.taskId = taskId;
+         this.marshaller = marshaller;
+         this.maxValuesInMemory = maxValuesInMemory;
+         for (int i = 0; i < SPILL_FILE_GROUPS; i++) {
+            spillFiles.add(new ArrayList<File>());
+         }
+      }
+
+      @Override
+      public void emit(KOut key, VOut value) {
+         super.emit(key, value);
+         if (++valuesInMemory >= maxValuesInMemory) {
+            spill();
+         }
+      }
+
+      @Override
+      protected void emitAll(KOut key, List<VOut> values) {
+         super.emitAll(key, values);
+         valuesInMemory += values.size();
+         if (valuesInMemory >= maxValuesInMemory) {
+            spill();
+         }
+      }
+
+      @Override
+      void merge(DefaultCollector<KOut, VOut> other) {
+         if (other instanceof SpillingCollector) {
+            // the other collector groups keys the same way, so its files are simply read along with ours
+            SpillingCollector<KOut, VOut> spilling = (SpillingCollector<KOut, VOut>) other;
+            spilling.closeSpillStreams();
+            for (int i = 0; i < SPILL_FILE_GROUPS; i++) {
+               spillFiles.get(i).addAll(spilling.spillFiles.get(i));
+               spilling.spillFiles.get(i).clear();
+            }
+         }
+         super.merge(other);
+      }
+
+      @Override
+      public Iterator<Map<KOut, List<VOut>>> chunks() {
+         if (!hasSpilled()) {
+            return super.chunks();
+         }
+         // what is left in memory goes to disk as well, so that every key is read back from a single group
+         spill();
+         closeSpillStreams();
+         return new Iterator<Map<KOut, List<VOut>>>() {
+            private int group = nextGroup(0);
+
+            @Override
+            public boolean hasNext() {
+               return group < SPILL_FILE_GROUPS;
+            }
+
+            @Override
+            public Map<KOut, List<VOut>> next() {
+               if (!hasNext()) {
+                  throw new NoSuchElementException();
+               }
+               Map<KOut, List<VOut>> chunk = readGroup(group);
+               group = nextGroup(group + 1);
+               return chunk;
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public void dispose() {
+         try {
+            closeSpillStreams();
+         } finally {
+            for (List<File> files : spillFiles) {
+               for (File file : files) {
+                  if (!file.delete()) {
+                     log.tracef("For m/r task %s could not delete %s", taskId, file);
+                  }
+               }
+               files.clear();
+            }
+         }
+      }
+
+      private boolean hasSpilled() {
+         return nextGroup(0) < SPILL_FILE_GROUPS;
+      }
+
+      private int nextGroup(int from) {
+         int group = from;
+         while (group < SPILL_FILE_GROUPS && spillFiles.get(group).isEmpty()) {
+            group++;
+         }
+         return group;
+      }
+
+      private void spill() {
+         if (spillStreams == null) {
+            spillStreams = new DataOutputStream[SPILL_FILE_GROUPS];
+         }
+         try {
+            for (Entry<KOut, List<VOut>> e : store.entrySet()) {
+               DataOutputStream out = spillStream((e.getKey().hashCode() & Integer.MAX_VALUE) % SPILL_FILE_GROUPS);
+               write(out, e.getKey());
+               write(out, e.getValue());
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException("Interrupted while writing intermediate results of M/R task " + taskId + " to disk", e);
+         } catch (IOException e) {
+            throw new CacheException("Could not write intermediate results of M/R task " + taskId + " to disk", e);
+         }
+         log.tracef("For m/r task %s spilled %s intermediate values to disk", taskId, valuesInMemory);
+         store.clear();
+         valuesInMemory = 0;
+      }
+
+      private DataOutputStream spillStream(int group) throws IOException {
+         DataOutputStream out = spillStreams[group];
+         if (out == null) {
+            File file = File.createTempFile("mapreduce-", ".spill");
+            spillFiles.get(group).add(file);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            spillStreams[group] = out;
+         }
+         return out;
+      }
+
+      private void closeSpillStreams() {
+         if (spillStreams == null) {
+            return;
+         }
+         DataOutputStream[] streams = spillStreams;
+         spillStreams = null;
+         IOException failure = null;
+         for (DataOutputStream out : streams) {
+            if (out != null) {
+               try {
+                  // end of file marker
+                  out.writeInt(-1);
+                  out.close();
+               } catch (IOException e) {
+                  Util.close(out);
+                  failure = e;
+               }
+            }
+         }
+         if (failure != null) {
+            throw new CacheException("Could not write intermediate results of M/R task " + taskId + " to disk", failure);
+         }
+      }
+
+      private void write(DataOutputStream out, Object o) throws IOException, InterruptedException {
+         ByteBuffer buffer = marshaller.objectToBuffer(o);
+         out.writeInt(buffer.getLength());
+         out.write(buffer.getBuf(), buffer.getOffset(), buffer.getLength());
+      }
+
+      @SuppressWarnings("unchecked")
+      private Map<KOut, List<VOut>> readGroup(int group) {
+         Map<KOut, List<VOut>> chunk = new HashMap<KOut, List<VOut>>();
+         for (File file : spillFiles.get(group)) {
+            DataInputStream in = null;
+            try {
+               in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+               for (int length = in.readInt(); length >= 0; length = in.readInt()) {
+                  KOut key = (KOut) read(in, length);
+                  List<VOut> values = (List<VOut>) read(in, in.readInt());
+                  List<VOut> list = chunk.get(key);
+                  if (list == null) {
+                     chunk.put(key, values);
+                  } else {
+                     list.addAll(values);
+                  }
+               }
+            } catch (IOException e) {
+               throw new CacheException("Could not read intermediate results of M/R task " + taskId + " from disk", e);
+            } catch (ClassNotFoundException e) {
+               throw new CacheException("Could not read intermediate results of M/R task " + taskId + " from disk", e);
+            } finally {
+               Util.close(in);
+            }
+         }
+         return chunk;
+      }
+
+      private Object read(DataInputStream in, int length) throws IOException, ClassNotFoundException {
+         byte[] bytes = new byte[length];
+         in.readFully(bytes);
+         return marshaller.objectFromByteBuffer(bytes);
+      }
    }
    
    private interface CollectableCollector<K,V> extends Collector<K, V>{      
-      Map<K, List<V>> collectedValues();
+
+      /**
+       * Returns the collected values in chunks, each key belonging to a single chunk. Chunks may be read back from
+       * disk one at a time.
+       */
+      Iterator<Map<K, List<V>>> chunks();
+
+      /**
+       * Releases any resource held outside of the heap, such as temporary files.
+       */
+      void dispose();
    }
    
    private static class DeltaAwareList<E> extends LinkedList<E> implements DeltaAware, Delta{
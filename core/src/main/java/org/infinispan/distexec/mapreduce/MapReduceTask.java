@@ -163,6 +163,9 @@
    protected Reducer<KOut, VOut> combiner;
    protected final boolean distributeReducePhase;
    protected final boolean useIntermediateSharedCache;
+   protected int mapParallelism = 1;
+   protected boolean streamingInput;
+   protected int maxCollectedValues;
 
    protected final Collection<KIn> keys;
    protected final AdvancedCache<KIn, VIn> cache;
@@ -287,6 +290,57 @@ public MapReduceTask<KIn, VIn, KOut, VOut> combinedWith(Reducer<KOut, VOut> comb
       return this;
    }
 
+   /**
+    * Specifies how many threads each node uses to execute the map phase, and the combiner if one is set, over its
+    * input keys. Input keys are partitioned by their consistent hash segment and each partition is processed by its
+    * own copy of the {@link Mapper} and combiner, using threads of the map/reduce executor configured through
+    * {@link org.infinispan.configuration.global.GlobalConfigurationBuilder#mapReduceExecutor()}.
+    * <p>
+    * Defaults to 1, i.e. the map phase runs sequentially in the thread executing it.
+    * 
+    * @param mapParallelism number of partitions each node maps concurrently
+    * @return this MapReduceTask itself
+    * @since 5.2
+    */
+   public MapReduceTask<KIn, VIn, KOut, VOut> mappedInParallel(int mapParallelism) {
+      if (mapParallelism < 1)
+         throw new IllegalArgumentException("Map parallelism has to be at least 1, was " + mapParallelism);
+      this.mapParallelism = mapParallelism;
+      return this;
+   }
+
+   /**
+    * Maps the entries of each node as its data container and cache loader are walked, instead of first collecting the
+    * keys of the local cache and then looking up each of them. The walk builds no key set of the data container and
+    * entries loaded from the cache loader are not stored in memory, so large tasks put less pressure on the heap and on
+    * eviction. With {@link #mappedInParallel(int)} every thread walks the entries of its own consistent hash segments.
+    * <p>
+    * Streaming only applies when the task is not restricted to a set of input keys with {@link #onKeys(Object...)}.
+    * 
+    * @return this MapReduceTask itself
+    * @since 5.2
+    */
+   public MapReduceTask<KIn, VIn, KOut, VOut> streamingInput() {
+      this.streamingInput = true;
+      return this;
+   }
+
+   /**
+    * Bounds the number of intermediate values each node keeps in memory during the map phase. Once a node has emitted
+    * more values than that, they are written to temporary files and read back, one group of intermediate keys at a
+    * time, when they are combined and handed over to the reduce phase.
+    * 
+    * @param maxCollectedValues maximum number of intermediate values kept in memory by each node
+    * @return this MapReduceTask itself
+    * @since 5.2
+    */
+   public MapReduceTask<KIn, VIn, KOut, VOut> spillingToDiskOver(int maxCollectedValues) {
+      if (maxCollectedValues < 1)
+         throw new IllegalArgumentException("Maximum number of collected values has to be at least 1, was " + maxCollectedValues);
+      this.maxCollectedValues = maxCollectedValues;
+      return this;
+   }
+
    /**
     * Executes this task across Infinispan cluster nodes.
     * 
@@ -603,6 +657,9 @@ private MapCombineCommand<KIn, VIn, KOut, VOut> buildMapCombineCommand(
       MapCombineCommand<KIn, VIn, KOut, VOut> c = factory.buildMapCombineCommand(taskId, m, r, keys);
       c.setReducePhaseDistributed(reducePhaseDistributed);
       c.setEmitCompositeIntermediateKeys(emitCompositeIntermediateKeys);
+      c.setMapParallelism(mapParallelism);
+      c.setInputStreamed(streamingInput);
+      c.setMaxCollectedValues(maxCollectedValues);
       return c;
    }
    
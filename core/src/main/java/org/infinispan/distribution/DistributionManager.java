@@ -33,6 +33,7 @@
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -113,6 +114,16 @@ public interface DistributionManager {
     */
    InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationContext ctx, boolean acquireRemoteLock, FlagAffectedCommand command) throws Exception;
 
+   /**
+    * Retrieves several cache entries from remote sources.  The keys are grouped by primary owner and a single {@link
+    * org.infinispan.commands.remote.ClusteredGetAllCommand} is sent to each owner, all of them in parallel.
+    *
+    * @param keys keys to look up
+    * @return the entries retrieved, mapped to null for the keys that do not exist.  Keys for which no reliable answer
+    *         was received, e.g. because their owner left the cluster or is affected by a rehash, are left out.
+    */
+   Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Collection<?> keys, FlagAffectedCommand command) throws Exception;
+
    /**
     * Retrieves the consistent hash instance currently in use, an instance of the configured ConsistentHash
     * class (which defaults to {@link org.infinispan.distribution.ch.DefaultConsistentHash}.
@@ -24,6 +24,7 @@
 
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.entries.CacheEntry;
@@ -46,12 +47,15 @@
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.transaction.xa.GlobalTransaction;
 import org.infinispan.util.Immutables;
+import org.infinispan.util.concurrent.DeferredReturnFuture;
+import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
 import org.rhq.helpers.pluginAnnotations.agent.Parameter;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 
 /**
  * The default distribution manager implementation
@@ -174,6 +178,56 @@ public InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationContext
       return null;
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Collection<?> keys, FlagAffectedCommand command) throws Exception {
+      ConsistentHash ch = getReadConsistentHash();
+      Map<Address, List<Object>> keysByOwner = new HashMap<Address, List<Object>>();
+      for (Object key : keys) {
+         Address owner = ch.locatePrimaryOwner(key);
+         List<Object> ownerKeys = keysByOwner.get(owner);
+         if (ownerKeys == null) {
+            ownerKeys = new ArrayList<Object>();
+            keysByOwner.put(owner, ownerKeys);
+         }
+         ownerKeys.add(key);
+      }
+      // if a primary owner has left the cluster since the command was issued, its keys are not looked up here
+      keysByOwner.keySet().retainAll(rpcManager.getTransport().getMembers());
+      keysByOwner.remove(getAddress());
+
+      long timeout = configuration.clustering().sync().replTimeout();
+      Map<Address, NotifyingNotifiableFuture<Object>> futures = new HashMap<Address, NotifyingNotifiableFuture<Object>>(keysByOwner.size());
+      for (Map.Entry<Address, List<Object>> e : keysByOwner.entrySet()) {
+         ClusteredGetAllCommand get = cf.buildClusteredGetAllCommand(e.getValue(), command.getFlags());
+         NotifyingNotifiableFuture<Object> future = new DeferredReturnFuture<Object>();
+         rpcManager.invokeRemotelyInFuture(Collections.singleton(e.getKey()), get, false, future, timeout, true);
+         futures.put(e.getKey(), future);
+      }
+
+      Map<Object, InternalCacheEntry> entries = new HashMap<Object, InternalCacheEntry>(keys.size());
+      for (Map.Entry<Address, NotifyingNotifiableFuture<Object>> e : futures.entrySet()) {
+         Map<Address, Response> responses;
+         try {
+            responses = (Map<Address, Response>) e.getValue().get();
+         } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            throw cause instanceof Exception ? (Exception) cause : ee;
+         }
+         Response r = responses.get(e.getKey());
+         if (r instanceof SuccessfulResponse) {
+            Map<Object, InternalCacheValue> values = (Map<Object, InternalCacheValue>) ((SuccessfulResponse) r).getResponseValue();
+            for (Map.Entry<Object, InternalCacheValue> v : values.entrySet()) {
+               InternalCacheValue cacheValue = v.getValue();
+               entries.put(v.getKey(), cacheValue == null ? null : cacheValue.toInternalCacheEntry(v.getKey()));
+            }
+         } else if (trace) {
+            log.tracef("No valid response from %s for keys %s: %s", e.getKey(), keysByOwner.get(e.getKey()), r);
+         }
+      }
+      return entries;
+   }
+
    @Override
    public ConsistentHash getConsistentHash() {
       return getWriteConsistentHash();
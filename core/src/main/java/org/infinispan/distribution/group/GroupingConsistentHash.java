@@ -46,6 +46,13 @@ public GroupingConsistentHash(ConsistentHash ch, GroupManager groupManager) {
       this.groupManager = groupManager;
    }
 
+   /**
+    * @return the wrapped consistent hash
+    */
+   public ConsistentHash getConsistentHash() {
+      return ch;
+   }
+
    @Override
    public int getNumSegments() {
       return ch.getNumSegments();
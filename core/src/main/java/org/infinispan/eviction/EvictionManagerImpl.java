@@ -26,6 +26,9 @@
 import org.infinispan.Cache;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.ExpirationIndex;
+import org.infinispan.container.OffHeapDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.context.impl.ImmutableContext;
@@ -34,12 +37,20 @@
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.util.Util;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
+import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Operation;
+import org.rhq.helpers.pluginAnnotations.agent.Units;
 
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
@@ -47,6 +58,7 @@
 import java.util.concurrent.TimeUnit;
 
 @ThreadSafe
+@MBean(objectName = "EvictionManager", description = "Component that purges expired entries from memory and from the cache store")
 public class EvictionManagerImpl implements EvictionManager {
    private static final Log log = LogFactory.getLog(EvictionManagerImpl.class);
    private static final boolean trace = log.isTraceEnabled();
@@ -61,6 +73,7 @@ public class EvictionManagerImpl implements EvictionManager {
    private CacheNotifier cacheNotifier;
    private boolean enabled;
    private String cacheName;
+   private volatile long lastPurgeDuration;
 
    @Inject
    public void initialize(@ComponentName(KnownComponentNames.EVICTION_SCHEDULED_EXECUTOR)
@@ -111,7 +124,9 @@ public void processEviction() {
                log.trace("Purging data container of expired entries");
                start = System.nanoTime();
             }
+            long purgeStart = System.nanoTime();
             dataContainer.purgeExpired();
+            lastPurgeDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - purgeStart);
             if (trace) {
                log.tracef("Purging data container completed in %s", Util.prettyPrintTime(System.nanoTime() - start, TimeUnit.NANOSECONDS));
             }
@@ -138,6 +153,57 @@ public void processEviction() {
       }
    }
 
+   @ManagedAttribute(description = "Number of expired entries purged from memory")
+   @Metric(displayName = "Number of purged expired entries", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getExpiredEntriesPurged() {
+      ExpirationIndex index = getExpirationIndex();
+      return index == null ? -1 : index.getPurgedCount();
+   }
+
+   @ManagedAttribute(description = "Average time between the expiry of an entry and its removal from memory (in milliseconds)")
+   @Metric(displayName = "Average purge lag", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
+   public long getAveragePurgeLag() {
+      ExpirationIndex index = getExpirationIndex();
+      return index == null ? -1 : index.getAveragePurgeLag();
+   }
+
+   @ManagedAttribute(description = "Maximum time between the expiry of an entry and its removal from memory (in milliseconds)")
+   @Metric(displayName = "Maximum purge lag", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
+   public long getMaxPurgeLag() {
+      ExpirationIndex index = getExpirationIndex();
+      return index == null ? -1 : index.getMaxPurgeLag();
+   }
+
+   @ManagedAttribute(description = "Number of entries tracked for expiration")
+   @Metric(displayName = "Number of entries tracked for expiration", displayType = DisplayType.SUMMARY)
+   public int getExpirableEntries() {
+      ExpirationIndex index = getExpirationIndex();
+      return index == null ? -1 : index.size();
+   }
+
+   @ManagedAttribute(description = "Duration of the last purge of expired entries from memory (in milliseconds)")
+   @Metric(displayName = "Last purge duration", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
+   public long getLastPurgeDuration() {
+      return lastPurgeDuration;
+   }
+
+   @ManagedOperation(description = "Resets the expiration statistics")
+   @Operation(displayName = "Reset expiration statistics")
+   public void resetStatistics() {
+      ExpirationIndex index = getExpirationIndex();
+      if (index != null) index.resetStatistics();
+      lastPurgeDuration = 0;
+   }
+
+   private ExpirationIndex getExpirationIndex() {
+      if (dataContainer instanceof DefaultDataContainer) {
+         return ((DefaultDataContainer) dataContainer).getExpirationIndex();
+      } else if (dataContainer instanceof OffHeapDataContainer) {
+         return ((OffHeapDataContainer) dataContainer).getExpirationIndex();
+      }
+      return null;
+   }
+
    @Override
    public boolean isEnabled() {
       return enabled;
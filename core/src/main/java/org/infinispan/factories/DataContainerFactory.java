@@ -25,6 +25,9 @@
 import org.infinispan.config.ConfigurationException;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.InternalCacheEntrySizeCalculator;
+import org.infinispan.container.OffHeapDataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
@@ -48,18 +51,39 @@ public <T> T construct(Class<T> componentType) {
       } else {
          EvictionStrategy st = configuration.eviction().strategy();
          int level = configuration.locking().concurrencyLevel();
+         boolean offHeap = configuration.dataContainer().offHeap();
         
          switch (st) {
             case NONE:         
+               if (offHeap) {
+                  return (T) OffHeapDataContainer.unBoundedDataContainer(level);
+               }
+               if (configuration.dataContainer().segmented() && configuration.clustering().cacheMode().isDistributed()) {
+                  // bucket entries by segment so that state transfer only touches the segments involved
+                  return (T) new SegmentedDataContainer(level, configuration.clustering().hash().hash(),
+                                                        configuration.clustering().hash().numSegments());
+               }
                return (T) DefaultDataContainer.unBoundedDataContainer(level);
             case UNORDERED:   
             case LRU:
             case FIFO:
             case LIRS:
                int maxEntries = configuration.eviction().maxEntries();
+               long maxMemory = configuration.eviction().maxMemory();
+               if (maxMemory > 0) {
+                  if (offHeap) {
+                     return (T) OffHeapDataContainer.memoryBoundedDataContainer(level, maxMemory, st);
+                  }
+                  return (T) DefaultDataContainer.memoryBoundedDataContainer(level, maxMemory, st,
+                        configuration.eviction().threadPolicy(), new InternalCacheEntrySizeCalculator(componentRegistry));
+               }
                //handle case when < 0 value signifies unbounded container 
                if(maxEntries < 0) {
-                   return (T) DefaultDataContainer.unBoundedDataContainer(level);
+                   return (T) (offHeap ? OffHeapDataContainer.unBoundedDataContainer(level)
+                         : DefaultDataContainer.unBoundedDataContainer(level));
+               }
+               if (offHeap) {
+                  return (T) OffHeapDataContainer.boundedDataContainer(level, maxEntries, st);
                }
                EvictionThreadPolicy policy = configuration.eviction().threadPolicy();
                return (T) DefaultDataContainer.boundedDataContainer(level, maxEntries, st, policy);
@@ -48,6 +48,7 @@
 import org.infinispan.transaction.TransactionCoordinator;
 import org.infinispan.transaction.xa.TransactionFactory;
 import org.infinispan.transaction.xa.recovery.RecoveryAdminOperations;
+import org.infinispan.util.concurrent.locks.containers.LightweightStripedLockContainer;
 import org.infinispan.util.concurrent.locks.containers.LockContainer;
 import org.infinispan.util.concurrent.locks.containers.OwnableReentrantPerEntryLockContainer;
 import org.infinispan.util.concurrent.locks.containers.OwnableReentrantStripedLockContainer;
@@ -109,7 +110,9 @@ public <T> T construct(Class<T> componentType) {
             return (T) new EvictionManagerImpl();
          } else if (componentType.equals(LockContainer.class)) {
             boolean  notTransactional = !isTransactional;
-            LockContainer<?> lockContainer = configuration.locking().useLockStriping() ?
+            LockContainer<?> lockContainer = configuration.locking().lightweightLocks() ?
+                  new LightweightStripedLockContainer(configuration.locking().concurrencyLevel()) :
+                  configuration.locking().useLockStriping() ?
                   notTransactional ? new ReentrantStripedLockContainer(configuration.locking().concurrencyLevel())
                         : new OwnableReentrantStripedLockContainer(configuration.locking().concurrencyLevel()) :
                   notTransactional ? new ReentrantPerEntryLockContainer(configuration.locking().concurrencyLevel())
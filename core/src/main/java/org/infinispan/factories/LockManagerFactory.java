@@ -26,6 +26,7 @@
 import org.infinispan.util.concurrent.locks.DeadlockDetectingLockManager;
 import org.infinispan.util.concurrent.locks.LockManager;
 import org.infinispan.util.concurrent.locks.LockManagerImpl;
+import org.infinispan.util.concurrent.locks.WaitForGraphLockManager;
 
 /**
  * Factory class that creates instances of {@link LockManager}.
@@ -38,6 +39,8 @@ public class LockManagerFactory extends AbstractNamedCacheComponentFactory imple
    @Override
    public <T> T construct(Class<T> componentType) {
       if (configuration.deadlockDetection().enabled()) {
+         if (configuration.deadlockDetection().waitForGraph())
+            return (T) new WaitForGraphLockManager();
          return (T) new DeadlockDetectingLockManager();
       } else {
          return (T) new LockManagerImpl();
@@ -50,6 +50,7 @@ public class NamedExecutorsFactory extends NamedComponentFactory implements Auto
    private ExecutorService asyncTransportExecutor;
    private ScheduledExecutorService evictionExecutor;
    private ScheduledExecutorService asyncReplicationExecutor;
+   private ExecutorService mapReduceExecutor;
 
    @Override
    @SuppressWarnings("unchecked")
@@ -96,6 +97,15 @@ public <T> T construct(Class<T> componentType, String componentName) {
                }
             }
             return (T) asyncReplicationExecutor;
+         } else if (componentName.equals(MAP_REDUCE_EXECUTOR)) {
+            synchronized (this) {
+               if (mapReduceExecutor == null) {
+                  mapReduceExecutor = buildAndConfigureExecutorService(
+                        globalConfiguration.mapReduceExecutor().factory(),
+                        globalConfiguration.mapReduceExecutor().properties(), componentName, nodeName);
+               }
+            }
+            return (T) mapReduceExecutor;
          } else {
             throw new ConfigurationException("Unknown named executor " + componentName);
          }
@@ -112,6 +122,7 @@ public void stop() {
       if (asyncTransportExecutor != null) asyncTransportExecutor.shutdownNow();
       if (asyncReplicationExecutor != null) asyncReplicationExecutor.shutdownNow();
       if (evictionExecutor != null) evictionExecutor.shutdownNow();
+      if (mapReduceExecutor != null) mapReduceExecutor.shutdownNow();
    }
 
    private ExecutorService buildAndConfigureExecutorService(ExecutorFactory f, Properties p,
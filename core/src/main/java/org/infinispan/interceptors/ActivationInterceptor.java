@@ -22,6 +22,7 @@
  */
 package org.infinispan.interceptors;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
 import org.infinispan.commands.write.PutMapCommand;
@@ -103,6 +104,13 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return retval;
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      Object retval = super.visitGetAllCommand(ctx, command);
+      if (enabled) removeFromStore(command.getKeys().toArray());
+      return retval;
+   }
+
    private void removeFromStore(Object... keys) throws CacheLoaderException {
       if (!clm.isShared()) {
          for (Object k : keys) {
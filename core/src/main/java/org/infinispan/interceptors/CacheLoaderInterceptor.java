@@ -23,6 +23,7 @@
 package org.infinispan.interceptors;
 
 import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -42,6 +43,7 @@
 import org.infinispan.jmx.annotations.MBean;
 import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.loaders.BulkCacheLoader;
 import org.infinispan.loaders.CacheLoader;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
@@ -54,10 +56,12 @@
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -114,6 +118,20 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return invokeNextInterceptor(ctx, command);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      if (enabled) {
+         if (loader instanceof BulkCacheLoader) {
+            loadAllIfNeeded(ctx, command);
+         } else {
+            for (Object key : command.getKeys()) {
+               loadIfNeededAndUpdateStats(ctx, key, true, command);
+            }
+         }
+      }
+      return invokeNextInterceptor(ctx, command);
+   }
+
    @Override
    public Object visitInvalidateCommand(InvocationContext ctx, InvalidateCommand command) throws Throwable {
       if (enabled) {
@@ -182,6 +200,39 @@ private boolean loadIfNeeded(InvocationContext ctx, Object key, boolean isRetrie
       }
    }
 
+   /**
+    * Same as {@link #loadIfNeeded(InvocationContext, Object, boolean, FlagAffectedCommand)} for retrievals of several
+    * keys, except that all the keys missing from the context are loaded with a single call to the {@link BulkCacheLoader}.
+    */
+   private void loadAllIfNeeded(InvocationContext ctx, GetAllCommand cmd) throws Throwable {
+      if (cmd.hasFlag(Flag.SKIP_CACHE_STORE) || cmd.hasFlag(Flag.SKIP_CACHE_LOAD)
+            || cmd.hasFlag(Flag.IGNORE_RETURN_VALUES)) {
+         return; //skip operation
+      }
+
+      List<Object> missing = new ArrayList<Object>();
+      for (Object key : cmd.getKeys()) {
+         CacheEntry e = ctx.lookupEntry(key);
+         if (e == null || e.isNull() || e.getValue() == null) {
+            missing.add(key);
+         } else if (e instanceof InternalNullEntry) {
+            ctx.putLookedUpEntry(key, null);
+         }
+      }
+      if (missing.isEmpty()) return;
+
+      Set<InternalCacheEntry> loaded = ((BulkCacheLoader) loader).loadAll(missing);
+      if (log.isTraceEnabled()) log.tracef("Loaded %d out of %d missing keys from the cache store", loaded.size(), missing.size());
+      for (InternalCacheEntry entry : loaded) {
+         Object key = entry.getKey();
+         MVCCEntry mvccEntry = entryFactory.wrapEntryForPut(ctx, key, entry, false, cmd);
+         recordLoadedEntry(ctx, key, mvccEntry, entry);
+      }
+      if (getStatisticsEnabled()) {
+         cacheMisses.getAndAdd(missing.size() - loaded.size());
+      }
+   }
+
    /**
     * This method records a loaded entry, performing the following steps: <ol> <li>Increments counters for reporting via
     * JMX</li> <li>updates the 'entry' reference (an entry in the current thread's InvocationContext) with the contents
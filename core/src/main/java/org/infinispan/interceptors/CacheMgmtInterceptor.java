@@ -22,12 +22,15 @@
  */
 package org.infinispan.interceptors;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.EvictCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
 import org.infinispan.commands.write.PutMapCommand;
 import org.infinispan.commands.write.RemoveCommand;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.OffHeapDataContainer;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.interceptors.base.JmxStatsCommandInterceptor;
@@ -106,6 +109,25 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return retval;
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      long t1 = System.nanoTime();
+      Map<?, ?> retval = (Map<?, ?>) invokeNextInterceptor(ctx, command);
+      long t2 = System.nanoTime();
+      int requested = command.getKeys().size();
+      if (ctx.isOriginLocal() && requested > 0) {
+         // the time taken by the whole call is shared out between the keys found and the keys missed
+         long intervalMilliseconds = nanosecondsIntervalToMilliseconds(t1, t2);
+         int found = retval.size();
+         int missed = requested - found;
+         hitTimes.getAndAdd(intervalMilliseconds * found / requested);
+         hits.getAndAdd(found);
+         missTimes.getAndAdd(intervalMilliseconds * missed / requested);
+         misses.getAndAdd(missed);
+      }
+      return retval;
+   }
+
    @Override
    public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
       final Map<Object, Object> data = command.getMap();
@@ -183,6 +205,16 @@ public long getEvictions() {
       return evictions.get();
    }
 
+   @ManagedAttribute(description = "Number of bytes taken up by the entries in a cache bounded by memory or stored off-heap, 0 otherwise")
+   @Metric(displayName = "Memory used by cache entries", displayType = DisplayType.SUMMARY)
+   public long getMemoryUsed() {
+      if (dataContainer instanceof DefaultDataContainer)
+         return ((DefaultDataContainer) dataContainer).getMemoryUsed();
+      if (dataContainer instanceof OffHeapDataContainer)
+         return ((OffHeapDataContainer) dataContainer).getOffHeapMemoryUsed();
+      return 0;
+   }
+
    @ManagedAttribute(description = "Percentage hit/(hit+miss) ratio for the cache")
    @Metric(displayName = "Hit ratio", units = Units.PERCENTAGE, displayType = DisplayType.SUMMARY)
    @SuppressWarnings("unused")
@@ -48,6 +48,7 @@
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.decorators.AsyncStore;
 import org.infinispan.loaders.modifications.Clear;
 import org.infinispan.loaders.modifications.Modification;
 import org.infinispan.loaders.modifications.Remove;
@@ -56,9 +57,11 @@
 import org.infinispan.util.concurrent.ConcurrentMapFactory;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
+import org.rhq.helpers.pluginAnnotations.agent.Units;
 
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
@@ -87,6 +90,7 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
    private Map<GlobalTransaction, Set<Object>> preparingTxs;
    final AtomicLong cacheStores = new AtomicLong(0);
    CacheStore store;
+   private AsyncStore asyncStore;
    private CacheLoaderManager loaderManager;
    private InternalEntryFactory entryFactory;
    private TransactionManager transactionManager;
@@ -109,6 +113,7 @@ protected void init(CacheLoaderManager loaderManager, InternalEntryFactory entry
    @Start(priority = 15)
    protected void start() {
       store = loaderManager.getCacheStore();
+      asyncStore = store instanceof AsyncStore ? (AsyncStore) store : null;
       this.setStatisticsEnabled(cacheConfiguration.jmxStatistics().enabled());
       loaderConfig = cacheConfiguration.loaders();
       int concurrencyLevel = cacheConfiguration.locking().concurrencyLevel();
@@ -385,6 +390,7 @@ private Object visitSingleStore(InvocationContext ctx, Object key) throws Throwa
    @Operation(displayName = "Reset statistics")
    public void resetStatistics() {
       cacheStores.set(0);
+      if (asyncStore != null) asyncStore.resetStatistics();
    }
 
    @ManagedAttribute(description = "number of cache loader stores")
@@ -394,6 +400,41 @@ public long getCacheLoaderStores() {
       return cacheStores.get();
    }
 
+   @ManagedAttribute(description = "Number of modifications waiting to be applied by the async store, -1 if the store is not asynchronous")
+   @Metric(displayName = "Async store pending modifications", measurementType = MeasurementType.DYNAMIC)
+   @SuppressWarnings("unused")
+   public int getAsyncStorePendingModifications() {
+      return asyncStore == null ? -1 : asyncStore.getPendingModifications();
+   }
+
+   @ManagedAttribute(description = "Number of modifications received by the async store for each modification applied to the underlying store")
+   @Metric(displayName = "Async store coalescing ratio", measurementType = MeasurementType.DYNAMIC)
+   @SuppressWarnings("unused")
+   public double getAsyncStoreCoalescingRatio() {
+      return asyncStore == null ? 0 : asyncStore.getCoalescingRatio();
+   }
+
+   @ManagedAttribute(description = "Number of batches of modifications applied by the async store")
+   @Metric(displayName = "Async store flushes", measurementType = MeasurementType.TRENDSUP)
+   @SuppressWarnings("unused")
+   public long getAsyncStoreFlushes() {
+      return asyncStore == null ? 0 : asyncStore.getFlushes();
+   }
+
+   @ManagedAttribute(description = "Average time (in milliseconds) taken by the async store to apply a batch of modifications")
+   @Metric(displayName = "Async store average flush time", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
+   @SuppressWarnings("unused")
+   public double getAsyncStoreAverageFlushTime() {
+      return asyncStore == null ? 0 : asyncStore.getAverageFlushTime();
+   }
+
+   @ManagedAttribute(description = "Maximum time (in milliseconds) taken by the async store to apply a batch of modifications")
+   @Metric(displayName = "Async store maximum flush time", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
+   @SuppressWarnings("unused")
+   public double getAsyncStoreMaxFlushTime() {
+      return asyncStore == null ? 0 : asyncStore.getMaxFlushTime();
+   }
+
    InternalCacheEntry getStoredEntry(Object key, InvocationContext ctx) {
       CacheEntry entry = ctx.lookupEntry(key);
       if (entry instanceof InternalCacheEntry) {
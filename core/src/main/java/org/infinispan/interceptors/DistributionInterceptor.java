@@ -26,6 +26,7 @@
 import org.infinispan.commands.FlagAffectedCommand;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.AbstractDataCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -60,9 +61,11 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -152,6 +155,56 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       }
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         Map<Object, Object> found = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+         if (isL1CacheEnabled && !ctx.isOriginLocal()) {
+            for (Object key : found.keySet()) l1Manager.addRequestor(key, ctx.getOrigin());
+         }
+         if (command.hasFlag(Flag.CACHE_MODE_LOCAL) || command.hasFlag(Flag.SKIP_REMOTE_LOOKUP)
+               || command.hasFlag(Flag.IGNORE_RETURN_VALUES)) {
+            return found;
+         }
+
+         List<Object> remoteKeys = new ArrayList<Object>();
+         List<Object> bulkKeys = new ArrayList<Object>();
+         for (Object key : command.getKeys()) {
+            CacheEntry entry;
+            if (found.containsKey(key)
+                  || ((entry = ctx.lookupEntry(key)) != null && !entry.isNull() && !entry.isLockPlaceholder())) {
+               continue;
+            }
+            remoteKeys.add(key);
+            if (ctx.isOriginLocal() && !dm.getLocality(key).isLocal() && isNotInL1(key)) bulkKeys.add(key);
+         }
+
+         // keys that are definitely owned by other nodes are fetched with one request per primary owner, the others
+         // (or those the owner could not answer for) are looked up one by one, as a single get would
+         if (!bulkKeys.isEmpty()) {
+            if (trace) log.tracef("Doing a remote get for keys %s", bulkKeys);
+            Map<Object, InternalCacheEntry> retrieved = dm.retrieveFromRemoteSources(bulkKeys, command);
+            for (Map.Entry<Object, InternalCacheEntry> e : retrieved.entrySet()) {
+               InternalCacheEntry ice = e.getValue();
+               if (ice != null) {
+                  storeRemoteEntry(ctx, e.getKey(), ice, false, command);
+                  found.put(e.getKey(), ice.getValue());
+               }
+            }
+            remoteKeys.removeAll(retrieved.keySet());
+         }
+         for (Object key : remoteKeys) {
+            Object value = remoteGetAndStoreInL1(ctx, key, false, command);
+            if (value != null) found.put(key, value);
+         }
+         return found;
+      } catch (SuspectException e) {
+         // retry
+         return visitGetAllCommand(ctx, command);
+      }
+   }
+
    private boolean needsRemoteGet(InvocationContext ctx, AbstractDataCommand command, boolean retvalCheck) {
       final CacheEntry entry;
       return retvalCheck
@@ -213,33 +266,7 @@ private Object realRemoteGet(InvocationContext ctx, Object key, boolean storeInL
 
       if (ice != null) {
          if (storeInL1) {
-            if (isL1CacheEnabled) {
-               if (trace) log.tracef("Caching remotely retrieved entry for key %s in L1", key);
-               // This should be fail-safe
-               try {
-                  long l1Lifespan = cacheConfiguration.clustering().l1().lifespan();
-                  long lifespan = ice.getLifespan() < 0 ? l1Lifespan : Math.min(ice.getLifespan(), l1Lifespan);
-                  PutKeyValueCommand put = cf.buildPutKeyValueCommand(ice.getKey(), ice.getValue(), lifespan, -1, command.getFlags());
-                  lockAndWrap(ctx, key, ice, command);
-                  invokeNextInterceptor(ctx, put);
-               } catch (Exception e) {
-                  // Couldn't store in L1 for some reason.  But don't fail the transaction!
-                  log.infof("Unable to store entry %s in L1 cache", key);
-                  log.debug("Inability to store in L1 caused by", e);
-               }
-            } else {
-               CacheEntry ce = ctx.lookupEntry(key);
-               if (ce == null || ce.isNull() || ce.isLockPlaceholder() || ce.getValue() == null) {
-                  if (ce != null && ce.isChanged()) {
-                     ce.setValue(ice.getValue());
-                  } else {
-                     if (isWrite)
-                        lockAndWrap(ctx, key, ice, command);
-                     else
-                        ctx.putLookedUpEntry(key, ice);
-                  }
-               }
-            }
+            storeRemoteEntry(ctx, key, ice, isWrite, command);
          } else {
             if (trace) log.tracef("Not caching remotely retrieved entry for key %s in L1", key);
          }
@@ -248,6 +275,39 @@ private Object realRemoteGet(InvocationContext ctx, Object key, boolean storeInL
       return null;
    }
 
+   /**
+    * Stores a remotely retrieved entry in L1 if L1 is enabled, or in the invocation context otherwise.
+    */
+   private void storeRemoteEntry(InvocationContext ctx, Object key, InternalCacheEntry ice, boolean isWrite, FlagAffectedCommand command) throws Throwable {
+      if (isL1CacheEnabled) {
+         if (trace) log.tracef("Caching remotely retrieved entry for key %s in L1", key);
+         // This should be fail-safe
+         try {
+            long l1Lifespan = cacheConfiguration.clustering().l1().lifespan();
+            long lifespan = ice.getLifespan() < 0 ? l1Lifespan : Math.min(ice.getLifespan(), l1Lifespan);
+            PutKeyValueCommand put = cf.buildPutKeyValueCommand(ice.getKey(), ice.getValue(), lifespan, -1, command.getFlags());
+            lockAndWrap(ctx, key, ice, command);
+            invokeNextInterceptor(ctx, put);
+         } catch (Exception e) {
+            // Couldn't store in L1 for some reason.  But don't fail the transaction!
+            log.infof("Unable to store entry %s in L1 cache", key);
+            log.debug("Inability to store in L1 caused by", e);
+         }
+      } else {
+         CacheEntry ce = ctx.lookupEntry(key);
+         if (ce == null || ce.isNull() || ce.isLockPlaceholder() || ce.getValue() == null) {
+            if (ce != null && ce.isChanged()) {
+               ce.setValue(ice.getValue());
+            } else {
+               if (isWrite)
+                  lockAndWrap(ctx, key, ice, command);
+               else
+                  ctx.putLookedUpEntry(key, ice);
+            }
+         }
+      }
+   }
+
    private void lockAndWrap(InvocationContext ctx, Object key, InternalCacheEntry ice, FlagAffectedCommand command) throws InterruptedException {
       boolean skipLocking = hasSkipLocking(command);
       long lockTimeout = getLockAcquisitionTimeout(command, skipLocking);
@@ -22,6 +22,7 @@
 import org.infinispan.commands.AbstractVisitor;
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -119,6 +120,19 @@ public final Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCo
       }
    }
 
+   @Override
+   public final Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         for (Object key : command.getKeys()) {
+            entryFactory.wrapEntryForReading(ctx, key);
+         }
+         return invokeNextInterceptor(ctx, command);
+      } finally {
+         if (!ctx.isInTxScope())
+            commitContextEntries(ctx, command.hasFlag(Flag.SKIP_OWNERSHIP_CHECK));
+      }
+   }
+
    @Override
    public final Object visitInvalidateCommand(InvocationContext ctx, InvalidateCommand command) throws Throwable {
       if (command.getKeys() != null) {
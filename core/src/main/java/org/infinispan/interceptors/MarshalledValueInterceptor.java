@@ -24,6 +24,7 @@
 
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.ValuesCommand;
@@ -51,6 +52,7 @@
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -205,6 +207,35 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return processRetVal(retVal, ctx);
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      Map<Object, Object> unwrappedKeys = null;
+      if (wrapKeys) {
+         Collection<?> keys = command.getKeys();
+         unwrappedKeys = new HashMap<Object, Object>(keys.size());
+         List<Object> wrappedKeys = new ArrayList<Object>(keys.size());
+         for (Object key : keys) {
+            Object wrapped = key;
+            if (!isTypeExcluded(key.getClass())) {
+               MarshalledValue mv = createMarshalledValue(key, ctx);
+               compact(mv);
+               wrapped = mv;
+            }
+            unwrappedKeys.put(wrapped, key);
+            wrappedKeys.add(wrapped);
+         }
+         command.setKeys(wrappedKeys);
+      }
+      Map<Object, Object> found = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+      Map<Object, Object> result = new HashMap<Object, Object>(found.size());
+      for (Map.Entry<Object, Object> e : found.entrySet()) {
+         Object key = unwrappedKeys == null ? e.getKey() : unwrappedKeys.get(e.getKey());
+         result.put(key, processRetVal(e.getValue(), ctx));
+      }
+      return result;
+   }
+
    @Override
    @SuppressWarnings("unchecked")
    public Object visitKeySetCommand(InvocationContext ctx, KeySetCommand command) throws Throwable {
@@ -23,7 +23,8 @@
 package org.infinispan.interceptors;
 
 import org.infinispan.commands.CommandsFactory;
-import org.infinispan.commands.read.AbstractDataCommand;
+import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.tx.CommitCommand;
@@ -149,8 +150,8 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
          // available.  It could just have been removed in the same tx beforehand.  Also don't bother with a remote get if
          // the entry is mapped to the local node.
          if (returnValue == null && ctx.isOriginLocal()) {
-            if (needsRemoteGet(ctx, command)) {
-               returnValue = remoteGet(ctx, command, false);
+            if (needsRemoteGet(ctx, command.getKey(), command)) {
+               returnValue = remoteGet(ctx, command.getKey(), command, false);
             }
          }
          return returnValue;
@@ -160,8 +161,29 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       }
    }
 
-   private boolean needsRemoteGet(InvocationContext ctx, AbstractDataCommand command) {
-      Object key = command.getKey();
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         Map<Object, Object> found = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+         // all keys are local in replicated mode except during state transfer, so the keys not received yet are
+         // simply fetched one by one, as a single get would
+         if (ctx.isOriginLocal()) {
+            for (Object key : command.getKeys()) {
+               if (!found.containsKey(key) && needsRemoteGet(ctx, key, command)) {
+                  Object value = remoteGet(ctx, key, command, false);
+                  if (value != null) found.put(key, value);
+               }
+            }
+         }
+         return found;
+      } catch (SuspectException e) {
+         // retry
+         return visitGetAllCommand(ctx, command);
+      }
+   }
+
+   private boolean needsRemoteGet(InvocationContext ctx, Object key, FlagAffectedCommand command) {
       final CacheEntry entry;
       return !command.hasFlag(Flag.CACHE_MODE_LOCAL)
             && !command.hasFlag(Flag.SKIP_REMOTE_LOOKUP)   //todo [anistor] do we need this? it should normally be used only in distributed mode, never in replicated mode
@@ -179,12 +201,12 @@ private boolean needsRemoteGet(InvocationContext ctx, AbstractDataCommand comman
     *
     *
     * @param ctx invocation context
+    * @param key key to retrieve
     * @param command
     * @return value of a remote get, or null
     * @throws Throwable if there are problems
     */
-   private Object remoteGet(InvocationContext ctx, AbstractDataCommand command, boolean isWrite) throws Throwable {
-      Object key = command.getKey();
+   private Object remoteGet(InvocationContext ctx, Object key, FlagAffectedCommand command, boolean isWrite) throws Throwable {
       if (trace) {
          log.tracef("Key %s is not yet available on %s, so we may need to look elsewhere", key, rpcManager.getAddress());
       }
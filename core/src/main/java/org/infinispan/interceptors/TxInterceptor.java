@@ -25,6 +25,7 @@
 import org.infinispan.commands.FlagAffectedCommand;
 import org.infinispan.commands.VisitableCommand;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -185,6 +186,11 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return enlistReadAndInvokeNext(ctx, command);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      return enlistReadAndInvokeNext(ctx, command);
+   }
+
    private Object enlistReadAndInvokeNext(InvocationContext ctx, VisitableCommand command) throws Throwable {
       enlistIfNeeded(ctx);
       return invokeNextInterceptor(ctx, command);
@@ -24,6 +24,7 @@
 package org.infinispan.interceptors.locking;
 
 import org.infinispan.CacheException;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.AbstractTransactionBoundaryCommand;
 import org.infinispan.commands.tx.CommitCommand;
@@ -93,6 +94,15 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       }
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         return super.visitGetAllCommand(ctx, command);
+      } finally {
+         if (!ctx.isInTxScope()) lockManager.unlockAll(ctx);
+      }
+   }
+
    @Override
    public Object visitCommitCommand(TxInvocationContext ctx, CommitCommand command) throws Throwable {
       try {
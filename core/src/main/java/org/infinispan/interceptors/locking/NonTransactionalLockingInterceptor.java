@@ -24,6 +24,8 @@
 package org.infinispan.interceptors.locking;
 
 import org.infinispan.InvalidCacheUsageException;
+import org.infinispan.atomic.Delta;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.EvictCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -32,6 +34,7 @@
 import org.infinispan.commands.write.ReplaceCommand;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
+import org.infinispan.factories.annotations.Start;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -45,6 +48,14 @@ public class NonTransactionalLockingInterceptor extends AbstractLockingIntercept
 
    private static final Log log = LogFactory.getLog(NonTransactionalLockingInterceptor.class);
 
+   private boolean lockElision;
+
+   @Start
+   public void start() {
+      // without a lock, concurrent writes could reach the cache store in a different order than the data container
+      lockElision = cacheConfiguration.locking().lockElision() && !cacheConfiguration.loaders().usingCacheLoaders();
+   }
+
    @Override
    protected Log getLog() {
       return log;
@@ -60,11 +71,21 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       }
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      assertNonTransactional(ctx);
+      try {
+         return invokeNextInterceptor(ctx, command);
+      } finally {
+         lockManager.unlockAll(ctx);
+      }
+   }
+
    @Override
    public Object visitPutKeyValueCommand(InvocationContext ctx, PutKeyValueCommand command) throws Throwable {
       assertNonTransactional(ctx);
       try {
-         boolean skipLocking = hasSkipLocking(command);
+         boolean skipLocking = hasSkipLocking(command) || canElideLock(command);
          long lockTimeout = getLockAcquisitionTimeout(command, skipLocking);
          lockKey(ctx, command.getKey(), lockTimeout, skipLocking);
          return invokeNextInterceptor(ctx, command);
@@ -98,7 +119,7 @@ public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) t
    public Object visitRemoveCommand(InvocationContext ctx, RemoveCommand command) throws Throwable {
       assertNonTransactional(ctx);
       try {
-         boolean skipLocking = hasSkipLocking(command);
+         boolean skipLocking = hasSkipLocking(command) || canElideLock(command);
          long lockTimeout = getLockAcquisitionTimeout(command, skipLocking);
          lockKey(ctx, command.getKey(), lockTimeout, skipLocking);
          return invokeNextInterceptor(ctx, command);
@@ -132,6 +153,19 @@ public final Object visitEvictCommand(InvocationContext ctx, EvictCommand comman
       return visitRemoveCommand(ctx, command);
    }
 
+   /**
+    * Unconditional writes of a single key do not read the entry they replace, so the atomic update of the data
+    * container entry is enough to keep it consistent.
+    */
+   private boolean canElideLock(PutKeyValueCommand command) {
+      return lockElision && !command.isConditional() && !command.hasFlag(Flag.DELTA_WRITE)
+            && !(command.getValue() instanceof Delta);
+   }
+
+   private boolean canElideLock(RemoveCommand command) {
+      return lockElision && !command.isConditional() && !(command instanceof EvictCommand);
+   }
+
    private void assertNonTransactional(InvocationContext ctx) {
       //this only happens if the cache is used in a transaction's scope
       if (ctx.isInTxScope()) {
@@ -28,6 +28,7 @@
 import org.infinispan.commands.FlagAffectedCommand;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.AbstractDataCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.write.ApplyDeltaCommand;
@@ -54,6 +55,7 @@
 import org.infinispan.util.logging.LogFactory;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
@@ -114,6 +116,13 @@ private void markKeyAsRead(InvocationContext ctx, AbstractDataCommand command) {
          tctx.getCacheTransaction().addReadKey(key);
       }
    }
+
+   private void markKeysAsRead(InvocationContext ctx, Collection<?> keys, FlagAffectedCommand command) {
+      if (needToMarkReads && !command.hasFlag(Flag.IGNORE_RETURN_VALUES) && ctx.isInTxScope()) {
+         TxInvocationContext tctx = (TxInvocationContext) ctx;
+         for (Object key : keys) tctx.getCacheTransaction().addReadKey(key);
+      }
+   }
    
    @Override
    public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand command) throws Throwable {
@@ -151,6 +160,12 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       markKeyAsRead(ctx, command);
       return super.visitGetKeyValueCommand(ctx, command);
    }
+
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      markKeysAsRead(ctx, command.getKeys(), command);
+      return super.visitGetAllCommand(ctx, command);
+   }
    
    @Override
    public Object visitApplyDeltaCommand(InvocationContext ctx, ApplyDeltaCommand command) throws Throwable {
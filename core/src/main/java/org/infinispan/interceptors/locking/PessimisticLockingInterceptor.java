@@ -27,6 +27,7 @@
 import org.infinispan.commands.FlagAffectedCommand;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.AbstractDataCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.remote.recovery.TxCompletionNotificationCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -98,6 +99,25 @@ public final Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCo
       }
    }
 
+   @Override
+   public final Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         if (command.hasFlag(Flag.FORCE_WRITE_LOCK)) {
+            boolean skipLocking = hasSkipLocking(command);
+            long lockTimeout = getLockAcquisitionTimeout(command, skipLocking);
+            for (Object key : command.getKeys()) {
+               lockKeyAndCheckOwnership(ctx, key, lockTimeout, skipLocking);
+            }
+         }
+         return invokeNextInterceptor(ctx, command);
+      } catch (Throwable t) {
+         releaseLocksOnFailureBeforePrepare(ctx);
+         throw t;
+      } finally {
+         if (!ctx.isInTxScope()) lockManager.unlockAll(ctx);
+      }
+   }
+
    @Override
    public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand command) throws Throwable {
       abortIfRemoteTransactionInvalid(ctx, command);
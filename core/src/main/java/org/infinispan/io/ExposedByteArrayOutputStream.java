@@ -49,6 +49,7 @@ public final class ExposedByteArrayOutputStream extends ByteArrayOutputStream im
    public static final int DEFAULT_DOUBLING_SIZE = 4 * 1024 * 1024; // 4MB
 
    private int maxDoublingSize = DEFAULT_DOUBLING_SIZE;
+   private int resizeCount;
 
    public ExposedByteArrayOutputStream() {
       super();
@@ -93,6 +94,7 @@ public final void write(byte[] b, int off, int len) {
          byte newbuf[] = new byte[getNewBufferSize(buf.length, newcount)];
          System.arraycopy(buf, 0, newbuf, 0, count);
          buf = newbuf;
+         resizeCount++;
       }
 
       System.arraycopy(b, off, buf, count, len);
@@ -106,6 +108,7 @@ public final void write(int b) {
          byte newbuf[] = new byte[getNewBufferSize(buf.length, newcount)];
          System.arraycopy(buf, 0, newbuf, 0, count);
          buf = newbuf;
+         resizeCount++;
       }
       buf[count] = (byte) b;
       count = newcount;
@@ -140,4 +143,20 @@ public final int getNewBufferSize(int curSize, int minNewSize) {
    public final int size() {
       return count;
    }
+
+   /**
+    * Discards the data written so far, keeping the internal buffer, and resets the resize count.
+    */
+   @Override
+   public final void reset() {
+      count = 0;
+      resizeCount = 0;
+   }
+
+   /**
+    * Gets the number of times the internal buffer had to be grown since this stream was created or last reset.
+    */
+   public final int getResizeCount() {
+      return resizeCount;
+   }
 }
@@ -124,7 +124,10 @@ public CacheLoaderConfig unmarshal(AbstractCacheStoreConfig storeConfig) throws
                   .flushLockTimeout(asyncStoreConfig.getFlushLockTimeout())
                   .shutdownTimeout(asyncStoreConfig.getShutdownTimeout())
                   .threadPoolSize(asyncStoreConfig.getThreadPoolSize())
-                  .modificationQueueSize(asyncStoreConfig.getModificationQueueSize());
+                  .modificationQueueSize(asyncStoreConfig.getModificationQueueSize())
+                  .maxBatchSize(asyncStoreConfig.getMaxBatchSize())
+                  .maxBatchBytes(asyncStoreConfig.getMaxBatchBytes())
+                  .flushInterval(asyncStoreConfig.getFlushInterval());
          }
       }
       return clc;
@@ -24,6 +24,8 @@
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import org.infinispan.Cache;
@@ -92,6 +94,22 @@ protected final void lockForWriting(L key) {
       locks.acquireLock(key, true);
    }
 
+   /**
+    * Acquires write locks on all the given keys, in an order that prevents deadlocks between concurrent callers.
+    *
+    * @return the keys to pass to {@link #unlockAll(java.util.List)}
+    */
+   protected final List<Object> lockAllForWriting(Collection<L> keys) {
+      return locks.acquireAllLocksInOrder(keys, true);
+   }
+
+   /**
+    * Releases the locks acquired by {@link #lockAllForWriting(java.util.Collection)}.
+    */
+   protected final void unlockAll(List<Object> keys) {
+      locks.releaseAllLocks(keys);
+   }
+
    /**
     * Acquires read lock on the given key.
     */
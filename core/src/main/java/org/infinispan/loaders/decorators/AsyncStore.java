@@ -26,6 +26,7 @@
 import org.infinispan.Cache;
 import org.infinispan.CacheException;
 import org.infinispan.config.Configuration;
+import org.infinispan.container.InternalCacheEntrySizeCalculator;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
@@ -42,6 +43,7 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -78,6 +80,12 @@
  * <p/>
  * Write operations affecting same key are now coalesced so that only the final state is actually stored.
  * <p/>
+ * Coalesced modifications are handed to the underlying store in batches, through one-phase
+ * {@link CacheStore#prepare(java.util.List, GlobalTransaction, boolean)} calls of at most <tt>maxBatchSize</tt>
+ * modifications and <tt>maxBatchBytes</tt> estimated bytes, so that stores able to apply several modifications at
+ * once can do so. When a <tt>flushInterval</tt> is configured, modifications are kept in memory until either the
+ * interval elapses or enough of them are pending to fill a batch, which coalesces more updates of hot keys.
+ * <p/>
  *
  * @author Manik Surtani
  * @author Galder Zamarreño
@@ -124,6 +132,22 @@ public class AsyncStore extends AbstractDelegatingStore {
     */
    private final AtomicLong asyncProcessorId = new AtomicLong();
 
+   private int maxBatchSize;
+   private long maxBatchBytes;
+   private long flushIntervalNanos;
+   private InternalCacheEntrySizeCalculator sizeCalculator;
+   /**
+    * Estimated size of the entries stored since the state map was last swapped, only tracked when batches are bounded
+    * by size.
+    */
+   private final AtomicLong pendingBytes = new AtomicLong();
+
+   private final AtomicLong receivedModifications = new AtomicLong();
+   private final AtomicLong appliedModifications = new AtomicLong();
+   private final AtomicLong flushes = new AtomicLong();
+   private final AtomicLong flushNanos = new AtomicLong();
+   private final AtomicLong maxFlushNanos = new AtomicLong();
+
    public AsyncStore(CacheStore delegate, AsyncStoreConfig asyncStoreConfig) {
       super(delegate);
       this.asyncStoreConfig = asyncStoreConfig;
@@ -150,6 +174,11 @@ public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshalle
 
       lockContainer = new ReleaseAllLockContainer(concurrencyLevel);
       transactions = ConcurrentMapFactory.makeConcurrentMap(64, concurrencyLevel);
+
+      maxBatchSize = asyncStoreConfig.getMaxBatchSize();
+      maxBatchBytes = asyncStoreConfig.getMaxBatchBytes();
+      flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(asyncStoreConfig.getFlushInterval());
+      sizeCalculator = maxBatchBytes > 0 ? new InternalCacheEntrySizeCalculator(m) : null;
    }
 
    @Override
@@ -255,21 +284,89 @@ public long getAsyncProcessorId() {
       return asyncProcessorId.get();
    }
 
+   /**
+    * @return the number of modifications waiting to be applied to the underlying store, either still queued or
+    *         already coalesced
+    */
+   public int getPendingModifications() {
+      ConcurrentMap<Object, Modification> pending = state;
+      return changesDeque.size() + (pending == null ? 0 : pending.size());
+   }
+
+   /**
+    * @return the number of modifications received for each modification applied to the underlying store, which is
+    *         greater than 1 when updates of the same key are coalesced
+    */
+   public double getCoalescingRatio() {
+      long applied = appliedModifications.get();
+      return applied == 0 ? 0 : (double) receivedModifications.get() / applied;
+   }
+
+   public long getFlushes() {
+      return flushes.get();
+   }
+
+   /**
+    * @return the average time, in milliseconds, taken by the underlying store to apply a batch of modifications
+    */
+   public double getAverageFlushTime() {
+      long count = flushes.get();
+      return count == 0 ? 0 : (double) flushNanos.get() / count / 1000000;
+   }
+
+   /**
+    * @return the maximum time, in milliseconds, taken by the underlying store to apply a batch of modifications
+    */
+   public double getMaxFlushTime() {
+      return (double) maxFlushNanos.get() / 1000000;
+   }
+
+   public void resetStatistics() {
+      receivedModifications.set(0);
+      appliedModifications.set(0);
+      flushes.set(0);
+      flushNanos.set(0);
+      maxFlushNanos.set(0);
+   }
+
    protected void applyModificationsSync(ConcurrentMap<Object, Modification> mods) throws CacheLoaderException {
-      Set<Map.Entry<Object, Modification>> entries = mods.entrySet();
-      for (Map.Entry<Object, Modification> entry : entries) {
-         Modification mod = entry.getValue();
+      List<Modification> batch = new ArrayList<Modification>(maxBatchSize > 0 ? Math.min(maxBatchSize, mods.size()) : mods.size());
+      long batchBytes = 0;
+      for (Modification mod : mods.values()) {
          switch (mod.getType()) {
             case STORE:
-               super.store(((Store) mod).getStoredEntry());
+               if (sizeCalculator != null) {
+                  InternalCacheEntry entry = ((Store) mod).getStoredEntry();
+                  batchBytes += sizeCalculator.calculateSize(entry.getKey(), entry);
+               }
                break;
             case REMOVE:
-               super.remove(entry.getKey());
                break;
             default:
                throw new IllegalArgumentException("Unexpected modification type " + mod.getType());
          }
+         batch.add(mod);
+         if ((maxBatchSize > 0 && batch.size() >= maxBatchSize) || (maxBatchBytes > 0 && batchBytes >= maxBatchBytes)) {
+            applyBatch(batch);
+            batch = new ArrayList<Modification>(batch.size());
+            batchBytes = 0;
+         }
       }
+      if (!batch.isEmpty()) applyBatch(batch);
+   }
+
+   private void applyBatch(List<Modification> batch) throws CacheLoaderException {
+      if (trace) log.tracef("Applying a batch of %s modifications", batch.size());
+      long start = System.nanoTime();
+      super.prepare(batch, null, true);
+      long duration = System.nanoTime() - start;
+      appliedModifications.addAndGet(batch.size());
+      flushes.incrementAndGet();
+      flushNanos.addAndGet(duration);
+      long max;
+      do {
+         max = maxFlushNanos.get();
+      } while (duration > max && !maxFlushNanos.compareAndSet(max, duration));
    }
    
    protected boolean applyClear() {
@@ -365,6 +462,7 @@ private void innerRun() {
             try {
                swap = state;
                state = newStateMap();
+               pendingBytes.set(0);
 
                // This needs to be done within the stateMapLock section, because if a key is in use,
                // we need to put it back in the state
@@ -459,16 +557,29 @@ private class AsyncStoreCoordinator implements Runnable {
       public void run() {
          LogFactory.pushNDC(cacheName, trace);
          try {
+            // when a flush interval is configured, the time by which the pending modifications must be flushed
+            long flushDeadline = -1;
             while (true) {
                try {
-                  Modification take = changesDeque.take();
-                  if (take == QUIT_SIGNAL) {
+                  Modification take = flushDeadline < 0 ? changesDeque.take() :
+                        changesDeque.poll(flushDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                  if (take == null) {
+                     // flush interval elapsed
+                     flushDeadline = -1;
+                     ensureMoreWorkIsHandled();
+                  } else if (take == QUIT_SIGNAL) {
                      lastAsyncProcessorShutsDownExecutor = true;
                      ensureMoreWorkIsHandled();
                      return;
-                  }
-                  else {
-                     handleSafely(take);
+                  } else if (handleSafely(take)) {
+                     // we know when it's possible for some work to be done, starting short-lived
+                     // AsyncProcessor(s) simplifies shutdown process.
+                     if (flushIntervalNanos == 0 || isBatchFull()) {
+                        flushDeadline = -1;
+                        ensureMoreWorkIsHandled();
+                     } else if (flushDeadline < 0) {
+                        flushDeadline = System.nanoTime() + flushIntervalNanos;
+                     }
                   }
                } catch (InterruptedException e) {
                   log.asyncStoreCoordinatorInterrupted(e);
@@ -482,23 +593,35 @@ public void run() {
          }
       }
 
-      private void handleSafely(Modification mod) {
+      private boolean isBatchFull() {
+         return (maxBatchSize > 0 && state.size() >= maxBatchSize)
+               || (maxBatchBytes > 0 && pendingBytes.get() >= maxBatchBytes);
+      }
+
+      /**
+       * @return true if the modification has to be applied to the underlying store by an AsyncProcessor
+       */
+      private boolean handleSafely(Modification mod) {
          try {
             if (trace) log.tracef("taking from modification queue: %s", mod);
-            handle(mod, false);
+            return handle(mod);
          } catch (Exception e) {
             log.errorModifyingAsyncStore(e);
+            return false;
          }
       }
 
-      private void handle(Modification mod, boolean nested) {
+      private boolean handle(Modification mod) {
          boolean asyncProcessorNeeded = false;
          switch (mod.getType()) {
             case STORE:
                Store store = (Store) mod;
+               InternalCacheEntry entry = store.getStoredEntry();
                stateMapLock.lock();
-               state.put(store.getStoredEntry().getKey(), store);
+               state.put(entry.getKey(), store);
                stateMapLock.unlock();
+               if (sizeCalculator != null) pendingBytes.addAndGet(sizeCalculator.calculateSize(entry.getKey(), entry));
+               receivedModifications.incrementAndGet();
                asyncProcessorNeeded = true;
                break;
             case REMOVE:
@@ -506,6 +629,7 @@ private void handle(Modification mod, boolean nested) {
                stateMapLock.lock();
                state.put(remove.getKey(), remove);
                stateMapLock.unlock();
+               receivedModifications.incrementAndGet();
                asyncProcessorNeeded = true;
                break;
             case CLEAR:
@@ -521,21 +645,18 @@ private void handle(Modification mod, boolean nested) {
             default:
                throw new IllegalArgumentException("Unexpected modification type " + mod.getType());
          }
-         if (asyncProcessorNeeded && !nested) {
-            // we know when it's possible for some work to be done, starting short-lived
-            // AsyncProcessor(s) simplifies shutdown process.
-             ensureMoreWorkIsHandled();
-         }
+         return asyncProcessorNeeded;
       }
 
       private void applyModificationsList(ModificationsList mod) {
          for (Modification m : mod.getList()) {
-            handle(m, true);
+            handle(m);
          }
       }
 
       private void performClear() {
          state.clear(); // cancel any other scheduled changes
+         pendingBytes.set(0);
          clearAllWriteLock.lock(); // ensure no other tasks concurrently working
          try {
             // to acquire clearAllWriteLock we might have had to wait for N AsyncProcessor to have finished
@@ -65,6 +65,15 @@ public class AsyncStoreConfig extends AbstractDecoratorConfigurationBean {
    @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setModificationQueueSize")
    protected Integer modificationQueueSize = 1024;
 
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="maxBatchSize")
+   protected Integer maxBatchSize = 100;
+
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="maxBatchBytes")
+   protected Long maxBatchBytes = 0L;
+
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="flushInterval")
+   protected Long flushInterval = 0L;
+
    @XmlAttribute
    public Boolean isEnabled() {
       return enabled;
@@ -197,6 +206,58 @@ public void setModificationQueueSize(Integer modificationQueueSize) {
       this.modificationQueueSize = modificationQueueSize;
    }
 
+   @XmlAttribute
+   public Integer getMaxBatchSize() {
+      return maxBatchSize;
+   }
+
+   /**
+    * Maximum number of modifications handed to the underlying store in a single one-phase prepare call. Zero means
+    * that all the modifications pending when a flush starts are applied as a single batch.
+    *
+    * @param maxBatchSize
+    */
+   public AsyncStoreConfig maxBatchSize(Integer maxBatchSize) {
+      testImmutability("maxBatchSize");
+      this.maxBatchSize = maxBatchSize;
+      return this;
+   }
+
+   @XmlAttribute
+   public Long getMaxBatchBytes() {
+      return maxBatchBytes;
+   }
+
+   /**
+    * Maximum estimated size, in bytes, of the entries handed to the underlying store in a single batch. Zero means
+    * that batches are not bounded by size.
+    *
+    * @param maxBatchBytes
+    */
+   public AsyncStoreConfig maxBatchBytes(Long maxBatchBytes) {
+      testImmutability("maxBatchBytes");
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+   }
+
+   @XmlAttribute
+   public Long getFlushInterval() {
+      return flushInterval;
+   }
+
+   /**
+    * Maximum time, in milliseconds, modifications wait in the async store before being flushed to the underlying
+    * store, unless enough modifications to fill a batch arrive earlier. Zero means that modifications are flushed as
+    * soon as they are received.
+    *
+    * @param flushInterval
+    */
+   public AsyncStoreConfig flushInterval(Long flushInterval) {
+      testImmutability("flushInterval");
+      this.flushInterval = flushInterval;
+      return this;
+   }
+
    @Override
    public AsyncStoreConfig clone() {
       return (AsyncStoreConfig) super.clone();
@@ -0,0 +1,764 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.Cache;
+import org.infinispan.config.ConfigurationException;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.loaders.AbstractCacheStore;
+import org.infinispan.loaders.CacheLoaderConfig;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Util;
+import org.infinispan.util.concurrent.ConcurrentHashSet;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A log-structured, append-only file based {@link org.infinispan.loaders.CacheStore}.
+ * <p/>
+ * All the data of a cache is kept in a single directory, <tt>/{location}/cache name/</tt>, as a sequence of numbered
+ * <tt>.log</tt> files.  Every store or remove appends a record to the newest file and updates an in-memory index
+ * pointing each key to the file and offset of its latest record, so writes never rewrite existing data and reads
+ * need a single lookup.  Files that reached <tt>maxFileSize</tt> are sealed and read through a memory mapping.
+ * <p/>
+ * A record is laid out as follows:
+ * <pre>
+ *    key length (int) | value length (int, -1 for a removal) | expiry time (long) | key | value
+ * </pre>
+ * Keeping the expiry time next to the key means the index can be rebuilt on startup, and expired entries purged,
+ * without unmarshalling any value.  Removal records have no expiry time, the field holds the range of files that
+ * may still contain records of the removed key instead, so that compaction knows when the removal can be dropped.  Overwritten, removed and purged records are accounted for as dead bytes of the
+ * file holding them, and once a sealed file's dead ratio exceeds <tt>compactionThreshold</tt>, a background thread
+ * copies its live records to the newest file and deletes it.
+ *
+ * @since 5.2
+ * @see LogFileCacheStoreConfig
+ */
+@CacheLoaderMetadata(configurationClass = LogFileCacheStoreConfig.class)
+public class LogFileCacheStore extends AbstractCacheStore {
+
+   private static final Log log = LogFactory.getLog(LogFileCacheStore.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   static final String FILE_SUFFIX = ".log";
+   static final int HEADER_SIZE = 16;
+   private static final int TOMBSTONE = -1;
+
+   private LogFileCacheStoreConfig config;
+   private File root;
+   private ConcurrentMap<Object, RecordPointer> index;
+   private final ConcurrentSkipListMap<Integer, LogFile> files = new ConcurrentSkipListMap<Integer, LogFile>();
+   private final Set<Integer> compacting = new ConcurrentHashSet<Integer>();
+   /**
+    * Serializes appends, so that the order of the records in the files matches the order of the index updates.
+    */
+   private final Lock appendLock = new ReentrantLock();
+   private LogFile activeFile;
+   private ExecutorService compactor;
+
+   @Override
+   public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException {
+      super.init(config, cache, m);
+      this.config = (LogFileCacheStoreConfig) config;
+   }
+
+   @Override
+   public Class<? extends CacheLoaderConfig> getConfigurationClass() {
+      return LogFileCacheStoreConfig.class;
+   }
+
+   /**
+    * @return directory where all the log files of this store are written.
+    */
+   public File getRoot() {
+      return root;
+   }
+
+   /**
+    * @return number of log files currently making up this store, including the one being appended to.
+    */
+   public int getFileCount() {
+      return files.size();
+   }
+
+   @Override
+   public void start() throws CacheLoaderException {
+      super.start();
+      if (config.getMaxFileSize() <= HEADER_SIZE)
+         throw new ConfigurationException("maxFileSize must be larger than " + HEADER_SIZE + " bytes");
+      String location = config.getLocation();
+      if (location == null || location.trim().length() == 0)
+         location = "Infinispan-LogFileCacheStore";
+      root = new File(location, cache.getName());
+      if (!root.exists() && !root.mkdirs())
+         log.problemsCreatingDirectory(root);
+      if (!root.isDirectory())
+         throw new ConfigurationException("Directory " + root.getAbsolutePath() + " does not exist and cannot be created!");
+
+      index = ConcurrentMapFactory.makeConcurrentMap(64, getConcurrencyLevel());
+      appendLock.lock();
+      try {
+         replayFiles();
+         final String threadName = (cache.getName() == null ? "" : cache.getName() + '-') + "LogFileCacheStore-compactor";
+         compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+               Thread t = new Thread(r, threadName);
+               t.setDaemon(true);
+               return t;
+            }
+         });
+         for (LogFile f : files.values()) maybeCompact(f);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to read the log files in " + root, e);
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   @Override
+   public void stop() throws CacheLoaderException {
+      super.stop();
+      if (compactor != null) {
+         compactor.shutdownNow();
+         try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+      appendLock.lock();
+      try {
+         if (activeFile != null) activeFile.close();
+         activeFile = null;
+         files.clear();
+         index.clear();
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   @Override
+   public InternalCacheEntry load(Object key) throws CacheLoaderException {
+      return load(key, System.currentTimeMillis());
+   }
+
+   @Override
+   public boolean containsKey(Object key) throws CacheLoaderException {
+      RecordPointer pointer = index.get(key);
+      return pointer != null && !pointer.isExpired(System.currentTimeMillis());
+   }
+
+   @Override
+   public Set<InternalCacheEntry> loadAll() throws CacheLoaderException {
+      return load(Integer.MAX_VALUE);
+   }
+
+   @Override
+   public Set<InternalCacheEntry> load(int numEntries) throws CacheLoaderException {
+      long now = System.currentTimeMillis();
+      Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>();
+      for (Object key : index.keySet()) {
+         if (result.size() >= numEntries) break;
+         InternalCacheEntry entry = load(key, now);
+         if (entry != null) result.add(entry);
+      }
+      return result;
+   }
+
+   @Override
+   public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
+      long now = System.currentTimeMillis();
+      Set<Object> result = new HashSet<Object>();
+      for (Map.Entry<Object, RecordPointer> e : index.entrySet()) {
+         Object key = e.getKey();
+         if (!e.getValue().isExpired(now) && (keysToExclude == null || !keysToExclude.contains(key)))
+            result.add(key);
+      }
+      return result;
+   }
+
+   @Override
+   public void store(InternalCacheEntry entry) throws CacheLoaderException {
+      Object key = entry.getKey();
+      byte[] keyBytes = marshall(key);
+      byte[] valueBytes = marshall(entry.toInternalCacheValue());
+      long expiryTime = entry.getExpiryTime();
+      byte[] record = record(keyBytes, valueBytes, expiryTime);
+      appendLock.lock();
+      try {
+         int offset = append(record);
+         RecordPointer previous = index.get(key);
+         int oldestFileId = previous == null ? activeFile.id : previous.oldestFileId;
+         retire(index.put(key, new RecordPointer(activeFile.id, offset, keyBytes.length, valueBytes.length, expiryTime,
+                                                 oldestFileId)));
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   @Override
+   public boolean remove(Object key) throws CacheLoaderException {
+      if (!index.containsKey(key)) return false;
+      byte[] keyBytes = marshall(key);
+      appendLock.lock();
+      try {
+         RecordPointer previous = index.remove(key);
+         if (previous == null) return false;
+         appendTombstone(record(keyBytes, null, previous.shadowedFiles()));
+         retire(previous);
+         return true;
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   @Override
+   public void clear() throws CacheLoaderException {
+      appendLock.lock();
+      try {
+         index.clear();
+         for (LogFile f : files.values()) {
+            f.close();
+            if (!f.file.delete() && f.file.exists())
+               log.problemsRemovingFile(f.file);
+         }
+         files.clear();
+         int nextId = activeFile == null ? 0 : activeFile.id + 1;
+         activeFile = null;
+         openActiveFile(nextId);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to create a new log file in " + root, e);
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   /**
+    * Expired entries are found through the index alone: each of them gets a removal record, values are never read.
+    */
+   @Override
+   protected void purgeInternal() throws CacheLoaderException {
+      long now = System.currentTimeMillis();
+      int purged = 0;
+      for (Map.Entry<Object, RecordPointer> e : index.entrySet()) {
+         RecordPointer pointer = e.getValue();
+         if (!pointer.isExpired(now)) continue;
+         byte[] keyBytes = marshall(e.getKey());
+         appendLock.lock();
+         try {
+            if (index.remove(e.getKey(), pointer)) {
+               appendTombstone(record(keyBytes, null, pointer.shadowedFiles()));
+               retire(pointer);
+               purged++;
+            }
+         } finally {
+            appendLock.unlock();
+         }
+      }
+      if (trace) log.tracef("Purged %d expired entries from %s", purged, root);
+   }
+
+   @Override
+   public void toStream(ObjectOutput outputStream) throws CacheLoaderException {
+      try {
+         long now = System.currentTimeMillis();
+         for (Object key : index.keySet()) {
+            InternalCacheEntry entry = load(key, now);
+            if (entry != null) marshaller.objectToObjectStream(entry, outputStream);
+         }
+         marshaller.objectToObjectStream(null, outputStream);
+      } catch (IOException e) {
+         throw new CacheLoaderException(e);
+      }
+   }
+
+   @Override
+   public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
+      try {
+         while (true) {
+            InternalCacheEntry entry = (InternalCacheEntry) marshaller.objectFromObjectStream(inputStream);
+            if (entry == null) break;
+            store(entry);
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException(e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException(e);
+      } catch (InterruptedException ie) {
+         if (trace) log.trace("Interrupted while reading from stream");
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private InternalCacheEntry load(Object key, long now) throws CacheLoaderException {
+      while (true) {
+         RecordPointer pointer = index.get(key);
+         if (pointer == null || pointer.isExpired(now)) return null;
+         LogFile f = files.get(pointer.fileId);
+         // the record has been moved by a compaction in the meantime, so look it up again
+         if (f == null) continue;
+         byte[] value;
+         try {
+            value = f.read(pointer.offset + HEADER_SIZE + pointer.keyLength, pointer.valueLength);
+         } catch (IOException e) {
+            if (files.get(pointer.fileId) != f) continue;
+            throw new CacheLoaderException("Unable to read " + key + " from " + f.file, e);
+         }
+         InternalCacheValue icv = (InternalCacheValue) unmarshall(value);
+         return icv.toInternalCacheEntry(key);
+      }
+   }
+
+   /**
+    * Appends a record to the active file, rolling over to a new file if it would grow beyond the maximum file size.
+    * Must be called with the append lock held.
+    *
+    * @return the offset of the record in the active file
+    */
+   private int append(byte[] record) throws CacheLoaderException {
+      try {
+         if (activeFile.size > 0 && (long) activeFile.size + record.length > config.getMaxFileSize()) {
+            LogFile sealed = activeFile;
+            sealed.seal();
+            openActiveFile(sealed.id + 1);
+            maybeCompact(sealed);
+         }
+         int offset = activeFile.append(record);
+         if (config.isSyncWrites()) activeFile.sync();
+         return offset;
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to append to " + activeFile.file, e);
+      }
+   }
+
+   private void appendTombstone(byte[] tombstone) throws CacheLoaderException {
+      append(tombstone);
+      // a removal record is dead as soon as it has been written, it only has to outlive the records it shadows
+      activeFile.deadBytes += tombstone.length;
+   }
+
+   /**
+    * Accounts for a record that is no longer referenced by the index.  Must be called with the append lock held.
+    */
+   private void retire(RecordPointer pointer) {
+      if (pointer == null) return;
+      LogFile f = files.get(pointer.fileId);
+      if (f != null) {
+         f.deadBytes += pointer.length();
+         maybeCompact(f);
+      }
+   }
+
+   private void maybeCompact(final LogFile f) {
+      if (compactor == null || compactor.isShutdown() || f == activeFile) return;
+      if (f.deadBytes == 0 || f.deadBytes < f.size * config.getCompactionThreshold()) return;
+      if (compacting.add(f.id)) {
+         compactor.execute(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  compact(f);
+               } catch (Exception e) {
+                  log.problemsCompactingFile(f.file, e);
+               } finally {
+                  compacting.remove(f.id);
+               }
+            }
+         });
+      }
+   }
+
+   /**
+    * Copies the records of a sealed file still referenced by the index to the active file, and then deletes it.
+    * Removal records are copied too as long as some of the older files that may hold records of the removed key
+    * exist, otherwise they are dropped.  A removal record whose key has been stored again is dropped as well, the
+    * new record then takes over the range of files to shadow once removed.
+    */
+   private void compact(LogFile f) throws CacheLoaderException {
+      MappedByteBuffer mapped = f.mapped;
+      if (files.get(f.id) != f || mapped == null) return;
+      if (trace) log.tracef("Compacting %s, %d of %d bytes are dead", f.file, f.deadBytes, f.size);
+      ByteBuffer buffer = mapped.duplicate();
+      int offset = 0;
+      while (offset < f.size) {
+         if (Thread.currentThread().isInterrupted()) return;
+         buffer.position(offset);
+         int keyLength = buffer.getInt();
+         int valueLength = buffer.getInt();
+         long expiryTime = buffer.getLong();
+         int recordOffset = offset;
+         int recordLength = HEADER_SIZE + keyLength + (valueLength == TOMBSTONE ? 0 : valueLength);
+         offset += recordLength;
+
+         byte[] keyBytes = new byte[keyLength];
+         buffer.get(keyBytes);
+         Object key = unmarshall(keyBytes);
+         RecordPointer pointer = index.get(key);
+         boolean live = valueLength != TOMBSTONE && pointer != null && pointer.fileId == f.id && pointer.offset == recordOffset;
+         boolean tombstone = valueLength == TOMBSTONE;
+         if (!live && !tombstone) continue;
+
+         byte[] record = new byte[recordLength];
+         buffer.position(recordOffset);
+         buffer.get(record);
+         appendLock.lock();
+         try {
+            if (files.get(f.id) != f) return;
+            if (live && index.get(key) == pointer) {
+               int newOffset = append(record);
+               index.put(key, new RecordPointer(activeFile.id, newOffset, keyLength, valueLength, expiryTime,
+                                                pointer.oldestFileId));
+            } else if (tombstone) {
+               compactTombstone(f, key, record, expiryTime);
+            }
+         } finally {
+            appendLock.unlock();
+         }
+      }
+
+      appendLock.lock();
+      try {
+         if (files.get(f.id) != f) return;
+         // the copied records must be on disk before the only other copy goes away
+         if (!config.isSyncWrites()) activeFile.sync();
+         if (files.remove(f.id, f) && !f.file.delete() && f.file.exists())
+            log.problemsRemovingFile(f.file);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to sync " + activeFile.file, e);
+      } finally {
+         appendLock.unlock();
+      }
+   }
+
+   /**
+    * Must be called with the append lock held.
+    */
+   private void compactTombstone(LogFile f, Object key, byte[] record, long shadowedFiles) throws CacheLoaderException {
+      int oldest;
+      int newest;
+      if (shadowedFiles == -1) {
+         // no range recorded, any older file might hold records of the key
+         oldest = 0;
+         newest = f.id - 1;
+      } else {
+         oldest = (int) (shadowedFiles >>> 32);
+         // records of the key in the compacted file itself are dead and go away with it
+         newest = Math.min((int) shadowedFiles, f.id - 1);
+      }
+      boolean shadowing = oldest <= newest && !files.subMap(oldest, true, newest, true).isEmpty();
+      RecordPointer current = index.get(key);
+      if (current == null) {
+         if (shadowing) appendTombstone(record);
+      } else if (shadowing && oldest < current.oldestFileId) {
+         index.put(key, new RecordPointer(current.fileId, current.offset, current.keyLength, current.valueLength,
+                                          current.expiryTime, oldest));
+      }
+   }
+
+   /**
+    * Rebuilds the index by replaying all the log files in order.  The newest file keeps being appended to if it has
+    * room left, all the others are sealed.
+    */
+   private void replayFiles() throws IOException, CacheLoaderException {
+      SortedMap<Integer, File> existing = new TreeMap<Integer, File>();
+      File[] listed = root.listFiles(LOG_FILES_FILTER);
+      if (listed != null) {
+         for (File file : listed) {
+            String name = file.getName();
+            existing.put(Integer.valueOf(name.substring(0, name.length() - FILE_SUFFIX.length())), file);
+         }
+      }
+      for (Map.Entry<Integer, File> e : existing.entrySet()) {
+         LogFile f = new LogFile(e.getKey(), e.getValue());
+         files.put(f.id, f);
+         replay(f);
+      }
+      if (files.isEmpty()) {
+         openActiveFile(0);
+         return;
+      }
+      LogFile newest = files.lastEntry().getValue();
+      for (LogFile f : files.headMap(newest.id).values()) f.seal();
+      if (newest.size < config.getMaxFileSize()) {
+         newest.openForAppend();
+         activeFile = newest;
+      } else {
+         newest.seal();
+         openActiveFile(newest.id + 1);
+      }
+   }
+
+   private void replay(LogFile f) throws IOException, CacheLoaderException {
+      long length = f.file.length();
+      int offset = 0;
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f.file), 64 * 1024));
+      try {
+         while (offset + HEADER_SIZE <= length) {
+            int keyLength = in.readInt();
+            int valueLength = in.readInt();
+            long expiryTime = in.readLong();
+            long recordLength = (long) HEADER_SIZE + keyLength + (valueLength == TOMBSTONE ? 0 : valueLength);
+            if (keyLength <= 0 || valueLength < TOMBSTONE || offset + recordLength > length) break;
+
+            byte[] keyBytes = new byte[keyLength];
+            in.readFully(keyBytes);
+            if (valueLength > 0) skipFully(in, valueLength);
+            Object key = unmarshall(keyBytes);
+            if (valueLength == TOMBSTONE) {
+               retire(index.remove(key));
+               f.deadBytes += recordLength;
+            } else {
+               RecordPointer previous = index.get(key);
+               int oldestFileId = previous == null ? f.id : previous.oldestFileId;
+               retire(index.put(key, new RecordPointer(f.id, offset, keyLength, valueLength, expiryTime, oldestFileId)));
+            }
+            offset += recordLength;
+         }
+      } finally {
+         Util.close(in);
+      }
+      if (offset < length) {
+         log.truncatingIncompleteLogRecords(length - offset, f.file);
+         RandomAccessFile raf = new RandomAccessFile(f.file, "rw");
+         try {
+            raf.setLength(offset);
+         } finally {
+            Util.close(raf);
+         }
+      }
+      f.size = offset;
+   }
+
+   private void openActiveFile(int id) throws IOException {
+      LogFile f = new LogFile(id, new File(root, id + FILE_SUFFIX));
+      f.openForAppend();
+      files.put(id, f);
+      activeFile = f;
+   }
+
+   private static void skipFully(DataInputStream in, int n) throws IOException {
+      while (n > 0) {
+         int skipped = in.skipBytes(n);
+         if (skipped <= 0) throw new EOFException();
+         n -= skipped;
+      }
+   }
+
+   private static byte[] record(byte[] key, byte[] value, long expiryTime) {
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length + (value == null ? 0 : value.length));
+      buffer.putInt(key.length).putInt(value == null ? TOMBSTONE : value.length).putLong(expiryTime).put(key);
+      if (value != null) buffer.put(value);
+      return buffer.array();
+   }
+
+   private byte[] marshall(Object o) throws CacheLoaderException {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to marshall " + o, e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException("Interrupted while marshalling " + o, e);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes) throws CacheLoaderException {
+      try {
+         return marshaller.objectFromByteBuffer(bytes);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to unmarshall a record", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unable to unmarshall a record", e);
+      }
+   }
+
+   /**
+    * Location of the latest record of a key.
+    */
+   private static final class RecordPointer {
+      final int fileId;
+      final int offset;
+      final int keyLength;
+      final int valueLength;
+      final long expiryTime;
+      /**
+       * The oldest file that may still hold a record of the key, live or not.
+       */
+      final int oldestFileId;
+
+      RecordPointer(int fileId, int offset, int keyLength, int valueLength, long expiryTime, int oldestFileId) {
+         this.fileId = fileId;
+         this.offset = offset;
+         this.keyLength = keyLength;
+         this.valueLength = valueLength;
+         this.expiryTime = expiryTime;
+         this.oldestFileId = oldestFileId;
+      }
+
+      int length() {
+         return HEADER_SIZE + keyLength + valueLength;
+      }
+
+      /**
+       * @return the range of files holding records of the key, as stored in the removal record of the key
+       */
+      long shadowedFiles() {
+         return ((long) oldestFileId << 32) | (fileId & 0xFFFFFFFFL);
+      }
+
+      boolean isExpired(long now) {
+         return expiryTime > -1 && expiryTime <= now;
+      }
+   }
+
+   /**
+    * A single log file.  The active one is written and read through a {@link RandomAccessFile}, sealed ones are only
+    * read, through a read only memory mapping.
+    */
+   private static final class LogFile {
+      final int id;
+      final File file;
+      private RandomAccessFile raf;
+      volatile MappedByteBuffer mapped;
+      /**
+       * Both sizes are guarded by the append lock.
+       */
+      int size;
+      long deadBytes;
+
+      LogFile(int id, File file) {
+         this.id = id;
+         this.file = file;
+      }
+
+      synchronized void openForAppend() throws IOException {
+         raf = new RandomAccessFile(file, "rw");
+         raf.seek(size);
+      }
+
+      synchronized int append(byte[] record) throws IOException {
+         int offset = size;
+         raf.seek(offset);
+         raf.write(record);
+         size += record.length;
+         return offset;
+      }
+
+      synchronized void sync() throws IOException {
+         raf.getFD().sync();
+      }
+
+      byte[] read(int offset, int length) throws IOException {
+         byte[] bytes = new byte[length];
+         MappedByteBuffer m = mapped;
+         if (m == null) {
+            synchronized (this) {
+               m = mapped;
+               if (m == null) {
+                  if (raf == null) throw new IOException(file + " has been closed");
+                  raf.seek(offset);
+                  raf.readFully(bytes);
+                  return bytes;
+               }
+            }
+         }
+         ByteBuffer buffer = m.duplicate();
+         buffer.position(offset);
+         buffer.get(bytes);
+         return bytes;
+      }
+
+      synchronized void seal() throws IOException {
+         RandomAccessFile r = raf == null ? new RandomAccessFile(file, "r") : raf;
+         try {
+            if (raf != null) raf.getFD().sync();
+            mapped = r.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+         } finally {
+            Util.close(r);
+            raf = null;
+         }
+      }
+
+      synchronized void close() {
+         if (raf != null) {
+            try {
+               raf.getFD().sync();
+            } catch (IOException e) {
+               if (trace) log.tracef(e, "Unable to sync %s", file);
+            }
+            Util.close(raf);
+            raf = null;
+         }
+         mapped = null;
+      }
+   }
+
+   /**
+    * Only accepts files named after a number and the {@link #FILE_SUFFIX}.
+    */
+   static final FilenameFilter LOG_FILES_FILTER = new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+         if (!name.endsWith(FILE_SUFFIX)) return false;
+         int l = name.length() - FILE_SUFFIX.length();
+         if (l == 0 || l > 9) return false;
+         for (int i = 0; i < l; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') return false;
+         }
+         return true;
+      }
+   };
+}
@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.loaders.AbstractCacheStoreConfig;
+
+/**
+ * Configures {@link LogFileCacheStore}.
+ * <p/>
+ *    <ul>
+ *       <li><tt>location</tt> - the directory where the store writes its log files.  A sub-directory named after the
+ * cache is created underneath it.  This defaults to <tt>Infinispan-LogFileCacheStore</tt> in the current working
+ * directory.</li>
+ *       <li><tt>maxFileSize</tt> - size, in bytes, after which the file currently appended to is sealed and a new one
+ * is started.  Only sealed files are memory mapped and compacted.  By default, this is set to <tt>16777216</tt>
+ * (16MB).</li>
+ *       <li><tt>compactionThreshold</tt> - ratio of dead records, i.e. overwritten, removed or expired entries,
+ * above which a sealed file is compacted in the background.  By default, this is set to <tt>0.5</tt>.</li>
+ *       <li><tt>syncWrites</tt> - whether every write is forced to disk before returning.  By default, this is set
+ * to <tt>false</tt>.</li>
+ *    </ul>
+ *
+ * @since 5.2
+ */
+public class LogFileCacheStoreConfig extends AbstractCacheStoreConfig {
+
+   private static final long serialVersionUID = -4467938475129390142L;
+
+   private String location = "Infinispan-LogFileCacheStore";
+   private int maxFileSize = 16 * 1024 * 1024;
+   private double compactionThreshold = 0.5;
+   private boolean syncWrites = false;
+
+   public LogFileCacheStoreConfig() {
+      setCacheLoaderClassName(LogFileCacheStore.class.getName());
+   }
+
+   public String getLocation() {
+      return location;
+   }
+
+   public void setLocation(String location) {
+      testImmutability("location");
+      this.location = location;
+   }
+
+   public LogFileCacheStoreConfig location(String location) {
+      setLocation(location);
+      return this;
+   }
+
+   public int getMaxFileSize() {
+      return maxFileSize;
+   }
+
+   public void setMaxFileSize(int maxFileSize) {
+      testImmutability("maxFileSize");
+      this.maxFileSize = maxFileSize;
+   }
+
+   public LogFileCacheStoreConfig maxFileSize(int maxFileSize) {
+      setMaxFileSize(maxFileSize);
+      return this;
+   }
+
+   public double getCompactionThreshold() {
+      return compactionThreshold;
+   }
+
+   public void setCompactionThreshold(double compactionThreshold) {
+      testImmutability("compactionThreshold");
+      this.compactionThreshold = compactionThreshold;
+   }
+
+   public LogFileCacheStoreConfig compactionThreshold(double compactionThreshold) {
+      setCompactionThreshold(compactionThreshold);
+      return this;
+   }
+
+   public boolean isSyncWrites() {
+      return syncWrites;
+   }
+
+   public void setSyncWrites(boolean syncWrites) {
+      testImmutability("syncWrites");
+      this.syncWrites = syncWrites;
+   }
+
+   public LogFileCacheStoreConfig syncWrites(boolean syncWrites) {
+      setSyncWrites(syncWrites);
+      return this;
+   }
+
+   // Method overrides below are used to make configuration more fluent.
+
+   @Override
+   public LogFileCacheStoreConfig purgeOnStartup(Boolean purgeOnStartup) {
+      super.purgeOnStartup(purgeOnStartup);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig purgeSynchronously(Boolean purgeSynchronously) {
+      super.purgeSynchronously(purgeSynchronously);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig fetchPersistentState(Boolean fetchPersistentState) {
+      super.fetchPersistentState(fetchPersistentState);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig ignoreModifications(Boolean ignoreModifications) {
+      super.ignoreModifications(ignoreModifications);
+      return this;
+   }
+}
@@ -96,6 +96,8 @@ public byte[] objectToByteBuffer(Object obj, int estimatedSize) throws IOExcepti
    }
 
    private byte[] trimBuffer(ByteBuffer b) {
+      if (b.getOffset() == 0 && b.getLength() == b.getBuf().length)
+         return b.getBuf();
       byte[] bytes = new byte[b.getLength()];
       System.arraycopy(b.getBuf(), b.getOffset(), bytes, 0, b.getLength());
       return bytes;
@@ -39,7 +39,8 @@
  * of the allocated buffer two times consecutively.  Otherwise, it keeps
  * returning the same prediction.
  *
- * TODO: Object type hints could be useful at giving more type-specific predictions
+ * {@link MarshallableTypeHints} keeps one predictor per marshalled type, so
+ * predictions adapt to each type separately.
  *
  * @author <a href="http://gleamynode.net/">Trustin Lee</a>
  * @author Galder Zamarreño
@@ -5,7 +5,15 @@
 import org.infinispan.factories.annotations.Stop;
 import org.infinispan.factories.scopes.Scope;
 import org.infinispan.factories.scopes.Scopes;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.marshall.jboss.ExternalizerTable;
+import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
+import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Operation;
 
 /**
  * A globally-scoped marshaller. This is needed so that the transport layer
@@ -16,6 +24,7 @@
  * @since 5.0
  */
 @Scope(Scopes.GLOBAL)
+@MBean(objectName = "GlobalMarshaller", description = "Marshaller shared by all caches of the cache manager")
 public class GlobalMarshaller extends AbstractDelegatingMarshaller {
 
    public GlobalMarshaller(VersionAwareMarshaller marshaller) {
@@ -27,6 +36,7 @@ public void inject(ClassLoader loader, ExternalizerTable extTable,
             GlobalConfiguration globalCfg) {
       ((VersionAwareMarshaller) this.marshaller).inject(
             null, null, loader, null, extTable, globalCfg);
+      OutputBufferPool.getInstance().setStatisticsEnabled(globalCfg.globalJmxStatistics().enabled());
    }
 
    @Override
@@ -35,4 +45,48 @@ public void stop() {
       super.stop();
    }
 
+   @ManagedAttribute(description = "Number of output buffers handed out for marshalling")
+   @Metric(displayName = "Output buffers acquired", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getBuffersAcquired() {
+      return OutputBufferPool.getInstance().getAcquired();
+   }
+
+   @ManagedAttribute(description = "Number of output buffers reused from the pool rather than allocated")
+   @Metric(displayName = "Output buffers reused", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getBuffersReused() {
+      return OutputBufferPool.getInstance().getReused();
+   }
+
+   @ManagedAttribute(description = "Output buffers reused as a ratio of the output buffers handed out")
+   @Metric(displayName = "Output buffer reuse ratio", displayType = DisplayType.SUMMARY)
+   public String getBufferReuseRatio() {
+      OutputBufferPool pool = OutputBufferPool.getInstance();
+      long acquired = pool.getAcquired();
+      if (acquired == 0) return "N/A";
+      double ratio = (double) pool.getReused() / acquired * 100d;
+      return (int) ratio + "%";
+   }
+
+   @ManagedAttribute(description = "Number of times an output buffer had to grow because the predicted size was too small")
+   @Metric(displayName = "Output buffer resizes", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getBufferResizes() {
+      return OutputBufferPool.getInstance().getResizes();
+   }
+
+   @ManagedAttribute(description = "Enables or disables the gathering of output buffer statistics", writable = true)
+   @Metric(displayName = "Statistics enabled", dataType = DataType.TRAIT)
+   public boolean isStatisticsEnabled() {
+      return OutputBufferPool.getInstance().isStatisticsEnabled();
+   }
+
+   public void setStatisticsEnabled(boolean enabled) {
+      OutputBufferPool.getInstance().setStatisticsEnabled(enabled);
+   }
+
+   @ManagedOperation(description = "Resets statistics gathered by this component")
+   @Operation(displayName = "Reset statistics")
+   public void resetStatistics() {
+      OutputBufferPool.getInstance().resetStatistics();
+   }
+
 }
@@ -38,6 +38,13 @@ public final class MarshallableTypeHints {
    private static final Log log = LogFactory.getLog(MarshallableTypeHints.class);
    private static final boolean trace = log.isTraceEnabled();
 
+   /**
+    * Upper bound of the per type predictions. Much larger than the default
+    * one so that types with large serialized forms, such as big values,
+    * converge to their actual size instead of being resized every time.
+    */
+   static final int MAXIMUM_PREDICTED_SIZE = 4 * 1024 * 1024;
+
    /**
     * Cache of classes that are considered to be marshallable alongside their
     * buffer size predictor. Since checking whether a type is marshallable
@@ -57,7 +64,7 @@ public BufferSizePredictor getBufferSizePredictor(Class<?> type) {
       MarshallingType marshallingType = typeHints.get(type);
       if (marshallingType == null) {
          // Initialise with isMarshallable to null, meaning it's unknown
-         marshallingType = new MarshallingType(null, new AdaptiveBufferSizePredictor());
+         marshallingType = new MarshallingType(null, newBufferSizePredictor(type));
          MarshallingType prev = typeHints.putIfAbsent(type, marshallingType);
          if (prev != null) {
             marshallingType = prev;
@@ -125,10 +132,17 @@ public void markMarshallable(Class<?> type, boolean isMarshallable) {
          }
 
          typeHints.put(type, new MarshallingType(
-               Boolean.valueOf(isMarshallable), new AdaptiveBufferSizePredictor()));
+               Boolean.valueOf(isMarshallable), newBufferSizePredictor(type)));
       }
    }
 
+   private static BufferSizePredictor newBufferSizePredictor(Class<?> type) {
+      if (type == byte[].class)
+         return ByteArraySizePredictor.INSTANCE;
+      return new AdaptiveBufferSizePredictor(AdaptiveBufferSizePredictor.DEFAULT_MINIMUM,
+            AdaptiveBufferSizePredictor.DEFAULT_INITIAL, MAXIMUM_PREDICTED_SIZE);
+   }
+
    /**
     * Clear the cached marshallable type hints.
     */
@@ -143,6 +157,25 @@ private boolean marshallableUpdateRequired(boolean isMarshallable,
                    marshallType.isMarshallable.booleanValue() != isMarshallable);
    }
 
+   /**
+    * The serialized size of a byte array is known upfront: its length plus
+    * a few bytes for the type and length headers.
+    */
+   private static final class ByteArraySizePredictor implements BufferSizePredictor {
+      static final ByteArraySizePredictor INSTANCE = new ByteArraySizePredictor();
+      private static final int HEADER_SIZE = 16;
+
+      @Override
+      public int nextSize(Object obj) {
+         return obj instanceof byte[] ? ((byte[]) obj).length + HEADER_SIZE : AdaptiveBufferSizePredictor.DEFAULT_INITIAL;
+      }
+
+      @Override
+      public void recordSize(int previousSize) {
+         // nothing to learn
+      }
+   }
+
    private static class MarshallingType {
 
       final Boolean isMarshallable;
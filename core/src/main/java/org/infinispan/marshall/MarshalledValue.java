@@ -28,6 +28,7 @@
 import org.infinispan.io.ImmutableMarshalledValueByteStream;
 import org.infinispan.io.MarshalledValueByteStream;
 import org.infinispan.io.UnsignedNumeric;
+import org.infinispan.marshall.jboss.ExtendedRiverMarshaller;
 import org.infinispan.marshall.jboss.ExtendedRiverUnmarshaller;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.transaction.xa.GlobalTransaction;
@@ -321,16 +322,22 @@ public Externalizer(StreamingMarshaller globalMarshaller) {
       public void writeObject(ObjectOutput output, MarshalledValue mv) throws IOException {
          MarshalledValueByteStream raw = mv.getRaw();
          int rawLength = raw.size();
-         UnsignedNumeric.writeUnsignedInt(output, rawLength);
-         output.write(raw.getRaw(), 0, rawLength);
+         if (!ExtendedRiverMarshaller.writeDetachedPayload(output, raw.getRaw(), 0, rawLength)) {
+            UnsignedNumeric.writeUnsignedInt(output, rawLength);
+            output.write(raw.getRaw(), 0, rawLength);
+         }
          output.writeInt(mv.hashCode());
       }
 
       @Override
       public MarshalledValue readObject(ObjectInput input) throws IOException {
-         int length = UnsignedNumeric.readUnsignedInt(input);
-         byte[] raw = new byte[length];
-         input.readFully(raw);
+         // Payloads of remote commands are read straight off the received
+         // message, and stay serialized until the value is actually needed
+         byte[] raw = ExtendedRiverUnmarshaller.readDetachedPayload(input);
+         if (raw == null) {
+            raw = new byte[UnsignedNumeric.readUnsignedInt(input)];
+            input.readFully(raw);
+         }
          int hc = input.readInt();
 
          // A better way of sending down context information is needed in the future
@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.marshall;
+
+import org.infinispan.io.ByteBuffer;
+import org.infinispan.io.ExposedByteArrayOutputStream;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-thread pool of the {@link ExposedByteArrayOutputStream}s objects are marshalled into.
+ * <p/>
+ * Small objects, such as most commands, are marshalled into a buffer reused by the thread and then copied into an
+ * array of the exact size, so that neither the buffer nor its resizes turn into garbage.  Objects predicted to be
+ * larger than {@link #DEFAULT_MAX_RETAINED_SIZE} get a buffer of their own, which is handed over without copying.
+ * Marshalling can be nested, so each thread keeps up to {@link #DEFAULT_MAX_BUFFERS_PER_THREAD} buffers, each of them
+ * bounded by the maximum retained size, which bounds the memory held by the pool.
+ *
+ * @since 5.2
+ */
+public final class OutputBufferPool {
+
+   public static final int DEFAULT_MAX_RETAINED_SIZE = 32 * 1024;
+   public static final int DEFAULT_MAX_BUFFERS_PER_THREAD = 2;
+
+   private static final OutputBufferPool INSTANCE = new OutputBufferPool(DEFAULT_MAX_RETAINED_SIZE, DEFAULT_MAX_BUFFERS_PER_THREAD);
+
+   private final int maxRetainedSize;
+   private final int maxBuffersPerThread;
+   private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+      @Override
+      protected Buffers initialValue() {
+         return new Buffers(maxBuffersPerThread);
+      }
+   };
+
+   private volatile boolean statisticsEnabled;
+   private final AtomicLong acquired = new AtomicLong();
+   private final AtomicLong reused = new AtomicLong();
+   private final AtomicLong resizes = new AtomicLong();
+
+   /**
+    * @return the pool shared by all marshallers
+    */
+   public static OutputBufferPool getInstance() {
+      return INSTANCE;
+   }
+
+   public OutputBufferPool(int maxRetainedSize, int maxBuffersPerThread) {
+      this.maxRetainedSize = maxRetainedSize;
+      this.maxBuffersPerThread = maxBuffersPerThread;
+   }
+
+   /**
+    * Returns an empty stream able to take at least <tt>estimatedSize</tt> bytes without resizing. The stream must be
+    * given back through {@link #release(ExposedByteArrayOutputStream)} or {@link #toBuffer(ExposedByteArrayOutputStream)}
+    * once its contents are no longer needed, but it is harmless not to do so on failure.
+    */
+   public ExposedByteArrayOutputStream acquire(int estimatedSize) {
+      if (statisticsEnabled) acquired.incrementAndGet();
+      if (estimatedSize <= maxRetainedSize) {
+         Buffers pooled = buffers.get();
+         ExposedByteArrayOutputStream baos = pooled.pop();
+         if (baos != null) {
+            if (baos.getRawBuffer().length >= estimatedSize) {
+               if (statisticsEnabled) reused.incrementAndGet();
+               return baos;
+            }
+            // too small for this object, but still good for the next one
+            pooled.push(baos);
+         }
+      }
+      return new ExposedByteArrayOutputStream(estimatedSize);
+   }
+
+   /**
+    * Gives back a stream obtained from {@link #acquire(int)}. Its contents must not be used afterwards.
+    */
+   public void release(ExposedByteArrayOutputStream baos) {
+      if (statisticsEnabled) resizes.addAndGet(baos.getResizeCount());
+      if (baos.getRawBuffer().length <= maxRetainedSize) {
+         baos.reset();
+         buffers.get().push(baos);
+      }
+   }
+
+   /**
+    * Gives back a stream obtained from {@link #acquire(int)}, returning its contents as a {@link ByteBuffer} that
+    * does not share any state with the pool.
+    */
+   public ByteBuffer toBuffer(ExposedByteArrayOutputStream baos) {
+      ByteBuffer buffer;
+      if (baos.getRawBuffer().length <= maxRetainedSize) {
+         byte[] bytes = new byte[baos.size()];
+         System.arraycopy(baos.getRawBuffer(), 0, bytes, 0, bytes.length);
+         buffer = new ByteBuffer(bytes, 0, bytes.length);
+      } else {
+         // not retained by the pool, so it can be handed over as is
+         buffer = new ByteBuffer(baos.getRawBuffer(), 0, baos.size());
+      }
+      release(baos);
+      return buffer;
+   }
+
+   public boolean isStatisticsEnabled() {
+      return statisticsEnabled;
+   }
+
+   public void setStatisticsEnabled(boolean statisticsEnabled) {
+      this.statisticsEnabled = statisticsEnabled;
+   }
+
+   /**
+    * @return the number of buffers handed out
+    */
+   public long getAcquired() {
+      return acquired.get();
+   }
+
+   /**
+    * @return the number of buffers handed out which were reused rather than allocated
+    */
+   public long getReused() {
+      return reused.get();
+   }
+
+   /**
+    * @return the number of times the buffers had to be grown because the predicted size was too small
+    */
+   public long getResizes() {
+      return resizes.get();
+   }
+
+   public void resetStatistics() {
+      acquired.set(0);
+      reused.set(0);
+      resizes.set(0);
+   }
+
+   private static class Buffers {
+      private final ExposedByteArrayOutputStream[] stack;
+      private int size;
+
+      Buffers(int capacity) {
+         stack = new ExposedByteArrayOutputStream[capacity];
+      }
+
+      ExposedByteArrayOutputStream pop() {
+         if (size == 0) return null;
+         ExposedByteArrayOutputStream baos = stack[--size];
+         stack[size] = null;
+         return baos;
+      }
+
+      void push(ExposedByteArrayOutputStream baos) {
+         if (size < stack.length) stack[size++] = baos;
+      }
+   }
+}
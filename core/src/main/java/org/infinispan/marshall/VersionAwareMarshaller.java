@@ -85,7 +85,8 @@ public void stop() {
 
    @Override
    protected ByteBuffer objectToBuffer(Object obj, int estimatedSize) throws IOException, InterruptedException {
-      ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream(estimatedSize);
+      OutputBufferPool bufferPool = OutputBufferPool.getInstance();
+      ExposedByteArrayOutputStream baos = bufferPool.acquire(estimatedSize);
       ObjectOutput out = startObjectOutput(baos, false, estimatedSize);
       try {
          defaultMarshaller.objectToObjectStream(obj, out);
@@ -103,7 +104,7 @@ protected ByteBuffer objectToBuffer(Object obj, int estimatedSize) throws IOExce
       } finally {
          finishObjectOutput(out);
       }
-      return new ByteBuffer(baos.getRawBuffer(), 0, baos.size());
+      return bufferPool.toBuffer(baos);
    }
 
    @Override
@@ -26,9 +26,11 @@
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.remote.CacheRpcCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
+import org.infinispan.commands.remote.WaitForGraphCommand;
 import org.infinispan.commands.remote.recovery.CompleteTransactionCommand;
 import org.infinispan.commands.remote.recovery.GetInDoubtTransactionsCommand;
 import org.infinispan.commands.remote.recovery.GetInDoubtTxInfoCommand;
@@ -41,12 +43,15 @@
 import org.infinispan.factories.ComponentRegistry;
 import org.infinispan.factories.GlobalComponentRegistry;
 import org.infinispan.factories.KnownComponentNames;
+import org.infinispan.io.ByteBuffer;
 import org.infinispan.io.ExposedByteArrayOutputStream;
 import org.infinispan.io.UnsignedNumeric;
 import org.infinispan.marshall.AbstractExternalizer;
 import org.infinispan.marshall.BufferSizePredictor;
 import org.infinispan.marshall.Ids;
+import org.infinispan.marshall.OutputBufferPool;
 import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.marshall.jboss.ExtendedRiverMarshaller;
 import org.infinispan.marshall.jboss.ExtendedRiverUnmarshaller;
 import org.infinispan.statetransfer.StateRequestCommand;
 import org.infinispan.statetransfer.StateResponseCommand;
@@ -56,6 +61,8 @@
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -88,7 +95,8 @@ public Set<Class<? extends CacheRpcCommand>> getTypeClasses() {
             TxCompletionNotificationCommand.class, GetInDoubtTransactionsCommand.class,
             GetInDoubtTxInfoCommand.class, CompleteTransactionCommand.class,
             VersionedPrepareCommand.class, CreateCacheCommand.class,
-            VersionedCommitCommand.class);
+            VersionedCommitCommand.class, ClusteredGetAllCommand.class,
+            WaitForGraphCommand.class);
       // Only interested in cache specific replicable commands
       coreCommands.addAll(gcr.getModuleProperties().moduleCacheRpcCommands());
       return coreCommands;
@@ -111,26 +119,41 @@ public void writeObject(ObjectOutput output, CacheRpcCommand command) throws IOE
       // Take the cache marshaller and generate the payload for the rest of
       // the command using that cache marshaller and the write the bytes in
       // the original payload.
-      ExposedByteArrayOutputStream os = marshallParameters(command, marshaller);
+      List<ByteBuffer> payloads = new ArrayList<ByteBuffer>(4);
+      ExposedByteArrayOutputStream os = marshallParameters(command, marshaller, payloads);
       UnsignedNumeric.writeUnsignedInt(output, os.size());
       // Do not rely on the raw buffer's length which is likely to be much longer!
       output.write(os.getRawBuffer(), 0, os.size());
+      OutputBufferPool.getInstance().release(os);
+      // Binary payloads, such as marshalled values, go straight into the
+      // outer stream rather than being copied through the parameters buffer
+      UnsignedNumeric.writeUnsignedInt(output, payloads.size());
+      for (ByteBuffer payload : payloads) {
+         UnsignedNumeric.writeUnsignedInt(output, payload.getLength());
+         output.write(payload.getBuf(), payload.getOffset(), payload.getLength());
+      }
       if (command instanceof TopologyAffectedCommand) {
          output.writeInt(((TopologyAffectedCommand) command).getTopologyId());
       }
    }
 
-   private ExposedByteArrayOutputStream marshallParameters(
-         CacheRpcCommand cmd, StreamingMarshaller marshaller) throws IOException {
+   private ExposedByteArrayOutputStream marshallParameters(CacheRpcCommand cmd,
+         StreamingMarshaller marshaller, List<ByteBuffer> payloads) throws IOException {
       BufferSizePredictor sizePredictor = marshaller.getBufferSizePredictor(cmd);
       int estimatedSize = sizePredictor.nextSize(cmd);
-      ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream(estimatedSize);
+      ExposedByteArrayOutputStream baos = OutputBufferPool.getInstance().acquire(estimatedSize);
       ObjectOutput output = marshaller.startObjectOutput(baos, true, estimatedSize);
+      boolean detach = output instanceof ExtendedRiverMarshaller;
+      if (detach)
+         ((ExtendedRiverMarshaller) output).setDetachedPayloads(payloads);
       try {
          cmdExt.writeCommandParameters(output, cmd);
       } finally {
+         if (detach)
+            ((ExtendedRiverMarshaller) output).setDetachedPayloads(null);
          marshaller.finishObjectOutput(output);
       }
+      sizePredictor.recordSize(baos.size());
       return baos;
    }
 
@@ -156,13 +179,16 @@ public CacheRpcCommand readObject(ObjectInput input) throws IOException, ClassNo
       // buffering. An alternative solution is shown in SharedStreamMultiMarshallerTest
       // but it requires some special treatment - iow, hacking :)
       input.readFully(paramsRaw);
+      byte[][] payloads = readPayloads(input);
       ByteArrayInputStream is = new ByteArrayInputStream(paramsRaw, 0, paramsRaw.length);
       ObjectInput paramsInput = marshaller.startObjectInput(is, true);
       // Not ideal, but the alternative (without changing API), would have been
       // using thread locals which are expensive to retrieve.
       // Remember that the aim with externalizers is for them to be stateless.
-      if (paramsInput instanceof ExtendedRiverUnmarshaller)
+      if (paramsInput instanceof ExtendedRiverUnmarshaller) {
          ((ExtendedRiverUnmarshaller) paramsInput).setInfinispanMarshaller(marshaller);
+         ((ExtendedRiverUnmarshaller) paramsInput).setDetachedPayloads(payloads);
+      }
 
       try {
          Object[] args = cmdExt.readParameters(paramsInput);
@@ -173,10 +199,23 @@ public CacheRpcCommand readObject(ObjectInput input) throws IOException, ClassNo
          }
          return cacheRpcCommand;
       } finally {
+         if (paramsInput instanceof ExtendedRiverUnmarshaller)
+            ((ExtendedRiverUnmarshaller) paramsInput).setDetachedPayloads(null);
          marshaller.finishObjectInput(paramsInput);
       }
    }
 
+   private byte[][] readPayloads(ObjectInput input) throws IOException {
+      int count = UnsignedNumeric.readUnsignedInt(input);
+      if (count == 0) return null;
+      byte[][] payloads = new byte[count][];
+      for (int i = 0; i < count; i++) {
+         payloads[i] = new byte[UnsignedNumeric.readUnsignedInt(input)];
+         input.readFully(payloads[i]);
+      }
+      return payloads;
+   }
+
    @Override
    public Integer getId() {
       return Ids.CACHE_RPC_COMMAND;
@@ -22,6 +22,7 @@
 import org.infinispan.io.ByteBuffer;
 import org.infinispan.io.ExposedByteArrayOutputStream;
 import org.infinispan.marshall.AbstractMarshaller;
+import org.infinispan.marshall.OutputBufferPool;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.util.logging.BasicLogFactory;
 import org.jboss.logging.BasicLogger;
@@ -98,14 +99,15 @@ final public void objectToObjectStream(final Object obj, final ObjectOutput out)
 
    @Override
    final protected ByteBuffer objectToBuffer(final Object o, final int estimatedSize) throws IOException {
-      ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream(estimatedSize);
+      OutputBufferPool bufferPool = OutputBufferPool.getInstance();
+      ExposedByteArrayOutputStream baos = bufferPool.acquire(estimatedSize);
       ObjectOutput marshaller = startObjectOutput(baos, false, estimatedSize);
       try {
          objectToObjectStream(o, marshaller);
       } finally {
          finishObjectOutput(marshaller);
       }
-      return new ByteBuffer(baos.getRawBuffer(), 0, baos.size());
+      return bufferPool.toBuffer(baos);
    }
 
    @Override
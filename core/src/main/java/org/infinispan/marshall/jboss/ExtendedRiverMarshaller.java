@@ -20,11 +20,14 @@
 package org.infinispan.marshall.jboss;
 
 import org.jboss.marshalling.MarshallingConfiguration;
+import org.infinispan.io.ByteBuffer;
 import org.jboss.marshalling.reflect.SerializableClassRegistry;
 import org.jboss.marshalling.river.RiverMarshaller;
 import org.jboss.marshalling.river.RiverMarshallerFactory;
 
 import java.io.IOException;
+import java.io.ObjectOutput;
+import java.util.List;
 
 /**
  * {@link RiverMarshaller} extension that allows Infinispan code to directly
@@ -36,6 +39,7 @@
 public class ExtendedRiverMarshaller extends RiverMarshaller {
 
    private RiverCloseListener listener;
+   private List<ByteBuffer> detachedPayloads;
 
    public ExtendedRiverMarshaller(RiverMarshallerFactory factory,
          SerializableClassRegistry registry, MarshallingConfiguration cfg) throws IOException {
@@ -54,4 +58,36 @@ void setCloseListener(RiverCloseListener listener) {
       this.listener = listener;
    }
 
+   public List<ByteBuffer> getDetachedPayloads() {
+      return detachedPayloads;
+   }
+
+   /**
+    * When set, binary payloads written through {@link #writeDetachedPayload(ObjectOutput, byte[], int, int)} are
+    * collected in the given list instead of being copied into this stream, so that the caller can write them
+    * separately once this stream is complete. Set it back to null once done.
+    */
+   public void setDetachedPayloads(List<ByteBuffer> detachedPayloads) {
+      this.detachedPayloads = detachedPayloads;
+   }
+
+   /**
+    * Writes a reference to the given bytes if the output collects detached payloads, without copying them.
+    *
+    * @return false if the output does not collect detached payloads, in which case the caller must write the bytes
+    * itself, true otherwise
+    * @see ExtendedRiverUnmarshaller#readDetachedPayload(java.io.ObjectInput)
+    */
+   public static boolean writeDetachedPayload(ObjectOutput output, byte[] buf, int offset, int length) throws IOException {
+      if (output instanceof ExtendedRiverMarshaller) {
+         List<ByteBuffer> payloads = ((ExtendedRiverMarshaller) output).detachedPayloads;
+         if (payloads != null) {
+            output.writeInt(payloads.size());
+            payloads.add(new ByteBuffer(buf, offset, length));
+            return true;
+         }
+      }
+      return false;
+   }
+
 }
@@ -20,6 +20,7 @@
 package org.infinispan.marshall.jboss;
 
 import java.io.IOException;
+import java.io.ObjectInput;
 
 import org.infinispan.marshall.StreamingMarshaller;
 import org.jboss.marshalling.MarshallingConfiguration;
@@ -39,6 +40,7 @@ public class ExtendedRiverUnmarshaller extends RiverUnmarshaller {
 
    private StreamingMarshaller infinispanMarshaller;
    private RiverCloseListener listener;
+   private byte[][] detachedPayloads;
 
    protected ExtendedRiverUnmarshaller(RiverMarshallerFactory factory,
          SerializableClassRegistry registry, MarshallingConfiguration cfg) {
@@ -53,6 +55,35 @@ public void setInfinispanMarshaller(StreamingMarshaller infinispanMarshaller) {
       this.infinispanMarshaller = infinispanMarshaller;
    }
 
+   /**
+    * Provides the binary payloads that were written apart from this stream, in the order in which
+    * {@link ExtendedRiverMarshaller#writeDetachedPayload(java.io.ObjectOutput, byte[], int, int)} collected them.
+    * Set it back to null once done.
+    */
+   public void setDetachedPayloads(byte[][] detachedPayloads) {
+      this.detachedPayloads = detachedPayloads;
+   }
+
+   /**
+    * Reads a payload written with {@link ExtendedRiverMarshaller#writeDetachedPayload(java.io.ObjectOutput, byte[], int, int)}.
+    * The returned array is handed over as is, without copying it.
+    *
+    * @return null if the input was not given any detached payloads, in which case the caller must read the bytes
+    * itself
+    */
+   public static byte[] readDetachedPayload(ObjectInput input) throws IOException {
+      if (input instanceof ExtendedRiverUnmarshaller) {
+         byte[][] payloads = ((ExtendedRiverUnmarshaller) input).detachedPayloads;
+         if (payloads != null) {
+            int index = input.readInt();
+            if (index < 0 || index >= payloads.length)
+               throw new IOException("Detached payload " + index + " not found, only " + payloads.length + " received");
+            return payloads[index];
+         }
+      }
+      return null;
+   }
+
    void setCloseListener(RiverCloseListener closeListener) {
       this.listener = closeListener;
    }
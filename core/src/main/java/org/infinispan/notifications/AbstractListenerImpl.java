@@ -29,20 +29,23 @@
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
 import org.infinispan.util.ReflectionUtil;
-import org.infinispan.util.concurrent.WithinThreadExecutor;
 import org.infinispan.util.logging.Log;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Functionality common to both {@link org.infinispan.notifications.cachemanagerlistener.CacheManagerNotifierImpl} and
@@ -52,11 +55,15 @@
  */
 public abstract class AbstractListenerImpl {
 
+   /**
+    * Upper bound on the number of events handed to a {@link Listener#batched()} listener method in one invocation.
+    */
+   static final int MAX_BATCH_SIZE = 1024;
+
    protected final Map<Class<? extends Annotation>, List<ListenerInvocation>> listenersMap = new HashMap<Class<? extends Annotation>, List<ListenerInvocation>>(16, 0.99f);
 
 
-   // two separate executor services, one for sync and one for async listeners
-   protected ExecutorService syncProcessor;
+   // sync listeners are invoked directly in the caller's thread, async ones through this executor
    protected ExecutorService asyncProcessor;
 
 
@@ -65,9 +72,14 @@ void injectExecutor(@ComponentName(KnownComponentNames.ASYNC_NOTIFICATION_EXECUT
       this.asyncProcessor = executor;
    }
 
-   @Start (priority = 9)
+   /**
+    * Synchronous listeners are now invoked directly in the caller's thread, so there is no executor left to create.
+    *
+    * @deprecated nothing needs to be started anymore, this method is kept for code which starts notifiers by hand
+    */
+   @Deprecated
+   @Start(priority = 9)
    public void start() {
-      syncProcessor = new WithinThreadExecutor();
    }
 
    /**
@@ -78,14 +90,23 @@ void stop() {
       for (List<ListenerInvocation> list : listenersMap.values()) {
          if (list != null) list.clear();
       }
-
-      if (syncProcessor != null) syncProcessor.shutdownNow();
    }
 
    protected abstract Log getLog();
 
    protected abstract Map<Class<? extends Annotation>, Class<?>> getAllowedMethodAnnotations();
 
+   /**
+    * Checks whether any of the given listeners wants to be notified of the pre or post phase of an event, so callers can
+    * skip building the event altogether when nobody would receive it.
+    */
+   protected static boolean isObserved(List<ListenerInvocation> listeners, boolean pre) {
+      for (ListenerInvocation li : listeners) {
+         if (li.observes(pre)) return true;
+      }
+      return false;
+   }
+
    protected List<ListenerInvocation> getListenerCollectionForAnnotation(Class<? extends Annotation> annotation) {
       List<ListenerInvocation> list = listenersMap.get(annotation);
       if (list == null) throw new CacheException("Unknown listener annotation: " + annotation);
@@ -121,13 +142,14 @@ public Set<Object> getListeners() {
 
    /**
     * Loops through all valid methods on the object passed in, and caches the relevant methods as {@link
-    * ListenerInvocation} for invocation by reflection.
+    * ListenerInvocation}s.  All validation, access checks and delivery decisions are made here, once, rather than for
+    * each event.
     *
     * @param listener object to be considered as a listener.
     */
    @SuppressWarnings("unchecked")
    private void validateAndAddListenerInvocation(Object listener) {
-      boolean sync = testListenerClassValidity(listener.getClass());
+      Listener l = testListenerClassValidity(listener.getClass());
       boolean foundMethods = false;
       Map<Class<? extends Annotation>, Class<?>> allowedListeners = getAllowedMethodAnnotations();
       // now try all methods on the listener for anything that we like.  Note that only PUBLIC methods are scanned.
@@ -137,8 +159,8 @@ private void validateAndAddListenerInvocation(Object listener) {
             Class<? extends Annotation> key = annotationEntry.getKey();
             Class<?> value = annotationEntry.getValue();
             if (m.isAnnotationPresent(key)) {
-               testListenerMethodValidity(m, value, key.getName());
-               addListenerInvocation(key, new ListenerInvocation(listener, m, sync));
+               testListenerMethodValidity(m, l.batched() ? List.class : value, key.getName());
+               addListenerInvocation(key, new ListenerInvocation(listener, m, l));
                foundMethods = true;
             }
          }
@@ -154,19 +176,21 @@ private void addListenerInvocation(Class<? extends Annotation> annotation, Liste
    }
 
    /**
-    * Tests if a class is properly annotated as a CacheListener and returns whether callbacks on this class should be
-    * invoked synchronously or asynchronously.
+    * Tests if a class is properly annotated as a CacheListener and returns the annotation, which describes how callbacks
+    * on this class should be delivered.
     *
     * @param listenerClass class to inspect
-    * @return true if callbacks on this class should use the syncProcessor; false if it should use the asyncProcessor.
+    * @return the {@link Listener} annotation of the class
     */
-   protected static boolean testListenerClassValidity(Class<?> listenerClass) {
+   protected static Listener testListenerClassValidity(Class<?> listenerClass) {
       Listener l = ReflectionUtil.getAnnotation(listenerClass, Listener.class);
       if (l == null)
          throw new IncorrectListenerException(String.format("Cache listener class %s must be annotated with org.infinispan.notifications.annotation.Listener", listenerClass.getName()));
       if (!Modifier.isPublic(listenerClass.getModifiers()))
          throw new IncorrectListenerException(String.format("Cache listener class %s must be public!", listenerClass.getName()));
-      return l.sync();
+      if (l.batched() && l.sync())
+         throw new IncorrectListenerException(String.format("Cache listener class %s receives batched events and must therefore be asynchronous", listenerClass.getName()));
+      return l;
    }
 
    protected static void testListenerMethodValidity(Method m, Class<?> allowedParameter, String annotationName) {
@@ -178,49 +202,120 @@ protected static void testListenerMethodValidity(Method m, Class<?> allowedParam
 
    /**
     * Class that encapsulates a valid invocation for a given registered listener - containing a reference to the method
-    * to be invoked as well as the target object.
+    * to be invoked as well as the target object.  The method is made accessible up front, synchronous invocations
+    * happen directly in the caller's thread and events for batched listeners are queued and handed over as lists by a
+    * single drain task at a time, which preserves their order.
     */
    protected class ListenerInvocation {
       public final Object target;
       public final Method method;
       public final boolean sync;
+      private final boolean observesPre;
+      private final boolean observesPost;
+      private final Queue<Object> pendingEvents;
+      private final AtomicBoolean drainScheduled;
+      private final Runnable drainTask;
 
       public ListenerInvocation(Object target, Method method, boolean sync) {
+         this(target, method, sync, Listener.Observation.BOTH, false);
+      }
+
+      ListenerInvocation(Object target, Method method, Listener listener) {
+         this(target, method, listener.sync(), listener.observation(), listener.batched());
+      }
+
+      private ListenerInvocation(Object target, Method method, boolean sync, Listener.Observation observation, boolean batched) {
          this.target = target;
          this.method = method;
          this.sync = sync;
+         this.observesPre = observation != Listener.Observation.POST;
+         this.observesPost = observation != Listener.Observation.PRE;
+         try {
+            // skips the access check on every invocation
+            method.setAccessible(true);
+         } catch (SecurityException e) {
+            getLog().tracef("Unable to suppress access checks on listener method %s", method);
+         }
+         if (batched) {
+            pendingEvents = new ConcurrentLinkedQueue<Object>();
+            drainScheduled = new AtomicBoolean();
+            drainTask = new Runnable() {
+               @Override
+               public void run() {
+                  drain();
+               }
+            };
+         } else {
+            pendingEvents = null;
+            drainScheduled = null;
+            drainTask = null;
+         }
       }
 
-      public void invoke(final Object event) {
-         Runnable r = new Runnable() {
+      /**
+       * @return true if this listener is interested in the pre (if <tt>pre</tt> is true) or post phase of an event
+       */
+      public boolean observes(boolean pre) {
+         return pre ? observesPre : observesPost;
+      }
 
-            @Override
-            public void run() {
-               try {
-                  method.invoke(target, event);
-               }
-               catch (InvocationTargetException exception) {
-                  Throwable cause = getRealException(exception);
-                  if (sync) {
-                     throw new CacheException(String.format(
-                        "Caught exception [%s] while invoking method [%s] on listener instance: %s"
-                        , cause.getClass().getName(), method, target
-                     ), cause);
-                  } else {
-                     getLog().unableToInvokeListenerMethod(method, target, cause);
-                  }
-               }
-               catch (IllegalAccessException exception) {
-                  getLog().unableToInvokeListenerMethod(method, target, exception);
-                  removeListener(target);
+      /**
+       * Delivers an event which has both a pre and a post notification, unless this listener is not interested in the
+       * phase the event represents.
+       */
+      public void invoke(Object event, boolean pre) {
+         if (observes(pre)) invoke(event);
+      }
+
+      public void invoke(final Object event) {
+         if (sync) {
+            doInvoke(event);
+         } else if (pendingEvents != null) {
+            pendingEvents.add(event);
+            if (drainScheduled.compareAndSet(false, true)) asyncProcessor.execute(drainTask);
+         } else {
+            asyncProcessor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  doInvoke(event);
                }
-            }
-         };
+            });
+         }
+      }
+
+      private void drain() {
+         List<Object> batch = new ArrayList<Object>();
+         Object event;
+         while (batch.size() < MAX_BATCH_SIZE && (event = pendingEvents.poll()) != null) batch.add(event);
+         try {
+            if (!batch.isEmpty()) doInvoke(batch);
+         } finally {
+            drainScheduled.set(false);
+            // events added after the poll loop found the task still scheduled, so it's up to us to pick them up
+            if (!pendingEvents.isEmpty() && drainScheduled.compareAndSet(false, true))
+               asyncProcessor.execute(drainTask);
+         }
+      }
 
-         if (sync)
-            syncProcessor.execute(r);
-         else
-            asyncProcessor.execute(r);
+      private void doInvoke(Object arg) {
+         try {
+            method.invoke(target, arg);
+         }
+         catch (InvocationTargetException exception) {
+            Throwable cause = getRealException(exception);
+            if (sync) {
+               throw new CacheException(String.format(
+                  "Caught exception [%s] while invoking method [%s] on listener instance: %s"
+                  , cause.getClass().getName(), method, target
+               ), cause);
+            } else {
+               getLog().unableToInvokeListenerMethod(method, target, cause);
+            }
+         }
+         catch (IllegalAccessException exception) {
+            getLog().unableToInvokeListenerMethod(method, target, exception);
+            removeListener(target);
+         }
       }
    }
 
@@ -224,4 +224,46 @@
     * @since 4.0
     */
    boolean sync() default true;
+
+   /**
+    * Specifies which phases of an event the listener methods are notified of.  Events that come in pairs, such as
+    * {@link org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent}, are otherwise delivered once
+    * before and once after the operation.  Narrowing this down to the phase the listener actually uses spares the cache
+    * from building and delivering events which would be discarded.  Events without a pre phase are always delivered.
+    *
+    * @return the phases to be notified of.  Defaults to {@link Observation#BOTH}.
+    * @since 5.2
+    */
+   Observation observation() default Observation.BOTH;
+
+   /**
+    * Specifies whether events are handed to listener methods in batches.  A batched listener must be asynchronous
+    * (<tt>sync = false</tt>) and its annotated methods must accept a {@link java.util.List} of events rather than a
+    * single event.  Events queued up while the previous batch was being processed are delivered together, in the order
+    * they were raised, which amortizes the cost of the thread hand-off on write-heavy caches.
+    *
+    * @return true if listener methods receive lists of events.  Defaults to <tt>false</tt>.
+    * @since 5.2
+    */
+   boolean batched() default false;
+
+   /**
+    * Event phases a listener can be notified of.
+    *
+    * @since 5.2
+    */
+   enum Observation {
+      /**
+       * Only before the operation takes place
+       */
+      PRE,
+      /**
+       * Only after the operation has taken place
+       */
+      POST,
+      /**
+       * Both before and after the operation
+       */
+      BOTH
+   }
 }
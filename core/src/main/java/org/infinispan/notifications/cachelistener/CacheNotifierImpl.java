@@ -136,20 +136,20 @@ protected Map<Class<? extends Annotation>, Class<?>> getAllowedMethodAnnotations
 
    @Override
    public void notifyCacheEntryCreated(Object key, boolean pre, InvocationContext ctx) {
-      if (!cacheEntryCreatedListeners.isEmpty()) {
+      if (isObserved(cacheEntryCreatedListeners, pre)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_CREATED);
          e.setOriginLocal(originLocal);
          e.setPre(pre);
          e.setKey(key);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryCreatedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryCreatedListeners) listener.invoke(e, pre);
       }
    }
 
    @Override
    public void notifyCacheEntryModified(Object key, Object value, boolean pre, InvocationContext ctx) {
-      if (!cacheEntryModifiedListeners.isEmpty()) {
+      if (isObserved(cacheEntryModifiedListeners, pre)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_MODIFIED);
          e.setOriginLocal(originLocal);
@@ -157,13 +157,13 @@ public void notifyCacheEntryModified(Object key, Object value, boolean pre, Invo
          e.setPre(pre);
          e.setKey(key);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryModifiedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryModifiedListeners) listener.invoke(e, pre);
       }
    }
 
    @Override
    public void notifyCacheEntryRemoved(Object key, Object value, boolean pre, InvocationContext ctx) {
-      if (!cacheEntryRemovedListeners.isEmpty()) {
+      if (isObserved(cacheEntryRemovedListeners, pre)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_REMOVED);
          e.setOriginLocal(originLocal);
@@ -171,19 +171,19 @@ public void notifyCacheEntryRemoved(Object key, Object value, boolean pre, Invoc
          e.setPre(pre);
          e.setKey(key);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryRemovedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryRemovedListeners) listener.invoke(e, pre);
       }
    }
 
    @Override
    public void notifyCacheEntryVisited(Object key, Object value, boolean pre, InvocationContext ctx) {
-      if (!cacheEntryVisitedListeners.isEmpty()) {
+      if (isObserved(cacheEntryVisitedListeners, pre)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_VISITED);
          e.setPre(pre);
          e.setKey(key);
          e.setValue(value);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryVisitedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryVisitedListeners) listener.invoke(e, pre);
       }
    }
 
@@ -252,7 +252,7 @@ public void notifyCacheEntryEvicted(Object key, Object value, InvocationContext
 
    @Override
    public void notifyCacheEntryInvalidated(final Object key, Object value, final boolean pre, InvocationContext ctx) {
-      if (!cacheEntryInvalidatedListeners.isEmpty()) {
+      if (isObserved(cacheEntryInvalidatedListeners, pre)) {
          final boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_INVALIDATED);
          e.setOriginLocal(originLocal);
@@ -260,13 +260,13 @@ public void notifyCacheEntryInvalidated(final Object key, Object value, final bo
          e.setKey(key);
          e.setValue(value);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryInvalidatedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryInvalidatedListeners) listener.invoke(e, pre);
       }
    }
 
    @Override
    public void notifyCacheEntryLoaded(Object key, Object value, boolean pre, InvocationContext ctx) {
-      if (!cacheEntryLoadedListeners.isEmpty()) {
+      if (isObserved(cacheEntryLoadedListeners, pre)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_LOADED);
          e.setOriginLocal(originLocal);
@@ -274,13 +274,13 @@ public void notifyCacheEntryLoaded(Object key, Object value, boolean pre, Invoca
          e.setKey(key);
          e.setValue(value);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryLoadedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryLoadedListeners) listener.invoke(e, pre);
       }
    }
 
    @Override
    public void notifyCacheEntryActivated(Object key, Object value, boolean pre, InvocationContext ctx) {
-      if (!cacheEntryActivatedListeners.isEmpty()) {
+      if (isObserved(cacheEntryActivatedListeners, pre)) {
          boolean originLocal = ctx.isOriginLocal();
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_ACTIVATED);
          e.setOriginLocal(originLocal);
@@ -288,7 +288,7 @@ public void notifyCacheEntryActivated(Object key, Object value, boolean pre, Inv
          e.setKey(key);
          e.setValue(value);
          setTx(ctx, e);
-         for (ListenerInvocation listener : cacheEntryActivatedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryActivatedListeners) listener.invoke(e, pre);
       }
    }
 
@@ -301,12 +301,12 @@ private void setTx(InvocationContext ctx, EventImpl<Object, Object> e) {
 
    @Override
    public void notifyCacheEntryPassivated(Object key, Object value, boolean pre, InvocationContext ctx) {
-      if (!cacheEntryPassivatedListeners.isEmpty()) {
+      if (isObserved(cacheEntryPassivatedListeners, pre)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, CACHE_ENTRY_PASSIVATED);
          e.setPre(pre);
          e.setKey(key);
          e.setValue(value);
-         for (ListenerInvocation listener : cacheEntryPassivatedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : cacheEntryPassivatedListeners) listener.invoke(e, pre);
       }
    }
 
@@ -335,25 +335,25 @@ public void notifyTransactionRegistered(GlobalTransaction globalTransaction, Inv
 
    @Override
    public void notifyDataRehashed(Collection<Address> oldView, Collection<Address> newView, int newTopologyId, boolean pre) {
-      if (!dataRehashedListeners.isEmpty()) {
+      if (isObserved(dataRehashedListeners, pre)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, DATA_REHASHED);
          e.setPre(pre);
          e.setMembersAtStart(oldView);
          e.setMembersAtEnd(newView);
          e.setNewTopologyId(newTopologyId);
-         for (ListenerInvocation listener : dataRehashedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : dataRehashedListeners) listener.invoke(e, pre);
       }
    }
 
    @Override
    public void notifyTopologyChanged(ConsistentHash oldConsistentHash, ConsistentHash newConsistentHash, int newTopologyId, boolean pre) {
-      if (!topologyChangedListeners.isEmpty()) {
+      if (isObserved(topologyChangedListeners, pre)) {
          EventImpl<Object, Object> e = EventImpl.createEvent(cache, TOPOLOGY_CHANGED);
          e.setPre(pre);
          e.setConsistentHashAtStart(oldConsistentHash);
          e.setConsistentHashAtEnd(newConsistentHash);
          e.setNewTopologyId(newTopologyId);
-         for (ListenerInvocation listener : topologyChangedListeners) listener.invoke(e);
+         for (ListenerInvocation listener : topologyChangedListeners) listener.invoke(e, pre);
       }
    }
 }
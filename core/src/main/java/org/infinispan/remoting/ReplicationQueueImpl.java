@@ -26,44 +26,109 @@
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.ReplicableCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
+import org.infinispan.commands.tx.PrepareCommand;
+import org.infinispan.commands.write.DataWriteCommand;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.commands.write.PutMapCommand;
+import org.infinispan.commands.write.RemoveCommand;
+import org.infinispan.commands.write.ReplaceCommand;
+import org.infinispan.commands.write.WriteCommand;
 import org.infinispan.configuration.cache.AsyncConfiguration;
 import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.context.Flag;
 import org.infinispan.factories.KnownComponentNames;
 import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.marshall.MarshalledValue;
+import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.remoting.rpc.ResponseMode;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
+import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Operation;
+import org.rhq.helpers.pluginAnnotations.agent.Units;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 
 /**
  * A default implementation of the ReplicationQueue interface.
+ * <p/>
+ * Writers append to a non-blocking queue and never wait for a flush in progress: when the queue reaches
+ * <tt>replQueueMaxElements</tt> commands or <tt>replQueueMaxBytes</tt> estimated bytes, the writer flushes it only if no
+ * other thread is already doing so, and whoever flushes checks the thresholds again once done.  The periodic flush,
+ * every <tt>replQueueInterval</tt> milliseconds, bounds the time a command waits in the queue.
+ * <p/>
+ * Each flush sends the queued commands in batches of at most <tt>replQueueMaxElements</tt> commands and
+ * <tt>replQueueMaxBytes</tt> bytes.  Within a batch, writes to a key which is then unconditionally overwritten or
+ * removed by a later command with the same flags are dropped, as the receivers would discard their effect anyway.
  *
  * @author Manik Surtani
  * @version 4.2
  */
+@MBean(objectName = "ReplicationQueue", description = "Queues up asynchronous replication commands and sends them in batches")
 public class ReplicationQueueImpl implements ReplicationQueue {
    private static final Log log = LogFactory.getLog(ReplicationQueue.class);
 
+   /**
+    * Upper bounds of the batch size histogram buckets; the last bucket holds the larger batches.
+    */
+   private static final int[] BATCH_SIZE_BUCKETS = {1, 10, 100, 1000};
+
+   /**
+    * Rough marshalled size of a command, without its key and value.
+    */
+   private static final int COMMAND_OVERHEAD = 32;
+
+   /**
+    * Used for the objects whose size cannot be predicted, when there is no marshaller.
+    */
+   private static final int DEFAULT_OBJECT_SIZE = 256;
+
    /**
     * Max elements before we flush
     */
    private long maxElements = 500;
 
+   /**
+    * Max estimated bytes before we flush, 0 if unbounded
+    */
+   private long maxBytes;
+
    /**
     * Holds the replication jobs.
     */
-   private final BlockingQueue<ReplicableCommand> elements = new LinkedBlockingQueue<ReplicableCommand>();
+   private final ConcurrentLinkedQueue<QueuedCommand> elements = new ConcurrentLinkedQueue<QueuedCommand>();
+   private final AtomicInteger elementsCount = new AtomicInteger();
+   private final AtomicLong elementsBytes = new AtomicLong();
+
+   /**
+    * Held while flushing, so that batches leave in the order their commands were queued.
+    */
+   private final ReentrantLock flushLock = new ReentrantLock();
 
    /**
     * For periodical replication
@@ -73,10 +138,19 @@ public class ReplicationQueueImpl implements ReplicationQueue {
    private Configuration configuration;
    private boolean enabled;
    private CommandsFactory commandsFactory;
+   private StreamingMarshaller marshaller;
    private volatile ScheduledFuture<?> scheduledFuture;
    private boolean trace;
    private String cacheName;
 
+   private final AtomicLong flushes = new AtomicLong();
+   private final AtomicLong batches = new AtomicLong();
+   private final AtomicLong queuedCommands = new AtomicLong();
+   private final AtomicLong coalescedCommands = new AtomicLong();
+   private final AtomicLong flushNanos = new AtomicLong();
+   private final AtomicLong maxFlushNanos = new AtomicLong();
+   private final AtomicLongArray batchSizeHistogram = new AtomicLongArray(BATCH_SIZE_BUCKETS.length + 1);
+
    /**
     * @return true if this replication queue is enabled, false otherwise.
     */
@@ -101,6 +175,11 @@ public void injectDependencies(ScheduledExecutorService executor,
       this.cacheName = cacheName;
    }
 
+   @Inject
+   public void injectMarshaller(@ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
+      this.marshaller = marshaller;
+   }
+
    /**
     * Starts the asynchronous flush queue.
     */
@@ -110,10 +189,11 @@ public void start() {
       AsyncConfiguration asyncCfg = configuration.clustering().async();
       long interval = asyncCfg.replQueueInterval();
       trace = log.isTraceEnabled();
-      if (trace)
-         log.tracef("Starting replication queue, with interval %d and maxElements %s", interval, maxElements);
 
       this.maxElements = asyncCfg.replQueueMaxElements();
+      this.maxBytes = asyncCfg.replQueueMaxBytes();
+      if (trace)
+         log.tracef("Starting replication queue, with interval %d, maxElements %s and maxBytes %s", interval, maxElements, maxBytes);
       // check again
       enabled = asyncCfg.useReplQueue();
       if (enabled && interval > 0) {
@@ -151,53 +231,274 @@ public void stop() {
    public void add(ReplicableCommand job) {
       if (job == null)
          throw new NullPointerException("job is null");
+      long size = maxBytes > 0 ? estimateSize(job) : 0;
+      elements.add(new QueuedCommand(job, size));
+      elementsCount.incrementAndGet();
+      if (size > 0) elementsBytes.addAndGet(size);
+      flushIfFull();
+   }
+
+   @Override
+   public int flush() {
+      int flushed;
+      flushLock.lock();
       try {
-         elements.put(job);
-         if (elements.size() >= maxElements) flush();
-      } catch (InterruptedException ie) {
-         Thread.interrupted();
+         flushed = flushQueued();
+      } finally {
+         flushLock.unlock();
       }
+      flushIfFull();
+      return flushed;
    }
 
-   @Override
-   public synchronized int flush() {
-      List<ReplicableCommand> toReplicate = drainReplQueue();
-      if (trace) log.tracef("flush(): flushing repl queue (num elements=%s)", toReplicate.size());
+   private void flushIfFull() {
+      // a writer never waits for a flush in progress; the flushing thread looks at the thresholds again once done
+      while (isFull() && flushLock.tryLock()) {
+         try {
+            flushQueued();
+         } finally {
+            flushLock.unlock();
+         }
+      }
+   }
 
-      int toReplicateSize = toReplicate.size();
-      if (toReplicateSize > 0) {
+   private boolean isFull() {
+      return elementsCount.get() >= maxElements || (maxBytes > 0 && elementsBytes.get() >= maxBytes);
+   }
+
+   /**
+    * Sends the commands queued when the flush starts, batch by batch. Must be called with the flush lock held.
+    */
+   private int flushQueued() {
+      int toFlush = elementsCount.get();
+      if (trace) log.tracef("flush(): flushing repl queue (num elements=%s)", toFlush);
+      long start = System.nanoTime();
+      int flushed = 0;
+      while (flushed < toFlush) {
+         List<ReplicableCommand> toReplicate = drainReplQueue();
+         if (toReplicate.isEmpty()) break;
+         flushed += toReplicate.size();
+         List<ReplicableCommand> batch = coalesce(toReplicate);
          try {
-            log.tracef("Flushing %s elements", toReplicateSize);
-            MultipleRpcCommand multipleRpcCommand = commandsFactory.buildReplicateCommand(toReplicate);
+            log.tracef("Flushing %s elements", batch.size());
+            MultipleRpcCommand multipleRpcCommand = commandsFactory.buildReplicateCommand(batch);
             // send to all live caches in the cluster
             rpcManager.invokeRemotely(null, multipleRpcCommand,
                   ResponseMode.getAsyncResponseMode(configuration),
                   configuration.clustering().sync().replTimeout());
          } catch (Throwable t) {
-            log.failedReplicatingQueue(toReplicate.size(), t);
+            log.failedReplicatingQueue(batch.size(), t);
          }
+         recordBatch(toReplicate.size(), batch.size());
       }
-
-      return toReplicateSize;
+      if (flushed > 0) recordFlush(System.nanoTime() - start);
+      return flushed;
    }
 
+   /**
+    * Removes the next batch of commands from the queue, bounded by <tt>replQueueMaxElements</tt> and
+    * <tt>replQueueMaxBytes</tt>.
+    */
    protected List<ReplicableCommand> drainReplQueue() {
-      List<ReplicableCommand> toReplicate = new LinkedList<ReplicableCommand>();
-      elements.drainTo(toReplicate);
+      List<ReplicableCommand> toReplicate = new ArrayList<ReplicableCommand>();
+      long batchBytes = 0;
+      QueuedCommand queued;
+      while ((maxElements <= 0 || toReplicate.size() < maxElements) && (maxBytes <= 0 || batchBytes < maxBytes)
+            && (queued = elements.poll()) != null) {
+         elementsCount.decrementAndGet();
+         if (queued.size > 0) {
+            elementsBytes.addAndGet(-queued.size);
+            batchBytes += queued.size;
+         }
+         toReplicate.add(queued.command);
+      }
       return toReplicate;
    }
 
+   /**
+    * Drops the writes which are overwritten, within the same batch, by a later unconditional put or remove of the same
+    * key with the same flags.
+    */
+   private List<ReplicableCommand> coalesce(List<ReplicableCommand> commands) {
+      if (commands.size() < 2) return commands;
+      Map<Object, Set<Flag>> overwritten = null;
+      List<ReplicableCommand> coalesced = new ArrayList<ReplicableCommand>(commands.size());
+      for (int i = commands.size() - 1; i >= 0; i--) {
+         ReplicableCommand command = commands.get(i);
+         if (command instanceof DataWriteCommand) {
+            DataWriteCommand write = (DataWriteCommand) command;
+            Object key = write.getKey();
+            Set<Flag> flags = flagsOf(write);
+            if (overwritten != null && overwritten.containsKey(key) && overwritten.get(key).equals(flags)) continue;
+            if ((write instanceof PutKeyValueCommand || write instanceof RemoveCommand) && !write.isConditional()) {
+               if (overwritten == null) overwritten = new HashMap<Object, Set<Flag>>();
+               overwritten.put(key, flags);
+            }
+         }
+         coalesced.add(command);
+      }
+      Collections.reverse(coalesced);
+      return coalesced;
+   }
+
+   private static Set<Flag> flagsOf(DataWriteCommand command) {
+      Set<Flag> flags = command.getFlags();
+      return flags == null ? Collections.<Flag>emptySet() : flags;
+   }
+
+   /**
+    * Estimates the marshalled size of a command without marshalling it, as this runs on the writer's thread for every
+    * queued command.
+    */
+   private long estimateSize(ReplicableCommand command) {
+      if (command instanceof PrepareCommand) {
+         long size = 0;
+         for (WriteCommand modification : ((PrepareCommand) command).getModifications()) size += estimateSize(modification);
+         return size;
+      } else if (command instanceof PutMapCommand) {
+         long size = COMMAND_OVERHEAD;
+         for (Map.Entry<Object, Object> entry : ((PutMapCommand) command).getMap().entrySet())
+            size += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+         return size;
+      } else if (command instanceof PutKeyValueCommand) {
+         PutKeyValueCommand put = (PutKeyValueCommand) command;
+         return COMMAND_OVERHEAD + sizeOf(put.getKey()) + sizeOf(put.getValue());
+      } else if (command instanceof ReplaceCommand) {
+         ReplaceCommand replace = (ReplaceCommand) command;
+         return COMMAND_OVERHEAD + sizeOf(replace.getKey()) + sizeOf(replace.getNewValue());
+      } else if (command instanceof DataWriteCommand) {
+         return COMMAND_OVERHEAD + sizeOf(((DataWriteCommand) command).getKey());
+      }
+      return COMMAND_OVERHEAD;
+   }
+
+   /**
+    * Arrays, strings and values stored as binary are sized directly. Anything else gets the size the marshaller
+    * predicts for its type, which follows the sizes of the objects of that type marshalled when batches are sent.
+    */
+   private long sizeOf(Object o) {
+      if (o == null) return 0;
+      if (o instanceof byte[]) return ((byte[]) o).length;
+      if (o instanceof String) return ((String) o).length();
+      // serializes the value if it is not yet, but the bytes are kept and reused when the batch is marshalled
+      if (o instanceof MarshalledValue) return ((MarshalledValue) o).getRaw().size();
+      return marshaller == null ? DEFAULT_OBJECT_SIZE : marshaller.getBufferSizePredictor(o).nextSize(o);
+   }
+
+   private void recordBatch(int queued, int sent) {
+      batches.incrementAndGet();
+      queuedCommands.addAndGet(queued);
+      coalescedCommands.addAndGet(queued - sent);
+      int bucket = 0;
+      while (bucket < BATCH_SIZE_BUCKETS.length && sent > BATCH_SIZE_BUCKETS[bucket]) bucket++;
+      batchSizeHistogram.incrementAndGet(bucket);
+   }
+
+   private void recordFlush(long duration) {
+      flushes.incrementAndGet();
+      flushNanos.addAndGet(duration);
+      long max;
+      do {
+         max = maxFlushNanos.get();
+      } while (duration > max && !maxFlushNanos.compareAndSet(max, duration));
+   }
+
    protected Configuration getConfiguration() {
       return configuration;
    }
 
    @Override
+   @ManagedAttribute(description = "Number of commands waiting in the replication queue")
+   @Metric(displayName = "Queued commands", measurementType = MeasurementType.DYNAMIC)
    public int getElementsCount() {
-      return elements.size();
+      return elementsCount.get();
+   }
+
+   @ManagedAttribute(description = "Estimated size, in bytes, of the commands waiting in the replication queue, 0 if replQueueMaxBytes is not set")
+   @Metric(displayName = "Queued bytes", units = Units.BYTES, measurementType = MeasurementType.DYNAMIC)
+   public long getQueuedBytes() {
+      return elementsBytes.get();
+   }
+
+   @ManagedAttribute(description = "Number of times the replication queue has been flushed")
+   @Metric(displayName = "Flushes", measurementType = MeasurementType.TRENDSUP)
+   public long getFlushes() {
+      return flushes.get();
+   }
+
+   @ManagedAttribute(description = "Number of batches sent by the replication queue")
+   @Metric(displayName = "Batches", measurementType = MeasurementType.TRENDSUP)
+   public long getBatches() {
+      return batches.get();
+   }
+
+   @ManagedAttribute(description = "Average number of commands sent per batch")
+   @Metric(displayName = "Average batch size", displayType = DisplayType.SUMMARY)
+   public double getAverageBatchSize() {
+      long count = batches.get();
+      return count == 0 ? 0 : (double) (queuedCommands.get() - coalescedCommands.get()) / count;
+   }
+
+   @ManagedAttribute(description = "Number of batches by number of commands sent, in buckets of 1, 2-10, 11-100, 101-1000 and over 1000 commands")
+   @Metric(displayName = "Batch size histogram", dataType = DataType.TRAIT)
+   public String getBatchSizeHistogram() {
+      StringBuilder sb = new StringBuilder();
+      int lower = 1;
+      for (int i = 0; i < BATCH_SIZE_BUCKETS.length; i++) {
+         int upper = BATCH_SIZE_BUCKETS[i];
+         sb.append(lower == upper ? String.valueOf(upper) : lower + "-" + upper).append('=').append(batchSizeHistogram.get(i)).append(", ");
+         lower = upper + 1;
+      }
+      return sb.append('>').append(lower - 1).append('=').append(batchSizeHistogram.get(BATCH_SIZE_BUCKETS.length)).toString();
+   }
+
+   @ManagedAttribute(description = "Number of queued commands which were not sent because a later command in the same batch overwrote their key")
+   @Metric(displayName = "Coalesced commands", measurementType = MeasurementType.TRENDSUP)
+   public long getCoalescedCommands() {
+      return coalescedCommands.get();
+   }
+
+   @ManagedAttribute(description = "Average time (in milliseconds) taken to flush the replication queue")
+   @Metric(displayName = "Average flush time", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
+   public double getAverageFlushTime() {
+      long count = flushes.get();
+      return count == 0 ? 0 : (double) flushNanos.get() / count / 1000000;
+   }
+
+   @ManagedAttribute(description = "Maximum time (in milliseconds) taken to flush the replication queue")
+   @Metric(displayName = "Maximum flush time", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
+   public double getMaxFlushTime() {
+      return (double) maxFlushNanos.get() / 1000000;
+   }
+
+   @ManagedOperation(description = "Resets statistics gathered by this component")
+   @Operation(displayName = "Reset statistics")
+   public void resetStatistics() {
+      flushes.set(0);
+      batches.set(0);
+      queuedCommands.set(0);
+      coalescedCommands.set(0);
+      flushNanos.set(0);
+      maxFlushNanos.set(0);
+      for (int i = 0; i < batchSizeHistogram.length(); i++) batchSizeHistogram.set(i, 0);
    }
 
    @Override
    public void reset() {
-      elements.clear();
+      QueuedCommand queued;
+      while ((queued = elements.poll()) != null) {
+         elementsCount.decrementAndGet();
+         if (queued.size > 0) elementsBytes.addAndGet(-queued.size);
+      }
+   }
+
+   private static class QueuedCommand {
+      final ReplicableCommand command;
+      final long size;
+
+      QueuedCommand(ReplicableCommand command, long size) {
+         this.command = command;
+         this.size = size;
+      }
    }
 }
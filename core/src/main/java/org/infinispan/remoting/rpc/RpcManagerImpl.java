@@ -30,7 +30,6 @@
 import org.infinispan.commands.remote.CacheRpcCommand;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.global.GlobalConfiguration;
-import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.jmx.annotations.MBean;
@@ -44,6 +43,9 @@
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.Transport;
 import org.infinispan.topology.LocalTopologyManager;
+import org.infinispan.util.concurrent.CompletableNotifyingFuture;
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -60,14 +62,11 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
-
 /**
  * This component really is just a wrapper around a {@link org.infinispan.remoting.transport.Transport} implementation,
  * and is used to set up the transport and provide lifecycle and dependency hooks into external transport
@@ -94,7 +93,6 @@ public class RpcManagerImpl implements RpcManager {
    private Configuration configuration;
    private GlobalConfiguration globalCfg;
    private ReplicationQueue replicationQueue;
-   private ExecutorService asyncExecutor;
    private CommandsFactory cf;
    private LocalTopologyManager localTopologyManager;
    private StateTransferManager stateTransferManager;
@@ -103,7 +101,6 @@ public class RpcManagerImpl implements RpcManager {
    @Inject
    public void injectDependencies(Transport t, Cache cache, Configuration cfg,
             ReplicationQueue replicationQueue, CommandsFactory cf,
-            @ComponentName(ASYNC_TRANSPORT_EXECUTOR) ExecutorService e,
             LocalTopologyManager localTopologyManager, StateTransferManager stateTransferManager,
             GlobalConfiguration globalCfg) {
       this.t = t;
@@ -111,7 +108,6 @@ public void injectDependencies(Transport t, Cache cache, Configuration cfg,
       this.cacheName = cache.getName();
       this.globalCfg = globalCfg;
       this.replicationQueue = replicationQueue;
-      this.asyncExecutor = e;
       this.cf = cf;
       this.localTopologyManager = localTopologyManager;
       this.stateTransferManager = stateTransferManager;
@@ -280,28 +276,70 @@ public void invokeRemotelyInFuture(final Collection<Address> recipients, final R
                                       final boolean usePriorityQueue, final NotifyingNotifiableFuture<Object> l,
                                       final long timeout, final boolean ignoreLeavers) {
       if (trace) log.tracef("%s invoking in future call %s to recipient list %s", t.getAddress(), rpc, recipients);
-      final ResponseMode responseMode = ignoreLeavers ? ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS : ResponseMode.SYNCHRONOUS;
-      final CountDownLatch futureSet = new CountDownLatch(1);
-      Callable<Object> c = new Callable<Object>() {
+      ResponseMode responseMode = ignoreLeavers ? ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS : ResponseMode.SYNCHRONOUS;
+      // the future is completed by the transport when the responses arrive, no thread waits for them
+      NotifyingFuture<Object> networkFuture = invokeRemotelyAsync(recipients, rpc, usePriorityQueue, timeout, responseMode);
+      l.setNetworkFuture(networkFuture);
+      networkFuture.attachListener(new FutureListener<Object>() {
          @Override
-         public Object call() throws Exception {
-            Object result = null;
-            try {
-               result = invokeRemotely(recipients, rpc, true, usePriorityQueue, timeout, responseMode);
-            } finally {
-               try {
-                  futureSet.await();
-               } catch (InterruptedException e) {
-                  Thread.currentThread().interrupt();
-               } finally {
-                  l.notifyDone();
-               }
-            }
-            return result;
+         public void futureDone(Future<Object> future) {
+            l.notifyDone();
          }
-      };
-      l.setNetworkFuture(asyncExecutor.submit(c));
-      futureSet.countDown();
+      });
+   }
+
+   private NotifyingFuture<Object> invokeRemotelyAsync(Collection<Address> recipients, ReplicableCommand rpc, boolean usePriorityQueue,
+                                                       long timeout, ResponseMode responseMode) {
+      final CompletableNotifyingFuture<Object> result = new CompletableNotifyingFuture<Object>();
+      if (!configuration.clustering().cacheMode().isClustered())
+         throw new IllegalStateException("Trying to invoke a remote command but the cache is not clustered");
+      if (t.getMembers().size() < 2) {
+         log.tracef("We're the only member in the cluster; Don't invoke remotely.");
+         result.complete(Collections.emptyMap());
+         return result;
+      }
+
+      if (!(rpc instanceof CacheRpcCommand)) {
+         rpc = cf.buildSingleRpcCommand(rpc);
+      }
+      if (rpc instanceof TopologyAffectedCommand) {
+         ((TopologyAffectedCommand) rpc).setTopologyId(stateTransferManager.getCacheTopology().getTopologyId());
+      }
+      final ReplicableCommand command = rpc;
+      final long startTimeNanos = statisticsEnabled ? System.nanoTime() : 0;
+      t.invokeRemotelyAsync(recipients, command, responseMode, timeout, usePriorityQueue, null)
+            .attachListener(new FutureListener<Map<Address, Response>>() {
+               @Override
+               public void futureDone(Future<Map<Address, Response>> future) {
+                  try {
+                     Map<Address, Response> rsps = future.get();
+                     if (trace) log.tracef("Response(s) to %s is %s", command, rsps);
+                     checkResponses(rsps);
+                     if (statisticsEnabled) replicationCount.incrementAndGet();
+                     result.complete(rsps);
+                  } catch (ExecutionException e) {
+                     result.completeExceptionally(toCacheException(e.getCause()));
+                  } catch (Throwable th) {
+                     result.completeExceptionally(toCacheException(th));
+                  } finally {
+                     if (statisticsEnabled) {
+                        long timeTaken = TimeUnit.MILLISECONDS.convert(System.nanoTime() - startTimeNanos, TimeUnit.NANOSECONDS);
+                        totalReplicationTime.getAndAdd(timeTaken);
+                     }
+                  }
+               }
+            });
+      return result;
+   }
+
+   private CacheException toCacheException(Throwable th) {
+      if (statisticsEnabled) replicationFailures.incrementAndGet();
+      if (th instanceof CacheException) {
+         log.trace("replication exception: ", th);
+         return (CacheException) th;
+      }
+      log.unexpectedErrorReplicating(th);
+      return new CacheException(th);
    }
 
    @Override
@@ -31,6 +31,7 @@
 import org.infinispan.remoting.responses.Response;
 import org.infinispan.remoting.rpc.ResponseFilter;
 import org.infinispan.remoting.rpc.ResponseMode;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.xsite.XSiteBackup;
 
@@ -70,6 +71,18 @@ public interface Transport extends Lifecycle {
    Map<Address, Response> invokeRemotely(Collection<Address> recipients, ReplicableCommand rpcCommand, ResponseMode mode, long timeout,
                                          boolean usePriorityQueue, ResponseFilter responseFilter) throws Exception;
 
+   /**
+    * Asynchronous counterpart of {@link #invokeRemotely(Collection, ReplicableCommand, ResponseMode, long, boolean,
+    * ResponseFilter)}. The command is sent and this method returns straight away; the returned future is completed
+    * with the map of responses (or the failure) by the transport's own threads as the responses arrive or the timeout
+    * expires, so no thread has to wait for them.
+    *
+    * @return a future completed with a map of responses from each member contacted.
+    */
+   NotifyingFuture<Map<Address, Response>> invokeRemotelyAsync(Collection<Address> recipients, ReplicableCommand rpcCommand,
+                                                                ResponseMode mode, long timeout, boolean usePriorityQueue,
+                                                                ResponseFilter responseFilter);
+
 
    BackupResponse backupRemotely(Collection<XSiteBackup> backups, ReplicableCommand rpcCommand) throws Exception;
 
@@ -188,6 +188,32 @@ public Response call() throws Exception {
       }
    }
 
+   /**
+    * Sends the command to each of the recipients as a separate unicast and returns straight away with the futures of
+    * the individual requests, keyed by recipient.  Listeners set on these futures are notified by JGroups as the
+    * responses arrive, so the caller doesn't need to wait for them.  Note that JGroups doesn't time these requests
+    * out on its own, it is up to the caller to cancel them.
+    *
+    * @param recipients Guaranteed not to be null.  Must <b>not</b> contain self.
+    */
+   public Map<Address, NotifyingFuture<Object>> invokeRemoteCommandsWithFutures(List<Address> recipients, ReplicableCommand command,
+                                                                             ResponseMode mode, long timeout, boolean oob) throws Exception {
+      if (trace) log.tracef("Replication task sending %s to addresses %s with response mode %s, without waiting for responses", command, recipients, mode);
+
+      /// HACK ALERT!  Used for ISPN-1789.  Enable RSVP if the command is a state transfer control command or cache topology control command.
+      boolean rsvp = command instanceof StateRequestCommand || command instanceof StateResponseCommand
+            || command instanceof CacheTopologyControlCommand;
+
+      Buffer buf = marshallCall(req_marshaller, command);
+      RequestOptions opts = new RequestOptions(mode, timeout);
+      Map<Address, NotifyingFuture<Object>> futures = new HashMap<Address, NotifyingFuture<Object>>(recipients.size());
+      for (Address dest : recipients) {
+         NotifyingFuture<Object> f = sendMessageWithFuture(constructMessage(buf, dest, oob, mode, rsvp), opts);
+         futures.put(dest, f);
+      }
+      return futures;
+   }
+
    public RspList<Object> broadcastRemoteCommands(ReplicableCommand command, ResponseMode mode, long timeout,
                                                   boolean anycasting, boolean oob, RspFilter filter,
                                                   boolean asyncMarshalling) throws InterruptedException {
@@ -22,6 +22,7 @@
  */
 package org.infinispan.remoting.transport.jgroups;
 
+import net.jcip.annotations.GuardedBy;
 import org.infinispan.CacheConfigurationException;
 import org.infinispan.CacheException;
 import org.infinispan.commands.ReplicableCommand;
@@ -44,6 +45,8 @@
 import org.infinispan.util.FileLookupFactory;
 import org.infinispan.util.TypedProperties;
 import org.infinispan.util.Util;
+import org.infinispan.util.concurrent.CompletableNotifyingFuture;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.concurrent.TimeoutException;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -54,6 +57,7 @@
 import org.jgroups.JChannel;
 import org.jgroups.MembershipListener;
 import org.jgroups.MergeView;
+import org.jgroups.SuspectedException;
 import org.jgroups.View;
 import org.jgroups.blocks.RequestOptions;
 import org.jgroups.blocks.RspFilter;
@@ -77,9 +81,13 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
 import static org.infinispan.factories.KnownComponentNames.GLOBAL_MARSHALLER;
@@ -548,6 +556,176 @@ usePriorityQueue, toJGroupsFilter(responseFilter),
       return responses;
    }
 
+   @Override
+   public NotifyingFuture<Map<Address, Response>> invokeRemotelyAsync(Collection<Address> recipients, ReplicableCommand rpcCommand,
+                                                                       ResponseMode mode, long timeout, boolean usePriorityQueue,
+                                                                       ResponseFilter responseFilter) {
+      CompletableNotifyingFuture<Map<Address, Response>> future = new CompletableNotifyingFuture<Map<Address, Response>>();
+      try {
+         if (mode.isAsynchronous()) {
+            // there are no responses to wait for
+            future.complete(invokeRemotely(recipients, rpcCommand, mode, timeout, usePriorityQueue, responseFilter));
+            return future;
+         }
+
+         if (trace)
+            log.tracef("dests=%s, command=%s, mode=%s, timeout=%s, not waiting for responses", recipients, rpcCommand, mode, timeout);
+         boolean ignoreLeavers = mode == ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS || mode == ResponseMode.WAIT_FOR_VALID_RESPONSE;
+         if (recipients != null && !getMembers().containsAll(recipients)) {
+            if (ignoreLeavers) {
+               recipients = new HashSet<Address>(recipients);
+               recipients.retainAll(getMembers());
+            } else {
+               throw new SuspectException("One or more nodes have left the cluster while replicating command " + rpcCommand);
+            }
+         }
+         if (!usePriorityQueue && (ResponseMode.SYNCHRONOUS == mode || ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS == mode))
+            usePriorityQueue = true;
+
+         List<org.jgroups.Address> jgAddressList = toJGroupsAddressListExcludingSelf(recipients == null ? getMembers() : recipients);
+         if (jgAddressList.isEmpty()) {
+            log.trace("Destination list is empty: no need to send message");
+            future.complete(Collections.<Address, Response>emptyMap());
+            return future;
+         }
+
+         Map<org.jgroups.Address, org.jgroups.util.NotifyingFuture<Object>> futures = dispatcher.invokeRemoteCommandsWithFutures(
+               jgAddressList, rpcCommand, toJGroupsMode(mode), timeout, usePriorityQueue);
+         new ResponseCollector(future, futures, mode == ResponseMode.WAIT_FOR_VALID_RESPONSE, responseFilter, ignoreLeavers).start(timeout);
+      } catch (Throwable t) {
+         future.completeExceptionally(t);
+      }
+      return future;
+   }
+
+   /**
+    * Gathers the responses of an invocation started by {@link #invokeRemotelyAsync(Collection, ReplicableCommand,
+    * ResponseMode, long, boolean, ResponseFilter)} and completes its future, either from the JGroups thread that
+    * delivers the last response needed or from the JGroups timer once the timeout expires.
+    */
+   private final class ResponseCollector implements org.jgroups.util.FutureListener<Object>, Runnable {
+      private final CompletableNotifyingFuture<Map<Address, Response>> future;
+      private final Map<org.jgroups.Address, org.jgroups.util.NotifyingFuture<Object>> futures;
+      private final Map<Future<Object>, org.jgroups.Address> senders;
+      private final boolean waitForValidResponse;
+      private final ResponseFilter responseFilter;
+      private final RspFilter jgroupsFilter;
+      private final boolean ignoreLeavers;
+      @GuardedBy("this")
+      private final Set<org.jgroups.Address> pending;
+      @GuardedBy("this")
+      private final Map<Address, Response> responses = new HashMap<Address, Response>();
+      @GuardedBy("this")
+      private boolean noValidResponses = true;
+      @GuardedBy("this")
+      private boolean completed;
+      private volatile Future<?> timeoutTask;
+
+      ResponseCollector(CompletableNotifyingFuture<Map<Address, Response>> future,
+                        Map<org.jgroups.Address, org.jgroups.util.NotifyingFuture<Object>> futures,
+                        boolean waitForValidResponse, ResponseFilter responseFilter, boolean ignoreLeavers) {
+         this.future = future;
+         this.futures = futures;
+         this.waitForValidResponse = waitForValidResponse;
+         this.responseFilter = responseFilter;
+         this.jgroupsFilter = toJGroupsFilter(responseFilter);
+         this.ignoreLeavers = ignoreLeavers;
+         this.pending = new HashSet<org.jgroups.Address>(futures.keySet());
+         this.senders = new HashMap<Future<Object>, org.jgroups.Address>(futures.size());
+         for (Map.Entry<org.jgroups.Address, org.jgroups.util.NotifyingFuture<Object>> e : futures.entrySet())
+            senders.put(e.getValue(), e.getKey());
+      }
+
+      void start(long timeout) {
+         timeoutTask = channel.getProtocolStack().getTransport().getTimer().schedule(this, timeout, TimeUnit.MILLISECONDS);
+         for (org.jgroups.util.NotifyingFuture<Object> f : futures.values()) f.setListener(this);
+      }
+
+      @Override
+      public void futureDone(Future<Object> f) {
+         org.jgroups.Address sender = senders.get(f);
+         Object value = null;
+         Throwable exception = null;
+         boolean suspected = false;
+         try {
+            value = f.get();
+         } catch (CancellationException e) {
+            // we cancelled it ourselves after completing
+            return;
+         } catch (ExecutionException e) {
+            if (e.getCause() instanceof SuspectedException)
+               suspected = true;
+            else
+               exception = e.getCause();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exception = e;
+         }
+
+         Map<Address, Response> result = null;
+         Throwable failure = null;
+         synchronized (this) {
+            // JGroups may notify a listener twice, see FutureCollator
+            if (completed || !pending.remove(sender)) return;
+            if (trace) log.tracef("Received response %s from %s", value, sender);
+            try {
+               noValidResponses &= parseResponseAndAddToResponseList(value, exception, responses, suspected, true,
+                                                                     fromJGroupsAddress(sender), responseFilter != null, ignoreLeavers);
+               boolean enough = pending.isEmpty();
+               if (jgroupsFilter != null && !suspected) {
+                  jgroupsFilter.isAcceptable(value, sender);
+                  enough |= !jgroupsFilter.needMoreResponses();
+               }
+               if (waitForValidResponse) enough |= !noValidResponses;
+               if (enough) result = collectedResponses();
+            } catch (Throwable t) {
+               failure = t;
+               completed = true;
+            }
+         }
+         complete(result, failure);
+      }
+
+      @Override
+      public void run() {
+         Map<Address, Response> result = null;
+         Throwable failure = null;
+         synchronized (this) {
+            if (completed) return;
+            try {
+               for (org.jgroups.Address sender : pending)
+                  noValidResponses &= parseResponseAndAddToResponseList(null, null, responses, false, false,
+                                                                        fromJGroupsAddress(sender), responseFilter != null, ignoreLeavers);
+               result = collectedResponses();
+            } catch (Throwable t) {
+               failure = t;
+               completed = true;
+            }
+         }
+         complete(result, failure);
+      }
+
+      @GuardedBy("this")
+      private Map<Address, Response> collectedResponses() {
+         completed = true;
+         if (noValidResponses) throw new TimeoutException("Timed out waiting for valid responses!");
+         return responses;
+      }
+
+      private void complete(Map<Address, Response> result, Throwable failure) {
+         if (result == null && failure == null) return;
+         Future<?> task = timeoutTask;
+         if (task != null) task.cancel(false);
+         for (org.jgroups.util.NotifyingFuture<Object> f : futures.values())
+            if (!f.isDone()) f.cancel(true);
+
+         if (failure != null)
+            future.completeExceptionally(failure);
+         else
+            future.complete(result);
+      }
+   }
+
    @Override
    public BackupResponse backupRemotely(Collection<XSiteBackup> backups, ReplicableCommand rpcCommand) throws Exception {
       log.tracef("About to send to backups %s, command %s",backups, rpcCommand);
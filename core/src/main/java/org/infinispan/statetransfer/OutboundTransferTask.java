@@ -26,6 +26,7 @@
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.loaders.CacheLoaderException;
@@ -148,11 +149,26 @@ public Set<Integer> getSegments() {
       return segments;
    }
 
+   /**
+    * Iterates only over the requested segments if the data container keeps its entries bucketed by the segments of
+    * the read CH, otherwise over the whole container.
+    */
+   private Iterator<InternalCacheEntry> dataContainerIterator() {
+      if (dataContainer instanceof SegmentedDataContainer) {
+         SegmentedDataContainer segmentedContainer = (SegmentedDataContainer) dataContainer;
+         if (segmentedContainer.isSegmentedBy(readCh)) {
+            return segmentedContainer.iterator(segments);
+         }
+      }
+      return dataContainer.iterator();
+   }
+
    //todo [anistor] check thread interrupt status in loops to implement faster cancellation
    public void run() {
       try {
          // send data container entries
-         for (InternalCacheEntry ice : dataContainer) {
+         for (Iterator<InternalCacheEntry> it = dataContainerIterator(); it.hasNext(); ) {
+            InternalCacheEntry ice = it.next();
             Object key = ice.getKey();
             int segmentId = readCh.getSegment(key);
             if (segments.contains(segmentId)) {
@@ -30,6 +30,7 @@
 import org.infinispan.commands.write.PutKeyValueCommand;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
@@ -482,7 +483,8 @@ private void discardSegments(Set<Integer> segments) {
       }
 
       Set<Object> keysToRemove = new HashSet<Object>();
-      for (InternalCacheEntry ice : dataContainer) {
+      for (Iterator<InternalCacheEntry> it = dataContainerIterator(segments); it.hasNext(); ) {
+         InternalCacheEntry ice = it.next();
          Object key = ice.getKey();
          if (segments.contains(getSegment(key))) {
             keysToRemove.add(key);
@@ -521,6 +523,20 @@ private void discardSegments(Set<Integer> segments) {
       //todo [anistor] call CacheNotifier.notifyDataRehashed
    }
 
+   /**
+    * Iterates only over the given segments if the data container keeps its entries bucketed by the segments of the
+    * read CH, otherwise over the whole container.
+    */
+   private Iterator<InternalCacheEntry> dataContainerIterator(Set<Integer> segments) {
+      if (dataContainer instanceof SegmentedDataContainer) {
+         SegmentedDataContainer segmentedContainer = (SegmentedDataContainer) dataContainer;
+         if (segmentedContainer.isSegmentedBy(cacheTopology.getReadConsistentHash())) {
+            return segmentedContainer.iterator(segments);
+         }
+      }
+      return dataContainer.iterator();
+   }
+
    private int getSegment(Object key) {
       // there we can use any CH version because the routing table is not involved
       return cacheTopology.getReadConsistentHash().getSegment(key);
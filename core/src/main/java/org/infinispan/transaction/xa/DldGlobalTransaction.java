@@ -49,6 +49,8 @@ public class DldGlobalTransaction extends GlobalTransaction {
 
    protected volatile long coinToss;
 
+   protected volatile long creationTime;
+
    protected transient volatile Object localLockIntention;
 
    protected volatile Collection<Object> remoteLockIntention = emptySet();
@@ -75,6 +77,18 @@ public long getCoinToss() {
       return coinToss;
    }
 
+   /**
+    * Sets the wall clock time at which this transaction was started on its originator, used for picking the youngest
+    * transaction of a deadlock cycle as its victim.
+    */
+   public void setCreationTime(long creationTime) {
+      this.creationTime = creationTime;
+   }
+
+   public long getCreationTime() {
+      return creationTime;
+   }
+
    @Override
    public boolean equals(Object o) {
       if (this == o) return true;
@@ -98,6 +112,7 @@ public int hashCode() {
    public String toString() {
       return "DldGlobalTransaction{" +
             "coinToss=" + coinToss +
+            ", creationTime=" + creationTime +
             ", lockIntention=" + localLockIntention +
             ", affectedKeys=" + remoteLockIntention +
             ", locksAtOrigin=" + locksAtOrigin +
@@ -120,6 +135,15 @@ public boolean wouldLose(DldGlobalTransaction other) {
       return this.coinToss < other.coinToss;
    }
 
+   /**
+    * Returns true if this transaction was started after the other one. Transactions started in the same millisecond
+    * are ordered by their coin toss, so every node reaches the same verdict.
+    */
+   public boolean isYoungerThan(DldGlobalTransaction other) {
+      if (creationTime != other.creationTime) return creationTime > other.creationTime;
+      return wouldLose(other);
+   }
+
    public void setRemoteLockIntention(Collection<Object> remoteLockIntention) {
       if (trace) {
          log.tracef("Setting the remote lock intention: %s", remoteLockIntention);
@@ -162,6 +186,7 @@ protected DldGlobalTransaction createGlobalTransaction() {
       public void writeObject(ObjectOutput output, DldGlobalTransaction ddGt) throws IOException {
          super.writeObject(output, ddGt);
          output.writeLong(ddGt.getCoinToss());
+         output.writeLong(ddGt.getCreationTime());
          if (ddGt.locksAtOrigin.isEmpty()) {
             output.writeObject(null);
          } else {
@@ -174,6 +199,7 @@ public void writeObject(ObjectOutput output, DldGlobalTransaction ddGt) throws I
       public DldGlobalTransaction readObject(ObjectInput input) throws IOException, ClassNotFoundException {
          DldGlobalTransaction ddGt = super.readObject(input);
          ddGt.setCoinToss(input.readLong());
+         ddGt.setCreationTime(input.readLong());
          Object locksAtOriginObj = input.readObject();
          if (locksAtOriginObj == null) {
             ddGt.setLocksHeldAtOrigin(emptySet());
@@ -238,6 +238,7 @@ protected long generateRandomId() {
 
       protected GlobalTransaction addCoinToss(DldGlobalTransaction dldGlobalTransaction) {
          dldGlobalTransaction.setCoinToss(generateRandomId());
+         dldGlobalTransaction.setCreationTime(System.currentTimeMillis());
          return dldGlobalTransaction;
       }
 
@@ -83,6 +83,7 @@ public static class Externalizer extends GlobalTransaction.AbstractGlobalTxExter
       public void writeObject(ObjectOutput output, RecoveryAwareDldGlobalTransaction globalTransaction) throws IOException {
          super.writeObject(output, globalTransaction);
          output.writeLong(globalTransaction.getCoinToss());
+         output.writeLong(globalTransaction.getCreationTime());
          if (globalTransaction.locksAtOrigin.isEmpty()) {
             output.writeObject(null);
          } else {
@@ -103,6 +104,7 @@ protected RecoveryAwareDldGlobalTransaction createGlobalTransaction() {
       public RecoveryAwareDldGlobalTransaction readObject(ObjectInput input) throws IOException, ClassNotFoundException {
          RecoveryAwareDldGlobalTransaction globalTransaction = super.readObject(input);
          globalTransaction.setCoinToss(input.readLong());
+         globalTransaction.setCreationTime(input.readLong());
          Object locksAtOriginObj = input.readObject();
          if (locksAtOriginObj == null) {
             globalTransaction.setLocksHeldAtOrigin(emptySet());
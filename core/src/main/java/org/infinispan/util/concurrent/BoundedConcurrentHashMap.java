@@ -224,6 +224,11 @@ final Segment<K,V> segmentFor(int hash) {
       final int hash;
       volatile V value;
       final HashEntry<K, V> next;
+      /**
+       * Size of this entry as last computed by the segment's {@link EntrySizeCalculator}. Only maintained when the
+       * map is bounded by memory, and only accessed while holding the segment lock.
+       */
+      long size;
 
       HashEntry(K key, int hash, HashEntry<K, V> next, V value) {
          this.key = key;
@@ -266,29 +271,48 @@ private enum Recency {
    public enum Eviction {
       NONE {
          @Override
-         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, int initialCapacity, float lf) {
             return new NullEvictionPolicy<K, V>();
          }
       },
       LRU {
          @Override
-         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, int initialCapacity, float lf) {
             boolean isIBMJavaVendor = Util.isIBMJavaVendor();
+            int maxBatchSize = batchSize(capacity);
             if (isIBMJavaVendor) {
-               return new IBMLRU<K, V>(s,capacity,lf,capacity*10,lf);
+               return new IBMLRU<K, V>(s,capacity,initialCapacity,lf,maxBatchSize,lf);
             } else {
-               return new LRU<K, V>(s,capacity,lf,capacity*10,lf);
+               return new LRU<K, V>(s,capacity,initialCapacity,lf,maxBatchSize,lf);
             }
          }
       },
       LIRS {
          @Override
-         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
-            return new LIRS<K,V>(s,capacity,capacity*10,lf);
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, int initialCapacity, float lf) {
+            return new LIRS<K,V>(s,capacity,batchSize(capacity),lf);
          }
       };
 
-      abstract <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf);
+      abstract <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, int initialCapacity, float lf);
+
+      private static int batchSize(int capacity) {
+         // capacity is Integer.MAX_VALUE when bounded by memory only; avoid overflowing
+         return capacity > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : capacity * 10;
+      }
+   }
+
+   /**
+    * Calculates the amount of memory taken by an entry, for maps bounded by memory rather than by number of
+    * entries. The result only needs to be consistent for a given key/value pair, and should be cheap to compute
+    * since it is invoked on every write.
+    */
+   public interface EntrySizeCalculator<K, V> {
+
+      /**
+       * @return the number of bytes taken up by the given key and value
+       */
+      long calculateSize(K key, V value);
    }
 
    public interface EvictionListener<K, V> {
@@ -392,6 +416,29 @@ public boolean onEntryChosenForEviction(V internalCacheEntry) {
        * @return true if batching threshold has expired, false otherwise.
        */
       boolean thresholdExpired();
+
+      /**
+       * Invoked when a segment bounded by memory has exceeded its budget. Offers entries to the eviction listener
+       * in this policy's eviction order, removing the approved ones from the segment, until at least
+       * <code>bytesToFree</code> bytes have been released or no candidates remain.
+       * <p>
+       * Always invoked while holding a lock on Segment.
+       *
+       * @param bytesToFree number of bytes by which the segment exceeds its budget
+       * @return non null set of evicted entries.
+       */
+      Set<HashEntry<K, V>> trimMemory(long bytesToFree);
+
+      /**
+       * Invoked when Segment had to copy entries, as their next fields are immutable, either to rehash or to remove
+       * an entry following them in their bin. Each copy takes over the position of the entry it replaces in this
+       * policy's eviction order.
+       * <p>
+       * Always invoked while holding a lock on Segment.
+       *
+       * @param replacements the copies, keyed by the entries they replace
+       */
+      void onEntriesReplaced(Map<HashEntry<K, V>, HashEntry<K, V>> replacements);
    }
 
    static class NullEvictionPolicy<K, V> implements EvictionPolicy<K, V> {
@@ -430,6 +477,16 @@ public boolean thresholdExpired() {
       public Eviction strategy() {
          return Eviction.NONE;
       }
+
+      @Override
+      public Set<HashEntry<K, V>> trimMemory(long bytesToFree) {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public void onEntriesReplaced(Map<HashEntry<K, V>, HashEntry<K, V>> replacements) {
+         // Do nothing.
+      }
       
       @Override
       public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V value) {
@@ -449,8 +506,8 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       private final float batchThresholdFactor;
       private final Set<HashEntry<K, V>> evicted;
 
-      public LRU(Segment<K,V> s, int capacity, float lf, int maxBatchSize, float batchThresholdFactor) {
-         super(capacity, lf, true);
+      public LRU(Segment<K,V> s, int capacity, int initialCapacity, float lf, int maxBatchSize, float batchThresholdFactor) {
+         super(initialCapacity, lf, true);
          this.segment = s;
          this.trimDownSize = capacity;
          this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
@@ -521,6 +578,40 @@ public Eviction strategy() {
          return Eviction.LRU;
       }
 
+      @Override
+      public Set<HashEntry<K, V>> trimMemory(long bytesToFree) {
+         Set<HashEntry<K, V>> evictedEntries = new HashSet<HashEntry<K, V>>();
+         while (bytesToFree > 0 && !isEmpty()) {
+            HashEntry<K, V> eldest = current(keySet().iterator().next());
+            remove(eldest);
+            boolean evict = segment.evictionListener.onEntryChosenForEviction(eldest.value);
+            if (evict) {
+               bytesToFree -= eldest.size;
+               segment.remove(eldest.key, eldest.hash, null);
+               evictedEntries.add(eldest);
+            }
+         }
+         return evictedEntries;
+      }
+
+      @Override
+      public void onEntriesReplaced(Map<HashEntry<K, V>, HashEntry<K, V>> replacements) {
+         // Do nothing: the copies are equal to the keys they replace, see current()
+      }
+
+      /**
+       * Keys cannot be swapped in place without losing their access order, so a key may be an entry since copied
+       * by the segment. Returns the entry currently holding its value and size.
+       */
+      private HashEntry<K, V> current(HashEntry<K, V> e) {
+         for (HashEntry<K, V> c = segment.getFirst(e.hash); c != null; c = c.next) {
+            if (c.equals(e)) {
+               return c;
+            }
+         }
+         return e;
+      }
+
       protected boolean isAboveThreshold(){
          return size() > trimDownSize;
       }
@@ -529,7 +620,7 @@ protected boolean isAboveThreshold(){
       protected boolean removeEldestEntry(Map.Entry<HashEntry<K,V>,V> eldest){
          boolean aboveThreshold = isAboveThreshold();
          if(aboveThreshold){
-            HashEntry<K, V> evictedEntry = eldest.getKey();
+            HashEntry<K, V> evictedEntry = current(eldest.getKey());
             boolean evict = segment.evictionListener.onEntryChosenForEviction(evictedEntry.value);
             if (evict) {
                segment.remove(evictedEntry.key, evictedEntry.hash, null);
@@ -562,8 +653,8 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       private final Set<HashEntry<K, V>> evicted;
       private LRUHashEntry<K, V> head;
 
-      public IBMLRU(Segment<K,V> s, int capacity, float lf, int maxBatchSize, float batchThresholdFactor) {
-         super(capacity, lf);
+      public IBMLRU(Segment<K,V> s, int capacity, int initialCapacity, float lf, int maxBatchSize, float batchThresholdFactor) {
+         super(initialCapacity, lf);
          this.segment = s;
          this.trimDownSize = capacity;
          this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
@@ -577,7 +668,13 @@ public IBMLRU(Segment<K,V> s, int capacity, float lf, int maxBatchSize, float ba
       @Override
       public Set<HashEntry<K, V>> execute() {
          Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>();
-         for (HashEntry<K, V> e : accessQueue) {
+         for (LRUHashEntry<K, V> e : accessQueue) {
+            if (e.nextEntry == null) {
+               // replaced or removed after it was hit
+               continue;
+            }
+            // move to the end of the list
+            e.remove();
             put(e, e.value);
             addAndRemoveEldest(e);
          }
@@ -655,6 +752,42 @@ public Eviction strategy() {
          return Eviction.LRU;
       }
 
+      @Override
+      public Set<HashEntry<K, V>> trimMemory(long bytesToFree) {
+         Set<HashEntry<K, V>> evictedEntries = new HashSet<HashEntry<K, V>>();
+         while (bytesToFree > 0 && head.nextEntry != head) {
+            LRUHashEntry<K, V> eldest = head.nextEntry;
+            remove(eldest);
+            //remove eldest entry from doubly-linked list
+            eldest.remove();
+            boolean evict = segment.evictionListener.onEntryChosenForEviction(eldest.value);
+            if (evict) {
+               bytesToFree -= eldest.size;
+               segment.remove(eldest.key, eldest.hash, null);
+               evictedEntries.add(eldest);
+            }
+         }
+         return evictedEntries;
+      }
+
+      @Override
+      public void onEntriesReplaced(Map<HashEntry<K, V>, HashEntry<K, V>> replacements) {
+         for (Map.Entry<HashEntry<K, V>, HashEntry<K, V>> r : replacements.entrySet()) {
+            LRUHashEntry<K, V> original = (LRUHashEntry<K, V>) r.getKey();
+            LRUHashEntry<K, V> replacement = (LRUHashEntry<K, V>) r.getValue();
+            remove(original);
+            put(replacement, replacement.value);
+            replacement.replace(original);
+         }
+         for (Iterator<LRUHashEntry<K, V>> it = accessQueue.iterator(); it.hasNext();) {
+            HashEntry<K, V> replacement = replacements.get(it.next());
+            if (replacement != null) {
+               it.remove();
+               accessQueue.add((LRUHashEntry<K, V>) replacement);
+            }
+         }
+      }
+
       protected boolean isAboveThreshold(){
          return size() > trimDownSize;
       }
@@ -678,8 +811,12 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       }
 
       private void remove() {
+         if (nextEntry == null) {
+            return;
+         }
          previousEntry.nextEntry = nextEntry;
          nextEntry.previousEntry = previousEntry;
+         previousEntry = nextEntry = null;
       }
 
       private void addBefore(LRUHashEntry<K,V> entry) {
@@ -689,6 +826,20 @@ private void addBefore(LRUHashEntry<K,V> entry) {
          nextEntry.previousEntry = this;
       }
 
+      /**
+       * Takes over the position of the given entry in the doubly-linked list, unlinking it.
+       */
+      private void replace(LRUHashEntry<K,V> entry) {
+         if (entry.nextEntry == null) {
+            return;
+         }
+         previousEntry = entry.previousEntry;
+         nextEntry = entry.nextEntry;
+         previousEntry.nextEntry = this;
+         nextEntry.previousEntry = this;
+         entry.previousEntry = entry.nextEntry = null;
+      }
+
       @Override
       public boolean equals(Object o) {
          if (this == o) {
@@ -1075,6 +1226,30 @@ private void evict() {
         owner = null;
       }
 
+      /**
+       * Takes over the state and the positions in the stack and in the queue of the given entry, which is left
+       * non-resident without changing the owner's counters.
+       */
+      private void replace(LIRSHashEntry<K,V> entry) {
+        state = entry.state;
+        previousInStack = entry.previousInStack;
+        nextInStack = entry.nextInStack;
+        if (inStack()) {
+          previousInStack.nextInStack = this;
+          nextInStack.previousInStack = this;
+        }
+        previousInQueue = entry.previousInQueue;
+        nextInQueue = entry.nextInQueue;
+        if (inQueue()) {
+          previousInQueue.nextInQueue = this;
+          nextInQueue.previousInQueue = this;
+        }
+        entry.previousInStack = entry.nextInStack = null;
+        entry.previousInQueue = entry.nextInQueue = null;
+        entry.state = Recency.HIR_NONRESIDENT;
+        entry.owner = null;
+      }
+
       /**
        * Removes this entry from the cache. This operation is not specified in
        * the paper, which does not account for forced eviction.
@@ -1273,6 +1448,51 @@ public Eviction strategy() {
          return Eviction.LIRS;
       }
 
+      /**
+       * Evicts cold resident entries from the front of the queue first and, once there are none left, the least
+       * recently used hot entries from the bottom of the stack.
+       */
+      @Override
+      public Set<HashEntry<K, V>> trimMemory(long bytesToFree) {
+         Set<HashEntry<K, V>> evictedEntries = new HashSet<HashEntry<K, V>>();
+         while (bytesToFree > 0) {
+            LIRSHashEntry<K, V> victim = queueFront();
+            if (victim == null) {
+               victim = stackBottom();
+               if (victim == null) break;
+               if (!victim.isResident()) {
+                  // a non-resident entry only kept for its recency; nothing to free
+                  victim.removeFromStack();
+                  continue;
+               }
+            }
+            // remove() keeps the number of hot entries constant when a hot entry goes away
+            victim.remove();
+            boolean evict = segment.evictionListener.onEntryChosenForEviction(victim.value);
+            if (evict) {
+               bytesToFree -= victim.size;
+               segment.remove(victim.key, victim.hash, null);
+               evictedEntries.add(victim);
+            }
+         }
+         return evictedEntries;
+      }
+
+      @Override
+      public void onEntriesReplaced(Map<HashEntry<K, V>, HashEntry<K, V>> replacements) {
+         for (Map.Entry<HashEntry<K, V>, HashEntry<K, V>> r : replacements.entrySet()) {
+            ((LIRSHashEntry<K, V>) r.getValue()).replace((LIRSHashEntry<K, V>) r.getKey());
+         }
+         // pending hits on replaced entries are skipped as non-resident, so move them to the copies
+         for (Iterator<LIRSHashEntry<K, V>> it = accessQueue.iterator(); it.hasNext();) {
+            HashEntry<K, V> replacement = replacements.get(it.next());
+            if (replacement != null) {
+               it.remove();
+               accessQueue.add((LIRSHashEntry<K, V>) replacement);
+            }
+         }
+      }
+
       /**
        * Returns the entry at the bottom of the stack.
        */
@@ -1386,18 +1606,43 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
 
       final int evictCap;
 
+      /**
+       * The maximum number of bytes this segment's entries may take up, or -1 if the segment is bounded by
+       * number of entries.
+       */
+      final long maxMemory;
+
+      /**
+       * The number of bytes currently taken up by this segment's entries, as estimated by sizeCalculator. Only
+       * maintained when bounded by memory.
+       */
+      transient volatile long memoryUsed;
+
+      transient final EntrySizeCalculator<? super K, ? super V> sizeCalculator;
+
       transient final EvictionPolicy<K, V> eviction;
 
       transient final EvictionListener<K, V> evictionListener;
 
       Segment(int cap, int evictCap, float lf, Eviction es, EvictionListener<K, V> listener) {
+         this(cap, evictCap, -1, null, lf, es, listener);
+      }
+
+      Segment(int cap, int evictCap, long maxMemory, EntrySizeCalculator<? super K, ? super V> sizeCalculator,
+              float lf, Eviction es, EvictionListener<K, V> listener) {
          loadFactor = lf;
          this.evictCap = evictCap;
-         eviction = es.make(this, evictCap, lf);
+         this.maxMemory = maxMemory;
+         this.sizeCalculator = sizeCalculator;
+         eviction = es.make(this, evictCap, Math.min(cap, evictCap), lf);
          evictionListener = listener;
          setTable(HashEntry.<K, V> newArray(cap));
       }
 
+      boolean isBoundedByMemory() {
+         return maxMemory > 0;
+      }
+
       @SuppressWarnings("unchecked")
       static <K,V> Segment<K,V>[] newArray(int i) {
          return new Segment[i];
@@ -1520,6 +1765,9 @@ boolean replace(K key, int hash, V oldValue, V newValue) {
                if (eviction.onEntryHit(e)) {
                   evicted = attemptEviction(true);
                }
+               if (isBoundedByMemory()) {
+                  evicted = merge(evicted, updateSize(e));
+               }
             }
             return replaced;
          } finally {
@@ -1544,6 +1792,9 @@ V replace(K key, int hash, V newValue) {
                if (eviction.onEntryHit(e)) {
                   evicted = attemptEviction(true);
                }
+               if (isBoundedByMemory()) {
+                  evicted = merge(evicted, updateSize(e));
+               }
             }
             return oldValue;
          } finally {
@@ -1557,7 +1808,7 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
          Set<HashEntry<K, V>> evicted = null;
          try {
             int c = count;
-            if (c++ > threshold && eviction.strategy() == Eviction.NONE) {
+            if (c++ > threshold && (eviction.strategy() == Eviction.NONE || isBoundedByMemory())) {
                rehash();
             }
             HashEntry<K, V>[] tab = table;
@@ -1574,6 +1825,9 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                if (!onlyIfAbsent) {
                   e.value = value;
                   eviction.onEntryHit(e);
+                  if (isBoundedByMemory()) {
+                     evicted = updateSize(e);
+                  }
                }
             } else {
                oldValue = null;
@@ -1587,9 +1841,10 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                      first = tab[index];
                   }
                   // add a new entry
-                  tab[index] = eviction.createNewEntry(key, hash, first, value);
+                  HashEntry<K, V> newEntry = eviction.createNewEntry(key, hash, first, value);
+                  tab[index] = newEntry;
                   // notify a miss
-                  Set<HashEntry<K, V>> newlyEvicted = eviction.onEntryMiss(tab[index]);
+                  Set<HashEntry<K, V>> newlyEvicted = eviction.onEntryMiss(newEntry);
                   if (!newlyEvicted.isEmpty()) {
                      if (evicted != null) {
                         evicted.addAll(newlyEvicted);
@@ -1597,6 +1852,9 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                         evicted = newlyEvicted;
                      }
                   }
+                  if (isBoundedByMemory()) {
+                     evicted = merge(evicted, updateSize(newEntry));
+                  }
                } else {
                   tab[index] = eviction.createNewEntry(key, hash, first, value);
                }
@@ -1631,6 +1889,9 @@ void rehash() {
 
          HashEntry<K,V>[] newTable = HashEntry.newArray(oldCapacity<<1);
          threshold = (int)(newTable.length * loadFactor);
+         // only bounded by memory: the clones have to keep the recency of the nodes they replace
+         Map<HashEntry<K,V>, HashEntry<K,V>> replaced = eviction.strategy() != Eviction.NONE ?
+               new IdentityHashMap<HashEntry<K,V>, HashEntry<K,V>>() : null;
          int sizeMask = newTable.length - 1;
          for (int i = 0; i < oldCapacity ; i++) {
             // We need to guarantee that any existing reads of old Map can
@@ -1663,12 +1924,20 @@ void rehash() {
                   for (HashEntry<K,V> p = e; p != lastRun; p = p.next) {
                      int k = p.hash & sizeMask;
                      HashEntry<K,V> n = newTable[k];
-                     newTable[k] = eviction.createNewEntry(p.key, p.hash, n, p.value);
+                     HashEntry<K,V> clone = eviction.createNewEntry(p.key, p.hash, n, p.value);
+                     clone.size = p.size;
+                     if (replaced != null) {
+                        replaced.put(p, clone);
+                     }
+                     newTable[k] = clone;
                   }
                }
             }
          }
          table = newTable;
+         if (replaced != null && !replaced.isEmpty()) {
+            eviction.onEntriesReplaced(replaced);
+         }
       }
 
       /**
@@ -1698,19 +1967,29 @@ V remove(Object key, int hash, Object value) {
 
                   // e was removed
                   eviction.onEntryRemove(e);
+                  if (isBoundedByMemory()) {
+                     memoryUsed -= e.size;
+                  }
 
                   HashEntry<K, V> newFirst = e.next;
+                  Map<HashEntry<K, V>, HashEntry<K, V>> replaced = null;
                   for (HashEntry<K, V> p = first; p != e; p = p.next) {
-                     // TODO A remove operation makes the map behave like all the other keys in the bucket were just added???
-                     // allow p to be GC-ed
-                     eviction.onEntryRemove(p);
                      newFirst = eviction.createNewEntry(p.key, p.hash, newFirst, p.value);
-                     // and notify eviction algorithm about new hash entries
-                     eviction.onEntryMiss(newFirst);
+                     newFirst.size = p.size;
+                     // the copy keeps the recency of p
+                     if (eviction.strategy() != Eviction.NONE) {
+                        if (replaced == null) {
+                           replaced = new IdentityHashMap<HashEntry<K, V>, HashEntry<K, V>>();
+                        }
+                        replaced.put(p, newFirst);
+                     }
                   }
 
                   tab[index] = newFirst;
                   count = c; // write-volatile
+                  if (replaced != null) {
+                     eviction.onEntriesReplaced(replaced);
+                  }
                }
             }
             return oldValue;
@@ -1729,6 +2008,7 @@ void clear() {
                }
                ++modCount;
                eviction.clear();
+               memoryUsed = 0;
                count = 0; // write-volatile
             } finally {
                unlock();
@@ -1736,6 +2016,30 @@ void clear() {
          }
       }
 
+      /**
+       * Recomputes the size of an entry whose value has been set, and trims the segment if this takes it over its
+       * memory budget. Call only while holding lock.
+       */
+      private Set<HashEntry<K, V>> updateSize(HashEntry<K, V> e) {
+         long size = sizeCalculator.calculateSize(e.key, e.value);
+         memoryUsed += size - e.size;
+         e.size = size;
+         long excess = memoryUsed - maxMemory;
+         return excess > 0 ? eviction.trimMemory(excess) : null;
+      }
+
+      private static <K, V> Set<HashEntry<K, V>> merge(Set<HashEntry<K, V>> evicted, Set<HashEntry<K, V>> newlyEvicted) {
+         if (newlyEvicted == null || newlyEvicted.isEmpty()) {
+            return evicted;
+         }
+         if (evicted == null || evicted.isEmpty()) {
+            return newlyEvicted;
+         }
+         Set<HashEntry<K, V>> merged = new HashSet<HashEntry<K, V>>(evicted);
+         merged.addAll(newlyEvicted);
+         return merged;
+      }
+
       private Set<HashEntry<K, V>> attemptEviction(boolean lockedAlready) {
          Set<HashEntry<K, V>> evicted = null;
          boolean obtainedLock = lockedAlready || tryLock();
@@ -1848,6 +2152,66 @@ public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
       }
    }
 
+   /**
+    * Creates a new, empty map bounded by the amount of memory taken by its entries rather than by their number.
+    * The memory taken by each entry is estimated with the given {@link EntrySizeCalculator} whenever it is written,
+    * and entries are evicted according to the given eviction strategy whenever a segment exceeds its share of the
+    * budget.
+    *
+    * @param maxMemory
+    *            is the upper bound for the number of bytes taken up by the entries of this map
+    *
+    * @param concurrencyLevel
+    *            the estimated number of concurrently updating threads. The implementation performs
+    *            internal sizing to try to accommodate this many threads.
+    *
+    * @param evictionStrategy
+    *            the algorithm used to evict elements from this map
+    *
+    * @param evictionListener
+    *            the evicton listener callback to be notified about evicted elements
+    *
+    * @param sizeCalculator
+    *            estimates the memory taken by each entry
+    *
+    * @throws IllegalArgumentException
+    *             if the maximum memory or the concurrencyLevel are nonpositive, or if the eviction
+    *             strategy is {@link Eviction#NONE}.
+    */
+   public BoundedConcurrentHashMap(long maxMemory, int concurrencyLevel, Eviction evictionStrategy,
+         EvictionListener<K, V> evictionListener, EntrySizeCalculator<? super K, ? super V> sizeCalculator) {
+      if (maxMemory <= 0 || concurrencyLevel <= 0) {
+         throw new IllegalArgumentException();
+      }
+
+      if (evictionStrategy == null || evictionStrategy == Eviction.NONE || evictionListener == null
+            || sizeCalculator == null) {
+         throw new IllegalArgumentException();
+      }
+
+      if (concurrencyLevel > MAX_SEGMENTS) {
+         concurrencyLevel = MAX_SEGMENTS;
+      }
+
+      // Find power-of-two sizes best matching arguments
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+      this.segments = Segment.newArray(ssize);
+
+      long segmentMemory = Math.max(1, maxMemory / ssize);
+      for (int i = 0; i < this.segments.length; ++i) {
+         // tables grow as needed, since the number of entries that fit is unknown
+         this.segments[i] = new Segment<K, V>(16, Integer.MAX_VALUE, segmentMemory, sizeCalculator,
+                                              DEFAULT_LOAD_FACTOR, evictionStrategy, evictionListener);
+      }
+   }
+
    /**
     * Creates a new, empty map with the specified maximum capacity, load factor, concurrency
     * level and LRU eviction policy.
@@ -1913,6 +2277,20 @@ public BoundedConcurrentHashMap() {
       this(DEFAULT_MAXIMUM_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
    }
 
+   /**
+    * Returns the number of bytes taken up by the entries of this map, as estimated by its
+    * {@link EntrySizeCalculator}, or 0 if this map is bounded by number of entries.
+    *
+    * @return the estimated memory taken up by the entries of this map
+    */
+   public long memoryUsed() {
+      long used = 0;
+      for (Segment<K, V> segment : segments) {
+         used += segment.memoryUsed;
+      }
+      return used;
+   }
+
    /**
     * Returns <tt>true</tt> if this map contains no key-value mappings.
     *
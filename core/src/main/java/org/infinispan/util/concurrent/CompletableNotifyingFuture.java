@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link NotifyingFuture} completed explicitly by whoever produces its result, typically a callback invoked by the
+ * transport when a response arrives, rather than by a thread running a task. Listeners are notified in the thread
+ * that completes the future, so they should not block.
+ *
+ * @since 5.2
+ */
+public class CompletableNotifyingFuture<T> implements NotifyingFuture<T> {
+
+   private final CountDownLatch completed = new CountDownLatch(1);
+   private List<FutureListener<T>> listeners = new LinkedList<FutureListener<T>>();
+   private boolean done;
+   private boolean cancelled;
+   private T value;
+   private Throwable exception;
+
+   /**
+    * Completes the future with the given value.
+    *
+    * @return false if the future had already been completed
+    */
+   public boolean complete(T value) {
+      return setResult(value, null, false);
+   }
+
+   /**
+    * Completes the future with the given failure, which {@link #get()} rethrows wrapped in an {@link
+    * ExecutionException}.
+    *
+    * @return false if the future had already been completed
+    */
+   public boolean completeExceptionally(Throwable exception) {
+      return setResult(null, exception, false);
+   }
+
+   @Override
+   public boolean cancel(boolean mayInterruptIfRunning) {
+      return setResult(null, null, true);
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return isDone() && cancelled;
+   }
+
+   @Override
+   public boolean isDone() {
+      return completed.getCount() == 0;
+   }
+
+   @Override
+   public T get() throws InterruptedException, ExecutionException {
+      completed.await();
+      return result();
+   }
+
+   @Override
+   public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException {
+      if (!completed.await(timeout, unit))
+         throw new java.util.concurrent.TimeoutException();
+      return result();
+   }
+
+   @Override
+   public NotifyingFuture<T> attachListener(FutureListener<T> listener) {
+      synchronized (this) {
+         if (!done) {
+            listeners.add(listener);
+            return this;
+         }
+      }
+      listener.futureDone(this);
+      return this;
+   }
+
+   private boolean setResult(T value, Throwable exception, boolean cancelled) {
+      List<FutureListener<T>> toNotify;
+      synchronized (this) {
+         if (done) return false;
+         done = true;
+         this.value = value;
+         this.exception = exception;
+         this.cancelled = cancelled;
+         toNotify = listeners;
+         listeners = null;
+      }
+      completed.countDown();
+      for (FutureListener<T> l : toNotify) l.futureDone(this);
+      return true;
+   }
+
+   private T result() throws ExecutionException {
+      if (cancelled) throw new CancellationException();
+      if (exception != null) throw new ExecutionException(exception);
+      return value;
+   }
+}
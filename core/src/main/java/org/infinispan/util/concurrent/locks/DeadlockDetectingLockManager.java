@@ -207,7 +207,7 @@ public long getOverlapWithNotDeadlockAwareLockOwners() {
 
 
 
-   private void updateStats(DldGlobalTransaction tx) {
+   protected void updateStats(DldGlobalTransaction tx) {
       if (exposeJmxStats) {
          if (tx.isRemote())
             remoteTxStopped.incrementAndGet();
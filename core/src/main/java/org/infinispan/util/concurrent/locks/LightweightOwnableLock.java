@@ -0,0 +1,168 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent.locks;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock that, like {@link OwnableReentrantLock}, supports reentrancy based on owner rather than on the current thread,
+ * but which is acquired with a single compare-and-swap of its owner and does not rely on an
+ * {@link java.util.concurrent.locks.AbstractQueuedSynchronizer}.
+ * <p/>
+ * Contended acquisitions do not queue: the requestor yields for a while and then parks for increasing periods of time,
+ * up to a millisecond, until the lock is free or the timeout expires. This makes the lock cheap when contention is low,
+ * which is the common case when locks are spread over many keys, at the expense of fairness and of latency when a lock
+ * is heavily contended.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public final class LightweightOwnableLock implements Lock {
+
+   private static final AtomicReferenceFieldUpdater<LightweightOwnableLock, Object> OWNER_UPDATER =
+         AtomicReferenceFieldUpdater.newUpdater(LightweightOwnableLock.class, Object.class, "owner");
+
+   private static final int MAX_YIELDS = 16;
+   private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+   private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+   private volatile Object owner;
+   // only modified by the owner
+   private volatile int holdCount;
+
+   /**
+    * Acquires the lock if it is free or already held by the given requestor, without waiting.
+    *
+    * @return true if the lock was acquired, false otherwise
+    */
+   public boolean tryLock(Object requestor) {
+      Object current = owner;
+      if (current == null) {
+         if (OWNER_UPDATER.compareAndSet(this, null, requestor)) {
+            holdCount = 1;
+            return true;
+         }
+      } else if (current.equals(requestor)) {
+         holdCount++;
+         return true;
+      }
+      return false;
+   }
+
+   public boolean tryLock(Object requestor, long time, TimeUnit unit) throws InterruptedException {
+      if (tryLock(requestor)) return true;
+      long remaining = unit.toNanos(time);
+      if (remaining <= 0) return false;
+
+      long deadline = System.nanoTime() + remaining;
+      int yields = 0;
+      long parkNanos = MIN_PARK_NANOS;
+      while (true) {
+         if (Thread.interrupted()) throw new InterruptedException();
+         if (yields < MAX_YIELDS) {
+            yields++;
+            Thread.yield();
+         } else {
+            LockSupport.parkNanos(this, Math.min(parkNanos, remaining));
+            parkNanos = Math.min(parkNanos << 1, MAX_PARK_NANOS);
+         }
+         if (tryLock(requestor)) return true;
+         remaining = deadline - System.nanoTime();
+         if (remaining <= 0) return false;
+      }
+   }
+
+   /**
+    * Releases one hold of the lock if the given requestor owns it, otherwise does nothing.
+    */
+   public void unlock(Object requestor) {
+      if (requestor.equals(owner)) {
+         int c = holdCount - 1;
+         holdCount = c;
+         if (c == 0) owner = null;
+      }
+   }
+
+   /**
+    * @return the owner of the lock, or null if it is currently unlocked.
+    */
+   public Object getOwner() {
+      return owner;
+   }
+
+   /**
+    * @return the hold count of the current lock, or 0 if it is not held by the given requestor.
+    */
+   public int getHoldCount(Object requestor) {
+      return requestor.equals(owner) ? holdCount : 0;
+   }
+
+   /**
+    * @return true if the lock is locked, false otherwise
+    */
+   public boolean isLocked() {
+      return owner != null;
+   }
+
+   @Override
+   public void lock() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void lockInterruptibly() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public boolean tryLock() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public boolean tryLock(long time, TimeUnit unit) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void unlock() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public Condition newCondition() {
+      throw new UnsupportedOperationException("Not supported in this implementation!");
+   }
+
+   @Override
+   public String toString() {
+      Object o = owner;
+      return "LightweightOwnableLock{" + (o == null ? "[Unlocked]" : "[Locked by " + o + "]") + '}';
+   }
+}
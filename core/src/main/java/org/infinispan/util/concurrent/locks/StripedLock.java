@@ -26,7 +26,11 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -195,6 +199,27 @@ public void acquireAllLocks(List<Object> keys, boolean exclusive) {
     }
    }
 
+   /**
+    * Acquires locks on all the keys passed in, taking the underlying locks in a consistent order so that callers locking
+    * overlapping sets of keys cannot deadlock. Keys sharing the same underlying lock only lock it once.
+    *
+    * @param keys      keys to lock
+    * @param exclusive whether locks are exclusive.
+    * @return the keys actually locked, to be passed to {@link #releaseAllLocks(java.util.List)}
+    */
+   public List<Object> acquireAllLocksInOrder(Collection<?> keys, boolean exclusive) {
+      SortedMap<Integer, Object> keysByLock = new TreeMap<Integer, Object>();
+      for (Object key : keys) {
+         int index = hashToIndex(key);
+         if (!keysByLock.containsKey(index)) keysByLock.put(index, key);
+      }
+      List<Object> locked = new ArrayList<Object>(keysByLock.values());
+      for (Object key : locked) {
+         acquireLock(key, exclusive);
+      }
+      return locked;
+   }
+
    /**
     * Returns the total number of locks held by this class.
     */
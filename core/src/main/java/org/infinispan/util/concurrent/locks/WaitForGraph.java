@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent.locks;
+
+import org.infinispan.transaction.xa.DldGlobalTransaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps track of the transactions waiting for a lock on this node and finds the cycles of the wait-for graph made up
+ * by these waits, possibly merged with the waits recorded by the other nodes of the cluster.
+ * <p/>
+ * Every edge of the graph goes from a transaction waiting for a lock to the transaction owning it, so every cycle is a
+ * deadlock. The youngest transaction of a cycle, as defined by
+ * {@link DldGlobalTransaction#isYoungerThan(DldGlobalTransaction)}, is chosen as its victim: all the nodes pick the
+ * same victim for the same cycle, and the transaction that has done the least work is the one rolled back.
+ * <p/>
+ * Victims are only marked here; it is up to the thread waiting on behalf of the victim to
+ * {@link #consumeVictim(DldGlobalTransaction) notice} it and to give up.
+ *
+ * @since 5.2
+ */
+public class WaitForGraph {
+
+   private final ConcurrentMap<DldGlobalTransaction, DldGlobalTransaction> waits = new ConcurrentHashMap<DldGlobalTransaction, DldGlobalTransaction>();
+   private final ConcurrentMap<DldGlobalTransaction, Long> victims = new ConcurrentHashMap<DldGlobalTransaction, Long>();
+
+   /**
+    * Records that a transaction waits for a lock owned by another transaction. A transaction waits for at most one
+    * lock per node, so this replaces any previous wait of the same transaction.
+    */
+   public void startWaiting(DldGlobalTransaction waiter, DldGlobalTransaction owner) {
+      waits.put(waiter, owner);
+   }
+
+   /**
+    * Records that a transaction no longer waits, either because it acquired its lock or because it gave up.
+    */
+   public void stopWaiting(DldGlobalTransaction waiter) {
+      waits.remove(waiter);
+   }
+
+   /**
+    * @return a snapshot of the waits recorded on this node, keyed by the waiting transaction
+    */
+   public Map<DldGlobalTransaction, DldGlobalTransaction> getWaits() {
+      return new HashMap<DldGlobalTransaction, DldGlobalTransaction>(waits);
+   }
+
+   public boolean isWaiting(DldGlobalTransaction tx) {
+      return waits.containsKey(tx);
+   }
+
+   /**
+    * Follows the waits recorded on this node starting from the given transaction.
+    *
+    * @return the victim of the local cycle the given transaction is part of, or null if there is no such cycle
+    */
+   public DldGlobalTransaction findLocalVictim(DldGlobalTransaction waiter) {
+      DldGlobalTransaction victim = waiter;
+      DldGlobalTransaction current = waits.get(waiter);
+      Set<DldGlobalTransaction> visited = null;
+      while (current != null) {
+         if (current.equals(waiter)) return victim;
+         if (visited == null) visited = new HashSet<DldGlobalTransaction>();
+         // a cycle that doesn't go through the waiter is left to the transactions it is made of
+         if (!visited.add(current)) return null;
+         if (current.isYoungerThan(victim)) victim = current;
+         current = waits.get(current);
+      }
+      return null;
+   }
+
+   /**
+    * Marks a transaction as the victim of a deadlock.
+    */
+   public void markVictim(DldGlobalTransaction tx) {
+      victims.put(tx, System.currentTimeMillis());
+   }
+
+   /**
+    * @return true if the transaction was marked as a victim, in which case the mark is removed
+    */
+   public boolean consumeVictim(DldGlobalTransaction tx) {
+      return !victims.isEmpty() && victims.remove(tx) != null;
+   }
+
+   /**
+    * Drops everything known about a transaction, typically because it completed.
+    */
+   public void forget(DldGlobalTransaction tx) {
+      waits.remove(tx);
+      if (!victims.isEmpty()) victims.remove(tx);
+   }
+
+   /**
+    * Drops the victim marks older than the given time. Marks are left behind on the nodes where the victim doesn't
+    * wait, and removed when the victim completes there; marks of victims that never touched this node only go away
+    * here.
+    */
+   public void purgeVictimsMarkedBefore(long millis) {
+      for (Iterator<Long> it = victims.values().iterator(); it.hasNext(); ) {
+         if (it.next() < millis) it.remove();
+      }
+   }
+
+   /**
+    * Finds the victims that break all the cycles of a wait-for graph.
+    *
+    * @param edges the graph, as the set of transactions each transaction waits for. It is modified by this method:
+    *              the victims are removed from it.
+    * @return the victims, one per cycle
+    */
+   public static List<DldGlobalTransaction> findVictims(Map<DldGlobalTransaction, Set<DldGlobalTransaction>> edges) {
+      List<DldGlobalTransaction> victims = new ArrayList<DldGlobalTransaction>();
+      List<DldGlobalTransaction> cycle;
+      while ((cycle = findCycle(edges)) != null) {
+         DldGlobalTransaction victim = cycle.get(0);
+         for (DldGlobalTransaction tx : cycle) {
+            if (tx.isYoungerThan(victim)) victim = tx;
+         }
+         victims.add(victim);
+         edges.remove(victim);
+         for (Set<DldGlobalTransaction> owners : edges.values()) owners.remove(victim);
+      }
+      return victims;
+   }
+
+   /**
+    * Iterative depth first search, as the graph of a busy cluster can be deeper than the stack.
+    */
+   private static List<DldGlobalTransaction> findCycle(Map<DldGlobalTransaction, Set<DldGlobalTransaction>> edges) {
+      // TRUE while the transaction is on the current path, FALSE once all the paths leaving it have been explored
+      Map<DldGlobalTransaction, Boolean> onPath = new HashMap<DldGlobalTransaction, Boolean>();
+      List<DldGlobalTransaction> path = new ArrayList<DldGlobalTransaction>();
+      List<Iterator<DldGlobalTransaction>> pending = new ArrayList<Iterator<DldGlobalTransaction>>();
+      for (DldGlobalTransaction root : edges.keySet()) {
+         if (onPath.containsKey(root)) continue;
+         onPath.put(root, Boolean.TRUE);
+         path.add(root);
+         pending.add(successors(edges, root));
+         while (!path.isEmpty()) {
+            Iterator<DldGlobalTransaction> it = pending.get(pending.size() - 1);
+            if (it.hasNext()) {
+               DldGlobalTransaction next = it.next();
+               Boolean state = onPath.get(next);
+               if (state == null) {
+                  onPath.put(next, Boolean.TRUE);
+                  path.add(next);
+                  pending.add(successors(edges, next));
+               } else if (state) {
+                  return new ArrayList<DldGlobalTransaction>(path.subList(path.indexOf(next), path.size()));
+               }
+            } else {
+               onPath.put(path.remove(path.size() - 1), Boolean.FALSE);
+               pending.remove(pending.size() - 1);
+            }
+         }
+      }
+      return null;
+   }
+
+   private static Iterator<DldGlobalTransaction> successors(Map<DldGlobalTransaction, Set<DldGlobalTransaction>> edges,
+                                                            DldGlobalTransaction tx) {
+      Set<DldGlobalTransaction> owners = edges.get(tx);
+      if (owners == null) owners = Collections.emptySet();
+      return owners.iterator();
+   }
+}
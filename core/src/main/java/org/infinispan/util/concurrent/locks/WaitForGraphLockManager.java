@@ -0,0 +1,290 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent.locks;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.remote.WaitForGraphCommand;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.factories.annotations.ComponentName;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.SuccessfulResponse;
+import org.infinispan.remoting.rpc.ResponseMode;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.transaction.LocalTransaction;
+import org.infinispan.transaction.TransactionTable;
+import org.infinispan.transaction.xa.DldGlobalTransaction;
+import org.infinispan.transaction.xa.GlobalTransaction;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Operation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
+
+/**
+ * Deadlock detecting lock manager based on a wait-for graph, used when
+ * {@link org.infinispan.configuration.cache.DeadlockDetectionConfiguration#waitForGraph()} is enabled.
+ * <p/>
+ * A transaction that cannot acquire a lock within {@link #spinDuration} records that it waits for the lock owner in the
+ * {@link WaitForGraph} of this node and looks for a cycle among the waits of this node, which costs a few map lookups
+ * rather than the lock intention comparisons done by {@link DeadlockDetectingLockManager}. Cycles spanning several nodes
+ * are looked for by gathering the waits of all the nodes with a {@link WaitForGraphCommand}; this is only triggered by
+ * transactions that already waited for a whole spin duration, so uncontended transactions never pay for it. The
+ * search runs in the async transport executor while the transaction keeps waiting, one search at a time per node and
+ * no sooner than a spin duration after the previous one ended, so a slow cluster is not flooded with searches.
+ * <p/>
+ * The youngest transaction of every cycle found is marked as a victim on all the nodes, and the thread waiting on its
+ * behalf throws a {@link DeadlockDetectedException}, which rolls it back. Only the waits of transactions that are still
+ * registered in the {@link TransactionTable} are taken into account. Victim marks left on the nodes where the victim
+ * does not wait are purged whenever new victims are marked.
+ *
+ * @since 5.2
+ */
+@MBean(objectName = "DeadlockDetectingLockManager", description = "Information about the number of deadlocks that were detected")
+public class WaitForGraphLockManager extends DeadlockDetectingLockManager {
+
+   private static final Log log = LogFactory.getLog(WaitForGraphLockManager.class);
+
+   private final WaitForGraph graph = new WaitForGraph();
+
+   private final AtomicLong lastGlobalDetection = new AtomicLong(0);
+
+   private final AtomicBoolean globalDetectionRunning = new AtomicBoolean(false);
+
+   private final AtomicLong globalDetections = new AtomicLong(0);
+
+   private RpcManager rpcManager;
+
+   private CommandsFactory commandsFactory;
+
+   private TransactionTable txTable;
+
+   private ExecutorService asyncTransportExecutor;
+
+   private boolean clustered;
+
+   @Inject
+   public void injectWaitForGraphDependencies(RpcManager rpcManager, CommandsFactory commandsFactory, TransactionTable txTable,
+                                              @ComponentName(ASYNC_TRANSPORT_EXECUTOR) ExecutorService asyncTransportExecutor) {
+      this.rpcManager = rpcManager;
+      this.commandsFactory = commandsFactory;
+      this.txTable = txTable;
+      this.asyncTransportExecutor = asyncTransportExecutor;
+   }
+
+   @Start
+   public void startWaitForGraph() {
+      clustered = rpcManager != null && configuration.clustering().cacheMode().isClustered();
+   }
+
+   @Override
+   public boolean lockAndRecord(Object key, InvocationContext ctx, long lockTimeout) throws InterruptedException {
+      if (!ctx.isInTxScope()) return super.lockAndRecord(key, ctx, lockTimeout);
+
+      if (trace) log.tracef("Attempting to lock %s with acquisition timeout of %s millis", key, lockTimeout);
+      DldGlobalTransaction thisTx = (DldGlobalTransaction) ctx.getLockOwner();
+      final long spinNanos = MILLISECONDS.toNanos(spinDuration);
+      final long startNanos = System.nanoTime();
+      final long timeoutNanoTime = startNanos + MILLISECONDS.toNanos(lockTimeout);
+      try {
+         while (true) {
+            if (graph.consumeVictim(thisTx)) {
+               updateStats(thisTx);
+               String message = String.format("Deadlock found and we %s shall not continue, we were waiting for %s", thisTx, key);
+               if (trace) log.trace(message);
+               throw new DeadlockDetectedException(message);
+            }
+            long slice = Math.max(0, Math.min(spinNanos, timeoutNanoTime - System.nanoTime()));
+            if (lockContainer.acquireLock(thisTx, key, slice, NANOSECONDS) != null) {
+               if (trace) log.tracef("Successfully acquired lock on %s on behalf of %s", key, thisTx);
+               // the cycle we might have been marked for doesn't go through this node anymore
+               graph.consumeVictim(thisTx);
+               return true;
+            }
+            if (System.nanoTime() - timeoutNanoTime >= 0) return false;
+
+            Object owner = getOwner(key);
+            if (!(owner instanceof DldGlobalTransaction)) {
+               if (trace) log.tracef("Not looking for deadlocks as lock owner (%s) is not a transaction", owner);
+               graph.stopWaiting(thisTx);
+               continue;
+            }
+            graph.startWaiting(thisTx, (DldGlobalTransaction) owner);
+            DldGlobalTransaction victim = graph.findLocalVictim(thisTx);
+            if (victim != null) {
+               if (trace) log.tracef("Local deadlock between %s and %s, %s is the victim", thisTx, owner, victim);
+               graph.markVictim(victim);
+            } else if (clustered && System.nanoTime() - startNanos >= spinNanos) {
+               detectGlobalDeadlocks();
+            }
+         }
+      } finally {
+         graph.stopWaiting(thisTx);
+      }
+   }
+
+   @Override
+   public void unlockAll(InvocationContext ctx) {
+      super.unlockAll(ctx);
+      if (ctx.isInTxScope()) graph.forget((DldGlobalTransaction) ctx.getLockOwner());
+   }
+
+   /**
+    * Starts looking for the cycles of the wait-for graph of the whole cluster in the background, unless this node is
+    * already doing so or did so less than a spin duration ago. The waiting transactions notice the victims marked by
+    * the search while they keep spinning.
+    */
+   private void detectGlobalDeadlocks() {
+      if (System.currentTimeMillis() - lastGlobalDetection.get() < spinDuration
+            || !globalDetectionRunning.compareAndSet(false, true)) return;
+      try {
+         asyncTransportExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  findGlobalDeadlocks();
+               } finally {
+                  lastGlobalDetection.set(System.currentTimeMillis());
+                  globalDetectionRunning.set(false);
+               }
+            }
+         });
+      } catch (RejectedExecutionException e) {
+         // the cache is stopping, the waiters will time out
+         globalDetectionRunning.set(false);
+      }
+   }
+
+   /**
+    * Gathers the waits of all the nodes and marks the victims of the cycles they make up on all the nodes.
+    */
+   private void findGlobalDeadlocks() {
+      if (exposeJmxStats) globalDetections.incrementAndGet();
+
+      Map<DldGlobalTransaction, Set<DldGlobalTransaction>> edges = new HashMap<DldGlobalTransaction, Set<DldGlobalTransaction>>();
+      addEdges(edges, getWaitForEdges());
+      try {
+         WaitForGraphCommand command = commandsFactory.buildWaitForGraphCommand(null);
+         Map<Address, Response> responses = rpcManager.invokeRemotely(null, command, ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS,
+                                                                      configuration.clustering().sync().replTimeout(), true);
+         for (Response response : responses.values()) {
+            if (response instanceof SuccessfulResponse) {
+               @SuppressWarnings("unchecked")
+               Map<DldGlobalTransaction, DldGlobalTransaction> remoteWaits =
+                     (Map<DldGlobalTransaction, DldGlobalTransaction>) ((SuccessfulResponse) response).getResponseValue();
+               if (remoteWaits != null) addEdges(edges, remoteWaits);
+            }
+         }
+      } catch (Exception e) {
+         // the waiters will look again later on, or time out
+         if (trace) log.tracef(e, "Unable to gather the waits of the other nodes");
+         return;
+      }
+
+      List<DldGlobalTransaction> victims = WaitForGraph.findVictims(edges);
+      if (victims.isEmpty()) return;
+
+      if (trace) log.tracef("Found %s deadlocks in a wait-for graph of %s transactions, victims are %s", victims.size(), edges.size() + victims.size(), victims);
+      markVictims(victims);
+      try {
+         rpcManager.broadcastRpcCommand(commandsFactory.buildWaitForGraphCommand(victims), false, true);
+      } catch (Exception e) {
+         // victims waiting on the other nodes will be found again by the next detection
+         if (trace) log.tracef(e, "Unable to notify the other nodes about deadlock victims %s", victims);
+      }
+   }
+
+   private static void addEdges(Map<DldGlobalTransaction, Set<DldGlobalTransaction>> edges, Map<DldGlobalTransaction, DldGlobalTransaction> waits) {
+      for (Map.Entry<DldGlobalTransaction, DldGlobalTransaction> wait : waits.entrySet()) {
+         Set<DldGlobalTransaction> owners = edges.get(wait.getKey());
+         if (owners == null) {
+            owners = new HashSet<DldGlobalTransaction>(4);
+            edges.put(wait.getKey(), owners);
+         }
+         owners.add(wait.getValue());
+      }
+   }
+
+   /**
+    * @return the waits recorded on this node by transactions that are still registered in the transaction table
+    */
+   public Map<DldGlobalTransaction, DldGlobalTransaction> getWaitForEdges() {
+      Map<DldGlobalTransaction, DldGlobalTransaction> waits = graph.getWaits();
+      if (waits.isEmpty()) return waits;
+      Set<GlobalTransaction> localTransactions = new HashSet<GlobalTransaction>();
+      for (LocalTransaction localTx : txTable.getLocalTransactions()) {
+         localTransactions.add(localTx.getGlobalTransaction());
+      }
+      for (Iterator<DldGlobalTransaction> it = waits.keySet().iterator(); it.hasNext(); ) {
+         DldGlobalTransaction waiter = it.next();
+         boolean registered = waiter.isRemote() ? clustered && txTable.containRemoteTx(waiter) : localTransactions.contains(waiter);
+         if (!registered) it.remove();
+      }
+      return waits;
+   }
+
+   /**
+    * Marks the given transactions as deadlock victims on this node. The marks of victims that did not wait on this
+    * node and did not complete here either are dropped once they are older than twice the lock acquisition timeout,
+    * by which time the victims gave up anyway.
+    */
+   public void markVictims(Collection<DldGlobalTransaction> victims) {
+      graph.purgeVictimsMarkedBefore(System.currentTimeMillis() - 2 * configuration.locking().lockAcquisitionTimeout());
+      for (DldGlobalTransaction victim : victims) graph.markVictim(victim);
+   }
+
+   @ManagedAttribute(description = "Number of times the wait-for graph of the whole cluster was searched for deadlocks by this node")
+   @Metric(displayName = "Number of cluster wide deadlock searches", measurementType = MeasurementType.TRENDSUP)
+   public long getGlobalDeadlockDetections() {
+      return globalDetections.get();
+   }
+
+   @Override
+   @ManagedOperation(description = "Resets statistics gathered by this component")
+   @Operation(displayName = "Reset statistics")
+   public void resetStatistics() {
+      super.resetStatistics();
+      globalDetections.set(0);
+   }
+}
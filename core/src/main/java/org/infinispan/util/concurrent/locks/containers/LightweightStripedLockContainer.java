@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent.locks.containers;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.util.concurrent.locks.LightweightOwnableLock;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A LockContainer that holds a fixed number of {@link LightweightOwnableLock}s, shared by all keys. Nothing is
+ * allocated when locking a key, and an uncontended acquisition is a single compare-and-swap.
+ *
+ * @see OwnableReentrantStripedLockContainer
+ * @since 5.2
+ */
+@ThreadSafe
+public class LightweightStripedLockContainer extends AbstractStripedLockContainer<LightweightOwnableLock> {
+   LightweightOwnableLock[] sharedLocks;
+
+   /**
+    * Creates a new LockContainer which uses a certain number of shared locks across all elements that need to be
+    * locked.
+    *
+    * @param concurrencyLevel concurrency level for number of stripes to create.  Stripes are created in powers of two,
+    *                         with a minimum of concurrencyLevel created.
+    */
+   public LightweightStripedLockContainer(int concurrencyLevel) {
+      initLocks(calculateNumberOfSegments(concurrencyLevel));
+   }
+
+   @Override
+   protected void initLocks(int numLocks) {
+      sharedLocks = new LightweightOwnableLock[numLocks];
+      for (int i = 0; i < numLocks; i++) sharedLocks[i] = new LightweightOwnableLock();
+   }
+
+   @Override
+   public final LightweightOwnableLock getLock(Object object) {
+      return sharedLocks[hashToIndex(object)];
+   }
+
+   @Override
+   public final boolean ownsLock(Object object, Object owner) {
+      return owner.equals(getLock(object).getOwner());
+   }
+
+   @Override
+   public final boolean isLocked(Object object) {
+      return getLock(object).isLocked();
+   }
+
+   @Override
+   public final int getNumLocksHeld() {
+      int i = 0;
+      for (LightweightOwnableLock l : sharedLocks) if (l.isLocked()) i++;
+      return i;
+   }
+
+   @Override
+   public int size() {
+      return sharedLocks.length;
+   }
+
+   @Override
+   protected boolean tryLock(LightweightOwnableLock lock, long timeout, TimeUnit unit, Object lockOwner) throws InterruptedException {
+      return lock.tryLock(lockOwner, timeout, unit);
+   }
+
+   @Override
+   protected void unlock(LightweightOwnableLock l, Object owner) {
+      l.unlock(owner);
+   }
+
+   public String toString() {
+      return "LightweightStripedLockContainer{" +
+            "sharedLocks=" + (sharedLocks == null ? null : Arrays.asList(sharedLocks)) +
+            '}';
+   }
+}
@@ -917,4 +917,12 @@ void asyncStoreShutdownTimeoutTooHigh(long configuredAsyncStopTimeout,
    @LogMessage(level = WARN)
    @Message(value = "Trying to bring back an unexistent site (%s)!", id=205)
    void tryingToBringOnlineUnexistentSite(String siteName);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Discarding %d bytes of incomplete records at the end of %s", id = 206)
+   void truncatingIncompleteLogRecords(long bytes, File f);
+
+   @LogMessage(level = ERROR)
+   @Message(value = "Problems compacting file %s", id = 207)
+   void problemsCompactingFile(File f, @Cause Exception e);
 }
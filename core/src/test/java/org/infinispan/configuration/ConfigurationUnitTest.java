@@ -42,8 +42,11 @@
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.configuration.cache.LegacyConfigurationAdaptor;
 import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.test.CacheManagerCallable;
+import org.infinispan.test.TestingUtil;
 import org.infinispan.test.fwk.TestCacheManagerFactory;
 import org.infinispan.test.fwk.TransportFlags;
 import org.infinispan.transaction.lookup.DummyTransactionManagerLookup;
@@ -284,4 +287,23 @@ public void call() {
       });
    }
 
+   public void testSegmentedDataContainerIsOptIn() {
+      withCacheManager(new CacheManagerCallable(
+            TestCacheManagerFactory.createClusteredCacheManager(
+                  new ConfigurationBuilder(), new TransportFlags())) {
+         @Override
+         public void call() {
+            ConfigurationBuilder cb = new ConfigurationBuilder();
+            cb.clustering().cacheMode(CacheMode.DIST_SYNC);
+            cm.defineConfiguration("defaultContainer", cb.build());
+            cb.dataContainer().segmented(true);
+            cm.defineConfiguration("segmentedContainer", cb.build());
+            assert !(TestingUtil.extractComponent(cm.getCache("defaultContainer"), DataContainer.class)
+                  instanceof SegmentedDataContainer);
+            assert TestingUtil.extractComponent(cm.getCache("segmentedContainer"), DataContainer.class)
+                  instanceof SegmentedDataContainer;
+         }
+      });
+   }
+
 }
@@ -0,0 +1,177 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import org.infinispan.container.ExpirationIndex.ExpirationHandler;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "container.ExpirationIndexTest")
+public class ExpirationIndexTest extends AbstractInfinispanTest {
+
+   private ExpirationIndex index;
+   private long start;
+   /**
+    * Stands in for the data container, mapping each key to its expiry time.
+    */
+   private Map<Object, Long> expiryTimes;
+   private ExpirationHandler handler;
+
+   @BeforeMethod
+   public void setUp() {
+      index = new ExpirationIndex(1);
+      start = System.currentTimeMillis();
+      expiryTimes = new HashMap<Object, Long>();
+      handler = new ExpirationHandler() {
+         @Override
+         public long purgeIfExpired(Object key, long now) {
+            Long expiry = expiryTimes.get(key);
+            if (expiry == null) return ExpirationIndex.NOT_EXPIRABLE;
+            if (now > expiry) {
+               expiryTimes.remove(key);
+               return ExpirationIndex.PURGED;
+            }
+            return expiry;
+         }
+      };
+   }
+
+   private void add(Object key, long expiryTime) {
+      expiryTimes.put(key, expiryTime);
+      index.register(key, expiryTime);
+   }
+
+   public void testPurgesOnlyExpiredEntries() {
+      for (int i = 0; i < 100; i++) add(i, start + 10 + i * 10);
+      index.purge(start + 505, handler);
+
+      assertEquals(50, expiryTimes.size());
+      assertEquals(50, index.size());
+      assertEquals(50, index.getPurgedCount());
+      for (int i = 50; i < 100; i++) assertTrue(expiryTimes.containsKey(i));
+   }
+
+   public void testEntriesAreCascadedThroughAllLevels() {
+      // spread the expiry times over several revolutions of the second level of the wheel
+      long range = 3L * ExpirationIndex.SLOTS * ExpirationIndex.SLOTS;
+      for (int i = 0; i < 1000; i++) add(i, start + (i * 7919L) % range);
+
+      for (long now = start; now <= start + range + 1; now += 97) {
+         index.purge(now, handler);
+         for (Map.Entry<Object, Long> e : expiryTimes.entrySet()) {
+            assertFalse("Entry " + e.getKey() + " should have been purged at " + now, now > e.getValue());
+         }
+      }
+      index.purge(start + range + 1, handler);
+      assertTrue(expiryTimes.isEmpty());
+      assertEquals(0, index.size());
+      assertEquals(1000, index.getPurgedCount());
+   }
+
+   public void testExtendedEntriesAreRescheduled() {
+      add("k", start + 10);
+      // the entry was accessed, so it now expires later
+      expiryTimes.put("k", start + 1000);
+
+      index.purge(start + 100, handler);
+      assertTrue(expiryTimes.containsKey("k"));
+      assertEquals(1, index.size());
+
+      index.purge(start + 1001, handler);
+      assertFalse(expiryTimes.containsKey("k"));
+      assertEquals(0, index.size());
+   }
+
+   public void testRemovedEntriesAreDropped() {
+      add("k", start + 10);
+      expiryTimes.remove("k");
+      index.purge(start + 100, handler);
+      assertEquals(0, index.size());
+      assertEquals(0, index.getPurgedCount());
+   }
+
+   public void testOnlyEarliestRegistrationIsKept() {
+      for (int i = 0; i < 100; i++) index.register("k", start + 1000 - i);
+      for (int i = 0; i < 100; i++) index.register("k", start + 2000 + i);
+      assertEquals(1, index.size());
+      expiryTimes.put("k", start + 2099);
+
+      // the earliest registration comes due and finds out about the latest expiry time
+      index.purge(start + 950, handler);
+      assertEquals(1, expiryTimes.size());
+      assertEquals(1, index.size());
+      index.purge(start + 1500, handler);
+      assertEquals(1, expiryTimes.size());
+      index.purge(start + 2100, handler);
+      assertEquals(0, expiryTimes.size());
+      assertEquals(1, index.getPurgedCount());
+   }
+
+   public void testPurgeLagStatistics() {
+      add("k1", start + 10);
+      add("k2", start + 20);
+      index.purge(start + 120, handler);
+
+      assertEquals(2, index.getPurgedCount());
+      assertEquals(110, index.getMaxPurgeLag());
+      assertEquals(105, index.getAveragePurgeLag());
+
+      index.resetStatistics();
+      assertEquals(0, index.getPurgedCount());
+      assertEquals(0, index.getMaxPurgeLag());
+   }
+
+   public void testExpiryBeyondTheWheel() {
+      long farAway = start + (1L << (ExpirationIndex.LEVELS * ExpirationIndex.SLOT_BITS)) * 10;
+      add("far", farAway);
+      add("near", start + 5);
+      index.purge(start + 10, handler);
+      assertEquals(1, index.size());
+      assertTrue(expiryTimes.containsKey("far"));
+
+      index.clear();
+      assertEquals(0, index.size());
+   }
+
+   public void testExpiryJustBeyondTheWheelIsNotLate() {
+      long wheelTicks = 1L << (ExpirationIndex.LEVELS * ExpirationIndex.SLOT_BITS);
+      // the first tick of the next revolution of the top level is out of the range of the wheel for now
+      long nextRevolution = (start / wheelTicks + 1) * wheelTicks;
+      add("k", nextRevolution + 5);
+
+      index.purge(nextRevolution + 4, handler);
+      assertTrue(expiryTimes.containsKey("k"));
+      index.purge(nextRevolution + 10, handler);
+      assertFalse(expiryTimes.containsKey("k"));
+      assertEquals(0, index.size());
+      assertEquals(5, index.getMaxPurgeLag());
+   }
+}
@@ -0,0 +1,169 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.eviction.PassivationManager;
+import org.infinispan.loaders.CacheLoaderManager;
+import org.infinispan.loaders.decorators.AsyncStore;
+import org.infinispan.marshall.TestObjectStreamMarshaller;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "container.OffHeapDataContainerTest")
+public class OffHeapDataContainerTest extends SimpleDataContainerTest {
+
+   @AfterMethod(alwaysRun = true)
+   public void releaseMemory() {
+      if (dc != null) ((OffHeapDataContainer) dc).stop();
+   }
+
+   @Override
+   protected DataContainer createContainer() {
+      OffHeapDataContainer dc = new OffHeapDataContainer(16);
+      dc.initialize(null, null, new InternalEntryFactoryImpl(),
+            new ConfigurationBuilder().build(), null, new TestObjectStreamMarshaller());
+      dc.start();
+      return dc;
+   }
+
+   /**
+    * Entries returned by the off-heap container are copies, so the last used time updated by a get is only visible
+    * on the entry returned by that get, not on the ones read before.
+    */
+   @Override
+   public void testUpdatingLastUsed() throws Exception {
+      long idle = 600000;
+      dc.put("k", "v", null, -1, idle);
+      InternalCacheEntry ice = dc.get("k");
+      assertEquals(transienttype(), ice.getClass());
+      assertEquals(idle, ice.getMaxIdle());
+      assertEquals(-1, ice.getLifespan());
+      long oldLastUsed = ice.getLastUsed();
+
+      long oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      InternalCacheEntry touched = dc.get("k");
+      assertNotNull(touched);
+
+      // check that the last used stamp has been updated on a get
+      assertTrue(touched.getLastUsed() > oldTime);
+      assertEquals(oldLastUsed, ice.getLastUsed());
+      Thread.sleep(100); // for time calc granularity
+      assertTrue(touched.getLastUsed() < System.currentTimeMillis());
+      assertTrue(dc.peek("k").getLastUsed() >= touched.getLastUsed());
+   }
+
+   public void testOverwriteAndRemove() {
+      dc.put("k", "v1", null, -1, -1);
+      dc.put("k", "v2", null, -1, -1);
+      assertEquals(1, dc.size());
+      assertEquals("v2", dc.get("k").getValue());
+
+      InternalCacheEntry removed = dc.remove("k");
+      assertNotNull(removed);
+      assertEquals("v2", removed.getValue());
+      assertNull(dc.get("k"));
+      assertEquals(0, dc.size());
+      assertNull(dc.remove("k"));
+   }
+
+   public void testGrowthAndClear() {
+      OffHeapDataContainer offHeap = (OffHeapDataContainer) dc;
+      long emptyFootprint = offHeap.getOffHeapMemoryUsed();
+      for (int i = 0; i < 5000; i++) dc.put(i, "value" + i, null, -1, -1);
+      assertEquals(5000, dc.size());
+      for (int i = 0; i < 5000; i++) assertEquals("value" + i, dc.get(i).getValue());
+      assert offHeap.getOffHeapMemoryUsed() > emptyFootprint;
+
+      dc.clear();
+      assertEquals(0, dc.size());
+      assertNull(dc.get(1));
+   }
+
+   @SuppressWarnings("unchecked")
+   public void testLruEviction() {
+      EvictionManager evictionManager = mock(EvictionManager.class);
+      PassivationManager passivator = mock(PassivationManager.class);
+      OffHeapDataContainer bounded = (OffHeapDataContainer) OffHeapDataContainer.boundedDataContainer(1, 2, EvictionStrategy.LRU);
+      bounded.initialize(evictionManager, passivator, new InternalEntryFactoryImpl(),
+            new ConfigurationBuilder().build(), null, new TestObjectStreamMarshaller());
+      bounded.start();
+      try {
+         bounded.put("k1", "v1", null, -1, -1);
+         bounded.put("k2", "v2", null, -1, -1);
+         // touch k1 so that k2 becomes the least recently used entry
+         bounded.get("k1");
+         bounded.put("k3", "v3", null, -1, -1);
+
+         assertEquals(2, bounded.size());
+         assertNotNull(bounded.peek("k1"));
+         assertNull(bounded.peek("k2"));
+         assertNotNull(bounded.peek("k3"));
+         verify(passivator, times(1)).passivate(any(InternalCacheEntry.class));
+         verify(evictionManager, times(1)).onEntryEviction(any(Map.class));
+      } finally {
+         bounded.stop();
+      }
+   }
+
+   public void testEvictionWithAsyncStoreOnlyBoundsLiveEntries() {
+      PassivationManager passivator = mock(PassivationManager.class);
+      CacheLoaderManager cacheLoaderManager = mock(CacheLoaderManager.class);
+      when(cacheLoaderManager.getCacheStore()).thenReturn(mock(AsyncStore.class));
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.loaders().addFileCacheStore().async().enable();
+      OffHeapDataContainer bounded = (OffHeapDataContainer) OffHeapDataContainer.boundedDataContainer(1, 2, EvictionStrategy.LRU);
+      bounded.initialize(mock(EvictionManager.class), passivator, new InternalEntryFactoryImpl(),
+            builder.build(), cacheLoaderManager, new TestObjectStreamMarshaller());
+      bounded.start();
+      try {
+         bounded.put("k1", "v1", null, -1, -1);
+         bounded.put("k2", "v2", null, -1, -1);
+         bounded.put("k3", "v3", null, -1, -1);
+         // k1 is kept until the store catches up, but it must not make the next put evict more than one entry
+         verify(passivator, times(1)).passivate(any(InternalCacheEntry.class));
+         bounded.put("k4", "v4", null, -1, -1);
+         verify(passivator, times(2)).passivate(any(InternalCacheEntry.class));
+         bounded.put("k5", "v5", null, -1, -1);
+         verify(passivator, times(3)).passivate(any(InternalCacheEntry.class));
+      } finally {
+         bounded.stop();
+      }
+   }
+}
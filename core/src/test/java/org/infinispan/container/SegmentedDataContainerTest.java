@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import org.infinispan.commons.hash.MurmurHash3;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.TestAddress;
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.distribution.ch.DefaultConsistentHashFactory;
+import org.infinispan.remoting.transport.Address;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "container.SegmentedDataContainerTest")
+public class SegmentedDataContainerTest extends SimpleDataContainerTest {
+
+   private static final int NUM_SEGMENTS = 20;
+
+   @Override
+   protected DataContainer createContainer() {
+      SegmentedDataContainer dc = new SegmentedDataContainer(16, new MurmurHash3(), NUM_SEGMENTS);
+      dc.initialize(null, null, new InternalEntryFactoryImpl(),
+            new ConfigurationBuilder().build(), null);
+      return dc;
+   }
+
+   private ConsistentHash createConsistentHash(int numSegments) {
+      List<Address> members = Arrays.<Address>asList(new TestAddress(0), new TestAddress(1), new TestAddress(2));
+      return new DefaultConsistentHashFactory().create(new MurmurHash3(), 2, numSegments, members);
+   }
+
+   public void testSegmentsMatchConsistentHash() {
+      SegmentedDataContainer sdc = (SegmentedDataContainer) dc;
+      ConsistentHash ch = createConsistentHash(NUM_SEGMENTS);
+      assertTrue(sdc.isSegmentedBy(ch));
+      assertFalse(sdc.isSegmentedBy(createConsistentHash(NUM_SEGMENTS * 2)));
+
+      for (int i = 0; i < 1000; i++) {
+         assertEquals(ch.getSegment("k" + i), sdc.getSegment("k" + i));
+      }
+   }
+
+   public void testSegmentIterationAndSize() {
+      SegmentedDataContainer sdc = (SegmentedDataContainer) dc;
+      int[] expectedSizes = new int[NUM_SEGMENTS];
+      for (int i = 0; i < 1000; i++) {
+         String key = "k" + i;
+         sdc.put(key, "v" + i, null, -1, -1);
+         expectedSizes[sdc.getSegment(key)]++;
+      }
+      assertEquals(1000, sdc.size());
+
+      int total = 0;
+      for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+         assertEquals(expectedSizes[segment], sdc.sizeOfSegment(segment));
+         total += sdc.sizeOfSegment(segment);
+      }
+      assertEquals(1000, total);
+
+      Set<Integer> segments = new HashSet<Integer>(Arrays.asList(1, 5, 7));
+      int count = 0;
+      for (Iterator<InternalCacheEntry> it = sdc.iterator(segments); it.hasNext(); ) {
+         InternalCacheEntry ice = it.next();
+         assertTrue(segments.contains(sdc.getSegment(ice.getKey())));
+         count++;
+      }
+      assertEquals(expectedSizes[1] + expectedSizes[5] + expectedSizes[7], count);
+      assertFalse(sdc.iterator(Collections.<Integer>emptySet()).hasNext());
+   }
+
+   public void testRemoveAndClearAcrossSegments() {
+      for (int i = 0; i < 100; i++) dc.put(i, "v" + i, null, -1, -1);
+      assertEquals(100, dc.keySet().size());
+      for (int i = 0; i < 50; i++) assertEquals("v" + i, dc.remove(i).getValue());
+      assertEquals(50, dc.size());
+      assertEquals(50, dc.values().size());
+
+      dc.clear();
+      assertEquals(0, dc.size());
+      assertFalse(dc.iterator().hasNext());
+   }
+}
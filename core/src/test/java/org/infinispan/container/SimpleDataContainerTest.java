@@ -28,6 +28,8 @@
 import org.infinispan.container.entries.MortalCacheEntry;
 import org.infinispan.container.entries.TransientCacheEntry;
 import org.infinispan.container.entries.TransientMortalCacheEntry;
+import org.infinispan.loaders.CacheLoaderManager;
+import org.infinispan.loaders.decorators.AsyncStore;
 import org.infinispan.test.AbstractInfinispanTest;
 import org.infinispan.util.Immutables;
 import org.testng.annotations.AfterMethod;
@@ -38,7 +40,10 @@
 import java.util.Map;
 import java.util.Set;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
 
 @Test(groups = "unit", testName = "container.SimpleDataContainerTest")
 public class SimpleDataContainerTest extends AbstractInfinispanTest {
@@ -286,5 +291,23 @@ public void testGetDuringKeySetLoop() {
       }
 
       assert i == 10 : "Expected the loop to run 10 times, only ran " + i;
-   }   
+   }
+
+   public void testPurgeExpiredWithAsyncStore() throws InterruptedException {
+      CacheLoaderManager cacheLoaderManager = mock(CacheLoaderManager.class);
+      when(cacheLoaderManager.getCacheStore()).thenReturn(mock(AsyncStore.class));
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.loaders().addFileCacheStore().async().enable();
+      DefaultDataContainer container = new DefaultDataContainer(16);
+      container.initialize(null, null, new InternalEntryFactoryImpl(), builder.build(), cacheLoaderManager);
+      container.start();
+
+      container.put("k", "v", null, 10, -1);
+      assertEquals(1, container.getExpirationIndex().size());
+      Thread.sleep(ExpirationIndex.DEFAULT_TICK * 3);
+      container.purgeExpired();
+      // the index must be drained even though removals go through the async store
+      assertEquals(0, container.getExpirationIndex().size());
+      assertNull(container.peek("k"));
+   }
 }
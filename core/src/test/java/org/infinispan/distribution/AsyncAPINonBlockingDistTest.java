@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.distribution;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.util.concurrent.NotifyingFuture;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Checks that async writes don't need a thread of the async transport executor to wait for the remote responses,
+ * so that they complete even when all of its threads are busy.
+ */
+@Test(groups = "functional", testName = "distribution.AsyncAPINonBlockingDistTest")
+public class AsyncAPINonBlockingDistTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_KEYS = 500;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(2);
+      createClusteredCaches(2, builder);
+   }
+
+   public void testAsyncWritesWithBusyExecutor() throws Exception {
+      Cache<Object, Object> c1 = cache(0);
+      Cache<Object, Object> c2 = cache(1);
+      ExecutorService asyncExecutor = TestingUtil.extractGlobalComponentRegistry(manager(0))
+            .getComponent(ExecutorService.class, ASYNC_TRANSPORT_EXECUTOR);
+      final CountDownLatch release = new CountDownLatch(1);
+      // the test cache managers use at most 4 async transport threads, make sure none of them is available
+      for (int i = 0; i < 4; i++) {
+         asyncExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               release.await();
+               return null;
+            }
+         });
+      }
+
+      try {
+         List<NotifyingFuture<Object>> futures = new ArrayList<NotifyingFuture<Object>>(NUM_KEYS);
+         for (int i = 0; i < NUM_KEYS; i++) futures.add(c1.putAsync("k" + i, "v" + i));
+         for (NotifyingFuture<Object> f : futures) f.get(10, TimeUnit.SECONDS);
+
+         futures.clear();
+         for (int i = 0; i < NUM_KEYS; i += 2) futures.add(c1.removeAsync("k" + i));
+         for (NotifyingFuture<Object> f : futures) f.get(10, TimeUnit.SECONDS);
+      } finally {
+         release.countDown();
+      }
+
+      for (int i = 0; i < NUM_KEYS; i++) {
+         Object expected = i % 2 == 0 ? null : "v" + i;
+         assertEquals(expected, c1.get("k" + i));
+         assertEquals(expected, c2.get("k" + i));
+      }
+   }
+}
@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.distribution;
+
+import org.infinispan.context.Flag;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests {@link org.infinispan.AdvancedCache#getAll(java.util.Set)} on a distributed cache with L1 enabled.
+ */
+@Test(groups = "functional", testName = "distribution.GetAllDistTest")
+public class GetAllDistTest extends BaseDistFunctionalTest {
+
+   public void testGetAllFromSeveralOwners() {
+      MagicKey k1 = new MagicKey("k1", c2, c3);
+      MagicKey k2 = new MagicKey("k2", c2, c3);
+      MagicKey k3 = new MagicKey("k3", c3, c4);
+      MagicKey k4 = new MagicKey("k4", c1, c2);
+      MagicKey missing = new MagicKey("missing", c4, c2);
+      c2.put(k1, "v1");
+      c2.put(k2, "v2");
+      c3.put(k3, "v3");
+      c4.put(k4, "v4");
+
+      Set<Object> keys = new HashSet<Object>(Arrays.asList(k1, k2, k3, k4, missing));
+      Map<Object, String> values = c1.getAdvancedCache().getAll(keys);
+      assertEquals(4, values.size());
+      assertEquals("v1", values.get(k1));
+      assertEquals("v2", values.get(k2));
+      assertEquals("v3", values.get(k3));
+      assertEquals("v4", values.get(k4));
+      assertFalse(values.containsKey(missing));
+
+      assertIsInL1(c1, k1);
+      assertIsInL1(c1, k2);
+      assertIsInL1(c1, k3);
+      assertIsInContainerImmortal(c1, k4);
+      assertIsNotInL1(c1, missing);
+
+      // the second time around everything is read locally
+      assertEquals(values, c1.getAdvancedCache().getAll(keys));
+   }
+
+   public void testL1InvalidatedAfterGetAll() {
+      MagicKey k1 = new MagicKey("k1", c2, c3);
+      MagicKey k2 = new MagicKey("k2", c3, c4);
+      c2.put(k1, "v1");
+      c3.put(k2, "v2");
+
+      Set<Object> keys = new HashSet<Object>(Arrays.asList(k1, k2));
+      assertEquals(2, c1.getAdvancedCache().getAll(keys).size());
+      assertIsInL1(c1, k1);
+
+      c3.remove(k1);
+      Map<Object, String> values = c1.getAdvancedCache().getAll(keys);
+      assertEquals(Collections.<Object, String>singletonMap(k2, "v2"), values);
+   }
+
+   public void testGetAllWithSkipRemoteLookup() {
+      MagicKey remote = new MagicKey("remote", c2, c3);
+      MagicKey local = new MagicKey("local", c1, c2);
+      c2.put(remote, "v1");
+      c2.put(local, "v2");
+
+      Set<Object> keys = new HashSet<Object>(Arrays.asList(remote, local));
+      Map<Object, String> values = c1.getAdvancedCache().withFlags(Flag.SKIP_REMOTE_LOOKUP).getAll(keys);
+      assertEquals(Collections.<Object, String>singletonMap(local, "v2"), values);
+      assertIsNotInL1(c1, remote);
+   }
+
+   public void testGetAllOfNoKeys() {
+      assertTrue(c1.getAdvancedCache().getAll(Collections.emptySet()).isEmpty());
+   }
+}
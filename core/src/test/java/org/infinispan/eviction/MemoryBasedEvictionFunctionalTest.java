@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.eviction;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests that a cache bounded by memory sizes arbitrary objects by their marshalled form.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "eviction.MemoryBasedEvictionFunctionalTest")
+public class MemoryBasedEvictionFunctionalTest extends SingleCacheManagerTest {
+
+   private static final long MAX_MEMORY = 64 * 1024;
+   private static final int PAYLOAD_SIZE = 8 * 1024;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = TestCacheManagerFactory.getDefaultCacheConfiguration(false);
+      builder.eviction().maxMemory(MAX_MEMORY).strategy(EvictionStrategy.LRU)
+            .locking().concurrencyLevel(1); // a single segment, so that the whole budget is available to each entry
+      return TestCacheManagerFactory.createCacheManager(builder);
+   }
+
+   public void testPojoValuesSizedByMarshalledForm() {
+      DefaultDataContainer dc = (DefaultDataContainer) TestingUtil.extractComponent(cache, DataContainer.class);
+      cache.put("k", new Payload(PAYLOAD_SIZE));
+      assert dc.getMemoryUsed() > PAYLOAD_SIZE : "Memory used " + dc.getMemoryUsed() + " ignores the value size";
+
+      cache.remove("k");
+      assertEquals(0, dc.getMemoryUsed());
+
+      int entries = 20;
+      for (int i = 0; i < entries; i++) {
+         cache.put(i, new Payload(PAYLOAD_SIZE));
+         assert dc.getMemoryUsed() <= MAX_MEMORY : "Memory used " + dc.getMemoryUsed() + " exceeds " + MAX_MEMORY;
+      }
+      assert cache.size() < (int) (MAX_MEMORY / PAYLOAD_SIZE) : "Expected entries to be evicted, but size is " + cache.size();
+      assert cache.containsKey(entries - 1);
+   }
+
+   public static class Payload implements Serializable {
+      private static final long serialVersionUID = 2385104523096813327L;
+      private final String data;
+
+      public Payload(int size) {
+         char[] chars = new char[size];
+         Arrays.fill(chars, 'x');
+         this.data = new String(chars);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof Payload && data.equals(((Payload) o).data);
+      }
+
+      @Override
+      public int hashCode() {
+         return data.hashCode();
+      }
+   }
+}
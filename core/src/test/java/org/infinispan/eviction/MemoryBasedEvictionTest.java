@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.eviction;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.InternalCacheEntrySizeCalculator;
+import org.infinispan.container.InternalEntryFactoryImpl;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Tests eviction driven by the estimated memory taken up by the entries rather than by their number.
+ */
+@Test(groups = "unit", testName = "eviction.MemoryBasedEvictionTest")
+public class MemoryBasedEvictionTest extends AbstractInfinispanTest {
+
+   private static final long MAX_MEMORY = 64 * 1024;
+   private static final int VALUE_SIZE = 4 * 1024;
+
+   private DefaultDataContainer createContainer(EvictionStrategy strategy) {
+      DefaultDataContainer dc = (DefaultDataContainer) DefaultDataContainer.memoryBoundedDataContainer(1, MAX_MEMORY,
+            strategy, EvictionThreadPolicy.DEFAULT, new InternalCacheEntrySizeCalculator((StreamingMarshaller) null));
+      dc.initialize(mock(EvictionManager.class), mock(PassivationManager.class), new InternalEntryFactoryImpl(),
+            new ConfigurationBuilder().build(), null);
+      dc.start();
+      return dc;
+   }
+
+   public void testLRUMemoryBound() {
+      doTestMemoryBound(EvictionStrategy.LRU);
+   }
+
+   public void testLIRSMemoryBound() {
+      doTestMemoryBound(EvictionStrategy.LIRS);
+   }
+
+   public void testLRUEvictsLeastRecentlyUsed() {
+      DefaultDataContainer dc = createContainer(EvictionStrategy.LRU);
+      int fitting = (int) (MAX_MEMORY / (VALUE_SIZE + 512));
+      for (int i = 0; i < fitting; i++) dc.put(i, new byte[VALUE_SIZE], null, -1, -1);
+      assertEquals(fitting, dc.size());
+
+      // a single large value has to push out several small ones, oldest first
+      dc.put("large", new byte[VALUE_SIZE * 4], null, -1, -1);
+      assertNotNull(dc.peek("large"));
+      assertNull(dc.peek(0));
+      assertNotNull(dc.peek(fitting - 1));
+      assert dc.getMemoryUsed() <= MAX_MEMORY : "Memory used " + dc.getMemoryUsed() + " exceeds " + MAX_MEMORY;
+   }
+
+   public void testLRUKeepsRecencyAcrossRehash() {
+      doTestRecencyKeptAcrossRehash(EvictionStrategy.LRU);
+   }
+
+   public void testLIRSKeepsRecencyAcrossRehash() {
+      doTestRecencyKeptAcrossRehash(EvictionStrategy.LIRS);
+   }
+
+   public void testMemoryReleasedOnRemoveAndUpdate() {
+      DefaultDataContainer dc = createContainer(EvictionStrategy.LRU);
+      dc.put("k", new byte[VALUE_SIZE], null, -1, -1);
+      long oneValue = dc.getMemoryUsed();
+      assert oneValue >= VALUE_SIZE;
+
+      dc.put("k", new byte[VALUE_SIZE * 2], null, -1, -1);
+      assert dc.getMemoryUsed() >= oneValue + VALUE_SIZE;
+
+      dc.remove("k");
+      assertEquals(0, dc.getMemoryUsed());
+
+      dc.put("k", new byte[VALUE_SIZE], null, -1, -1);
+      dc.clear();
+      assertEquals(0, dc.getMemoryUsed());
+   }
+
+   private void doTestMemoryBound(EvictionStrategy strategy) {
+      DefaultDataContainer dc = createContainer(strategy);
+      int entries = 100;
+      for (int i = 0; i < entries; i++) {
+         dc.put(i, new byte[VALUE_SIZE], null, -1, -1);
+         assert dc.getMemoryUsed() <= MAX_MEMORY : "Memory used " + dc.getMemoryUsed() + " exceeds " + MAX_MEMORY;
+      }
+      assert dc.size() > 0;
+      assert dc.size() < entries : "Expected some entries to be evicted, but size is " + dc.size();
+      assertNotNull(dc.peek(entries - 1));
+   }
+
+   private void doTestRecencyKeptAcrossRehash(EvictionStrategy strategy) {
+      DefaultDataContainer dc = createContainer(strategy);
+      // enough small entries to grow the segment table several times without evicting anything
+      int entries = 200;
+      for (int i = 0; i < entries; i++) dc.put(i, new byte[64], null, -1, -1);
+      assertEquals(entries, dc.size());
+
+      dc.put("large", new byte[(int) (MAX_MEMORY / 2)], null, -1, -1);
+      assertNull(dc.peek(0));
+      // entries copied by the rehashes must not have been moved ahead of the ones inserted after them
+      boolean present = false;
+      for (int i = 0; i < entries; i++) {
+         if (dc.peek(i) != null) {
+            present = true;
+         } else {
+            assert !present : "Entry " + i + " was evicted before older entries";
+         }
+      }
+      assert present;
+   }
+}
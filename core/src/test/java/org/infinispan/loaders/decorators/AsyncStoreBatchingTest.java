@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders.decorators;
+
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.dummy.DummyInMemoryCacheStore;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.test.fwk.TestInternalCacheEntryFactory;
+import org.infinispan.transaction.xa.GlobalTransaction;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests how the async store groups the modifications it hands to the underlying store.
+ *
+ * @since 5.2
+ */
+@Test(groups = "unit", testName = "loaders.decorators.AsyncStoreBatchingTest")
+public class AsyncStoreBatchingTest extends AbstractInfinispanTest {
+
+   private AsyncStore store;
+   private final List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() throws CacheLoaderException {
+      if (store != null) store.stop();
+      store = null;
+      batchSizes.clear();
+   }
+
+   private AsyncStore createStore(AsyncStoreConfig asyncConfig, String name) throws CacheLoaderException {
+      DummyInMemoryCacheStore underlying = new DummyInMemoryCacheStore() {
+         @Override
+         public void prepare(List<? extends Modification> mods, GlobalTransaction tx, boolean isOnePhase) throws CacheLoaderException {
+            batchSizes.add(mods.size());
+            super.prepare(mods, tx, isOnePhase);
+         }
+      };
+      AsyncStore asyncStore = new AsyncStore(underlying, asyncConfig);
+      asyncStore.init(new DummyInMemoryCacheStore.Cfg().storeName(name), null, null);
+      asyncStore.start();
+      return asyncStore;
+   }
+
+   public void testBatchesAreBoundedByCount() throws Exception {
+      store = createStore(new AsyncStoreConfig().maxBatchSize(10).flushInterval(60000L), "testBatchesAreBoundedByCount");
+      for (int i = 0; i < 25; i++) store.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+
+      // full batches are flushed right away, the remaining modifications when the store is stopped
+      store.stop();
+      store = null;
+
+      int applied = 0;
+      for (int size : batchSizes) {
+         assert size <= 10 : "Batch of " + size + " modifications exceeds the maximum batch size";
+         applied += size;
+      }
+      assertEquals(25, applied);
+   }
+
+   public void testUpdatesAreCoalescedWithinFlushInterval() throws Exception {
+      store = createStore(new AsyncStoreConfig().flushInterval(60000L), "testUpdatesAreCoalescedWithinFlushInterval");
+      for (int i = 0; i < 50; i++) store.store(TestInternalCacheEntryFactory.create("k", "v" + i));
+
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return store.getPendingModifications() == 1;
+         }
+      });
+      assertEquals(0, batchSizes.size());
+
+      // stopping the store flushes the pending modifications
+      AsyncStore stopped = store;
+      store.stop();
+      store = null;
+      assertEquals(1, batchSizes.size());
+      assertEquals(1, (int) batchSizes.get(0));
+      assertEquals(50.0, stopped.getCoalescingRatio());
+      assertEquals(1, stopped.getFlushes());
+   }
+
+   public void testFlushIntervalElapses() throws Exception {
+      store = createStore(new AsyncStoreConfig().flushInterval(100L), "testFlushIntervalElapses");
+      store.store(TestInternalCacheEntryFactory.create("k", "v"));
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return store.getFlushes() == 1;
+         }
+      });
+      assertEquals(0, store.getPendingModifications());
+   }
+}
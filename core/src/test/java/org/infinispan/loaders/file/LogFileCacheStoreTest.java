@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.loaders.BaseCacheStoreTest;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestInternalCacheEntryFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "loaders.file.LogFileCacheStoreTest")
+public class LogFileCacheStoreTest extends BaseCacheStoreTest {
+
+   LogFileCacheStore lfcs;
+   String tmpDirectory;
+
+   @BeforeClass
+   protected void setUpTempDir() {
+      tmpDirectory = TestingUtil.tmpDirectory(this);
+   }
+
+   @AfterClass(alwaysRun = true)
+   protected void clearTempDir() {
+      TestingUtil.recursiveFileRemove(tmpDirectory);
+      new File(tmpDirectory).mkdirs();
+   }
+
+   @Override
+   protected CacheStore createCacheStore() throws CacheLoaderException {
+      clearTempDir();
+      lfcs = createStore(4096);
+      return lfcs;
+   }
+
+   private LogFileCacheStore createStore(int maxFileSize) throws CacheLoaderException {
+      LogFileCacheStore store = new LogFileCacheStore();
+      LogFileCacheStoreConfig cfg = new LogFileCacheStoreConfig()
+         .location(tmpDirectory)
+         .maxFileSize(maxFileSize)
+         .fetchPersistentState(true)
+         .purgeSynchronously(true);
+      store.init(cfg, getCache(), getMarshaller());
+      store.start();
+      return store;
+   }
+
+   public void testRestartReplaysUpdatesAndRemovals() throws Exception {
+      for (int i = 0; i < 100; i++) cs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+      for (int i = 0; i < 100; i += 2) cs.store(TestInternalCacheEntryFactory.create("k" + i, "updated" + i));
+      for (int i = 0; i < 100; i += 3) cs.remove("k" + i);
+      assertTrue(lfcs.getFileCount() > 1);
+
+      cs.stop();
+      cs.start();
+
+      for (int i = 0; i < 100; i++) {
+         if (i % 3 == 0)
+            assertNull(cs.load("k" + i));
+         else
+            assertEquals(i % 2 == 0 ? "updated" + i : "v" + i, cs.load("k" + i).getValue());
+      }
+   }
+
+   public void testCompactionReclaimsOverwrittenRecords() throws Exception {
+      for (int i = 0; i < 2000; i++) cs.store(TestInternalCacheEntryFactory.create("k" + (i % 10), "v" + i));
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return lfcs.getFileCount() <= 3;
+         }
+      });
+      for (int i = 0; i < 10; i++) assertEquals("v" + (1990 + i), cs.load("k" + i).getValue());
+
+      cs.stop();
+      cs.start();
+      assertEquals(10, cs.loadAll().size());
+      for (int i = 0; i < 10; i++) assertEquals("v" + (1990 + i), cs.load("k" + i).getValue());
+   }
+
+   public void testRemovalsSurviveCompaction() throws Exception {
+      for (int i = 0; i < 50; i++) cs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+      for (int i = 0; i < 50; i++) cs.remove("k" + i);
+      for (int i = 0; i < 1000; i++) cs.store(TestInternalCacheEntryFactory.create("other", "v" + i));
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return lfcs.getFileCount() <= 3;
+         }
+      });
+
+      cs.stop();
+      cs.start();
+      for (int i = 0; i < 50; i++) assertFalse(cs.containsKey("k" + i));
+      assertEquals("v999", cs.load("other").getValue());
+   }
+
+   public void testRemovalsDroppedOnceShadowedRecordsAreGone() throws Exception {
+      for (int i = 0; i < 50; i++) cs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+      for (int i = 0; i < 50; i++) cs.remove("k" + i);
+      assertEquals(50, countRemovalRecords());
+      eventually(new Condition() {
+         int round;
+         @Override
+         public boolean isSatisfied() throws Exception {
+            // keep sealing files, so that the ones holding the removed records get compacted away
+            for (int i = 0; i < 100; i++) cs.store(TestInternalCacheEntryFactory.create("other", "v" + round++));
+            return countRemovalRecords() == 0;
+         }
+      });
+
+      cs.stop();
+      cs.start();
+      for (int i = 0; i < 50; i++) assertFalse(cs.containsKey("k" + i));
+   }
+
+   private int countRemovalRecords() throws Exception {
+      int count = 0;
+      File[] logFiles = lfcs.getRoot().listFiles(LogFileCacheStore.LOG_FILES_FILTER);
+      for (File logFile : logFiles) {
+         DataInputStream in;
+         try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
+         } catch (FileNotFoundException e) {
+            // deleted by a compaction in the meantime
+            continue;
+         }
+         try {
+            long remaining = logFile.length();
+            while (remaining >= LogFileCacheStore.HEADER_SIZE) {
+               int keyLength = in.readInt();
+               int valueLength = in.readInt();
+               in.readLong();
+               if (valueLength < 0) count++;
+               int skip = keyLength + Math.max(valueLength, 0);
+               in.skipBytes(skip);
+               remaining -= LogFileCacheStore.HEADER_SIZE + skip;
+            }
+         } catch (EOFException e) {
+            // a file being compacted or appended to concurrently
+         } finally {
+            in.close();
+         }
+      }
+      return count;
+   }
+
+   public void testIncompleteTrailingRecordIsDiscarded() throws Exception {
+      cs.store(TestInternalCacheEntryFactory.create("k1", "v1"));
+      cs.stop();
+
+      File logFile = new File(lfcs.getRoot(), "0" + LogFileCacheStore.FILE_SUFFIX);
+      assertTrue(logFile.exists());
+      long length = logFile.length();
+      FileOutputStream out = new FileOutputStream(logFile, true);
+      try {
+         // the header of a record whose key and value never made it to disk
+         out.write(new byte[] {0, 0, 0, 10, 0, 0, 0, 20, -1, -1, -1, -1, -1, -1, -1, -1});
+      } finally {
+         out.close();
+      }
+
+      cs.start();
+      assertEquals(length, logFile.length());
+      assertEquals("v1", cs.load("k1").getValue());
+      cs.store(TestInternalCacheEntryFactory.create("k2", "v2"));
+      cs.stop();
+      cs.start();
+      assertEquals("v1", cs.load("k1").getValue());
+      assertEquals("v2", cs.load("k2").getValue());
+   }
+}
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.lock;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.locks.LightweightOwnableLock;
+import org.infinispan.util.concurrent.locks.containers.LightweightStripedLockContainer;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "lock.LightweightLockContainerTest")
+public class LightweightLockContainerTest extends AbstractInfinispanTest {
+
+   public void testReentrancyAndOwnership() throws Exception {
+      LightweightStripedLockContainer lc = new LightweightStripedLockContainer(16);
+      Object owner = new Object();
+      Object other = new Object();
+
+      LightweightOwnableLock lock = lc.acquireLock(owner, "k", 0, TimeUnit.MILLISECONDS);
+      assertNotNull(lock);
+      assertNotNull(lc.acquireLock(owner, "k", 0, TimeUnit.MILLISECONDS));
+      assertEquals(2, lock.getHoldCount(owner));
+      assertTrue(lc.ownsLock("k", owner));
+      assertFalse(lc.ownsLock("k", other));
+      assertEquals(1, lc.getNumLocksHeld());
+
+      assertNull(lc.acquireLock(other, "k", 10, TimeUnit.MILLISECONDS));
+      // releasing as a non owner is a no-op
+      lc.releaseLock(other, "k");
+      assertTrue(lc.isLocked("k"));
+
+      lc.releaseLock(owner, "k");
+      assertTrue(lc.isLocked("k"));
+      lc.releaseLock(owner, "k");
+      assertFalse(lc.isLocked("k"));
+      assertEquals(0, lc.getNumLocksHeld());
+      assertNotNull(lc.acquireLock(other, "k", 0, TimeUnit.MILLISECONDS));
+   }
+
+   public void testWaitsForRelease() throws Exception {
+      final LightweightStripedLockContainer lc = new LightweightStripedLockContainer(16);
+      Object owner = new Object();
+      lc.acquireLock(owner, "k", 0, TimeUnit.MILLISECONDS);
+
+      Future<LightweightOwnableLock> waiter = fork(new Callable<LightweightOwnableLock>() {
+         @Override
+         public LightweightOwnableLock call() throws Exception {
+            return lc.acquireLock(new Object(), "k", 10, TimeUnit.SECONDS);
+         }
+      });
+      Thread.sleep(50);
+      assertFalse(waiter.isDone());
+      lc.releaseLock(owner, "k");
+      assertNotNull(waiter.get(10, TimeUnit.SECONDS));
+   }
+
+   public void testMutualExclusion() throws Exception {
+      final LightweightStripedLockContainer lc = new LightweightStripedLockContainer(4);
+      final int[] counter = new int[1];
+      final int threads = 4;
+      final int increments = 10000;
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < threads; t++) {
+         futures.add(fork(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               Object owner = new Object();
+               for (int i = 0; i < increments; i++) {
+                  assertNotNull(lc.acquireLock(owner, "k", 10, TimeUnit.SECONDS));
+                  try {
+                     counter[0]++;
+                  } finally {
+                     lc.releaseLock(owner, "k");
+                  }
+               }
+               return null;
+            }
+         }));
+      }
+      for (Future<Void> f : futures) f.get(60, TimeUnit.SECONDS);
+      // the lock's volatile owner field orders the updates of the counter
+      assertEquals(threads * increments, counter[0]);
+   }
+}
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.lock;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.util.concurrent.TimeoutException;
+import org.infinispan.util.concurrent.locks.containers.LightweightStripedLockContainer;
+import org.infinispan.util.concurrent.locks.containers.LockContainer;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests that unconditional single key writes do not wait for locks when lock elision is enabled, while conditional
+ * writes still do.
+ */
+@Test(groups = "functional", testName = "lock.NonTxLockElisionTest")
+public class NonTxLockElisionTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.locking().lightweightLocks(true).lockElision(true).lockAcquisitionTimeout(50);
+      return TestCacheManagerFactory.createCacheManager(builder);
+   }
+
+   public void testUnconditionalWritesElideLocks() throws Exception {
+      LockContainer<?> lc = TestingUtil.extractComponent(cache, LockContainer.class);
+      assertTrue(lc instanceof LightweightStripedLockContainer);
+      Object otherOwner = new Object();
+      lc.acquireLock(otherOwner, "k", 0, TimeUnit.MILLISECONDS);
+      try {
+         cache.put("k", "v1");
+         assertEquals("v1", cache.get("k"));
+         cache.remove("k");
+         assertNull(cache.get("k"));
+
+         try {
+            cache.putIfAbsent("k", "v2");
+            assert false : "Conditional writes should still acquire the lock";
+         } catch (TimeoutException expected) {
+         }
+         try {
+            cache.replace("k", "v3");
+            assert false : "Conditional writes should still acquire the lock";
+         } catch (TimeoutException expected) {
+         }
+      } finally {
+         lc.releaseLock(otherOwner, "k");
+      }
+      assertNull(cache.putIfAbsent("k", "v2"));
+      assertEquals("v2", cache.get("k"));
+   }
+}
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.marshall;
+
+import org.infinispan.io.ByteBuffer;
+import org.infinispan.io.ExposedByteArrayOutputStream;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
+
+/**
+ * Tests the reuse and the bounded retention of the marshalling output buffers.
+ */
+@Test(groups = "unit", testName = "marshall.OutputBufferPoolTest")
+public class OutputBufferPoolTest {
+
+   private static final int MAX_RETAINED = 1024;
+
+   public void testSmallBuffersReused() {
+      OutputBufferPool pool = newPool();
+      ExposedByteArrayOutputStream first = pool.acquire(64);
+      first.write(1);
+      pool.release(first);
+
+      ExposedByteArrayOutputStream second = pool.acquire(64);
+      assertSame(first, second);
+      assertEquals(0, second.size());
+      assertEquals(0, second.getResizeCount());
+      assertEquals(2, pool.getAcquired());
+      assertEquals(1, pool.getReused());
+   }
+
+   public void testLargeBuffersNotRetained() {
+      OutputBufferPool pool = newPool();
+      ExposedByteArrayOutputStream large = pool.acquire(MAX_RETAINED * 2);
+      pool.release(large);
+      assertNotSame(large, pool.acquire(MAX_RETAINED * 2));
+
+      ExposedByteArrayOutputStream grown = pool.acquire(16);
+      grown.write(new byte[MAX_RETAINED * 2], 0, MAX_RETAINED * 2);
+      assert grown.getResizeCount() > 0;
+      pool.release(grown);
+      assert pool.getResizes() > 0;
+      assertNotSame(grown, pool.acquire(16));
+   }
+
+   public void testNestedAcquisitions() {
+      OutputBufferPool pool = newPool();
+      ExposedByteArrayOutputStream outer = pool.acquire(64);
+      ExposedByteArrayOutputStream inner = pool.acquire(64);
+      assertNotSame(outer, inner);
+      pool.release(inner);
+      pool.release(outer);
+
+      ExposedByteArrayOutputStream a = pool.acquire(64);
+      ExposedByteArrayOutputStream b = pool.acquire(64);
+      ExposedByteArrayOutputStream c = pool.acquire(64);
+      assertSame(outer, a);
+      assertSame(inner, b);
+      assertNotSame(a, c);
+      assertNotSame(b, c);
+   }
+
+   public void testPooledContentsCopiedOut() {
+      OutputBufferPool pool = newPool();
+      ExposedByteArrayOutputStream baos = pool.acquire(64);
+      baos.write(new byte[]{1, 2, 3}, 0, 3);
+      ByteBuffer buffer = pool.toBuffer(baos);
+      assertEquals(3, buffer.getBuf().length);
+      assertEquals(3, buffer.getLength());
+
+      // reusing the pooled stream must not affect the buffer handed out
+      ExposedByteArrayOutputStream reused = pool.acquire(64);
+      assertSame(baos, reused);
+      reused.write(new byte[]{9, 9, 9}, 0, 3);
+      assertEquals(1, buffer.getBuf()[0]);
+      assertEquals(3, buffer.getBuf()[2]);
+   }
+
+   public void testUnpooledContentsHandedOver() {
+      OutputBufferPool pool = newPool();
+      ExposedByteArrayOutputStream baos = pool.acquire(MAX_RETAINED * 2);
+      baos.write(new byte[]{1, 2, 3}, 0, 3);
+      ByteBuffer buffer = pool.toBuffer(baos);
+      assertSame(baos.getRawBuffer(), buffer.getBuf());
+      assertEquals(3, buffer.getLength());
+   }
+
+   private OutputBufferPool newPool() {
+      OutputBufferPool pool = new OutputBufferPool(MAX_RETAINED, 2);
+      pool.setStatisticsEnabled(true);
+      return pool;
+   }
+}
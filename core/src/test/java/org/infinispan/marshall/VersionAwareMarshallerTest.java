@@ -208,6 +208,31 @@ public void testMarshalledValueGetMarshalling() throws Exception {
       assert rmv.get() instanceof Pojo;
    }
 
+   public void testMarshalledValuesInCacheRpcCommand() throws Exception {
+      String cacheName = EmbeddedCacheManager.DEFAULT_CACHE_NAME;
+      Person p = new Person();
+      p.setName("Bob Dylan");
+      MarshalledValue key = new MarshalledValue("key", true, marshaller);
+      MarshalledValue value = new MarshalledValue(p, true, marshaller);
+      MarshalledValue other = new MarshalledValue(new Pojo(), true, marshaller);
+      PutKeyValueCommand put = new PutKeyValueCommand(key, value, false, null, 0, 0, Collections.<Flag>emptySet());
+      PutKeyValueCommand otherPut = new PutKeyValueCommand("other", other, false, null, 0, 0, Collections.<Flag>emptySet());
+      MultipleRpcCommand c = new MultipleRpcCommand(Arrays.<ReplicableCommand>asList(put, otherPut), cacheName);
+
+      byte[] bytes = marshaller.objectToByteBuffer(c);
+      MultipleRpcCommand rc = (MultipleRpcCommand) marshaller.objectFromByteBuffer(bytes);
+      PutKeyValueCommand rput = (PutKeyValueCommand) rc.getCommands()[0];
+      PutKeyValueCommand rotherPut = (PutKeyValueCommand) rc.getCommands()[1];
+      MarshalledValue rvalue = (MarshalledValue) rput.getValue();
+      // values stay serialized until needed
+      assert rvalue.instance == null;
+      assert rvalue.getRaw().equals(value.getRaw());
+      assert rput.getKey().equals(key);
+      assert rotherPut.getValue().equals(other);
+      assert rvalue.get().equals(p);
+      assert ((MarshalledValue) rotherPut.getValue()).get() instanceof Pojo;
+   }
+
    public void testSingletonListMarshalling() throws Exception {
       GlobalTransaction gtx = gtf.newGlobalTransaction(new JGroupsAddress(new IpAddress(12345)), false);
       List l = Collections.singletonList(gtx);
@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.notifications;
+
+import org.infinispan.context.InvocationContext;
+import org.infinispan.context.impl.NonTxInvocationContext;
+import org.infinispan.notifications.cachelistener.CacheNotifierImpl;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests phase filtering and batched delivery of listener notifications.
+ */
+@Test(groups = "unit", testName = "notifications.ListenerDeliveryTest")
+public class ListenerDeliveryTest extends AbstractInfinispanTest {
+
+   CacheNotifierImpl n;
+   ManualExecutor executor;
+   InvocationContext ctx;
+
+   @BeforeMethod
+   public void setUp() {
+      n = new CacheNotifierImpl();
+      executor = new ManualExecutor();
+      n.injectExecutor(executor);
+      ctx = new NonTxInvocationContext();
+   }
+
+   public void testPostOnlyObservation() {
+      PostOnlyListener l = new PostOnlyListener();
+      n.addListener(l);
+      n.notifyCacheEntryModified("k", "v", true, ctx);
+      n.notifyCacheEntryModified("k", "v", false, ctx);
+
+      assertEquals(1, l.events.size());
+      assertFalse(l.events.get(0).isPre());
+   }
+
+   public void testPreOnlyObservation() {
+      PreOnlyListener l = new PreOnlyListener();
+      n.addListener(l);
+      n.notifyCacheEntryModified("k", "v", true, ctx);
+      n.notifyCacheEntryModified("k", "v", false, ctx);
+
+      assertEquals(1, l.events.size());
+      assertTrue(l.events.get(0).isPre());
+   }
+
+   public void testBatchedDelivery() {
+      BatchedListener l = new BatchedListener();
+      n.addListener(l);
+      for (int i = 0; i < 3; i++) n.notifyCacheEntryModified(i, "v" + i, false, ctx);
+
+      // a single drain task is scheduled for all the queued events
+      assertEquals(1, executor.tasks.size());
+      executor.runAll();
+      assertEquals(1, l.batches.size());
+      List<CacheEntryModifiedEvent> batch = l.batches.get(0);
+      assertEquals(3, batch.size());
+      for (int i = 0; i < 3; i++) assertEquals(i, batch.get(i).getKey());
+
+      n.notifyCacheEntryModified("k", "v", false, ctx);
+      executor.runAll();
+      assertEquals(2, l.batches.size());
+      assertEquals(1, l.batches.get(1).size());
+   }
+
+   public void testLargeBacklogIsSplit() {
+      BatchedListener l = new BatchedListener();
+      n.addListener(l);
+      int events = AbstractListenerImpl.MAX_BATCH_SIZE + 10;
+      for (int i = 0; i < events; i++) n.notifyCacheEntryModified(i, "v", false, ctx);
+      executor.runAll();
+
+      assertEquals(2, l.batches.size());
+      assertEquals(AbstractListenerImpl.MAX_BATCH_SIZE, l.batches.get(0).size());
+      assertEquals(10, l.batches.get(1).size());
+   }
+
+   @Test(expectedExceptions = IncorrectListenerException.class)
+   public void testBatchedListenerMustBeAsync() {
+      n.addListener(new SyncBatchedListener());
+   }
+
+   @Test(expectedExceptions = IncorrectListenerException.class)
+   public void testBatchedListenerMustAcceptList() {
+      n.addListener(new BatchedSingleEventListener());
+   }
+
+   @Listener(observation = Listener.Observation.POST)
+   public static class PostOnlyListener {
+      final List<CacheEntryModifiedEvent> events = new ArrayList<CacheEntryModifiedEvent>();
+
+      @CacheEntryModified
+      public void modified(CacheEntryModifiedEvent e) {
+         events.add(e);
+      }
+   }
+
+   @Listener(observation = Listener.Observation.PRE)
+   public static class PreOnlyListener {
+      final List<CacheEntryModifiedEvent> events = new ArrayList<CacheEntryModifiedEvent>();
+
+      @CacheEntryModified
+      public void modified(CacheEntryModifiedEvent e) {
+         events.add(e);
+      }
+   }
+
+   @Listener(sync = false, batched = true)
+   public static class BatchedListener {
+      final List<List<CacheEntryModifiedEvent>> batches = new ArrayList<List<CacheEntryModifiedEvent>>();
+
+      @CacheEntryModified
+      public void modified(List<CacheEntryModifiedEvent> events) {
+         batches.add(events);
+      }
+   }
+
+   @Listener(batched = true)
+   public static class SyncBatchedListener {
+      @CacheEntryModified
+      public void modified(List<CacheEntryModifiedEvent> events) {
+      }
+   }
+
+   @Listener(sync = false, batched = true)
+   public static class BatchedSingleEventListener {
+      @CacheEntryModified
+      public void modified(CacheEntryModifiedEvent event) {
+      }
+   }
+
+   /**
+    * Runs submitted tasks only when asked to, so that the test controls when batches are drained.
+    */
+   static class ManualExecutor extends AbstractExecutorService {
+      final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+      void runAll() {
+         while (!tasks.isEmpty()) tasks.removeFirst().run();
+      }
+
+      @Override
+      public void execute(Runnable command) {
+         tasks.add(command);
+      }
+
+      @Override
+      public void shutdown() {
+      }
+
+      @Override
+      public List<Runnable> shutdownNow() {
+         return Collections.emptyList();
+      }
+
+      @Override
+      public boolean isShutdown() {
+         return false;
+      }
+
+      @Override
+      public boolean isTerminated() {
+         return false;
+      }
+
+      @Override
+      public boolean awaitTermination(long timeout, TimeUnit unit) {
+         return true;
+      }
+   }
+}
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.replication;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.commands.remote.MultipleRpcCommand;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.commands.write.RemoveCommand;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.remoting.ReplicationQueueImpl;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests the size and byte based batching and the coalescing of writes done by {@link ReplicationQueueImpl}.
+ *
+ * @since 5.2
+ */
+@Test(testName = "replication.ReplicationQueueBatchingTest", groups = "unit")
+public class ReplicationQueueBatchingTest extends AbstractInfinispanTest {
+
+   private ReplicationQueueImpl queue;
+   private CommandsFactory commandsFactory;
+
+   @AfterMethod(alwaysRun = true)
+   public void stopQueue() {
+      if (queue != null) queue.stop();
+   }
+
+   private ReplicationQueueImpl createQueue(int maxElements, long maxBytes) {
+      commandsFactory = mock(CommandsFactory.class);
+      when(commandsFactory.buildReplicateCommand(anyListOf(ReplicableCommand.class)))
+            .thenReturn(new MultipleRpcCommand(""));
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.clustering().cacheMode(CacheMode.REPL_ASYNC)
+            .async().useReplQueue(true).replQueueInterval(0).replQueueMaxElements(maxElements).replQueueMaxBytes(maxBytes);
+      queue = new ReplicationQueueImpl();
+      queue.injectDependencies(mock(ScheduledExecutorService.class), mock(RpcManager.class), builder.build(), commandsFactory, "");
+      queue.start();
+      return queue;
+   }
+
+   @SuppressWarnings("unchecked")
+   private List<ReplicableCommand> sentBatch() {
+      ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+      verify(commandsFactory).buildReplicateCommand(captor.capture());
+      return captor.getValue();
+   }
+
+   private static PutKeyValueCommand put(Object key, Object value) {
+      return new PutKeyValueCommand(key, value, false, null, -1, -1, null);
+   }
+
+   public void testOverwrittenWritesAreCoalesced() {
+      createQueue(100, 0);
+      PutKeyValueCommand first = put("k", "v1");
+      PutKeyValueCommand second = put("k", "v2");
+      PutKeyValueCommand putIfAbsent = new PutKeyValueCommand("j", "v", true, null, -1, -1, null);
+      RemoveCommand remove = new RemoveCommand("k", null, null, null);
+      queue.add(first);
+      queue.add(second);
+      queue.add(putIfAbsent);
+      queue.add(remove);
+
+      assertEquals(4, queue.flush());
+      assertEquals(Arrays.<ReplicableCommand>asList(putIfAbsent, remove), sentBatch());
+      assertEquals(2, queue.getCoalescedCommands());
+      assertEquals(0, queue.getElementsCount());
+   }
+
+   public void testConditionalWritesDoNotOverwrite() {
+      createQueue(100, 0);
+      PutKeyValueCommand put = put("k", "v1");
+      RemoveCommand conditionalRemove = new RemoveCommand("k", "v1", null, null);
+      queue.add(put);
+      queue.add(conditionalRemove);
+
+      queue.flush();
+      assertEquals(Arrays.<ReplicableCommand>asList(put, conditionalRemove), sentBatch());
+      assertEquals(0, queue.getCoalescedCommands());
+   }
+
+   public void testFlushOnMaxElements() {
+      createQueue(3, 0);
+      queue.add(put("k1", "v"));
+      queue.add(put("k2", "v"));
+      verify(commandsFactory, never()).buildReplicateCommand(anyListOf(ReplicableCommand.class));
+      queue.add(put("k3", "v"));
+
+      assertEquals(3, sentBatch().size());
+      assertEquals(0, queue.getElementsCount());
+      assertEquals("1=0, 2-10=1, 11-100=0, 101-1000=0, >1000=0", queue.getBatchSizeHistogram());
+   }
+
+   public void testFlushOnMaxBytes() {
+      createQueue(1000, 4096);
+      queue.add(put("k1", new byte[1024]));
+      queue.add(put("k2", new byte[1024]));
+      verify(commandsFactory, never()).buildReplicateCommand(anyListOf(ReplicableCommand.class));
+      assert queue.getQueuedBytes() > 2048;
+
+      queue.add(put("k3", new byte[4096]));
+      assertEquals(3, sentBatch().size());
+      assertEquals(0, queue.getElementsCount());
+      assertEquals(0, queue.getQueuedBytes());
+      assertEquals(1, queue.getFlushes());
+   }
+}
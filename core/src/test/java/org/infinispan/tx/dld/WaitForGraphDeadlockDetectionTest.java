@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.tx.dld;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.PerCacheExecutorThread;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.transaction.xa.DldGlobalTransaction;
+import org.infinispan.util.concurrent.locks.DeadlockDetectedException;
+import org.infinispan.util.concurrent.locks.WaitForGraph;
+import org.infinispan.util.concurrent.locks.WaitForGraphLockManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.transaction.RollbackException;
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests wait-for graph based deadlock detection for local caches.
+ */
+@Test(groups = "functional", testName = "tx.dld.WaitForGraphDeadlockDetectionTest")
+public class WaitForGraphDeadlockDetectionTest extends SingleCacheManagerTest {
+
+   private PerCacheExecutorThread t1;
+   private PerCacheExecutorThread t2;
+   private WaitForGraphLockManager lockManager;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = getDefaultStandaloneCacheConfig(true);
+      builder.transaction().lockingMode(LockingMode.PESSIMISTIC)
+            .deadlockDetection().enable().waitForGraph(true).spinDuration(20)
+            .locking().useLockStriping(false).lockAcquisitionTimeout(30000)
+            .jmxStatistics().enable();
+      cacheManager = TestCacheManagerFactory.createCacheManager(builder);
+      cache = cacheManager.getCache();
+      lockManager = (WaitForGraphLockManager) TestingUtil.extractLockManager(cache);
+      return cacheManager;
+   }
+
+   @BeforeMethod
+   public void startExecutors() {
+      t1 = new PerCacheExecutorThread(cache, 0);
+      t2 = new PerCacheExecutorThread(cache, 1);
+      lockManager.resetStatistics();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void stopExecutors() {
+      t1.stopThread();
+      t2.stopThread();
+   }
+
+   public void testYoungestTransactionIsRolledBack() throws Exception {
+      assertEquals(t1.execute(PerCacheExecutorThread.Operations.BEGIN_TX), PerCacheExecutorThread.OperationsResult.BEGIN_TX_OK);
+      assertEquals(t2.execute(PerCacheExecutorThread.Operations.BEGIN_TX), PerCacheExecutorThread.OperationsResult.BEGIN_TX_OK);
+
+      t1.setKeyValue("k1", "value_1_t1");
+      assertEquals(t1.execute(PerCacheExecutorThread.Operations.PUT_KEY_VALUE), PerCacheExecutorThread.OperationsResult.PUT_KEY_VALUE_OK);
+      // make sure t2 is the youngest transaction
+      Thread.sleep(10);
+      t2.setKeyValue("k2", "value_2_t2");
+      assertEquals(t2.execute(PerCacheExecutorThread.Operations.PUT_KEY_VALUE), PerCacheExecutorThread.OperationsResult.PUT_KEY_VALUE_OK);
+
+      t1.setKeyValue("k2", "value_2_t1");
+      t2.setKeyValue("k1", "value_1_t2");
+      t1.executeNoResponse(PerCacheExecutorThread.Operations.PUT_KEY_VALUE);
+      t2.executeNoResponse(PerCacheExecutorThread.Operations.PUT_KEY_VALUE);
+
+      // t2 is rolled back long before the lock acquisition timeout
+      Object response2 = t2.waitForResponse();
+      assert response2 instanceof DeadlockDetectedException : "Unexpected response " + response2;
+      assertEquals(t2.execute(PerCacheExecutorThread.Operations.COMMIT_TX).getClass(), RollbackException.class);
+
+      assertEquals(t1.waitForResponse(), PerCacheExecutorThread.OperationsResult.PUT_KEY_VALUE_OK);
+      assertEquals(t1.execute(PerCacheExecutorThread.Operations.COMMIT_TX), PerCacheExecutorThread.OperationsResult.COMMIT_TX_OK);
+
+      assertEquals(cache.get("k1"), "value_1_t1");
+      assertEquals(cache.get("k2"), "value_2_t1");
+      assertEquals(lockManager.getNumberOfLocksHeld(), 0);
+      assertEquals(lockManager.getDetectedLocalDeadlocks(), 1);
+   }
+
+   public void testStaleVictimMarksPurgedWhenMarkingVictims() throws Exception {
+      WaitForGraph graph = (WaitForGraph) TestingUtil.extractField(lockManager, "graph");
+      DldGlobalTransaction stale = new DldGlobalTransaction(null, false);
+      stale.setId(1000);
+      DldGlobalTransaction fresh = new DldGlobalTransaction(null, false);
+      fresh.setId(1001);
+
+      // a victim that never waits on this node leaves its mark behind
+      lockManager.markVictims(Collections.singletonList(stale));
+      Thread.sleep(10);
+      long lockAcquisitionTimeout = cache.getCacheConfiguration().locking().lockAcquisitionTimeout();
+      cache.getCacheConfiguration().locking().lockAcquisitionTimeout(1);
+      try {
+         lockManager.markVictims(Collections.singletonList(fresh));
+      } finally {
+         cache.getCacheConfiguration().locking().lockAcquisitionTimeout(lockAcquisitionTimeout);
+      }
+      assertFalse(graph.consumeVictim(stale));
+      assertTrue(graph.consumeVictim(fresh));
+   }
+}
@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.tx.dld;
+
+import org.infinispan.transaction.xa.DldGlobalTransaction;
+import org.infinispan.util.concurrent.locks.WaitForGraph;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the cycle detection and victim selection of the {@link WaitForGraph}.
+ */
+@Test(groups = "unit", testName = "tx.dld.WaitForGraphTest")
+public class WaitForGraphTest {
+
+   private static DldGlobalTransaction tx(long id, long creationTime) {
+      DldGlobalTransaction tx = new DldGlobalTransaction(null, false);
+      tx.setId(id);
+      tx.setCoinToss(id);
+      tx.setCreationTime(creationTime);
+      return tx;
+   }
+
+   public void testLocalCycle() {
+      DldGlobalTransaction oldest = tx(1, 100), middle = tx(2, 200), youngest = tx(3, 300);
+      WaitForGraph graph = new WaitForGraph();
+      graph.startWaiting(oldest, middle);
+      graph.startWaiting(middle, youngest);
+      assertNull(graph.findLocalVictim(oldest));
+
+      graph.startWaiting(youngest, oldest);
+      assertEquals(youngest, graph.findLocalVictim(oldest));
+      assertEquals(youngest, graph.findLocalVictim(middle));
+      assertEquals(youngest, graph.findLocalVictim(youngest));
+
+      graph.stopWaiting(youngest);
+      assertNull(graph.findLocalVictim(oldest));
+   }
+
+   public void testCycleNotGoingThroughWaiter() {
+      DldGlobalTransaction waiter = tx(1, 100), a = tx(2, 200), b = tx(3, 300);
+      WaitForGraph graph = new WaitForGraph();
+      graph.startWaiting(waiter, a);
+      graph.startWaiting(a, b);
+      graph.startWaiting(b, a);
+      assertNull(graph.findLocalVictim(waiter));
+      assertEquals(b, graph.findLocalVictim(a));
+   }
+
+   public void testVictimMarks() {
+      DldGlobalTransaction tx = tx(1, 100);
+      WaitForGraph graph = new WaitForGraph();
+      assertFalse(graph.consumeVictim(tx));
+      graph.markVictim(tx);
+      assertTrue(graph.consumeVictim(tx));
+      assertFalse(graph.consumeVictim(tx));
+
+      graph.markVictim(tx);
+      graph.purgeVictimsMarkedBefore(System.currentTimeMillis() + 1);
+      assertFalse(graph.consumeVictim(tx));
+
+      graph.markVictim(tx);
+      graph.startWaiting(tx, tx(2, 200));
+      graph.forget(tx);
+      assertFalse(graph.consumeVictim(tx));
+      assertFalse(graph.isWaiting(tx));
+   }
+
+   public void testSameCreationTimeOrderedByCoinToss() {
+      DldGlobalTransaction winner = tx(2, 100), loser = tx(1, 100);
+      assertTrue(loser.isYoungerThan(winner));
+      assertFalse(winner.isYoungerThan(loser));
+   }
+
+   public void testGlobalCycles() {
+      DldGlobalTransaction[] txs = new DldGlobalTransaction[6];
+      for (int i = 0; i < txs.length; i++) txs[i] = tx(i, 100 * i);
+      txs[2].setCreationTime(1000);
+      Map<DldGlobalTransaction, Set<DldGlobalTransaction>> edges = new HashMap<DldGlobalTransaction, Set<DldGlobalTransaction>>();
+      // 0 -> 1 -> 2 -> 0 and 3 -> 4 -> 3, plus 2 -> 5 -> 0 which makes 0 -> 1 -> 2 -> 5 -> 0 another cycle
+      addEdge(edges, txs[0], txs[1]);
+      addEdge(edges, txs[1], txs[2]);
+      addEdge(edges, txs[2], txs[0]);
+      addEdge(edges, txs[3], txs[4]);
+      addEdge(edges, txs[4], txs[3]);
+      addEdge(edges, txs[5], txs[0]);
+      addEdge(edges, txs[2], txs[5]);
+
+      List<DldGlobalTransaction> victims = WaitForGraph.findVictims(edges);
+      // rolling back 2, the youngest transaction of both cycles it is part of, breaks them both
+      assertEquals(2, victims.size());
+      assertEquals(set(txs[2], txs[4]), new HashSet<DldGlobalTransaction>(victims));
+      assertTrue(WaitForGraph.findVictims(edges).isEmpty());
+   }
+
+   public void testNoCycle() {
+      Map<DldGlobalTransaction, Set<DldGlobalTransaction>> edges = new HashMap<DldGlobalTransaction, Set<DldGlobalTransaction>>();
+      DldGlobalTransaction a = tx(1, 100), b = tx(2, 200), c = tx(3, 300);
+      addEdge(edges, a, b);
+      addEdge(edges, a, c);
+      addEdge(edges, b, c);
+      assertTrue(WaitForGraph.findVictims(edges).isEmpty());
+   }
+
+   private static void addEdge(Map<DldGlobalTransaction, Set<DldGlobalTransaction>> edges, DldGlobalTransaction waiter, DldGlobalTransaction owner) {
+      Set<DldGlobalTransaction> owners = edges.get(waiter);
+      if (owners == null) {
+         owners = new HashSet<DldGlobalTransaction>();
+         edges.put(waiter, owners);
+      }
+      owners.add(owner);
+   }
+
+   private static Set<DldGlobalTransaction> set(DldGlobalTransaction... txs) {
+      Set<DldGlobalTransaction> set = new HashSet<DldGlobalTransaction>();
+      for (DldGlobalTransaction tx : txs) set.add(tx);
+      return set;
+   }
+}
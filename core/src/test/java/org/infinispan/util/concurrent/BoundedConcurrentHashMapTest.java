@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ * Tests the eviction order of maps bounded by their number of entries. Removing an entry copies the entries before it
+ * in its bin, and the copies must keep the recency of the entries they replace, so keys sharing a bin must be evicted
+ * exactly like keys spread over distinct bins.
+ *
+ * @since 5.2
+ */
+@Test(groups = "unit", testName = "util.concurrent.BoundedConcurrentHashMapTest")
+public class BoundedConcurrentHashMapTest extends AbstractInfinispanTest {
+
+   private static final int CAPACITY = 64;
+
+   public void testLRUEvictionOrderKeptAcrossRemovals() {
+      doTestEvictionOrderKeptAcrossRemovals(Eviction.LRU);
+   }
+
+   public void testLIRSEvictionOrderKeptAcrossRemovals() {
+      doTestEvictionOrderKeptAcrossRemovals(Eviction.LIRS);
+   }
+
+   private void doTestEvictionOrderKeptAcrossRemovals(Eviction eviction) {
+      Set<Integer> sharingBins = survivors(eviction, true);
+      Set<Integer> spread = survivors(eviction, false);
+      assertEquals(CAPACITY, spread.size());
+      assertEquals(spread, sharingBins);
+   }
+
+   /**
+    * Writes, reads and removes the same keys in the same order, then adds enough keys to evict some of the first ones.
+    *
+    * @return the ids of the keys left in the map
+    */
+   private Set<Integer> survivors(Eviction eviction, boolean sameBin) {
+      BoundedConcurrentHashMap<Key, Integer> map = new BoundedConcurrentHashMap<Key, Integer>(CAPACITY, 1, eviction,
+            new EvictionListener<Key, Integer>() {
+               @Override
+               public void onEntryEviction(Map<Key, Integer> evicted) {
+               }
+
+               @Override
+               public boolean onEntryChosenForEviction(Integer value) {
+                  return true;
+               }
+            });
+      for (int i = 0; i < 50; i++) map.put(new Key(i, sameBin), i);
+      for (int round = 0; round < 3; round++) {
+         for (int i = 0; i < 50; i += 2) map.get(new Key(i, sameBin));
+      }
+      for (int i = 5; i < 50; i += 10) map.remove(new Key(i, sameBin));
+      for (int i = 100; i < 130; i++) map.put(new Key(i, sameBin), i);
+
+      Set<Integer> ids = new TreeSet<Integer>();
+      for (Key key : map.keySet()) ids.add(key.id);
+      return ids;
+   }
+
+   private static final class Key {
+      final int id;
+      final boolean sameBin;
+
+      Key(int id, boolean sameBin) {
+         this.id = id;
+         this.sameBin = sameBin;
+      }
+
+      @Override
+      public int hashCode() {
+         return sameBin ? 42 : id * 31 + 7;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Key)) return false;
+         Key other = (Key) o;
+         return id == other.id && sameBin == other.sameBin;
+      }
+   }
+}
@@ -26,6 +26,7 @@
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.BackupResponse;
 import org.infinispan.remoting.transport.Transport;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.xsite.XSiteBackup;
 
@@ -91,6 +92,11 @@ public Map<Address, Response> invokeRemotely(Collection<Address> recipients, Rep
       return actual.invokeRemotely(recipients, rpcCommand, mode, timeout, usePriorityQueue,responseFilter);
    }
 
+   @Override
+   public NotifyingFuture<Map<Address, Response>> invokeRemotelyAsync(Collection<Address> recipients, ReplicableCommand rpcCommand, ResponseMode mode, long timeout, boolean usePriorityQueue, ResponseFilter responseFilter) {
+      return actual.invokeRemotelyAsync(recipients, rpcCommand, mode, timeout, usePriorityQueue, responseFilter);
+   }
+
    @Override
    public boolean isCoordinator() {
       return actual.isCoordinator();
@@ -43,6 +43,9 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
    protected var host: String = _
    protected var port: Int = _
    protected var workerThreads: Int = _
+   protected var executionThreads: Int = _
+   protected var executionMaxChannelMemory: Long = _
+   protected var executionMaxTotalMemory: Long = _
    protected var transport: NettyTransport = _
    protected var cacheManager: EmbeddedCacheManager = _
    protected var versionGenerator: ClusterIdGenerator = _
@@ -67,6 +70,20 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
          if (workerThreads < 0)
             throw new IllegalArgumentException("Worker threads can't be lower than 0: " + workerThreads)
 
+         this.executionThreads = typedProps.getIntProperty(PROP_KEY_EXECUTION_THREADS, EXECUTION_THREADS_DEFAULT, true)
+         if (executionThreads < 0)
+            throw new IllegalArgumentException("Execution threads can't be lower than 0: " + executionThreads)
+
+         this.executionMaxChannelMemory = typedProps.getLongProperty(
+            PROP_KEY_EXECUTION_MAX_CHANNEL_MEMORY, EXECUTION_MAX_CHANNEL_MEMORY_DEFAULT, true)
+         if (executionMaxChannelMemory < 0)
+            throw new IllegalArgumentException("Execution max channel memory can't be lower than 0: " + executionMaxChannelMemory)
+
+         this.executionMaxTotalMemory = typedProps.getLongProperty(
+            PROP_KEY_EXECUTION_MAX_TOTAL_MEMORY, EXECUTION_MAX_TOTAL_MEMORY_DEFAULT, true)
+         if (executionMaxTotalMemory < 0)
+            throw new IllegalArgumentException("Execution max total memory can't be lower than 0: " + executionMaxTotalMemory)
+
          this.cacheManager = cacheManager
          this.isGlobalStatsEnabled = cacheManager.getGlobalConfiguration.isExposeGlobalJmxStatistics
          val idleTimeout = typedProps.getIntProperty(PROP_KEY_IDLE_TIMEOUT, IDLE_TIMEOUT_DEFAULT, true)
@@ -87,8 +104,8 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
 
          if (isDebugEnabled) {
             debugf("Starting server with basic settings: host=%s, port=%d, masterThreads=%s, workerThreads=%d, " +
-                  "idleTimeout=%d, tcpNoDelay=%b, sendBufSize=%d, recvBufSize=%d", host, port,
-                  masterThreads, workerThreads, idleTimeout, tcpNoDelay, sendBufSize, recvBufSize)
+                  "executionThreads=%d, idleTimeout=%d, tcpNoDelay=%b, sendBufSize=%d, recvBufSize=%d", host, port,
+                  masterThreads, workerThreads, executionThreads, idleTimeout, tcpNoDelay, sendBufSize, recvBufSize)
          }
 
          // Start default cache
@@ -105,7 +122,7 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
          recvBufSize: Int, typedProps: TypedProperties) {
       val address = new InetSocketAddress(host, port)
       transport = new NettyTransport(this, getEncoder, address, workerThreads,
-         idleTimeout, threadNamePrefix, tcpNoDelay, sendBufSize, recvBufSize,
+         executionThreads, executionMaxChannelMemory, executionMaxTotalMemory, idleTimeout, threadNamePrefix, tcpNoDelay, sendBufSize, recvBufSize,
          isGlobalStatsEnabled)
 
       if (isGlobalStatsEnabled) {
@@ -26,6 +26,7 @@ import org.infinispan.util.Util
 import java.io.{ObjectOutput, ObjectInput}
 import java.util.Arrays
 import org.infinispan.marshall.AbstractExternalizer
+import org.infinispan.marshall.jboss.{ExtendedRiverUnmarshaller, ExtendedRiverMarshaller}
 import scala.collection.JavaConversions._
 import java.lang.StringBuilder
 
@@ -72,14 +73,20 @@ class CacheValue(val data: Array[Byte], val version: Long) {
 object CacheValue {
    class Externalizer extends AbstractExternalizer[CacheValue] {
       override def writeObject(output: ObjectOutput, cacheValue: CacheValue) {
-         output.writeInt(cacheValue.data.length)
-         output.write(cacheValue.data)
+         val data = cacheValue.data
+         if (!ExtendedRiverMarshaller.writeDetachedPayload(output, data, 0, data.length)) {
+            output.writeInt(data.length)
+            output.write(data)
+         }
          output.writeLong(cacheValue.version)
       }
 
       override def readObject(input: ObjectInput): CacheValue = {
-         val data = new Array[Byte](input.readInt())
-         input.readFully(data) // Must be readFully, otherwise partial arrays can be read under load!
+         var data = ExtendedRiverUnmarshaller.readDetachedPayload(input)
+         if (data == null) {
+            data = new Array[Byte](input.readInt())
+            input.readFully(data) // Must be readFully, otherwise partial arrays can be read under load!
+         }
          val version = input.readLong
          new CacheValue(data, version)
       }
@@ -47,6 +47,9 @@ object Main extends Log {
    val PROP_KEY_HOST = "infinispan.server.host"
    val PROP_KEY_MASTER_THREADS = "infinispan.server.master_threads"
    val PROP_KEY_WORKER_THREADS = "infinispan.server.worker_threads"
+   val PROP_KEY_EXECUTION_THREADS = "infinispan.server.execution_threads"
+   val PROP_KEY_EXECUTION_MAX_CHANNEL_MEMORY = "infinispan.server.execution_max_channel_memory"
+   val PROP_KEY_EXECUTION_MAX_TOTAL_MEMORY = "infinispan.server.execution_max_total_memory"
    val PROP_KEY_CACHE_CONFIG = "infinispan.server.cache_config"
    val PROP_KEY_PROTOCOL = "infinispan.server.protocol"
    val PROP_KEY_IDLE_TIMEOUT = "infinispan.server.idle_timeout"
@@ -60,8 +63,13 @@ object Main extends Log {
    val PROP_KEY_TOPOLOGY_STATE_TRANSFER = "infinispan.server.topology.state_transfer"
    val PROP_KEY_TOPOLOGY_UPDATE_TIMEOUT = "infinispan.server.topology.update_timeout"
    val PROP_KEY_CACHE_MANAGER_CLASS = "infinispan.server.cache_manager_class"
+   val PROP_KEY_ITERATION_MAX_OPEN = "infinispan.server.iteration.max_open"
+   val PROP_KEY_ITERATION_IDLE_TIMEOUT = "infinispan.server.iteration.idle_timeout"
    val HOST_DEFAULT = "127.0.0.1"
    val WORKER_THREADS_DEFAULT = 2 * Runtime.getRuntime.availableProcessors()
+   val EXECUTION_THREADS_DEFAULT = 0
+   val EXECUTION_MAX_CHANNEL_MEMORY_DEFAULT = 1024 * 1024L
+   val EXECUTION_MAX_TOTAL_MEMORY_DEFAULT = 64 * 1024 * 1024L
    val IDLE_TIMEOUT_DEFAULT = -1
    val TCP_NO_DELAY_DEFAULT = true
    val SEND_BUF_SIZE_DEFAULT = 0
@@ -70,6 +78,8 @@ object Main extends Log {
    val TOPO_REPL_TIMEOUT_DEFAULT = 10000L
    val TOPO_UPDATE_TIMEOUT_DEFAULT = 30000L
    val TOPO_STATE_TRANSFER_DEFAULT = true
+   val ITERATION_MAX_OPEN_DEFAULT = 100
+   val ITERATION_IDLE_TIMEOUT_DEFAULT = 60000L
 
    /**
     * Server properties.  This object holds all of the required
@@ -183,7 +193,7 @@ object Main extends Log {
    }
 
    private def processCommandLine(args: Array[String]) {
-      val sopts = "-:hD:Vp:l:m:t:c:r:i:n:s:e:o:x:k:u:a:f:d:"
+      val sopts = "-:hD:Vp:l:m:t:w:b:g:c:r:i:n:s:e:o:x:k:u:a:f:d:"
       val lopts = Array(
          new LongOpt("help", LongOpt.NO_ARGUMENT, null, 'h'),
          new LongOpt("version", LongOpt.NO_ARGUMENT, null, 'V'),
@@ -191,6 +201,9 @@ object Main extends Log {
          new LongOpt("host", LongOpt.REQUIRED_ARGUMENT, null, 'l'),
          new LongOpt("master_threads", LongOpt.REQUIRED_ARGUMENT, null, 'm'),
          new LongOpt("worker_threads", LongOpt.REQUIRED_ARGUMENT, null, 't'),
+         new LongOpt("execution_threads", LongOpt.REQUIRED_ARGUMENT, null, 'w'),
+         new LongOpt("execution_max_channel_memory", LongOpt.REQUIRED_ARGUMENT, null, 'b'),
+         new LongOpt("execution_max_total_memory", LongOpt.REQUIRED_ARGUMENT, null, 'g'),
          new LongOpt("cache_config", LongOpt.REQUIRED_ARGUMENT, null, 'c'),
          new LongOpt("protocol", LongOpt.REQUIRED_ARGUMENT, null, 'r'),
          new LongOpt("idle_timeout", LongOpt.REQUIRED_ARGUMENT, null, 'i'),
@@ -219,6 +232,9 @@ object Main extends Log {
             case 'l' => props.setProperty(PROP_KEY_HOST, getopt.getOptarg)
             case 'm' => props.setProperty(PROP_KEY_MASTER_THREADS, getopt.getOptarg)
             case 't' => props.setProperty(PROP_KEY_WORKER_THREADS, getopt.getOptarg)
+            case 'w' => props.setProperty(PROP_KEY_EXECUTION_THREADS, getopt.getOptarg)
+            case 'b' => props.setProperty(PROP_KEY_EXECUTION_MAX_CHANNEL_MEMORY, getopt.getOptarg)
+            case 'g' => props.setProperty(PROP_KEY_EXECUTION_MAX_TOTAL_MEMORY, getopt.getOptarg)
             case 'c' => props.setProperty(PROP_KEY_CACHE_CONFIG, getopt.getOptarg)
             case 'r' => props.setProperty(PROP_KEY_PROTOCOL, getopt.getOptarg)
             case 'i' => props.setProperty(PROP_KEY_IDLE_TIMEOUT, getopt.getOptarg)
@@ -276,6 +292,18 @@ object Main extends Log {
       println
       println("    -t, --worker_threads=<num>         Number of threads processing incoming requests and sending responses (default: 20 * number of processors)")
       println
+      println("    -w, --execution_threads=<num>      Number of threads executing decoded requests, so that blocking cache operations do not stall")
+      println("                                       the worker threads serving other connections. Requests from a connection are still")
+      println("                                       executed in order. Passing 0 executes requests in the worker threads (default: 0).")
+      println
+      println("    -b, --execution_max_channel_memory=<num>")
+      println("                                       Maximum number of bytes queued for execution per connection before reading from it")
+      println("                                       is suspended. Passing 0 disables the limit (default: 1048576).")
+      println
+      println("    -g, --execution_max_total_memory=<num>")
+      println("                                       Maximum number of bytes queued for execution across all connections before reading")
+      println("                                       is suspended. Passing 0 disables the limit (default: 67108864).")
+      println
       println("    -c, --cache_config=<filename>      Cache configuration file (default: creates cache with default values)")
       println
       println("    -r, --protocol=                    Protocol to understand by the server. This is a mandatory option and you should choose one of these options")
@@ -25,27 +25,33 @@ package org.infinispan.server.core.transport
 import org.jboss.netty.channel.group.DefaultChannelGroup
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory
 import org.jboss.netty.bootstrap.ServerBootstrap
-import java.util.concurrent.Executors
+import java.util.concurrent.{ThreadFactory, TimeUnit, Executors}
 import scala.collection.JavaConversions._
 import org.infinispan.server.core.ProtocolServer
 import org.infinispan.util.Util
 import org.jboss.netty.util.{ThreadNameDeterminer, ThreadRenamingRunnable}
 import org.jboss.netty.logging.{InternalLoggerFactory, Log4JLoggerFactory}
 import org.infinispan.server.core.logging.Log
-import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong}
 import org.jboss.netty.channel.{WriteCompletionEvent, MessageEvent, ChannelDownstreamHandler}
 import org.jboss.netty.buffer.ChannelBuffer
 import java.net.{InetSocketAddress}
+import org.jboss.netty.handler.execution.{OrderedMemoryAwareThreadPoolExecutor, ExecutionHandler}
 
 /**
  * A Netty based transport.
+ * <p/>
+ * When execution threads are configured, decoding and executing requests is handed over from the I/O worker threads
+ * to a separate pool, so that an operation blocking on replication or a cache store does not stall every other
+ * connection served by the same worker. The pool keeps the requests from each connection in order, and bounds the
+ * memory taken by queued requests by suspending reads from the connections that go over the limits.
  * 
  * @author Galder Zamarreño
  * @since 4.1
  */
 class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
-                     address: InetSocketAddress, workerThreads: Int,
-                     idleTimeout: Int, threadNamePrefix: String, tcpNoDelay: Boolean,
+                     address: InetSocketAddress, workerThreads: Int, executionThreads: Int,
+                     executionMaxChannelMemory: Long, executionMaxTotalMemory: Long, idleTimeout: Int, threadNamePrefix: String, tcpNoDelay: Boolean,
                      sendBufSize: Int, recvBufSize: Int, isGlobalStatsEnabled: Boolean)
         extends Transport with Log {
 
@@ -61,6 +67,14 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
    private val workerExecutor = Executors.newCachedThreadPool
    private val factory = new NioServerSocketChannelFactory(masterExecutor, workerExecutor, workerThreads)
 
+   private val executionExecutor =
+      if (executionThreads > 0)
+         new OrderedMemoryAwareThreadPoolExecutor(executionThreads, executionMaxChannelMemory,
+            executionMaxTotalMemory, 60, TimeUnit.SECONDS, new ExecutionThreadFactory)
+      else null // Requests are executed in the I/O worker threads
+   private[core] val executionHandler =
+      if (executionExecutor != null) new ExecutionHandler(executionExecutor) else null
+
    private val totalBytesWritten, totalBytesRead = new AtomicLong
    private val userBytesWritten, userBytesRead = new AtomicLong
    private val isTrace = isTraceEnabled
@@ -132,6 +146,8 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
             }
          }
       }
+      if (executionHandler != null)
+         executionHandler.releaseExternalResources()
       pipeline.stop
       if (isDebugEnabled) debug("Channel group completely closed, release external resources");
       factory.releaseExternalResources();
@@ -147,6 +163,14 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
 
    override def getNumberWorkerThreads = workerThreads.toString
 
+   override def getNumberExecutionThreads = executionThreads.toString
+
+   override def getPendingTasks =
+      (if (executionExecutor != null) executionExecutor.getQueue.size else 0).toString
+
+   override def getCompletedTasks =
+      (if (executionExecutor != null) executionExecutor.getCompletedTaskCount else 0).toString
+
    override def getIdleTimeout = idleTimeout.toString
 
    override def getTpcNoDelay = tcpNoDelay.toString
@@ -169,4 +193,11 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
       if (isGlobalStatsEnabled)
          base.addAndGet(e.getMessage.asInstanceOf[ChannelBuffer].readableBytes)
 
+   private class ExecutionThreadFactory extends ThreadFactory {
+      private val threadCounter = new AtomicInteger
+
+      override def newThread(r: Runnable): Thread =
+         new Thread(r, threadNamePrefix + "ServerExecutor-" + threadCounter.incrementAndGet)
+   }
+
 }
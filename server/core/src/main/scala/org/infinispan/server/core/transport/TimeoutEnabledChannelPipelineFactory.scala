@@ -40,6 +40,9 @@ class TimeoutEnabledChannelPipelineFactory(server: ProtocolServer,
 
    override def getPipeline: ChannelPipeline = {
       val pipeline = Channels.pipeline
+      // Placed first so that the decoder, which executes the requests, runs off the I/O worker threads
+      if (transport.executionHandler != null)
+         pipeline.addLast("executionHandler", transport.executionHandler)
       pipeline.addLast("decoder", server.getDecoder)
       if (encoder != null)
          pipeline.addLast("encoder", encoder)
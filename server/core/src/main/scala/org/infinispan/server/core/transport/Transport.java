@@ -72,6 +72,22 @@ public interface Transport {
            displayType = DisplayType.SUMMARY)
    String getNumberWorkerThreads();
 
+   @ManagedAttribute(description = "Returns the number of threads executing decoded requests, " +
+         "or 0 if requests are executed in the worker threads.")
+   @Metric(displayName = "Number of execution threads", dataType = DataType.TRAIT,
+           displayType = DisplayType.SUMMARY)
+   String getNumberExecutionThreads();
+
+   @ManagedAttribute(description = "Returns the number of requests waiting to be executed by the execution threads.")
+   @Metric(displayName = "Number of pending requests", displayType = DisplayType.SUMMARY)
+   String getPendingTasks();
+
+   @ManagedAttribute(description = "Returns the number of requests executed by the execution threads.")
+   @Metric(displayName = "Number of executed requests",
+           measurementType = MeasurementType.TRENDSUP,
+           displayType = DisplayType.SUMMARY)
+   String getCompletedTasks();
+
    @ManagedAttribute(description = "Returns the idle timeout.")
    @Metric(displayName = "Idle timeout", dataType = DataType.TRAIT,
            displayType = DisplayType.SUMMARY)
@@ -53,6 +53,24 @@ class AbstractProtocolServerTest {
       expectIllegalArgument(p, createServer)
    }
 
+   def testValidateNegativeExecutionThreads() {
+      val p = new Properties
+      p.setProperty(PROP_KEY_EXECUTION_THREADS, "-1")
+      expectIllegalArgument(p, createServer)
+   }
+
+   def testValidateNegativeExecutionMaxChannelMemory() {
+      val p = new Properties
+      p.setProperty(PROP_KEY_EXECUTION_MAX_CHANNEL_MEMORY, "-1")
+      expectIllegalArgument(p, createServer)
+   }
+
+   def testValidateNegativeExecutionMaxTotalMemory() {
+      val p = new Properties
+      p.setProperty(PROP_KEY_EXECUTION_MAX_TOTAL_MEMORY, "-1")
+      expectIllegalArgument(p, createServer)
+   }
+
    def testValidateNegativeIdleTimeout() {
       val p = new Properties
       p.setProperty(PROP_KEY_IDLE_TIMEOUT, "-1")
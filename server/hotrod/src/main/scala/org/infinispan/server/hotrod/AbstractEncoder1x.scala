@@ -106,6 +106,26 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
                buf.writeByte(0) // Done
             }
          }
+         case g: GetAllResponse => {
+            writeUnsignedInt(g.entries.size, buf)
+            for ((key, value) <- g.entries) {
+               writeRangedBytes(key.getData, buf)
+               writeRangedBytes(value.data, buf)
+            }
+         }
+         case i: InvalidationEvent => writeRangedBytes(i.key, buf)
+         case i: IterationResponse => {
+            val page = i.page
+            writeString(page.iterationId, buf)
+            // Tells the client whether the other servers have to be iterated too
+            buf.writeByte(if (page.isDistributed) 1 else 0)
+            writeUnsignedInt(page.entries.size, buf)
+            for ((key, value) <- page.entries) {
+               writeRangedBytes(key.getData, buf)
+               writeRangedBytes(value.data, buf)
+            }
+            buf.writeByte(if (page.isFinished) 1 else 0)
+         }
          case g: GetResponse =>
             if (g.status == Success) writeRangedBytes(g.data.get, buf)
          case e: ErrorResponse => writeString(e.msg, buf)
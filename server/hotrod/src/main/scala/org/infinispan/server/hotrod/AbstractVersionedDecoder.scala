@@ -57,6 +57,26 @@ abstract class AbstractVersionedDecoder {
     */
    def createValue(params: RequestParameters, nextVersion: Long, rawValue: Array[Byte]): CacheValue
 
+   /**
+    * Read the expiration parameters and all the entries of a put all request.
+    */
+   def readPutAllParameters(header: HotRodHeader, buffer: ChannelBuffer): PutAllParameters
+
+   /**
+    * Create the response for a put all request, once all the entries have been stored.
+    */
+   def createPutAllResponse(header: HotRodHeader): AnyRef
+
+   /**
+    * Read the iteration to continue, or to start if empty, the page size and the segments to restrict it to.
+    */
+   def readIterationParameters(header: HotRodHeader, buffer: ChannelBuffer): IterationParameters
+
+   /**
+    * Create the response carrying a page of an iteration.
+    */
+   def createIterationResponse(header: HotRodHeader, page: IterationPage): AnyRef
+
    /**
     * Create a successful response.
     */
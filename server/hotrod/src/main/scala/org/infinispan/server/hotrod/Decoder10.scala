@@ -67,6 +67,10 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
          case 0x15 => (StatsRequest, true)
          case 0x17 => (PingRequest, true)
          case 0x19 => (BulkGetRequest, false)
+         case 0x2D => (PutAllRequest, false)
+         case 0x2F => (GetAllRequest, false)
+         case 0x31 => (IterationRequest, false)
+         case 0x33 => (AddInvalidationListenerRequest, true)
          case _ => throw new HotRodUnknownOperationException(
                "Unknown operation: " + streamOp, version, messageId)
       }
@@ -132,6 +136,31 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
    override def createValue(params: RequestParameters, nextVersion: Long, rawValue: Array[Byte]): CacheValue =
       new CacheValue(rawValue, nextVersion)
 
+   override def readPutAllParameters(h: HotRodHeader, buffer: ChannelBuffer): PutAllParameters = {
+      val lifespan = readLifespanOrMaxIdle(buffer)
+      val maxIdle = readLifespanOrMaxIdle(buffer)
+      val count = readUnsignedInt(buffer)
+      val entries = new java.util.HashMap[ByteArrayKey, Array[Byte]](count)
+      for (i <- 0 until count)
+         entries.put(readKey(buffer), readRangedBytes(buffer))
+      new PutAllParameters(lifespan, maxIdle, entries)
+   }
+
+   override def createPutAllResponse(h: HotRodHeader): AnyRef =
+      new Response(h.version, h.messageId, h.cacheName, h.clientIntel, PutAllResponse, Success, h.topologyId)
+
+   override def readIterationParameters(h: HotRodHeader, buffer: ChannelBuffer): IterationParameters = {
+      val iterationId = readString(buffer)
+      val batchSize = readUnsignedInt(buffer)
+      val segmentCount = readUnsignedInt(buffer)
+      val segments = (0 until segmentCount).map(i => readUnsignedInt(buffer)).toSet
+      new IterationParameters(iterationId, batchSize, segments)
+   }
+
+   override def createIterationResponse(h: HotRodHeader, page: IterationPage): AnyRef =
+      new IterationResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+                            IterationResponse, Success, h.topologyId, page)
+
    override def createSuccessResponse(header: HotRodHeader, prev: CacheValue): AnyRef =
       createResponse(header, toResponse(header.op), Success, prev)
 
@@ -177,6 +206,8 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
          }
          case PingRequest => new Response(h.version, h.messageId, h.cacheName,
                   h.clientIntel, PingResponse, Success, h.topologyId)
+         case AddInvalidationListenerRequest => new Response(h.version, h.messageId, h.cacheName,
+                  h.clientIntel, AddInvalidationListenerResponse, Success, h.topologyId)
       }
    }
 
@@ -215,6 +246,19 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
             new BulkGetResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
                                 BulkGetResponse, Success, h.topologyId, count)
          }
+         case GetAllRequest => {
+            val count = readUnsignedInt(buffer)
+            // read all the keys before touching the cache, the decoder replays this if the request is incomplete
+            val keys = (0 until count).map(i => readKey(buffer))
+            val entries = mutable.Map.empty[ByteArrayKey, CacheValue]
+            for (k <- keys) {
+               val v = cache.get(k)
+               if (v != null) entries += (k -> v)
+            }
+            if (isTrace) trace("Found %d out of %d requested keys", entries.size, count)
+            new GetAllResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+                               GetAllResponse, Success, h.topologyId, immutable.Map[ByteArrayKey, CacheValue]() ++ entries)
+         }
       }
    }
 
@@ -274,6 +318,10 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
          case StatsRequest => StatsResponse
          case PingRequest => PingResponse
          case BulkGetRequest => BulkGetResponse
+         case PutAllRequest => PutAllResponse
+         case GetAllRequest => GetAllResponse
+         case IterationRequest => IterationResponse
+         case AddInvalidationListenerRequest => AddInvalidationListenerResponse
       }
    }
 
@@ -294,6 +342,11 @@ object OperationResponse extends Enumeration {
    val StatsResponse = Value(0x16)
    val PingResponse = Value(0x18)
    val BulkGetResponse = Value(0x1A)
+   val PutAllResponse = Value(0x2E)
+   val GetAllResponse = Value(0x30)
+   val IterationResponse = Value(0x32)
+   val AddInvalidationListenerResponse = Value(0x34)
+   val InvalidationEvent = Value(0x35)
    val ErrorResponse = Value(0x50)
 }
 
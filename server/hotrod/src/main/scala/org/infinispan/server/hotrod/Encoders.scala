@@ -172,4 +172,137 @@ object Encoders {
          return denormalizedHashes
       }
    }
+
+   /**
+    * Encoder for version 1.2 of the Hot Rod protocol. Rather than hash ids, hash distribution aware clients are sent
+    * the owners of each segment of the cache, which they can locate keys with exactly as the servers do. Clients
+    * knowing one of the recent topologies kept in the server's {@link TopologyHistory} are only sent the servers
+    * and segments that changed since, so a topology change does not cost every connected client the whole topology.
+    */
+   object Encoder12 extends AbstractEncoder1x with Log {
+
+      private val FullTopologyKey = -1
+
+      /**
+       * Hash distribution aware clients are sent the topology of the cache they talk to, identified by the id of the
+       * cache's consistent hash topology rather than by the view id, as the owners of the segments change on every
+       * rebalance. Cache topology ids are unrelated to the ones of other caches, and clients only keep the topology of
+       * one cache, so any id other than the current one means the client's topology is outdated.
+       */
+      override def getTopologyResponse(r: Response, addressCache: Cache[Address, ServerAddress],
+               server: HotRodServer): AbstractTopologyResponse = {
+         if (addressCache == null || r.clientIntel != 3)
+            return super.getTopologyResponse(r, addressCache, server)
+
+         val topologyId = server.getCacheTopologyId(r.cacheName)
+         if (r.topologyId == topologyId) return null
+         val cache = server.getCacheInstance(r.cacheName, addressCache.getCacheManager, false)
+         val config = cache.getCacheConfiguration
+         if (config.clustering().cacheMode().isDistributed)
+            createHashDistAwareResp(topologyId, config)
+         else
+            TopologyAwareResponse(topologyId)
+      }
+
+      override protected def writeHashTopologyHeader(
+               topoResp: AbstractTopologyResponse, buf: ChannelBuffer, r: Response,
+               members: Cache[Address, ServerAddress], server: HotRodServer) {
+         val history = server.getTopologyHistory
+         val snapshot = history.getOrCreate(r.cacheName, topoResp.viewId,
+            createSnapshot(topoResp, r, members, server))
+         val base = history.get(r.cacheName, r.topologyId)
+         val header =
+            if (base != null && base.numSegments == snapshot.numSegments
+                  && base.hashFunction == snapshot.hashFunction) {
+               trace("Write topology delta from %d to %s", base.topologyId, snapshot)
+               getEncodedHeader(snapshot, base.topologyId, encodeDelta(base, snapshot))
+            } else {
+               trace("Write full topology %s", snapshot)
+               getEncodedHeader(snapshot, FullTopologyKey, encodeFull(snapshot))
+            }
+         buf.writeBytes(header)
+      }
+
+      private def createSnapshot(topoResp: AbstractTopologyResponse, r: Response,
+               members: Cache[Address, ServerAddress], server: HotRodServer): TopologySnapshot = {
+         val addresses = mapAsScalaMap(members).toMap
+         val servers = addresses.values.toIndexedSeq.distinct.sortBy(s => (s.host, s.port))
+         topoResp match {
+            case h: AbstractHashDistAwareResponse => {
+               val indexes = servers.zipWithIndex.toMap
+               val cache = server.getCacheInstance(r.cacheName, members.getCacheManager, false)
+               val ch = cache.getAdvancedCache.getDistributionManager.getConsistentHash
+               // Cluster members not running a Hot Rod server are left out, clients could not connect to them
+               val owners = (0 until ch.getNumSegments).map(segment =>
+                  ch.locateOwnersForSegment(segment).flatMap(addresses.get).map(indexes).toIndexedSeq)
+               new TopologySnapshot(r.cacheName, h.viewId, servers, h.hashFunction, owners)
+            }
+            case t: TopologyAwareResponse =>
+               new TopologySnapshot(r.cacheName, t.viewId, servers, 0, IndexedSeq.empty)
+         }
+      }
+
+      private def getEncodedHeader(snapshot: TopologySnapshot, key: Int, encode: => Array[Byte]): Array[Byte] = {
+         val existing = snapshot.encodedHeaders.get(key)
+         if (existing != null) return existing
+         val encoded = encode
+         val raced = snapshot.encodedHeaders.putIfAbsent(key, encoded)
+         if (raced != null) raced else encoded
+      }
+
+      private def encodeFull(snapshot: TopologySnapshot): Array[Byte] = {
+         val buf = dynamicBuffer
+         buf.writeByte(1) // Full topology
+         writeUnsignedInt(snapshot.topologyId, buf)
+         writeUnsignedInt(snapshot.servers.size, buf)
+         snapshot.servers.foreach(writeServer(_, buf))
+         buf.writeByte(snapshot.hashFunction)
+         writeUnsignedInt(snapshot.numSegments, buf)
+         snapshot.segmentOwners.foreach(writeOwners(_, buf))
+         toByteArray(buf)
+      }
+
+      private def encodeDelta(base: TopologySnapshot, snapshot: TopologySnapshot): Array[Byte] = {
+         val buf = dynamicBuffer
+         buf.writeByte(2) // Delta from a topology known by the client
+         writeUnsignedInt(snapshot.topologyId, buf)
+         writeUnsignedInt(base.topologyId, buf)
+         // Lets clients check that the delta applies to the topology they know, and not to another cache's
+         writeString(base.cacheName, buf)
+         // Both server lists are sorted, so removing and then inserting servers at their new index rebuilds the list
+         val removed = base.servers.indices.filterNot(i => snapshot.servers.contains(base.servers(i)))
+         writeUnsignedInt(removed.size, buf)
+         removed.foreach(writeUnsignedInt(_, buf))
+         val added = snapshot.servers.indices.filterNot(i => base.servers.contains(snapshot.servers(i)))
+         writeUnsignedInt(added.size, buf)
+         added.foreach { i =>
+            writeUnsignedInt(i, buf)
+            writeServer(snapshot.servers(i), buf)
+         }
+         // Segments are compared by owner addresses, as the owner indexes shift when servers come and go
+         val changed = (0 until snapshot.numSegments).filter(s => snapshot.owners(s) != base.owners(s))
+         writeUnsignedInt(changed.size, buf)
+         changed.foreach { segment =>
+            writeUnsignedInt(segment, buf)
+            writeOwners(snapshot.segmentOwners(segment), buf)
+         }
+         toByteArray(buf)
+      }
+
+      private def writeServer(address: ServerAddress, buf: ChannelBuffer) {
+         writeString(address.host, buf)
+         writeUnsignedShort(address.port, buf)
+      }
+
+      private def writeOwners(owners: Seq[Int], buf: ChannelBuffer) {
+         buf.writeByte(owners.size)
+         owners.foreach(writeUnsignedInt(_, buf))
+      }
+
+      private def toByteArray(buf: ChannelBuffer): Array[Byte] = {
+         val bytes = new Array[Byte](buf.readableBytes)
+         buf.readBytes(bytes)
+         bytes
+      }
+   }
 }
@@ -35,6 +35,7 @@ import java.io.{IOException, StreamCorruptedException}
 import org.jboss.netty.buffer.ChannelBuffer
 import org.jboss.netty.channel.Channel
 import java.lang.StringBuilder
+import java.util.concurrent.TimeUnit
 
 /**
  * Top level Hot Rod decoder that after figuring out the version, delegates the rest of the reading to the
@@ -77,7 +78,7 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
 
       try {
          val decoder = version match {
-            case VERSION_10 | VERSION_11 => Decoder10
+            case VERSION_10 | VERSION_11 | VERSION_12 => Decoder10
             case _ => throw new UnknownVersionException(
                "Unknown version:" + version, version, messageId)
          }
@@ -153,11 +154,45 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
    override def createMultiGetResponse(pairs: Map[ByteArrayKey, CacheValue]): AnyRef =
       null // Unsupported
 
-   override protected def customDecodeHeader(ch: Channel, buffer: ChannelBuffer): AnyRef =
-      writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
+   override protected def customDecodeHeader(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      header.op match {
+         case HotRodOperation.AddInvalidationListenerRequest => {
+            // Register before answering so that no modification is missed, but only send events after the answer
+            val registration = server.getInvalidationNotifier.register(cache, header, ch)
+            val ret = writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
+            registration.activate()
+            ret
+         }
+         case _ => writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
+      }
+   }
 
-   override protected def customDecodeKey(ch: Channel, buffer: ChannelBuffer): AnyRef =
-      writeResponse(ch, header.decoder.customReadKey(header, buffer, cache))
+   override protected def customDecodeKey(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      header.op match {
+         case HotRodOperation.PutAllRequest =>
+            writeResponse(ch, putAll(header.decoder.readPutAllParameters(header, buffer)))
+         case HotRodOperation.IterationRequest => {
+            val params = header.decoder.readIterationParameters(header, buffer)
+            val page = server.getIterationManager.iterate(cache, params)
+            writeResponse(ch, header.decoder.createIterationResponse(header, page))
+         }
+         case _ => writeResponse(ch, header.decoder.customReadKey(header, buffer, cache))
+      }
+   }
+
+   private def putAll(p: PutAllParameters): AnyRef = {
+      // all the entries stored by a request share a version, versions only need to differ between writes to a key
+      val version = generateVersion(cache)
+      val entries = new java.util.HashMap[ByteArrayKey, CacheValue](p.entries.size)
+      val it = p.entries.entrySet.iterator
+      while (it.hasNext) {
+         val e = it.next
+         entries.put(e.getKey, header.decoder.createValue(null, version, e.getValue))
+      }
+      getOptimizedCache(cache).putAll(entries, toMillis(p.lifespan), TimeUnit.MILLISECONDS,
+         toMillis(p.maxIdle), TimeUnit.MILLISECONDS)
+      header.decoder.createPutAllResponse(header)
+   }
 
    override protected def customDecodeValue(ch: Channel, buffer: ChannelBuffer): AnyRef =
       writeResponse(ch, header.decoder.customReadValue(header, buffer, cache))
@@ -252,6 +287,16 @@ class HotRodHeader extends RequestHeader {
    }
 }
 
+class PutAllParameters(val lifespan: Int, val maxIdle: Int, val entries: java.util.Map[ByteArrayKey, Array[Byte]]) {
+   override def toString = {
+      new StringBuilder().append("PutAllParameters").append("{")
+         .append("lifespan=").append(lifespan)
+         .append(", maxIdle=").append(maxIdle)
+         .append(", entries=").append(entries.size)
+         .append("}").toString
+   }
+}
+
 class CacheNotFoundException(msg: String, override val version: Byte, override val messageId: Long)
         extends RequestParsingException(msg, version, messageId)
 
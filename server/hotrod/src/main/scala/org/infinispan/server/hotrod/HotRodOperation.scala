@@ -37,5 +37,9 @@ object HotRodOperation extends Enumeration(20) {
    val QuitRequest = Value
    val PingRequest = Value
    val BulkGetRequest = Value
+   val PutAllRequest = Value
+   val GetAllRequest = Value
+   val IterationRequest = Value
+   val AddInvalidationListenerRequest = Value
 
 }
\ No newline at end of file
@@ -62,6 +62,9 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
    private var addressCache: Cache[Address, ServerAddress] = _
    private var topologyUpdateTimeout: Long = _
    private var viewId: Int = DEFAULT_VIEW_ID
+   private var iterationManager: IterationManager = _
+   private val topologyHistory = new TopologyHistory
+   private val invalidationNotifier = new InvalidationNotifier
    private val knownCaches : java.util.Map[String, Cache[ByteArrayKey, CacheValue]] = ConcurrentMapFactory.makeConcurrentMap(4, 0.9f, 16)
    private val isTrace = isTraceEnabled
 
@@ -69,6 +72,22 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
 
    def getViewId: Int = viewId
 
+   def getIterationManager: IterationManager = iterationManager
+
+   def getTopologyHistory: TopologyHistory = topologyHistory
+
+   /**
+    * @return the id of the current consistent hash topology of the given cache, or the view id if the cache has none
+    */
+   def getCacheTopologyId(cacheName: String): Int = {
+      val cache = getCacheInstance(cacheName, getCacheManager, false)
+      val stateTransferManager = cache.getAdvancedCache.getComponentRegistry.getStateTransferManager
+      val cacheTopology = if (stateTransferManager == null) null else stateTransferManager.getCacheTopology
+      if (cacheTopology == null) viewId else cacheTopology.getTopologyId
+   }
+
+   def getInvalidationNotifier: InvalidationNotifier = invalidationNotifier
+
    def setViewId(viewId: Int) {
       trace("Set view id to %d", viewId)
       this.viewId = viewId
@@ -86,6 +105,9 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
       val properties = if (p == null) new Properties else p
       val defaultPort = 11222
 
+      // Needed as soon as the endpoint accepts requests
+      iterationManager = createIterationManager(TypedProperties.toTypedProperties(properties))
+
       // 1. Start default cache and the endpoint before adding self to
       // topology in order to avoid topology updates being used before
       // endpoint is available.
@@ -107,6 +129,14 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
       }
    }
 
+   private def createIterationManager(typedProps: TypedProperties): IterationManager = {
+      val maxIterations = typedProps.getIntProperty(PROP_KEY_ITERATION_MAX_OPEN, ITERATION_MAX_OPEN_DEFAULT, true)
+      if (maxIterations < 0)
+         throw new IllegalArgumentException("Max open iterations can't be lower than 0: " + maxIterations)
+      val idleTimeout = typedProps.getLongProperty(PROP_KEY_ITERATION_IDLE_TIMEOUT, ITERATION_IDLE_TIMEOUT_DEFAULT, true)
+      new IterationManager(maxIterations, idleTimeout)
+   }
+
    override def startTransport(idleTimeout: Int, tcpNoDelay: Boolean,
          sendBufSize: Int, recvBufSize: Int, typedProps: TypedProperties) {
       // Start predefined caches
@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.hotrod
+
+import logging.Log
+import org.infinispan.Cache
+import org.infinispan.notifications.Listener
+import org.infinispan.notifications.cachelistener.annotation.{CacheEntriesEvicted, CacheEntryRemoved, CacheEntryModified}
+import org.infinispan.notifications.cachelistener.event.{CacheEntriesEvictedEvent, CacheEntryRemovedEvent, CacheEntryModifiedEvent}
+import org.infinispan.util.ByteArrayKey
+import org.infinispan.server.core.CacheValue
+import org.jboss.netty.channel.{ChannelFutureListener, ChannelFuture, Channel}
+import java.util.concurrent.{CopyOnWriteArraySet, ConcurrentHashMap}
+import scala.collection.JavaConversions._
+import collection.mutable.ArrayBuffer
+
+/**
+ * Pushes the keys of modified, removed and evicted entries to the clients that registered an invalidation listener,
+ * so that they can keep their near caches up to date. A client registers a listener with every server, as each server
+ * only sees the modifications of the entries it owns. Events are sent on the connection the listener was registered on,
+ * which the client dedicates to them, and the listener goes away with the connection.
+ * <p/>
+ * A client not reading its events fast enough is disconnected rather than having them queue up on the server; the
+ * client then knows it might have missed some and drops the entries it cached once it registers again.
+ *
+ * @since 5.2
+ */
+class InvalidationNotifier extends Log {
+
+   private val listeners = new ConcurrentHashMap[String, CacheInvalidationListener]
+   private val isTrace = isTraceEnabled
+
+   /**
+    * Registers the given channel for the invalidation events of the cache. Events are held back until the returned
+    * registration is activated, which has to happen once the response to the registration has been written.
+    */
+   def register(cache: Cache[ByteArrayKey, CacheValue], h: HotRodHeader, ch: Channel): Registration = {
+      var listener = listeners.get(cache.getName)
+      if (listener == null) {
+         val newListener = new CacheInvalidationListener
+         listener = listeners.putIfAbsent(cache.getName, newListener)
+         if (listener == null) {
+            cache.addListener(newListener)
+            listener = newListener
+         }
+      }
+      val registration = new Registration(ch, h.version, h.cacheName)
+      listener.registrations.add(registration)
+      val registrations = listener.registrations
+      ch.getCloseFuture.addListener(new ChannelFutureListener {
+         def operationComplete(future: ChannelFuture) {
+            registrations.remove(registration)
+         }
+      })
+      if (isTrace) trace("Registered invalidation listener for cache %s on %s", cache.getName, ch)
+      registration
+   }
+
+   def getListenerCount(cacheName: String): Int = {
+      val listener = listeners.get(cacheName)
+      if (listener == null) 0 else listener.registrations.size
+   }
+
+   @Listener(sync = false) // Keep the writes free of the cost of notifying the clients
+   class CacheInvalidationListener {
+
+      private[hotrod] val registrations = new CopyOnWriteArraySet[Registration]
+
+      @CacheEntryModified
+      def entryModified(e: CacheEntryModifiedEvent[ByteArrayKey, CacheValue]) {
+         if (!e.isPre) invalidate(e.getKey)
+      }
+
+      @CacheEntryRemoved
+      def entryRemoved(e: CacheEntryRemovedEvent[ByteArrayKey, CacheValue]) {
+         if (!e.isPre) invalidate(e.getKey)
+      }
+
+      // Expired entries are not notified, clients bound the age of the entries they cache instead
+      @CacheEntriesEvicted
+      def entriesEvicted(e: CacheEntriesEvictedEvent[ByteArrayKey, CacheValue]) {
+         e.getEntries.keySet.foreach(invalidate)
+      }
+
+      private def invalidate(key: ByteArrayKey) {
+         registrations.foreach(_.send(key.getData))
+      }
+   }
+
+   class Registration(ch: Channel, version: Byte, cacheName: String) {
+
+      private var active = false
+      private val pending = new ArrayBuffer[Array[Byte]]
+
+      def activate() {
+         synchronized {
+            pending.foreach(write)
+            pending.clear()
+            active = true
+         }
+      }
+
+      private[hotrod] def send(key: Array[Byte]) {
+         synchronized {
+            if (active) write(key) else pending += key
+         }
+      }
+
+      private def write(key: Array[Byte]) {
+         if (!ch.isWritable) {
+            // The client is lagging behind, it will revalidate its near cache when reconnecting
+            if (isTrace) trace("Closing invalidation channel %s, it is not keeping up with events", ch)
+            ch.close()
+         } else {
+            ch.write(new InvalidationEvent(version, cacheName, key))
+         }
+      }
+   }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.hotrod
+
+import logging.Log
+import org.infinispan.Cache
+import org.infinispan.util.ByteArrayKey
+import org.infinispan.server.core.CacheValue
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import scala.collection.JavaConversions._
+import collection.mutable.ArrayBuffer
+import java.lang.StringBuilder
+
+/**
+ * Keeps track of the iterations opened by clients to scan a cache page by page. An iteration only holds a lazy
+ * iterator over the local entries, so the server memory used by a scan is bounded by the page size regardless of
+ * the size of the cache, and the number of iterations open at the same time is bounded too. Iterations that are not
+ * used for longer than the idle timeout are discarded.
+ * <p/>
+ * In distributed caches, each server only returns the entries whose segment it is the primary owner of, so that
+ * visiting every server yields each entry once. The requested segments, if any, further restrict the entries
+ * returned. Other cache modes return all the entries, ignoring the segments. Like the entry set it is based on, an
+ * iteration is weakly consistent: entries modified while iterating might or might not be returned.
+ *
+ * @since 5.2
+ */
+class IterationManager(maxIterations: Int, idleTimeout: Long) extends Log {
+
+   import IterationManager._
+
+   private val iterations = new ConcurrentHashMap[String, Iteration]
+   private val isTrace = isTraceEnabled
+
+   def iterate(cache: Cache[ByteArrayKey, CacheValue], params: IterationParameters): IterationPage = {
+      val dm = cache.getAdvancedCache.getDistributionManager
+      val isDistributed = dm != null
+      if (params.batchSize == 0) {
+         // The client is done with the iteration before reaching its end
+         iterations.remove(params.iterationId)
+         return new IterationPage(params.iterationId, isDistributed, Seq.empty, true)
+      }
+
+      val id = if (params.iterationId.isEmpty) start(cache, params.segments) else params.iterationId
+      val iteration = iterations.get(id)
+      if (iteration == null)
+         throw new IllegalStateException("Iteration %s not found, it might have expired".format(id))
+
+      val batchSize = math.min(params.batchSize, MAX_BATCH_SIZE)
+      val entries = new ArrayBuffer[(ByteArrayKey, CacheValue)](math.min(batchSize, 1024))
+      // A well behaved client never sends two requests for the same iteration concurrently
+      val finished = iteration.synchronized {
+         iteration.lastAccess = System.currentTimeMillis
+         while (entries.size < batchSize && iteration.hasNext)
+            entries += iteration.next
+         !iteration.hasNext
+      }
+      if (finished) iterations.remove(id)
+      if (isTrace) trace("Iteration %s returns %d entries, finished=%b", id, entries.size, finished)
+      new IterationPage(id, isDistributed, entries, finished)
+   }
+
+   private def start(cache: Cache[ByteArrayKey, CacheValue], segments: Set[Int]): String = {
+      purgeIdleIterations()
+      if (iterations.size >= maxIterations)
+         throw new IllegalStateException("Too many open iterations (%d), close or finish some of them first".format(maxIterations))
+
+      val dm = cache.getAdvancedCache.getDistributionManager
+      val filter: ByteArrayKey => Boolean =
+         if (dm == null) {
+            _ => true
+         } else {
+            val self = cache.getAdvancedCache.getRpcManager.getAddress
+            key => {
+               // Read the consistent hash every time so that the ownership follows topology changes
+               val ch = dm.getConsistentHash
+               val segment = ch.getSegment(key)
+               (segments.isEmpty || segments.contains(segment)) && ch.locatePrimaryOwnerForSegment(segment) == self
+            }
+         }
+      val id = UUID.randomUUID.toString
+      iterations.put(id, new Iteration(cache.entrySet.iterator, filter))
+      if (isTrace) trace("Started iteration %s over cache %s, segments=%s", id, cache.getName, segments)
+      id
+   }
+
+   private def purgeIdleIterations() {
+      val now = System.currentTimeMillis
+      for ((id, iteration) <- iterations) {
+         if (now - iteration.lastAccess > idleTimeout) {
+            if (iterations.remove(id, iteration) && isTrace)
+               trace("Discarded iteration %s, idle for more than %d ms", id, idleTimeout)
+         }
+      }
+   }
+
+   def getOpenIterations: Int = iterations.size
+
+   private class Iteration(it: java.util.Iterator[java.util.Map.Entry[ByteArrayKey, CacheValue]],
+                           filter: ByteArrayKey => Boolean) {
+      @volatile var lastAccess = System.currentTimeMillis
+      // The next matching entry is looked up in advance, so that the last page can tell it is the last one
+      private var nextEntry = findNext()
+
+      def hasNext: Boolean = nextEntry != null
+
+      def next: (ByteArrayKey, CacheValue) = {
+         val e = nextEntry
+         nextEntry = findNext()
+         (e.getKey, e.getValue)
+      }
+
+      private def findNext(): java.util.Map.Entry[ByteArrayKey, CacheValue] = {
+         while (it.hasNext) {
+            val e = it.next
+            if (filter(e.getKey)) return e
+         }
+         null
+      }
+   }
+
+}
+
+object IterationManager {
+
+   /**
+    * Upper bound of the number of entries returned in a page, whatever the client asks for.
+    */
+   val MAX_BATCH_SIZE = 10000
+
+}
+
+class IterationParameters(val iterationId: String, val batchSize: Int, val segments: Set[Int]) {
+   override def toString = {
+      new StringBuilder().append("IterationParameters").append("{")
+         .append("iterationId=").append(iterationId)
+         .append(", batchSize=").append(batchSize)
+         .append(", segments=").append(segments)
+         .append("}").toString
+   }
+}
+
+class IterationPage(val iterationId: String, val isDistributed: Boolean,
+                    val entries: Seq[(ByteArrayKey, CacheValue)], val isFinished: Boolean)
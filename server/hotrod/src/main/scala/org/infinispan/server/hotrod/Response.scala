@@ -24,7 +24,8 @@ package org.infinispan.server.hotrod
 
 import OperationStatus._
 import OperationResponse._
-import org.infinispan.util.Util
+import org.infinispan.util.{ByteArrayKey, Util}
+import org.infinispan.server.core.CacheValue
 import java.lang.StringBuilder
 
 /**
@@ -94,6 +95,53 @@ class BulkGetResponse(override val version: Byte, override val messageId: Long,
    }
 }
 
+class GetAllResponse(override val version: Byte, override val messageId: Long, override val cacheName: String, override val clientIntel: Short,
+                     override val operation: OperationResponse, override val status: OperationStatus,
+                     override val topologyId: Int, val entries: Map[ByteArrayKey, CacheValue])
+      extends Response(version, messageId, cacheName, clientIntel, operation, status, topologyId) {
+   override def toString = {
+      new StringBuilder().append("GetAllResponse").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", operation=").append(operation)
+         .append(", status=").append(status)
+         .append(", entries=").append(entries.size)
+         .append("}").toString
+   }
+}
+
+/**
+ * Pushed to the clients that registered an invalidation listener, unrelated to any request of theirs.
+ */
+class InvalidationEvent(override val version: Byte, override val cacheName: String, val key: Array[Byte])
+      extends Response(version, 0, cacheName, 1, InvalidationEvent, Success, 0) {
+   override def toString = {
+      new StringBuilder().append("InvalidationEvent").append("{")
+         .append("version=").append(version)
+         .append(", cacheName=").append(cacheName)
+         .append(", key=").append(Util.printArray(key, true))
+         .append("}").toString
+   }
+}
+
+class IterationResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
+                        override val clientIntel: Short, override val operation: OperationResponse,
+                        override val status: OperationStatus, override val topologyId: Int,
+                        val page: IterationPage)
+      extends Response(version, messageId, cacheName, clientIntel, operation, status, topologyId) {
+   override def toString = {
+      new StringBuilder().append("IterationResponse").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", operation=").append(operation)
+         .append(", status=").append(status)
+         .append(", iterationId=").append(page.iterationId)
+         .append(", entries=").append(page.entries.size)
+         .append(", finished=").append(page.isFinished)
+         .append("}").toString
+   }
+}
+
 class GetWithVersionResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
                              override val clientIntel: Short, override val operation: OperationResponse,
                              override val status: OperationStatus,
@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.hotrod
+
+import java.util.concurrent.ConcurrentHashMap
+import java.lang.StringBuilder
+
+/**
+ * Keeps the last topologies sent to Hot Rod clients for each cache, so that clients knowing a recent topology can be
+ * sent the differences with the current one instead of the whole of it. Snapshots are keyed by the id of the cache's
+ * own consistent hash topology, which changes on every rebalance, rather than by the cluster view id which does not.
+ * Every client is sent the same snapshot for a given topology id, which is what allows both sides to agree on the
+ * topology a delta applies to.
+ *
+ * @since 5.2
+ */
+class TopologyHistory(maxSnapshots: Int) {
+
+   private val snapshots = new ConcurrentHashMap[(String, Int), TopologySnapshot]
+
+   def this() = this(TopologyHistory.DEFAULT_MAX_SNAPSHOTS)
+
+   /**
+    * @return the snapshot of the given topology, or null if it is unknown or too old
+    */
+   def get(cacheName: String, topologyId: Int): TopologySnapshot = snapshots.get((cacheName, topologyId))
+
+   /**
+    * Returns the snapshot of the given topology, taking it first if this is the first time it is needed.
+    */
+   def getOrCreate(cacheName: String, topologyId: Int, create: => TopologySnapshot): TopologySnapshot = {
+      val key = (cacheName, topologyId)
+      val existing = snapshots.get(key)
+      if (existing != null) return existing
+
+      // Topology changes are rare, so taking snapshots one at a time is not a concern
+      synchronized {
+         val raced = snapshots.get(key)
+         if (raced != null) return raced
+         val snapshot = create
+         snapshots.put(key, snapshot)
+         val ids = snapshots.keySet.toArray(new Array[(String, Int)](0)).filter(_._1 == cacheName).map(_._2).sorted
+         ids.take(ids.length - maxSnapshots).foreach(id => snapshots.remove((cacheName, id)))
+         snapshot
+      }
+   }
+
+}
+
+object TopologyHistory {
+
+   val DEFAULT_MAX_SNAPSHOTS = 16
+
+}
+
+/**
+ * The Hot Rod view of a cache topology: the servers, sorted by host and port, and for each segment the indexes of its
+ * owners in that list, primary owner first. Caches that are not distributed have no segments.
+ *
+ * @since 5.2
+ */
+class TopologySnapshot(val cacheName: String, val topologyId: Int, val servers: IndexedSeq[ServerAddress],
+                       val hashFunction: Byte, val segmentOwners: IndexedSeq[IndexedSeq[Int]]) {
+
+   /**
+    * Encoded topology headers, either the full topology (key -1) or the delta from the topology whose id is the key.
+    * Computing them once per topology change rather than once per client is what keeps topology changes cheap for
+    * servers with many clients connected.
+    */
+   private[hotrod] val encodedHeaders = new ConcurrentHashMap[Int, Array[Byte]]
+
+   def numSegments: Int = segmentOwners.size
+
+   def owners(segment: Int): IndexedSeq[ServerAddress] = segmentOwners(segment).map(servers)
+
+   override def toString = {
+      new StringBuilder().append("TopologySnapshot").append("{")
+         .append("cacheName=").append(cacheName)
+         .append(", topologyId=").append(topologyId)
+         .append(", servers=").append(servers)
+         .append(", hashFunction=").append(hashFunction)
+         .append(", numSegments=").append(numSegments)
+         .append("}").toString
+   }
+}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.memcached
+
+import org.jboss.netty.buffer.ChannelBuffer
+import org.infinispan.server.core.transport.ExtendedChannelBuffer._
+
+/**
+ * Memcached binary protocol utilities.
+ *
+ * @since 5.2
+ */
+object BinaryProtocolUtil {
+
+   val REQUEST_MAGIC = 0x80.toByte
+   val RESPONSE_MAGIC = 0x81.toByte
+   val HEADER_LENGTH = 24
+
+   // Opcodes
+   val GET: Byte = 0x00
+   val SET: Byte = 0x01
+   val ADD: Byte = 0x02
+   val REPLACE: Byte = 0x03
+   val DELETE: Byte = 0x04
+   val INCREMENT: Byte = 0x05
+   val DECREMENT: Byte = 0x06
+   val QUIT: Byte = 0x07
+   val FLUSH: Byte = 0x08
+   val GETQ: Byte = 0x09
+   val NOOP: Byte = 0x0a
+   val VERSION: Byte = 0x0b
+   val GETK: Byte = 0x0c
+   val GETKQ: Byte = 0x0d
+   val APPEND: Byte = 0x0e
+   val PREPEND: Byte = 0x0f
+   val STAT: Byte = 0x10
+   val SETQ: Byte = 0x11
+   val ADDQ: Byte = 0x12
+   val REPLACEQ: Byte = 0x13
+   val DELETEQ: Byte = 0x14
+   val INCREMENTQ: Byte = 0x15
+   val DECREMENTQ: Byte = 0x16
+   val QUITQ: Byte = 0x17
+   val FLUSHQ: Byte = 0x18
+   val APPENDQ: Byte = 0x19
+   val PREPENDQ: Byte = 0x1a
+   val VERBOSITY: Byte = 0x1b
+
+   // Response status
+   val NO_ERROR: Short = 0x0000
+   val KEY_NOT_FOUND: Short = 0x0001
+   val KEY_EXISTS: Short = 0x0002
+   val INVALID_ARGUMENTS: Short = 0x0004
+   val ITEM_NOT_STORED: Short = 0x0005
+   val NON_NUMERIC_VALUE: Short = 0x0006
+   val UNKNOWN_COMMAND: Short = 0x0081
+   val INTERNAL_ERROR: Short = 0x0084
+
+   val EMPTY = Array[Byte]()
+
+   /**
+    * Quiet commands only send back a response when they fail, except quiet
+    * gets, which only send back a response when the key is found.
+    */
+   def isQuiet(opcode: Byte): Boolean = opcode match {
+      case GETQ | GETKQ | SETQ | ADDQ | REPLACEQ | DELETEQ | INCREMENTQ
+           | DECREMENTQ | QUITQ | FLUSHQ | APPENDQ | PREPENDQ => true
+      case _ => false
+   }
+
+   def isReturnKey(opcode: Byte): Boolean = opcode == GETK || opcode == GETKQ
+
+   /**
+    * Creates a buffer sized for the whole response, with the response header
+    * already written, so that the caller only has to write the extras, the
+    * key and the value, in this order.
+    */
+   def response(opcode: Byte, status: Short, opaque: Int, cas: Long,
+                extrasLength: Int, keyLength: Int, valueLength: Int): ChannelBuffer = {
+      val bodyLength = extrasLength + keyLength + valueLength
+      val buf = buffer(HEADER_LENGTH + bodyLength)
+      buf.writeByte(RESPONSE_MAGIC)
+      buf.writeByte(opcode)
+      buf.writeShort(keyLength)
+      buf.writeByte(extrasLength)
+      buf.writeByte(0) // data type
+      buf.writeShort(status)
+      buf.writeInt(bodyLength)
+      buf.writeInt(opaque)
+      buf.writeLong(cas)
+      buf
+   }
+
+   def response(opcode: Byte, status: Short, opaque: Int, cas: Long, value: Array[Byte]): ChannelBuffer = {
+      val buf = response(opcode, status, opaque, cas, 0, 0, value.length)
+      buf.writeBytes(value)
+      buf
+   }
+
+   /**
+    * Converts a 64 bit unsigned value, as sent by binary increment and
+    * decrement requests, into its decimal representation.
+    */
+   def unsignedToString(l: Long): String =
+      if (l >= 0) l.toString else (BigInt(l) + (BigInt(1) << 64)).toString
+
+}
@@ -39,13 +39,16 @@ import transport.NettyTransport
 import DecoderState._
 import java.lang.StringBuilder
 import java.io.{ByteArrayOutputStream, IOException, EOFException, StreamCorruptedException}
-import org.jboss.netty.channel.Channel
+import org.jboss.netty.channel.{ChannelFutureListener, Channel}
 import org.infinispan.util.Util
 import org.infinispan.server.memcached.TextProtocolUtil._
+import org.infinispan.server.memcached.BinaryProtocolUtil._
 import scala.Predef._
 
 /**
- * A Memcached protocol specific decoder
+ * A Memcached protocol specific decoder. It speaks both the text and the
+ * binary protocols, choosing one per connection based on the first byte
+ * received: binary requests always start with the request magic byte.
  *
  * @author Galder Zamarreño
  * @since 4.1
@@ -58,7 +61,7 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
    import RequestResolver._
 
    type SuitableParameters = MemcachedParameters
-   type SuitableHeader = RequestHeader
+   type SuitableHeader = MemcachedRequestHeader
 
    private lazy val isStatsEnabled = cache.getConfiguration.isExposeJmxStatistics
    private final val incrMisses = new AtomicLong(0)
@@ -70,10 +73,21 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
    private final val replaceIfUnmodifiedBadval = new AtomicLong(0)
    private val isTrace = isTraceEnabled
    private val byteBuffer = new ByteArrayOutputStream()
+   private var isProtocolDetected = false
+   private var isBinary = false
+   // Version of the last value created, returned as cas by binary stores
+   private var lastVersion = 0L
+
+   override def createHeader: MemcachedRequestHeader = new MemcachedRequestHeader
+
+   override def readHeader(buffer: ChannelBuffer, header: MemcachedRequestHeader): Option[Boolean] = {
+      if (!isProtocolDetected) {
+         isBinary = buffer.getByte(buffer.readerIndex) == REQUEST_MAGIC
+         isProtocolDetected = true
+         if (isTrace) trace("Using %s protocol", if (isBinary) "binary" else "text")
+      }
+      if (isBinary) return readBinaryHeader(buffer, header)
 
-   override def createHeader: RequestHeader = new RequestHeader
-
-   override def readHeader(buffer: ChannelBuffer, header: RequestHeader): Option[Boolean] = {
       var endOfOp = readElement(buffer, byteBuffer)
       val streamOp = extractString(byteBuffer)
       val op = toRequest(streamOp, endOfOp, buffer)
@@ -94,7 +108,80 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
       Some(endOfOp)
    }
 
+   private def readBinaryHeader(b: ChannelBuffer, h: MemcachedRequestHeader): Option[Boolean] = {
+      val magic = b.readByte
+      if (magic != REQUEST_MAGIC)
+         throw new StreamCorruptedException("Invalid binary request magic: " + magic)
+      h.opcode = b.readByte
+      h.keyLength = b.readUnsignedShort
+      h.extrasLength = b.readUnsignedByte
+      b.skipBytes(3) // data type and vbucket id, both unused
+      h.totalBodyLength = b.readInt
+      h.opaque = b.readInt
+      h.cas = b.readLong
+      h.op = toBinaryRequest(h.opcode, h.cas)
+      h.op match {
+         case FlushAllRequest => {
+            if (h.extrasLength >= 4) {
+               h.expiration = b.readInt
+               h.bodyRead = 4
+            }
+            skipBinaryBody(b, h)
+            params = new MemcachedParameters(-1, -1, -1, -1, h.isQuiet, 0, "", h.expiration)
+            Some(true)
+         }
+         case StatsRequest | VersionRequest | QuitRequest | NoOpRequest => {
+            // Stats groups are not supported, so general stats are always returned
+            skipBinaryBody(b, h)
+            Some(true)
+         }
+         case VerbosityRequest => throw new StreamCorruptedException("Memcached 'verbosity' command is unsupported")
+         case _ => Some(false)
+      }
+   }
+
+   /**
+    * Skips whatever is left of the body of the current binary request, so
+    * that the next request can be read after an error.
+    */
+   private def skipBinaryBody(b: ChannelBuffer, h: MemcachedRequestHeader) {
+      val remaining = h.totalBodyLength - h.bodyRead
+      if (remaining > 0) {
+         b.skipBytes(remaining)
+         h.bodyRead = h.totalBodyLength
+      }
+   }
+
+   /**
+    * Reads the extras and the key of a binary request, which always come
+    * before its value.
+    */
+   private def readBinaryKey(b: ChannelBuffer): String = {
+      val h = header
+      h.op match {
+         case PutRequest | PutIfAbsentRequest | ReplaceRequest | ReplaceIfUnmodifiedRequest if h.extrasLength == 8 => {
+            h.flags = b.readUnsignedInt
+            h.expiration = b.readInt
+         }
+         case IncrementRequest | DecrementRequest if h.extrasLength == 20 => {
+            h.delta = b.readLong
+            h.initial = b.readLong
+            h.expiration = b.readInt
+         }
+         case _ => b.skipBytes(h.extrasLength)
+      }
+      val keyBytes = new Array[Byte](h.keyLength)
+      b.readBytes(keyBytes)
+      h.bodyRead = h.extrasLength + h.keyLength
+      if (h.keyLength > 250)
+         throw new StreamCorruptedException("Key length over the 250 character limit")
+      new String(keyBytes, CHARSET)
+   }
+
    override def readKey(b: ChannelBuffer): (String, Boolean) = {
+      // A binary delete has no value nor parameters, so it ends with the key
+      if (isBinary) return (readBinaryKey(b), header.op == RemoveRequest)
+
       val endOfOp = readElement(b, byteBuffer)
       val k = extractString(byteBuffer)
       checkKeyLength(k, endOfOp, b)
@@ -104,6 +191,11 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
    private def readKeys(b: ChannelBuffer): Seq[String] = readSplitLine(b)
 
    override protected def get(buffer: ChannelBuffer): AnyRef = {
+      if (isBinary) {
+         // Binary gets are single key, multi gets are pipelined quiet gets
+         val k = readBinaryKey(buffer)
+         return createGetResponse(k, cache.get(k))
+      }
       val keys = readKeys(buffer)
       if (keys.length > 1) {
          val map = new HashMap[String, MemcachedValue]()
@@ -127,6 +219,8 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
    }
 
    override def readParameters(ch: Channel, b: ChannelBuffer): Boolean = {
+      if (isBinary) return readBinaryParameters
+
       val args = readSplitLine(b)
       var endOfOp = false
       params =
@@ -152,6 +246,18 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
       endOfOp
    }
 
+   /**
+    * Binary parameters come in the extras, which are read along with the
+    * key, so this only builds the parameters out of them.
+    */
+   private def readBinaryParameters: Boolean = {
+      val h = header
+      val lifespan = if (h.expiration <= 0) -1 else h.expiration
+      params = new MemcachedParameters(h.totalBodyLength - h.bodyRead, lifespan, -1, h.cas,
+         h.isQuiet, h.flags, unsignedToString(h.delta), 0)
+      h.op == IncrementRequest || h.op == DecrementRequest
+   }
+
    private def readRemoveParameters(args: Seq[String]): MemcachedParameters = {
       val delayedDeleteTime = parseDelayedDeleteTime(args)
       val noReply = if (delayedDeleteTime == -1) parseNoReply(0, args) else false
@@ -206,11 +312,16 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
 
    override protected def readValue(b: ChannelBuffer) {
       b.readBytes(rawValue)
-      skipLine(b) // read the rest of line to clear CRLF after value Byte[]
+      if (isBinary)
+         header.bodyRead = header.totalBodyLength
+      else
+         skipLine(b) // read the rest of line to clear CRLF after value Byte[]
    }
 
-   override def createValue(nextVersion: Long): MemcachedValue =
+   override def createValue(nextVersion: Long): MemcachedValue = {
+      lastVersion = nextVersion
       new MemcachedValue(rawValue, nextVersion, params.flags)
+   }
 
    private def getFlags(flags: String): Long = {
       if (flags == null) throw new EOFException("No flags passed")
@@ -264,10 +375,20 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
       header.op match {
          case FlushAllRequest => flushAll(buffer, ch, false) // Without params
          case VersionRequest => {
-            val ret = new StringBuilder().append("VERSION ").append(Version.VERSION).append(CRLF)
+            val ret =
+               if (isBinary) binaryResponse(NO_ERROR, Version.VERSION.getBytes)
+               else new StringBuilder().append("VERSION ").append(Version.VERSION).append(CRLF)
             writeResponse(ch, ret)
          }
-         case QuitRequest => closeChannel(ch)
+         case QuitRequest => {
+            if (isBinary && !header.isQuiet) {
+               ch.write(binaryResponse(NO_ERROR, EMPTY)).addListener(ChannelFutureListener.CLOSE)
+               null
+            } else {
+               closeChannel(ch)
+            }
+         }
+         case NoOpRequest => writeResponse(ch, binaryResponse(NO_ERROR, EMPTY))
       }
    }
 
@@ -296,11 +417,11 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
                   val next = createValue(concatenated, generateVersion(cache), params.flags)
                   val replaced = cache.replace(key, prev, next);
                   if (replaced)
-                     if (!params.noReply) STORED else null
+                     createSuccessResponse(prev)
                   else // If there's a concurrent modification on this key, treat it as we couldn't replace it
-                     if (!params.noReply) NOT_STORED else null
+                     createNotExecutedResponse(prev)
                } else {
-                  if (!params.noReply) NOT_STORED else null
+                  createNotExecutedResponse(prev)
                }
             writeResponse(ch, ret)
          }
@@ -330,14 +451,25 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
             val replaced = cache.replace(key, prev, next)
             if (replaced) {
                if (isStatsEnabled) if (op == IncrementRequest) incrHits.incrementAndGet() else decrHits.incrementAndGet
-               if (!params.noReply) new String(next.data) + CRLF else null
+               if (isBinary) createBinaryCounterResponse(newCounter, next.version)
+               else if (!params.noReply) new String(next.data) + CRLF else null
             } else {
                // If there's a concurrent modification on this key, the spec does not say what to do, so treat it as exceptional
                throw new CacheException("Value modified since we retrieved from the cache, old value was " + prevCounter)
             }
+         } else if (isBinary && header.expiration != -1) {
+            // Binary requests can ask for the counter to be created with an initial value
+            val initial = BigInt(unsignedToString(header.initial))
+            val next = createValue(initial.toString.getBytes, generateVersion(cache), 0)
+            val existing = cache.putIfAbsent(key, next, toMillis(params.lifespan), TimeUnit.MILLISECONDS)
+            if (existing == null)
+               createBinaryCounterResponse(initial, next.version)
+            else
+               throw new CacheException("Value created since we retrieved from the cache, value is " + new String(existing.data))
          } else {
             if (isStatsEnabled) if (op == IncrementRequest) incrMisses.incrementAndGet() else decrMisses.incrementAndGet
-            if (!params.noReply) NOT_FOUND else null
+            if (isBinary) binaryResponse(KEY_NOT_FOUND, EMPTY)
+            else if (!params.noReply) NOT_FOUND else null
          }
       writeResponse(ch, ret)
    }
@@ -350,10 +482,24 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
          flushFunction(cache.getAdvancedCache)
       else
          scheduler.schedule(new DelayedFlushAll(cache, flushFunction), toMillis(flushDelay), TimeUnit.MILLISECONDS)
-      val ret = if (params == null || !params.noReply) OK else null
+      val ret =
+         if (isBinary) { if (header.isQuiet) null else binaryResponse(NO_ERROR, EMPTY) }
+         else if (params == null || !params.noReply) OK else null
       writeResponse(ch, ret)
    }
 
+   private def binaryResponse(status: Short, value: Array[Byte]): ChannelBuffer =
+      response(header.opcode, status, header.opaque, 0, value)
+
+   private def createBinaryCounterResponse(counter: BigInt, version: Long): AnyRef = {
+      if (header.isQuiet) null
+      else {
+         val buf = response(header.opcode, NO_ERROR, header.opaque, version, 0, 0, 8)
+         buf.writeLong(counter.longValue) // the lower 64 bits, as an unsigned long
+         buf
+      }
+   }
+
    private def validateDelta(delta: String): BigInt = {
       val bigIntDelta = BigInt(delta)
       if (bigIntDelta > MAX_UNSIGNED_LONG)
@@ -370,7 +516,11 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
             case _ => // No-op
          }
       }
-      if (params == null || !params.noReply) {
+      if (isBinary) {
+         if (header.isQuiet) null
+         else response(header.opcode, NO_ERROR, header.opaque,
+            if (header.op == RemoveRequest) 0 else lastVersion, EMPTY)
+      } else if (params == null || !params.noReply) {
          header.op match {
             case RemoveRequest => DELETED
             case _ => STORED
@@ -385,7 +535,14 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
             case _ => // No-op
          }
       }
-      if (params == null || !params.noReply) {
+      if (isBinary) {
+         // Failures are reported even for quiet requests
+         binaryResponse(header.op match {
+            case ReplaceRequest => KEY_NOT_FOUND
+            case AppendRequest | PrependRequest => ITEM_NOT_STORED
+            case _ => KEY_EXISTS
+         }, EMPTY)
+      } else if (params == null || !params.noReply) {
          header.op match {
             case ReplaceIfUnmodifiedRequest => EXISTS
             case _ => NOT_STORED
@@ -400,13 +557,16 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
             case _ => // No-op
          }
       }
-      if (params == null || !params.noReply)
+      if (isBinary)
+         binaryResponse(KEY_NOT_FOUND, EMPTY)
+      else if (params == null || !params.noReply)
          NOT_FOUND
       else
          null
    }
 
    override def createGetResponse(k: String, v: MemcachedValue): AnyRef = {
+      if (isBinary) return createBinaryGetResponse(k, v)
       if (v != null) {
          header.op match {
             case GetRequest => buildSingleGetResponse(k, v)
@@ -417,6 +577,21 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
          END
    }
 
+   private def createBinaryGetResponse(k: String, v: MemcachedValue): AnyRef = {
+      if (v != null) {
+         val keyBytes = if (isReturnKey(header.opcode)) k.getBytes(CHARSET) else EMPTY
+         val buf = response(header.opcode, NO_ERROR, header.opaque, v.version, 4, keyBytes.length, v.data.length)
+         buf.writeInt(v.flags.toInt)
+         buf.writeBytes(keyBytes)
+         buf.writeBytes(v.data)
+         buf
+      } else if (header.isQuiet) {
+         null // Quiet gets only report hits
+      } else {
+         binaryResponse(KEY_NOT_FOUND, EMPTY)
+      }
+   }
+
    override def createMultiGetResponse(pairs: Map[String, MemcachedValue]): AnyRef = {
       val elements = new ListBuffer[ChannelBuffer]
       val op = header.op
@@ -431,6 +606,7 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
    }
 
    override def createErrorResponse(t: Throwable): AnyRef = {
+      if (isBinary) return createBinaryErrorResponse(t)
       val sb = new StringBuilder
       t match {
          case m: MemcachedException => {
@@ -463,12 +639,36 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
       }
    }
 
+   private def createBinaryErrorResponse(t: Throwable): AnyRef = {
+      val cause = t match {
+         case m: MemcachedException if m.getCause != null => m.getCause
+         case _ => t
+      }
+      val status = cause match {
+         case c: ClosedChannelException => {
+            logExceptionReported(c)
+            return null // no-op, only log
+         }
+         case u: UnknownOperationException => UNKNOWN_COMMAND
+         case n: NumberFormatException if header != null
+               && (header.op == IncrementRequest || header.op == DecrementRequest) =>
+            NON_NUMERIC_VALUE
+         case _: IOException | _: NumberFormatException | _: IllegalStateException => INVALID_ARGUMENTS
+         case _ => INTERNAL_ERROR
+      }
+      if (status != INTERNAL_ERROR) logExceptionReported(cause)
+      val message = if (cause.getMessage == null) cause.toString else cause.getMessage
+      if (header == null) response(GET, status, 0, 0, message.getBytes)
+      else response(header.opcode, status, header.opaque, 0, message.getBytes)
+   }
+
    private def logAndCreateErrorMessage(sb: StringBuilder, m: MemcachedException): StringBuilder = {
       logExceptionReported(m.getCause)
       sb.append(m.getMessage).append(CRLF)
    }
 
    override protected def createServerException(e: Exception, b: ChannelBuffer): (MemcachedException, Boolean) = {
+      if (isBinary && header != null) skipBinaryBody(b, header)
       e match {
          case i: IOException => (new MemcachedException(CLIENT_ERROR_BAD_FORMAT + i.getMessage, i), true)
          case n: NumberFormatException => (new MemcachedException(CLIENT_ERROR_BAD_FORMAT + n.getMessage, n), true)
@@ -522,11 +722,19 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
          buildStat("threads", 0, sb), // TODO: Through netty?
          buildStat("conn_yields", 0, sb), // Unsupported
          buildStat("reclaimed", 0, sb), // Unsupported
-         wrappedBuffer(END)
+         if (isBinary) response(STAT, NO_ERROR, header.opaque, 0, EMPTY) else wrappedBuffer(END)
       )
    }
 
    private def buildStat(stat: String, value: Any, sb: StringBuilder): ChannelBuffer = {
+      if (isBinary) {
+         val statBytes = stat.getBytes
+         val valueBytes = value.toString.getBytes
+         val buf = response(STAT, NO_ERROR, header.opaque, 0, 0, statBytes.length, valueBytes.length)
+         buf.writeBytes(statBytes)
+         buf.writeBytes(valueBytes)
+         return buf
+      }
       sb.append("STAT").append(' ').append(stat).append(' ').append(value).append(CRLF)
       val buffer = wrappedBuffer(sb.toString.getBytes)
       sb.setLength(0)
@@ -534,8 +742,9 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
    }
 
    private def createValue(data: Array[Byte], nextVersion: Long, flags: Long): MemcachedValue = {
+      lastVersion = nextVersion
       new MemcachedValue(data, nextVersion, flags)
-   }   
+   }
 
    private def buildGetResponse(op: Enumeration#Value, k: String, v: MemcachedValue): ChannelBuffer = {
       val buf = buildGetHeaderBegin(k, v, 0)
@@ -615,6 +824,35 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
    }
 }
 
+class MemcachedRequestHeader extends RequestHeader {
+   // Binary protocol only
+   var opcode: Byte = _
+   var keyLength: Int = _
+   var extrasLength: Int = _
+   var totalBodyLength: Int = _
+   var bodyRead: Int = _
+   var opaque: Int = _
+   var cas: Long = _
+   var flags: Long = _
+   var expiration: Int = _
+   var delta: Long = _
+   var initial: Long = _
+
+   def isQuiet: Boolean = BinaryProtocolUtil.isQuiet(opcode)
+
+   override def toString = {
+      new StringBuilder().append("MemcachedRequestHeader").append("{")
+         .append("op=").append(op)
+         .append(", opcode=").append(opcode)
+         .append(", keyLength=").append(keyLength)
+         .append(", extrasLength=").append(extrasLength)
+         .append(", totalBodyLength=").append(totalBodyLength)
+         .append(", opaque=").append(opaque)
+         .append(", cas=").append(cas)
+         .append("}").toString
+   }
+}
+
 class MemcachedParameters(override val valueLength: Int, override val lifespan: Int,
                           override val maxIdle: Int, override val streamVersion: Long,
                           val noReply: Boolean, val flags: Long, val delta: String,
@@ -672,6 +910,29 @@ private object RequestResolver extends Log {
       }
       op
    }
+
+   def toBinaryRequest(opcode: Byte, cas: Long): Enumeration#Value = {
+      if (isTrace) trace("Binary operation: 0x%x", opcode)
+      opcode match {
+         case GET | GETQ | GETK | GETKQ => GetRequest
+         // A cas value turns stores into conditional replaces
+         case SET | SETQ => if (cas != 0) ReplaceIfUnmodifiedRequest else PutRequest
+         case ADD | ADDQ => PutIfAbsentRequest
+         case REPLACE | REPLACEQ => if (cas != 0) ReplaceIfUnmodifiedRequest else ReplaceRequest
+         case DELETE | DELETEQ => RemoveRequest
+         case APPEND | APPENDQ => AppendRequest
+         case PREPEND | PREPENDQ => PrependRequest
+         case INCREMENT | INCREMENTQ => IncrementRequest
+         case DECREMENT | DECREMENTQ => DecrementRequest
+         case FLUSH | FLUSHQ => FlushAllRequest
+         case NOOP => NoOpRequest
+         case VERSION => VersionRequest
+         case STAT => StatsRequest
+         case VERBOSITY => VerbosityRequest
+         case QUIT | QUITQ => QuitRequest
+         case _ => throw new UnknownOperationException("Unknown binary operation: 0x" + Integer.toHexString(opcode & 0xff))
+      }
+   }
 }
 
 class MemcachedException(message: String, cause: Throwable) extends Exception(message, cause)
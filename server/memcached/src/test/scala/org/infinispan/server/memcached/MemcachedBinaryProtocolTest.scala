@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.memcached
+
+import java.lang.reflect.Method
+import java.net.{Socket, InetSocketAddress}
+import java.io.{DataInputStream, ByteArrayOutputStream, DataOutputStream}
+import java.util.Arrays
+import java.util.concurrent.TimeUnit
+import net.spy.memcached.{CASResponse, BinaryConnectionFactory, MemcachedClient}
+import org.testng.Assert._
+import org.testng.annotations.{AfterClass, Test}
+import org.infinispan.Version
+import org.infinispan.server.memcached.BinaryProtocolUtil._
+
+/**
+ * Tests the Memcached binary protocol against Infinispan Memcached server,
+ * which is served from the same port as the text protocol.
+ *
+ * @since 5.2
+ */
+@Test(groups = Array("functional"), testName = "server.memcached.MemcachedBinaryProtocolTest")
+class MemcachedBinaryProtocolTest extends MemcachedSingleNodeTest {
+
+   private lazy val binaryClient = new MemcachedClient(new BinaryConnectionFactory {
+         override def getOperationTimeout: Long = 60000
+      }, Arrays.asList(new InetSocketAddress(host, server.getPort)))
+
+   @AfterClass(alwaysRun = true)
+   def shutdownBinaryClient {
+      binaryClient.shutdown
+   }
+
+   def testSetGetDelete(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), v(m))
+      assertTrue(binaryClient.delete(k(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertNull(binaryClient.get(k(m)))
+      assertFalse(binaryClient.delete(k(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+   }
+
+   def testAddAndReplace(m: Method) {
+      assertFalse(binaryClient.replace(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.add(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertFalse(binaryClient.add(k(m), 0, v(m, "v1-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.replace(k(m), 0, v(m, "v2-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), v(m, "v2-"))
+   }
+
+   def testCas(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      val value = binaryClient.gets(k(m))
+      assertEquals(value.getValue, v(m))
+      assertEquals(binaryClient.cas(k(m), value.getCas, v(m, "v1-")), CASResponse.OK)
+      assertEquals(binaryClient.cas(k(m), value.getCas, v(m, "v2-")), CASResponse.EXISTS)
+      assertEquals(binaryClient.get(k(m)), v(m, "v1-"))
+   }
+
+   def testAppendPrepend(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, "b").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.append(0, k(m), "c").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.prepend(0, k(m), "a").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), "abc")
+   }
+
+   def testIncrDecr(m: Method) {
+      // A missing counter is created with the default value
+      assertEquals(binaryClient.incr(k(m), 1, 10), 10L)
+      assertEquals(binaryClient.incr(k(m), 5, 10), 15L)
+      assertEquals(binaryClient.decr(k(m), 20, 10), 0L)
+   }
+
+   def testMultiGet(m: Method) {
+      assertTrue(binaryClient.set(k(m, "k1-"), 0, v(m, "v1-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.set(k(m, "k2-"), 0, v(m, "v2-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      val values = binaryClient.getBulk(k(m, "k1-"), k(m, "k2-"), k(m, "k3-"))
+      assertEquals(values.size, 2)
+      assertEquals(values.get(k(m, "k1-")), v(m, "v1-"))
+      assertEquals(values.get(k(m, "k2-")), v(m, "v2-"))
+   }
+
+   def testQuietGetsPipelinedWithNoOp(m: Method) {
+      assertTrue(client.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      val socket = new Socket(server.getHost, server.getPort)
+      try {
+         val bytes = new ByteArrayOutputStream
+         val out = new DataOutputStream(bytes)
+         writeRequest(out, GETKQ, k(m, "missing-"), 1)
+         writeRequest(out, GETKQ, k(m), 2)
+         writeRequest(out, NOOP, "", 3)
+         socket.getOutputStream.write(bytes.toByteArray)
+
+         // Only the hit and the no-op get a response
+         val in = new DataInputStream(socket.getInputStream)
+         val (opcode, status, opaque, key, value) = readResponse(in)
+         assertEquals(opcode, GETKQ)
+         assertEquals(status, NO_ERROR)
+         assertEquals(opaque, 2)
+         assertEquals(key, k(m))
+         assertEquals(value, v(m))
+         val (noOpCode, noOpStatus, noOpOpaque, _, _) = readResponse(in)
+         assertEquals(noOpCode, NOOP)
+         assertEquals(noOpStatus, NO_ERROR)
+         assertEquals(noOpOpaque, 3)
+      } finally {
+         socket.close
+      }
+   }
+
+   def testVersion {
+      val versions = binaryClient.getVersions
+      assertEquals(versions.size, 1)
+      assertEquals(versions.values.iterator.next, Version.VERSION)
+   }
+
+   def testTextProtocolStillServed {
+      // Connections are detected independently, so text clients keep working
+      assertEquals(send("version\r\n"), "VERSION " + Version.VERSION)
+   }
+
+   private def writeRequest(out: DataOutputStream, opcode: Byte, key: String, opaque: Int) {
+      val keyBytes = key.getBytes
+      out.writeByte(REQUEST_MAGIC)
+      out.writeByte(opcode)
+      out.writeShort(keyBytes.length)
+      out.writeByte(0) // extras length
+      out.writeByte(0) // data type
+      out.writeShort(0) // vbucket id
+      out.writeInt(keyBytes.length)
+      out.writeInt(opaque)
+      out.writeLong(0) // cas
+      out.write(keyBytes)
+   }
+
+   private def readResponse(in: DataInputStream): (Byte, Short, Int, String, String) = {
+      assertEquals(in.readByte, RESPONSE_MAGIC)
+      val opcode = in.readByte
+      val keyLength = in.readUnsignedShort
+      val extrasLength = in.readUnsignedByte
+      in.readByte // data type
+      val status = in.readShort
+      val totalBody = in.readInt
+      val opaque = in.readInt
+      in.readLong // cas
+      in.skipBytes(extrasLength)
+      val key = new Array[Byte](keyLength)
+      in.readFully(key)
+      val value = new Array[Byte](totalBody - extrasLength - keyLength)
+      in.readFully(value)
+      (opcode, status, opaque, new String(key), new String(value))
+   }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.memcached
+
+import java.lang.reflect.Method
+import java.lang.StringBuilder
+import java.net.Socket
+import java.util.Properties
+import org.infinispan.manager.EmbeddedCacheManager
+import org.infinispan.server.core.Main._
+import org.testng.annotations.Test
+import org.testng.Assert._
+import scala.collection.JavaConversions._
+
+/**
+ * Tests that requests executed off the I/O worker threads still complete in the order they were sent on a connection.
+ *
+ * @since 5.2
+ */
+@Test(groups = Array("functional"), testName = "server.memcached.MemcachedExecutionThreadsTest")
+class MemcachedExecutionThreadsTest extends MemcachedSingleNodeTest {
+
+   override protected def createTestServer(cacheManager: EmbeddedCacheManager): MemcachedServer = {
+      val p = new Properties
+      p.setProperty(PROP_KEY_EXECUTION_THREADS, "4")
+      startMemcachedTextServer(cacheManager, p)
+   }
+
+   def testPipelinedRequestsCompleteInOrder(m: Method) {
+      val key = k(m)
+      val values = (0 until 100).map(v(m) + _)
+      val req = new StringBuilder
+      values.foreach { value =>
+         req.append("set ").append(key).append(" 0 0 ").append(value.length).append("\r\n")
+            .append(value).append("\r\n")
+         req.append("get ").append(key).append("\r\n")
+      }
+      val socket = new Socket(server.getHost, server.getPort)
+      try {
+         // Written at once, so that the requests are queued in the execution pool together
+         socket.getOutputStream.write(req.toString.getBytes)
+         val is = socket.getInputStream
+         values.foreach { value =>
+            assertStored(readLine(is, new StringBuilder))
+            assertEquals(readLine(is, new StringBuilder), "VALUE " + key + " 0 " + value.length)
+            assertEquals(readLine(is, new StringBuilder), value)
+            assertEquals(readLine(is, new StringBuilder), "END")
+         }
+      } finally {
+         socket.close
+      }
+      assertTrue(Thread.getAllStackTraces.keySet.exists(_.getName.contains("ServerExecutor-")),
+         "Requests were not executed by the execution threads")
+   }
+
+}
@@ -47,7 +47,7 @@ abstract class MemcachedSingleNodeTest extends SingleCacheManagerTest with Memca
 
    override def createCacheManager: EmbeddedCacheManager = {
       cacheManager = createTestCacheManager
-      memcachedServer = startMemcachedTextServer(cacheManager)
+      memcachedServer = createTestServer(cacheManager)
       memcachedClient = createMemcachedClient(60000, server.getPort)
       cache = cacheManager.getCache(MemcachedServer.cacheName)
       return cacheManager
@@ -55,6 +55,9 @@ abstract class MemcachedSingleNodeTest extends SingleCacheManagerTest with Memca
 
    protected def createTestCacheManager: EmbeddedCacheManager = TestCacheManagerFactory.createLocalCacheManager(false)
 
+   protected def createTestServer(cacheManager: EmbeddedCacheManager): MemcachedServer =
+      startMemcachedTextServer(cacheManager)
+
    @AfterClass(alwaysRun = true)
    override def destroyAfterClass {
       super.destroyAfterClass
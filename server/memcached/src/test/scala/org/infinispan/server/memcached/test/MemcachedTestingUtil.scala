@@ -64,6 +64,14 @@ trait MemcachedTestingUtil {
       server
    }
 
+   def startMemcachedTextServer(cacheManager: EmbeddedCacheManager, properties: Properties): MemcachedServer = {
+      val server = new MemcachedServer
+      val p = getProperties(host, UniquePortThreadLocal.get.intValue)
+      p.putAll(properties)
+      server.start(p, cacheManager)
+      server
+   }
+
    private def getProperties(host: String, port: Int): Properties = {
       val properties = new Properties
       properties.setProperty(PROP_KEY_HOST, host)
@@ -30,6 +30,7 @@
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
 import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHashFactory;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
 import org.infinispan.client.hotrod.impl.transport.Transport;
@@ -65,11 +66,25 @@ public void updateHashFunction(final Map<SocketAddress, Set<Integer>> servers2Ha
             final int numKeyOwners, final short hashFunctionVersion, final int hashSpace) {
    }
 
+   @Override
+   public void updateHashFunction(final ConsistentHash consistentHash) {
+   }
+
    @Override
    public Transport getTransport(final byte[] key) {
       return null;
    }
 
+   @Override
+   public Transport getTransport(final SocketAddress server) {
+      return null;
+   }
+
+   @Override
+   public Collection<SocketAddress> getServers() {
+      return null;
+   }
+
    @Override
    public boolean isTcpNoDelay() {
       return false;
@@ -95,4 +110,9 @@ public ConsistentHashFactory getConsistentHashFactory() {
       return null;
    }
 
+   @Override
+   public ConsistentHash getConsistentHash() {
+      return null;
+   }
+
 }